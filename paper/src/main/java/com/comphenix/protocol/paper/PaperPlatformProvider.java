@@ -47,7 +47,7 @@ public final class PaperPlatformProvider implements PlatformProvider {
         return switch (name) {
             case "protocol" -> new CommandMetadata(
                     "Performs administrative tasks regarding ProtocolLib.",
-                    "/<command> config|check|update|timings|listeners|version|dump",
+                    "/<command> config|check|update|timings|bandwidth|listeners|version|dump",
                     "protocol.admin",
                     List.of());
             case "packet" -> new CommandMetadata(
@@ -57,12 +57,12 @@ public final class PaperPlatformProvider implements PlatformProvider {
                     List.of());
             case "filter" -> new CommandMetadata(
                     "Add or remove programmable filters to the packet listeners.",
-                    "/<command> add|remove name [ID start]-[ID stop]",
+                    "/<command> add|remove name [ID start]-[ID stop] | sample <policy> [ID start]-[ID stop]",
                     "protocol.admin",
                     List.of("packet_filter"));
             case "packetlog" -> new CommandMetadata(
                     "Logs hex representations of packets to a file or console",
-                    "/<command> <protocol> <sender> <packet> [location]",
+                    "/<command> <protocol> <sender> <packet> [location] | capture <start|stop> [player...] [type <protocol> <sender> <packet>...] | sample <protocol> <sender> <packet> <policy> [player]",
                     "protocol.admin",
                     List.of());
             default -> throw new IllegalArgumentException("Unknown ProtocolLib command " + name);
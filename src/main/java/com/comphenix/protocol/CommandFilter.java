@@ -5,6 +5,11 @@ import com.comphenix.protocol.error.ErrorReporter;
 import com.comphenix.protocol.error.Report;
 import com.comphenix.protocol.error.ReportType;
 import com.comphenix.protocol.events.PacketEvent;
+import com.comphenix.protocol.filter.FilterExpression;
+import com.comphenix.protocol.filter.FilterSyntaxException;
+import com.comphenix.protocol.filter.PacketSampler;
+import com.comphenix.protocol.filter.SampleCounts;
+import com.comphenix.protocol.filter.SamplingPolicy;
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.conversations.Conversable;
@@ -15,26 +20,22 @@ import org.bukkit.conversations.ConversationContext;
 import org.bukkit.conversations.ConversationFactory;
 import org.bukkit.plugin.Plugin;
 
-import javax.script.Invocable;
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptException;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * A command to apply JavaScript filtering to the packet command.
+ * A command to apply filter expressions to the packet command.
+ * <p>
+ * The expressions are compiled once, so that filters are cheap enough to keep around on a busy server.
+ * See {@link FilterExpression} for the syntax.
  * 
  * @author Kristian
  */
 public class CommandFilter extends CommandBase {
-    public static final ReportType REPORT_FALLBACK_ENGINE = new ReportType("Falling back to the Rhino engine.");
-    public static final ReportType REPORT_CANNOT_LOAD_FALLBACK_ENGINE = new ReportType("Could not load Rhino either. Please upgrade your JVM or OS.");
-    public static final ReportType REPORT_PACKAGES_UNSUPPORTED_IN_ENGINE = new ReportType("Unable to initialize packages for JavaScript engine.");
     public static final ReportType REPORT_FILTER_REMOVED_FOR_ERROR = new ReportType("Removing filter %s for causing %s.");
     public static final ReportType REPORT_CANNOT_HANDLE_CONVERSATION = new ReportType("Cannot handle conversation.");
     
@@ -55,7 +56,7 @@ public class CommandFilter extends CommandBase {
      * @author Kristian
      */
     private enum SubCommand {
-        ADD, REMOVE
+        ADD, REMOVE, SAMPLE
     }
     
     /**
@@ -68,11 +69,15 @@ public class CommandFilter extends CommandBase {
         
         private final Set<PacketType> packets;
         
+        // Compiled predicate, evaluated by the network threads
+        private volatile FilterExpression expression;
+        
         /**
          * Construct a new immutable filter.
          * @param name - the unique name of the filter.
-         * @param predicate - the JavaScript predicate that will be used to filter packet events.
+         * @param predicate - the filter expression that will be used to filter packet events.
          * @param packets - a list of packet types this filter applies to.
+         * @see FilterExpression
          */
         public Filter(String name, String predicate, Set<PacketType> packets) {
             this.name = name;
@@ -89,7 +94,7 @@ public class CommandFilter extends CommandBase {
         }
         
         /**
-         * Retrieve the JavaScript predicate that will be used to filter packet events.
+         * Retrieve the filter expression that will be used to filter packet events.
          * @return Predicate itself.
          */
         public String getPredicate() {
@@ -114,55 +119,32 @@ public class CommandFilter extends CommandBase {
         }
         
         /**
-         * Evaluate the current filter using the provided ScriptEngine as context.
-         * <p>
-         * This context may be modified with additional code.
-         * @param context - the current script context.
+         * Evaluate the current filter.
          * @param event - the packet event to evaluate.
          * @return TRUE to pass this packet event on to the debug listeners, FALSE otherwise.
-         * @throws ScriptException If the compilation failed or the filter is not valid.
+         * @throws FilterSyntaxException If the compilation failed.
          */
-        public boolean evaluate(ScriptEngine context, PacketEvent event) throws ScriptException {
+        public boolean evaluate(PacketEvent event) throws FilterSyntaxException {
             if (!isApplicable(event))
                 return true;
             // Ensure that the predicate has been compiled
-            compile(context);
+            compile();
             
-            try {
-                Object result = ((Invocable) context).invokeFunction(name, event, event.getPacket().getHandle());
-                
-                if (result instanceof Boolean)
-                    return (Boolean) result;
-                else
-                    throw new ScriptException("Filter result wasn't a boolean: " + result);
-                
-            } catch (NoSuchMethodException e) {
-                // Must be a fault with the script engine itself
-                throw new IllegalStateException("Unable to compile " + name + " into current script engine.", e);
-            }
+            return expression.test(event);
         }
         
         /**
          * Force the compilation of a specific filter.
-         * @param context - the current script context.
-         * @throws ScriptException If the compilation failed.
+         * @throws FilterSyntaxException If the compilation failed.
          */
-        public void compile(ScriptEngine context) throws ScriptException {
-            if (context.get(name) == null) {
-                context.eval("var " + name + " = function(event, packet) {\n" + predicate);
+        public void compile() throws FilterSyntaxException {
+            if (expression == null) {
+                expression = FilterExpression.compile(predicate);
             }
         }
-        
-        /**
-         * Clean up all associated code from this filter in the provided script engine.
-         * @param context - the current script context.
-         */
-        public void close(ScriptEngine context) {
-            context.put(name, null);
-        }
     }
     
-    private class CompilationSuccessCanceller implements MultipleConversationCanceller {
+    private static class CompilationSuccessCanceller implements MultipleConversationCanceller {
         @Override
         public boolean cancelBasedOnInput(ConversationContext context, String in) {
             throw new UnsupportedOperationException("Cannot cancel on the last line alone.");
@@ -176,16 +158,13 @@ public class CommandFilter extends CommandBase {
         @Override
         public boolean cancelBasedOnInput(ConversationContext context, String currentLine, StringBuilder lines, int lineCount) {
             try {
-                engine.eval("function(event, packet) {\n" + lines.toString());
+                FilterExpression.compile(lines.toString());
                 
                 // It compiles - accept the filter!
                 return true;
-            } catch (ScriptException e) {
-                // We also have the function() line
-                int realLineCount = lineCount + 1;
-                
-                // Only possible to recover from an error on the last line.
-                return e.getLineNumber() < realLineCount;
+            } catch (FilterSyntaxException e) {
+                // Only possible to recover if the expression is merely unfinished
+                return !e.isIncomplete();
             }
         }
         
@@ -203,87 +182,18 @@ public class CommandFilter extends CommandBase {
     // Default error handler
     private FilterFailedHandler defaultFailedHandler;
     
-    // Currently registered filters
-    private final Map<String, Filter> filters = new HashMap<>();
+    // Currently registered filters, evaluated on the network threads
+    private final Map<String, Filter> filters = new ConcurrentHashMap<>();
+    
+    // Samples the events before they are filtered
+    private final PacketSampler sampler = new PacketSampler();
     
     // Owner plugin
     private final Plugin plugin;
     
-    // Whether the command is enabled
-    private final ProtocolConfig config;
-    
-    // Script engine
-    private ScriptEngine engine;
-    private boolean uninitialized;
-    
-    public CommandFilter(ErrorReporter reporter, Plugin plugin, ProtocolConfig config) {
+    public CommandFilter(ErrorReporter reporter, Plugin plugin) {
         super(reporter, CommandBase.PERMISSION_ADMIN, NAME, 2);
         this.plugin = plugin;
-        this.config = config;
-        
-        // Tell the filter system to initialize the script first chance it gets
-        this.uninitialized = true;
-    }
-    
-    private void initializeScript() {
-        try {
-            // First attempt
-            initializeEngine();
-            
-            // Oh for ..
-            if (!isInitialized()) {
-                throw new ScriptException("A JavaScript engine could not be found.");
-            } else {
-                plugin.getLogger().info("Loaded command filter engine.");
-            }
-        } catch (ScriptException e1) {
-            // It's not a huge deal
-            printPackageWarning(e1);
-            
-            if (!config.getScriptEngineName().equals("rhino")) {
-                reporter.reportWarning(this, Report.newBuilder(REPORT_FALLBACK_ENGINE));
-                config.setScriptEngineName("rhino");
-                config.saveAll();
-                
-                try {
-                    initializeEngine();
-                    
-                    if (!isInitialized()) {
-                        reporter.reportWarning(this, Report.newBuilder(REPORT_CANNOT_LOAD_FALLBACK_ENGINE));
-                    }
-                } catch (ScriptException e2) {
-                    // And again ..
-                    printPackageWarning(e2);
-                }
-            }
-        }
-    }
-    
-    private void printPackageWarning(ScriptException e) {
-        reporter.reportWarning(this, Report.newBuilder(REPORT_PACKAGES_UNSUPPORTED_IN_ENGINE).error(e));
-    }
-    
-    /**
-     * Initialize the current configured engine.
-     * @throws ScriptException If we are unable to import packages.
-     */
-    private void initializeEngine() throws ScriptException {
-        ScriptEngineManager manager = new ScriptEngineManager();
-        engine = manager.getEngineByName(config.getScriptEngineName());
-        
-        // Import useful packages
-        if (engine != null) {
-            engine.eval("importPackage(org.bukkit);");
-            engine.eval("importPackage(com.comphenix.protocol.reflect);");
-        }
-    }
-    
-    /**
-     * Determine if the filter engine has been successfully initialized.
-     * @return TRUE if it has, FALSE otherwise.
-     */
-    public boolean isInitialized() {
-        return engine != null;
     }
 
     private FilterFailedHandler getDefaultErrorHandler() {
@@ -316,16 +226,22 @@ public class CommandFilter extends CommandBase {
     
     /**
      * Determine whether to pass the given packet event to the packet listeners.
+     * <p>
+     * Events that are not sampled are rejected before any filter is evaluated.
      * @param event - the event.
      * @param handler - failure handler.
      * @return TRUE if we should, FALSE otherwise.
      */
     public boolean filterEvent(PacketEvent event, FilterFailedHandler handler) {
+        if (!sampler.sample(event)) {
+            return false;
+        }
+        
         for (Iterator<Filter> it = filters.values().iterator(); it.hasNext(); ) {
             Filter filter = it.next();
             
             try {
-                if (!filter.evaluate(engine, event)) {
+                if (!filter.evaluate(event)) {
                     return false;
                 }
             } catch (Exception ex) {
@@ -339,34 +255,25 @@ public class CommandFilter extends CommandBase {
     }
 
     /**
-     * Initialize the script engine if necessary.
+     * Retrieve the sampler that decides which packet events are filtered at all.
+     * @return The packet sampler.
      */
-    private void checkScriptStatus() {
-        // Start the engine
-        if (uninitialized) {
-            uninitialized = false;
-            initializeScript();
-        }
+    public PacketSampler getSampler() {
+        return sampler;
     }
     
     /*
-     * Description: Adds or removes a simple packet filter.
+     * Description: Adds or removes a simple packet filter, or samples the filtered packets.
        Usage:       /<command> add|remove name [packet IDs]
+                    /<command> sample policy [packet IDs]
      */
     @Override
     protected boolean handleCommand(CommandSender sender, String[] args) {
-        checkScriptStatus();
+        final SubCommand command = parseCommand(args, 0);
         
-        if (!config.isDebug()) {
-            sender.sendMessage(ChatColor.RED + "Debug mode must be enabled in the configuration first!");
-            return true;
+        if (command == SubCommand.SAMPLE) {
+            return handleSample(sender, args);
         }
-        if (!isInitialized()) {
-            sender.sendMessage(ChatColor.RED + "JavaScript engine was not present. Filter system is disabled.");
-            return true;
-        }
-        
-        final SubCommand command = parseCommand(args, 0);
         final String name = args[1];
         final String lowerCaseName = name.toLowerCase();
 
@@ -383,12 +290,12 @@ public class CommandFilter extends CommandBase {
                 
                 final PacketTypeParser parser = new PacketTypeParser();
                 final Set<PacketType> packets = parser.parseTypes(rangeArguments, PacketTypeParser.DEFAULT_MAX_RANGE);
-                sender.sendMessage("Enter filter program ('}' to complete or CANCEL):");
+                sender.sendMessage("Enter filter expression (or CANCEL):");
                 
                 // Make sure we can use the conversable interface
                 if (sender instanceof Conversable) {
                     final MultipleLinesPrompt prompt =
-                            new MultipleLinesPrompt(new CompilationSuccessCanceller(), "function(event, packet) {");
+                            new MultipleLinesPrompt(new CompilationSuccessCanceller(), "filter " + name + ":");
                     
                     new ConversationFactory(plugin).
                         withFirstPrompt(prompt).
@@ -409,12 +316,11 @@ public class CommandFilter extends CommandBase {
                                         
                                         try {
                                             // Force early compilation
-                                            filter.compile(engine);
+                                            filter.compile();
                                             
                                             filters.put(lowerCaseName, filter);
                                             whom.sendRawMessage(ChatColor.GOLD + "Added filter " + name);
-                                        } catch (ScriptException e) {
-                                            e.printStackTrace();
+                                        } catch (FilterSyntaxException e) {
                                             whom.sendRawMessage(ChatColor.GOLD + "Compilation error: " + e.getMessage());
                                         }
                                     } else {
@@ -441,7 +347,6 @@ public class CommandFilter extends CommandBase {
                 
                 // See if it exists before we remove it
                 if (filter != null) {
-                    filter.close(engine);
                     filters.remove(lowerCaseName);
                     sender.sendMessage(ChatColor.GOLD + "Removed filter " + name);
                 } else {
@@ -453,13 +358,38 @@ public class CommandFilter extends CommandBase {
         return true;
     }
 
+    private boolean handleSample(CommandSender sender, String[] args) {
+        if (args[1].equalsIgnoreCase("stats")) {
+            for (Map.Entry<PacketType, SampleCounts> entry : sampler.getCounts().entrySet()) {
+                sender.sendMessage(ChatColor.GOLD + entry.getKey().toString() + ": sampled " +
+                        entry.getValue().getSampled() + " of " + entry.getValue().getSeen());
+            }
+            return true;
+        }
+        
+        Deque<String> arguments = toQueue(args, 1);
+        SamplingPolicy policy = SamplingPolicy.parse(arguments);
+        
+        if (arguments.isEmpty()) {
+            sampler.setDefaultPolicy(policy);
+            sender.sendMessage(ChatColor.GOLD + "Sampling all packets: " + policy);
+        } else {
+            Set<PacketType> packets = new PacketTypeParser().parseTypes(arguments, PacketTypeParser.DEFAULT_MAX_RANGE);
+            for (PacketType type : packets) {
+                sampler.setPolicy(type, policy);
+            }
+            sender.sendMessage(ChatColor.GOLD + "Sampling " + packets.size() + " packet types: " + policy);
+        }
+        return true;
+    }
+
     private SubCommand parseCommand(String[] args, int index) {
         String text = args[index].toUpperCase();
         
         try {
             return SubCommand.valueOf(text);
         } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException(text + " is not a valid sub command. Must be add or remove.", e);
+            throw new IllegalArgumentException(text + " is not a valid sub command. Must be add, remove or sample.", e);
         }
     }
 }
@@ -22,17 +22,23 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.PluginDescriptionFile;
 
+import com.comphenix.protocol.bandwidth.BandwidthAccounting;
+import com.comphenix.protocol.bandwidth.BandwidthUsage;
 import com.comphenix.protocol.error.DetailedErrorReporter;
 import com.comphenix.protocol.error.ErrorReporter;
 import com.comphenix.protocol.events.PacketListener;
@@ -52,6 +58,9 @@ class CommandProtocol extends CommandBase {
      * Name of this command.
      */
     public static final String NAME = "protocol";
+
+    // number of packet types listed by the bandwidth command
+    private static final int BANDWIDTH_TYPES_SHOWN = 10;
     
     private Plugin plugin;
     private Updater updater;
@@ -77,6 +86,8 @@ class CommandProtocol extends CommandBase {
             updateVersion(sender, true);
         } else if (subCommand.equalsIgnoreCase("timings")) {
             toggleTimings(sender, args);
+        } else if (subCommand.equalsIgnoreCase("bandwidth")) {
+            printBandwidth(sender, args);
         } else if (subCommand.equalsIgnoreCase("listeners")) {
             printListeners(sender);
         } else if (subCommand.equalsIgnoreCase("version")) {
@@ -176,6 +187,52 @@ class CommandProtocol extends CommandBase {
         }
     }
 
+    private void printBandwidth(CommandSender sender, String[] args) {
+        String argument = args.length > 1 ? args[1] : "";
+
+        if (argument.equalsIgnoreCase("on") || argument.equalsIgnoreCase("off")) {
+            BandwidthAccounting.setEnabled(argument.equalsIgnoreCase("on"));
+            sender.sendMessage(ChatColor.GOLD + (BandwidthAccounting.isEnabled() ? "Started" : "Stopped") + " accounting bandwidth.");
+            return;
+        }
+        if (argument.equalsIgnoreCase("reset")) {
+            BandwidthAccounting.reset();
+            sender.sendMessage(ChatColor.GOLD + "Reset bandwidth counters.");
+            return;
+        }
+        if (!BandwidthAccounting.isEnabled()) {
+            sender.sendMessage(ChatColor.YELLOW + "Bandwidth accounting is off, use /protocol bandwidth on to start it.");
+        }
+
+        Map<PacketType, BandwidthUsage> usage;
+        if (argument.isEmpty()) {
+            usage = BandwidthAccounting.getUsage();
+            sender.sendMessage(ChatColor.GOLD + "Bandwidth of every connection:");
+        } else {
+            Player player = Bukkit.getPlayerExact(argument);
+            if (player == null) {
+                sender.sendMessage(ChatColor.RED + "Unknown player: " + argument);
+                return;
+            }
+            usage = BandwidthAccounting.getUsage(player.getUniqueId());
+            sender.sendMessage(ChatColor.GOLD + "Bandwidth of " + player.getName() + ":");
+        }
+
+        BandwidthUsage total = BandwidthAccounting.sum(usage);
+        sender.sendMessage(ChatColor.GOLD + " Total: " + formatUsage(total));
+
+        // the most expensive types first
+        usage.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<PacketType, BandwidthUsage> entry) -> entry.getValue().getWireBytes()).reversed())
+                .limit(BANDWIDTH_TYPES_SHOWN)
+                .forEach(entry -> sender.sendMessage(ChatColor.GOLD + " - " + entry.getKey().name() + ": " + formatUsage(entry.getValue())));
+    }
+
+    private static String formatUsage(BandwidthUsage usage) {
+        return String.format("%d packets, %.1f KiB encoded, %.1f KiB sent", usage.getPackets(),
+                usage.getEncodedBytes() / 1024.0, usage.getWireBytes() / 1024.0);
+    }
+
     private void saveTimings(TimingReport report) {
         try {
             Path path = plugin.getDataFolder().toPath().resolve("timings_" + System.currentTimeMillis() + ".txt");
@@ -18,18 +18,28 @@ package com.comphenix.protocol;
 
 import com.comphenix.protocol.PacketType.Protocol;
 import com.comphenix.protocol.PacketType.Sender;
+import com.comphenix.protocol.capture.PacketCapture;
 import com.comphenix.protocol.events.ListeningWhitelist;
 import com.comphenix.protocol.events.PacketEvent;
 import com.comphenix.protocol.events.PacketListener;
+import com.comphenix.protocol.filter.PacketSampler;
+import com.comphenix.protocol.filter.SampleCounts;
+import com.comphenix.protocol.filter.SamplingPolicy;
 import com.comphenix.protocol.injector.netty.WirePacket;
 import com.comphenix.protocol.reflect.FuzzyReflection;
 import com.comphenix.protocol.reflect.accessors.Accessors;
 import com.comphenix.protocol.reflect.accessors.MethodAccessor;
 import com.comphenix.protocol.utility.MinecraftReflection;
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.plugin.Plugin;
 
 import java.io.ByteArrayOutputStream;
@@ -39,8 +49,13 @@ import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.logging.FileHandler;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
@@ -66,6 +81,9 @@ public class PacketLogging implements CommandExecutor, PacketListener {
     private Logger fileLogger;
     private LogLocation location = LogLocation.FILE;
 
+    private final PacketSampler sampler = new PacketSampler();
+    private boolean samplerListening;
+
     private final ProtocolManager manager;
     private final Plugin plugin;
 
@@ -76,55 +94,18 @@ public class PacketLogging implements CommandExecutor, PacketListener {
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
-        PacketType type = null;
-
         try {
-            if (args.length > 2) {
-                Protocol protocol;
-
-                try {
-                    protocol = Protocol.valueOf(args[0].toUpperCase());
-                } catch (IllegalArgumentException ex) {
-                    sender.sendMessage(ChatColor.RED + "Unknown protocol " + args[0]);
-                    return true;
-                }
-
-                Sender pSender;
-
-                try {
-                    pSender = Sender.valueOf(args[1].toUpperCase());
-                } catch (IllegalArgumentException ex) {
-                    sender.sendMessage(ChatColor.RED + "Unknown sender: " + args[1]);
-                    return true;
-                }
+            if (args.length > 0 && args[0].equalsIgnoreCase("capture")) {
+                return handleCapture(sender, args);
+            }
 
-                try {
-                    try { // Try IDs first
-                        int id = Integer.parseInt(args[2]);
-                        type = PacketType.findCurrent(protocol, pSender, id);
-                    } catch (NumberFormatException ex) { // Check packet names
-                        String name = args[2];
-                        for (PacketType packet : PacketType.values()) {
-                            if (packet.getProtocol() == protocol && packet.getSender() == pSender) {
-                                if (packet.name().equalsIgnoreCase(name)) {
-                                    type = packet;
-                                    break;
-                                }
-                                for (String className : packet.getClassNames()) {
-                                    if (className.equalsIgnoreCase(name)) {
-                                        type = packet;
-                                        break;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                } catch (IllegalArgumentException ex) { // RIP
-                    type = null;
-                }
+            if (args.length > 0 && args[0].equalsIgnoreCase("sample")) {
+                return handleSample(sender, args);
+            }
 
+            if (args.length > 2) {
+                PacketType type = parseType(sender, args, 0);
                 if (type == null) {
-                    sender.sendMessage(ChatColor.RED + "Unknown packet: " + args[2]);
                     return true;
                 }
 
@@ -136,7 +117,7 @@ public class PacketLogging implements CommandExecutor, PacketListener {
                     }
                 }
 
-                if (pSender == Sender.CLIENT) {
+                if (type.getSender() == Sender.CLIENT) {
                     if (receivingTypes.contains(type)) {
                         receivingTypes.remove(type);
                     } else {
@@ -156,6 +137,8 @@ public class PacketLogging implements CommandExecutor, PacketListener {
             }
 
             sender.sendMessage(ChatColor.RED + "Invalid syntax: /packetlog <protocol> <sender> <packet> [location]");
+            sender.sendMessage(ChatColor.RED + "or: /packetlog capture <start|stop> [player...]");
+            sender.sendMessage(ChatColor.RED + "or: /packetlog sample <protocol> <sender> <packet> <policy> [player]");
             return true;
         } catch (Throwable ex) {
             sender.sendMessage(ChatColor.RED + "Failed to parse command: " + ex);
@@ -163,6 +146,187 @@ public class PacketLogging implements CommandExecutor, PacketListener {
         }
     }
 
+    private PacketType parseType(CommandSender sender, String[] args, int offset) {
+        Protocol protocol;
+
+        try {
+            protocol = Protocol.valueOf(args[offset].toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            sender.sendMessage(ChatColor.RED + "Unknown protocol " + args[offset]);
+            return null;
+        }
+
+        Sender pSender;
+
+        try {
+            pSender = Sender.valueOf(args[offset + 1].toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            sender.sendMessage(ChatColor.RED + "Unknown sender: " + args[offset + 1]);
+            return null;
+        }
+
+        PacketType type = null;
+
+        try {
+            try { // Try IDs first
+                int id = Integer.parseInt(args[offset + 2]);
+                type = PacketType.findCurrent(protocol, pSender, id);
+            } catch (NumberFormatException ex) { // Check packet names
+                String name = args[offset + 2];
+                for (PacketType packet : PacketType.values()) {
+                    if (packet.getProtocol() == protocol && packet.getSender() == pSender) {
+                        if (packet.name().equalsIgnoreCase(name)) {
+                            type = packet;
+                            break;
+                        }
+                        for (String className : packet.getClassNames()) {
+                            if (className.equalsIgnoreCase(name)) {
+                                type = packet;
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IllegalArgumentException ex) { // RIP
+            type = null;
+        }
+
+        if (type == null) {
+            sender.sendMessage(ChatColor.RED + "Unknown packet: " + args[offset + 2]);
+        }
+        return type;
+    }
+
+    private boolean handleSample(CommandSender sender, String[] args) {
+        if (args.length == 2 && args[1].equalsIgnoreCase("stats")) {
+            Map<PacketType, SampleCounts> counts = sampler.getCounts();
+            if (counts.isEmpty()) {
+                sender.sendMessage(ChatColor.GOLD + "No packets were logged yet.");
+            }
+            counts.forEach((type, count) -> sender.sendMessage(ChatColor.GOLD + type.toString() + ": sampled "
+                    + count.getSampled() + " of " + count.getSeen()));
+            return true;
+        }
+
+        if (args.length < 5) {
+            sender.sendMessage(ChatColor.RED + "Invalid syntax: /packetlog sample <protocol> <sender> <packet> <policy> [player]");
+            sender.sendMessage(ChatColor.RED + "Policies: all, none, every <n>, head <size> <seconds>, reservoir <size> <seconds>");
+            sender.sendMessage(ChatColor.RED + "or: /packetlog sample stats");
+            return true;
+        }
+
+        PacketType type = parseType(sender, args, 1);
+        if (type == null) {
+            return true;
+        }
+
+        Deque<String> arguments = new ArrayDeque<>(Arrays.asList(args).subList(4, args.length));
+        SamplingPolicy policy = SamplingPolicy.parse(arguments);
+
+        if (arguments.isEmpty()) {
+            sampler.setPolicy(type, policy);
+            sender.sendMessage(ChatColor.GREEN + "Sampling " + type + ": " + policy);
+            return true;
+        }
+
+        Player player = Bukkit.getPlayerExact(arguments.peek());
+        if (player == null) {
+            sender.sendMessage(ChatColor.RED + "Unknown player: " + arguments.peek());
+            return true;
+        }
+
+        listenForQuits();
+        sampler.setPolicy(player.getUniqueId(), policy);
+        sender.sendMessage(ChatColor.GREEN + "Sampling packets of " + player.getName() + ": " + policy);
+        return true;
+    }
+
+    private void listenForQuits() {
+        if (samplerListening) {
+            return;
+        }
+
+        // the policies of players are only kept while they are online
+        Bukkit.getPluginManager().registerEvents(new Listener() {
+
+            @EventHandler(priority = EventPriority.MONITOR)
+            public void handleQuit(PlayerQuitEvent event) {
+                sampler.removePlayer(event.getPlayer().getUniqueId());
+            }
+        }, plugin);
+        samplerListening = true;
+    }
+
+    private boolean handleCapture(CommandSender sender, String[] args) throws IOException {
+        String action = args.length > 1 ? args[1].toLowerCase() : "";
+        PacketCapture active = PacketCapture.getActive();
+
+        if (action.equals("start")) {
+            if (active != null) {
+                sender.sendMessage(ChatColor.RED + "A packet capture is already running.");
+                return true;
+            }
+
+            List<UUID> players = new ArrayList<>();
+            List<PacketType> types = new ArrayList<>();
+            for (int i = 2; i < args.length; i++) {
+                if (args[i].equalsIgnoreCase("type")) {
+                    if (i + 3 >= args.length) {
+                        sender.sendMessage(ChatColor.RED + "Invalid syntax: type <protocol> <sender> <packet>");
+                        return true;
+                    }
+
+                    PacketType type = parseType(sender, args, i + 1);
+                    if (type == null) {
+                        return true;
+                    }
+                    types.add(type);
+                    i += 3;
+                    continue;
+                }
+
+                Player player = Bukkit.getPlayerExact(args[i]);
+                if (player == null) {
+                    sender.sendMessage(ChatColor.RED + "Unknown player: " + args[i]);
+                    return true;
+                }
+                players.add(player.getUniqueId());
+            }
+
+            // without explicit types, the types that are logged are captured
+            if (types.isEmpty()) {
+                types.addAll(sendingTypes);
+                types.addAll(receivingTypes);
+            }
+
+            File directory = new File(plugin.getDataFolder(), "captures");
+            PacketCapture.newBuilder()
+                    .directory(directory.toPath())
+                    .players(players)
+                    .types(types)
+                    .start();
+
+            sender.sendMessage(ChatColor.GREEN + "Capturing packets to " + directory.getPath());
+            return true;
+        }
+
+        if (action.equals("stop")) {
+            if (active == null) {
+                sender.sendMessage(ChatColor.RED + "No packet capture is running.");
+                return true;
+            }
+
+            active.close();
+            sender.sendMessage(ChatColor.GREEN + "Captured " + active.getCapturedCount() + " packets, dropped "
+                    + active.getDroppedCount() + ".");
+            return true;
+        }
+
+        sender.sendMessage(ChatColor.RED + "Invalid syntax: /packetlog capture <start|stop> [player...] [type <protocol> <sender> <packet>...]");
+        return true;
+    }
+
     private void startLogging() {
         manager.removePacketListener(this);
 
@@ -197,12 +361,16 @@ public class PacketLogging implements CommandExecutor, PacketListener {
 
     @Override
     public void onPacketSending(PacketEvent event) {
-        log(event);
+        if (sampler.sample(event)) {
+            log(event);
+        }
     }
 
     @Override
     public void onPacketReceiving(PacketEvent event) {
-        log(event);
+        if (sampler.sample(event)) {
+            log(event);
+        }
     }
 
     // Here's where the magic happens
@@ -68,6 +68,9 @@ public interface PacketStream {
 
     /**
      * Send a wire packet to the given player.
+     * <p>
+     * Reference counted packets, such as {@link com.comphenix.protocol.injector.netty.BufferedWirePacket}, are retained
+     * while they are being sent. The caller remains responsible for releasing its own reference.
      *
      * @param receiver - the receiver.
      * @param packet   - packet to send.
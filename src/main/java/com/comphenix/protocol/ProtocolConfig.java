@@ -25,6 +25,8 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Represents the configuration of ProtocolLib.
@@ -49,6 +51,15 @@ public class ProtocolConfig {
     private static final String SCRIPT_ENGINE_NAME = "script engine";
     private static final String SUPPRESSED_REPORTS = "suppressed reports";
 
+    private static final String WARMUP_ENABLED = "warm up";
+    private static final String WARMUP_THREADS = "warm up threads";
+    private static final String REFLECTION_CACHE = "reflection cache";
+
+    private static final String ANTI_XRAY_ENABLED = "anti xray.enabled";
+    private static final String ANTI_XRAY_WORLDS = "anti xray.worlds";
+    private static final String ANTI_XRAY_HIDDEN_BLOCKS = "anti xray.hidden blocks";
+    private static final String ANTI_XRAY_CACHE_SIZE = "anti xray.cache size";
+
     private static final String UPDATER_NOTIFY = "notify";
     private static final String UPDATER_DOWNLAD = "download";
     private static final String UPDATER_DELAY = "delay";
@@ -331,7 +342,9 @@ public class ProtocolConfig {
      * Retrieve the unique name of the script engine to use for filtering.
      *
      * @return Script engine to use.
+     * @deprecated The filter command compiles its own expressions and no longer uses a script engine.
      */
+    @Deprecated
     public String getScriptEngineName() {
         return getGlobalValue(SCRIPT_ENGINE_NAME, "JavaScript");
     }
@@ -342,12 +355,85 @@ public class ProtocolConfig {
      * This setting will take effect next time ProtocolLib is started.
      *
      * @param name - name of the script engine to use.
+     * @deprecated The filter command compiles its own expressions and no longer uses a script engine.
      */
+    @Deprecated
     public void setScriptEngineName(String name) {
         setConfig(global, SCRIPT_ENGINE_NAME, name);
         modCount++;
     }
 
+    /**
+     * Retrieve whether or not the packet structures should be prepared in the background on startup.
+     *
+     * @return TRUE if they should, FALSE otherwise.
+     */
+    public boolean isWarmupEnabled() {
+        return getGlobalValue(WARMUP_ENABLED, false);
+    }
+
+    /**
+     * Retrieve the number of threads used to prepare the packet structures on startup.
+     *
+     * @return The number of threads.
+     */
+    public int getWarmupThreads() {
+        return getGlobalValue(WARMUP_THREADS, 2);
+    }
+
+    /**
+     * Retrieve whether or not resolved reflection members should be stored on disk and reused on the next start.
+     *
+     * @return TRUE if they should, FALSE otherwise.
+     */
+    public boolean isReflectionCacheEnabled() {
+        return getGlobalValue(REFLECTION_CACHE, false);
+    }
+
+    /**
+     * Retrieve whether or not enclosed blocks should be hidden in the chunks sent to players.
+     *
+     * @return TRUE if they should, FALSE otherwise.
+     */
+    public boolean isAntiXrayEnabled() {
+        return getGlobalValue(ANTI_XRAY_ENABLED, false);
+    }
+
+    /**
+     * Retrieve the names of the worlds where enclosed blocks are hidden.
+     *
+     * @return The names of the worlds.
+     */
+    public ImmutableList<String> getAntiXrayWorlds() {
+        return ImmutableList.copyOf(getGlobalValue(ANTI_XRAY_WORLDS, new ArrayList<String>()));
+    }
+
+    /**
+     * Retrieve the names of the hidden blocks, and the names of the blocks shown instead.
+     *
+     * @return The hidden blocks and their replacements.
+     */
+    public Map<String, String> getAntiXrayHiddenBlocks() {
+        Map<String, String> hiddenBlocks = new LinkedHashMap<>();
+        ConfigurationSection section = global != null ? global.getConfigurationSection(ANTI_XRAY_HIDDEN_BLOCKS) : null;
+
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                hiddenBlocks.put(key, section.getString(key));
+            }
+        }
+        return hiddenBlocks;
+    }
+
+    /**
+     * Retrieve the number of chunks with hidden blocks that are cached per world.
+     *
+     * @return The number of chunks, or 0 to disable the cache.
+     */
+    public int getAntiXrayCacheSize() {
+        return getGlobalValue(ANTI_XRAY_CACHE_SIZE, 1024);
+    }
+
     /**
      * Retrieve the number of modifications made to this configuration.
      *
@@ -15,7 +15,10 @@
  */
 package com.comphenix.protocol;
 
+import com.comphenix.protocol.antixray.AntiXray;
+import com.comphenix.protocol.antixray.AntiXrayConfig;
 import com.comphenix.protocol.async.AsyncFilterManager;
+import com.comphenix.protocol.capture.PacketCapture;
 import com.comphenix.protocol.error.BasicErrorReporter;
 import com.comphenix.protocol.error.DelegatedErrorReporter;
 import com.comphenix.protocol.error.DetailedErrorReporter;
@@ -24,7 +27,9 @@ import com.comphenix.protocol.error.Report;
 import com.comphenix.protocol.error.ReportType;
 import com.comphenix.protocol.injector.InternalManager;
 import com.comphenix.protocol.injector.PacketFilterManager;
+import com.comphenix.protocol.injector.StructureWarmup;
 import com.comphenix.protocol.metrics.Statistics;
+import com.comphenix.protocol.reflect.ResolvedMemberCache;
 import com.comphenix.protocol.scheduler.DefaultScheduler;
 import com.comphenix.protocol.scheduler.FoliaScheduler;
 import com.comphenix.protocol.scheduler.ProtocolScheduler;
@@ -40,6 +45,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Handler;
@@ -47,6 +53,7 @@ import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
+import org.bukkit.Material;
 import org.bukkit.Server;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.plugin.PluginManager;
@@ -80,6 +87,9 @@ public class ProtocolLib extends JavaPlugin {
     public static final ReportType REPORT_CANNOT_CREATE_TIMEOUT_TASK = new ReportType(
             "Unable to create packet timeout task.");
     public static final ReportType REPORT_CANNOT_UPDATE_PLUGIN = new ReportType("Cannot perform automatic updates.");
+    public static final ReportType REPORT_CANNOT_START_ANTI_XRAY = new ReportType("Cannot start anti-xray.");
+    public static final ReportType REPORT_CANNOT_LOAD_REFLECTION_CACHE = new ReportType(
+            "Unable to load the reflection cache.");
 
     /**
      * The number of milliseconds per second.
@@ -88,6 +98,7 @@ public class ProtocolLib extends JavaPlugin {
 
     private static final int ASYNC_MANAGER_DELAY = 1;
     private static final String PERMISSION_INFO = "protocol.info";
+    private static final String REFLECTION_CACHE_FILE = "reflection-cache.json";
 
     // these fields are only existing once, we can make them static
     private static Logger logger;
@@ -98,6 +109,8 @@ public class ProtocolLib extends JavaPlugin {
     private Statistics statistics;
 
     private Task packetTask = null;
+    private StructureWarmup warmup;
+    private AntiXray antiXray;
     private int tickCounter = 0;
     private int configExpectedMod = -1;
 
@@ -157,6 +170,11 @@ public class ProtocolLib extends JavaPlugin {
             logger.warning("Detailed error reporting enabled!");
         }
 
+        // Reuse the reflection lookups of the last start, this has to happen before anything is resolved
+        if (config.isReflectionCacheEnabled()) {
+            this.enableReflectionCache();
+        }
+
         try {
             this.scheduler = Util.isUsingFolia()
                     ? new FoliaScheduler(this)
@@ -183,6 +201,11 @@ public class ProtocolLib extends JavaPlugin {
             // Setup error reporter
             detailedReporter.addGlobalParameter("manager", protocolManager);
 
+            // Prepare the packet structures before the first players join
+            if (config.isWarmupEnabled()) {
+                this.startWarmup();
+            }
+
             // Send logging information to player listeners too
             this.initializeCommands();
             this.setupBroadcastUsers(PERMISSION_INFO);
@@ -193,6 +216,28 @@ public class ProtocolLib extends JavaPlugin {
         }
     }
 
+    private void enableReflectionCache() {
+        try {
+            File serverJar = new File(this.getServer().getClass().getProtectionDomain().getCodeSource().getLocation().toURI());
+            String buildKey = ResolvedMemberCache.computeBuildKey(serverJar, this.getDescription().getVersion());
+            ResolvedMemberCache.enable(new File(this.getDataFolder(), REFLECTION_CACHE_FILE), buildKey);
+        } catch (Exception e) {
+            reporter.reportWarning(this, Report.newBuilder(REPORT_CANNOT_LOAD_REFLECTION_CACHE).error(e));
+        }
+    }
+
+    private void startWarmup() {
+        this.warmup = StructureWarmup.start(config.getWarmupThreads());
+        this.warmup.getResult().thenAccept(result -> {
+            logger.info(String.format(
+                    "Prepared %d packet types in %d ms (%d failed)",
+                    result.getPrepared(), result.getElapsedMillis(), result.getFailed()));
+
+            // most lookups have been done by now
+            ResolvedMemberCache.save();
+        });
+    }
+
     /**
      * Initialize all command handlers.
      */
@@ -205,7 +250,7 @@ public class ProtocolLib extends JavaPlugin {
                         this.commandProtocol = new CommandProtocol(reporter, this, this.updater, config);
                         break;
                     case FILTER:
-                        this.commandFilter = new CommandFilter(reporter, this, config);
+                        this.commandFilter = new CommandFilter(reporter, this);
                         break;
                     case PACKET:
                         this.commandPacket = new CommandPacket(reporter, this, logger, this.commandFilter, protocolManager);
@@ -350,6 +395,17 @@ public class ProtocolLib extends JavaPlugin {
             return;
         }
 
+        // Hide enclosed blocks in the chunks sent to players
+        try {
+            if (config.isAntiXrayEnabled()) {
+                this.startAntiXray();
+            }
+        } catch (OutOfMemoryError e) {
+            throw e;
+        } catch (Throwable e) {
+            reporter.reportDetailed(this, Report.newBuilder(REPORT_CANNOT_START_ANTI_XRAY).error(e));
+        }
+
         // Try to enable statistics
         try {
             if (config.isMetricsEnabled()) {
@@ -365,6 +421,31 @@ public class ProtocolLib extends JavaPlugin {
         }
     }
 
+    private void startAntiXray() {
+        AntiXrayConfig.Builder builder = AntiXrayConfig.newBuilder();
+        for (Map.Entry<String, String> entry : config.getAntiXrayHiddenBlocks().entrySet()) {
+            Material hidden = Material.matchMaterial(entry.getKey());
+            Material replacement = entry.getValue() != null ? Material.matchMaterial(entry.getValue()) : null;
+
+            if (hidden == null || replacement == null) {
+                logger.warning("Unknown anti-xray block " + entry.getKey() + ": " + entry.getValue());
+            } else {
+                try {
+                    builder.hide(hidden, replacement);
+                } catch (IllegalArgumentException e) {
+                    logger.warning("Cannot hide " + hidden + " with " + replacement + ": " + e.getMessage());
+                }
+            }
+        }
+
+        AntiXrayConfig antiXrayConfig = builder.build();
+        this.antiXray = new AntiXray(this, protocolManager, reporter, scheduler, config.getAntiXrayCacheSize());
+        for (String world : config.getAntiXrayWorlds()) {
+            this.antiXray.setConfig(world, antiXrayConfig);
+        }
+        this.antiXray.start();
+    }
+
     // Used to check Minecraft version
     private MinecraftVersion verifyMinecraftVersion() {
         MinecraftVersion minimum = new MinecraftVersion(ProtocolLibrary.MINIMUM_MINECRAFT_VERSION);
@@ -557,6 +638,26 @@ public class ProtocolLib extends JavaPlugin {
             this.packetTask = null;
         }
 
+        if (this.warmup != null) {
+            this.warmup.cancel();
+            this.warmup = null;
+        }
+
+        if (this.antiXray != null) {
+            this.antiXray.close();
+            this.antiXray = null;
+        }
+
+        // Write the remaining captured packets
+        PacketCapture capture = PacketCapture.getActive();
+        if (capture != null) {
+            try {
+                capture.close();
+            } catch (IOException ex) {
+                logger.log(Level.WARNING, "Unable to close packet capture", ex);
+            }
+        }
+
         // And redirect handler too
         if (this.redirectHandler != null) {
             logger.removeHandler(this.redirectHandler);
@@ -570,6 +671,8 @@ public class ProtocolLib extends JavaPlugin {
         protocolManager = null;
         this.statistics = null;
 
+        ResolvedMemberCache.disable();
+
         // To clean up global parameters
         reporter = new BasicErrorReporter();
     }
@@ -0,0 +1,377 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.antixray;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.ProtocolManager;
+import com.comphenix.protocol.error.ErrorReporter;
+import com.comphenix.protocol.error.Report;
+import com.comphenix.protocol.error.ReportType;
+import com.comphenix.protocol.events.ListenerPriority;
+import com.comphenix.protocol.events.PacketAdapter;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
+import com.comphenix.protocol.events.PacketListener;
+import com.comphenix.protocol.scheduler.ProtocolScheduler;
+import com.comphenix.protocol.utility.MinecraftVersion;
+import com.comphenix.protocol.wrappers.BlockPosition;
+import com.comphenix.protocol.wrappers.SectionBlockChanges;
+import com.comphenix.protocol.wrappers.WrappedBlockData;
+import com.comphenix.protocol.wrappers.WrappedLevelChunkData;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Hides blocks, such as ores, that are enclosed by other blocks in the chunks sent to players.
+ * <p>
+ * Chunks are obfuscated by the thread that sends them, before the packet is written. Deferring them would let the
+ * packets that depend on a chunk, such as its light, block entities, block changes or unload, overtake it. Each world
+ * keeps a bounded cache of its obfuscated chunks, so a chunk that is sent to several players is only obfuscated once.
+ * The cache is invalidated by the block changes sent in that world, and a cached chunk is only used if the chunk that
+ * is sent has the same content hash, so a stale cache never reveals or hides the wrong blocks.
+ * <p>
+ * When a block change uncovers a hidden block, for instance because the block next to it was mined or blown up, the
+ * real state of the hidden block is sent to the player right after the block change.
+ */
+public final class AntiXray {
+
+    public static final ReportType REPORT_CANNOT_OBFUSCATE_CHUNK = new ReportType("Cannot obfuscate chunk %s, %s.");
+
+    private static final boolean HEIGHTMAP_TAG = !MinecraftVersion.v1_21_5.atOrAbove();
+    private static final HashFunction CONTENT_HASH = Hashing.murmur3_128();
+
+    private final Plugin plugin;
+    private final ProtocolManager protocolManager;
+    private final ErrorReporter reporter;
+    private final ProtocolScheduler scheduler;
+    private final int cacheSize;
+
+    private final Map<String, WorldState> worlds = new ConcurrentHashMap<>();
+
+    private PacketListener chunkListener;
+    private PacketListener blockChangeListener;
+
+    /**
+     * Construct a new anti-xray stage.
+     *
+     * @param plugin          - the plugin that owns the packet listeners.
+     * @param protocolManager - the protocol manager.
+     * @param reporter        - the error reporter.
+     * @param scheduler       - the scheduler used to read the world from the server thread.
+     * @param cacheSize       - the number of obfuscated chunks to keep per world, or 0 to disable the cache.
+     */
+    public AntiXray(Plugin plugin, ProtocolManager protocolManager, ErrorReporter reporter, ProtocolScheduler scheduler,
+                    int cacheSize) {
+        Preconditions.checkArgument(cacheSize >= 0, "cacheSize cannot be negative");
+
+        this.plugin = Preconditions.checkNotNull(plugin, "plugin cannot be NULL");
+        this.protocolManager = Preconditions.checkNotNull(protocolManager, "protocolManager cannot be NULL");
+        this.reporter = Preconditions.checkNotNull(reporter, "reporter cannot be NULL");
+        this.scheduler = Preconditions.checkNotNull(scheduler, "scheduler cannot be NULL");
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Set the blocks that are hidden in a world.
+     *
+     * @param world  - the name of the world.
+     * @param config - the configuration, or NULL to stop hiding blocks in the world.
+     */
+    public void setConfig(String world, AntiXrayConfig config) {
+        Preconditions.checkNotNull(world, "world cannot be NULL");
+
+        if (config != null) {
+            this.worlds.put(world, new WorldState(config, new ChunkObfuscator(config), this.cacheSize));
+        } else {
+            this.worlds.remove(world);
+        }
+    }
+
+    /**
+     * Retrieve the blocks that are hidden in a world.
+     *
+     * @param world - the name of the world.
+     * @return The configuration, or NULL if no blocks are hidden in the world.
+     */
+    public AntiXrayConfig getConfig(String world) {
+        WorldState state = this.worlds.get(world);
+        return state != null ? state.config : null;
+    }
+
+    /**
+     * Remove a chunk from the cache of a world.
+     *
+     * @param world  - the name of the world.
+     * @param chunkX - the x coordinate of the chunk.
+     * @param chunkZ - the z coordinate of the chunk.
+     */
+    public void invalidate(String world, int chunkX, int chunkZ) {
+        WorldState state = this.worlds.get(world);
+        if (state != null) {
+            state.cache.invalidate(chunkKey(chunkX, chunkZ));
+        }
+    }
+
+    /**
+     * Start obfuscating the chunks sent to players.
+     */
+    public synchronized void start() {
+        Preconditions.checkState(this.chunkListener == null, "anti-xray has already been started");
+
+        // obfuscate on the sending thread, so the chunk keeps its place among the packets that depend on it
+        this.chunkListener = new PacketAdapter(PacketAdapter.params(this.plugin, PacketType.Play.Server.MAP_CHUNK)
+                .listenerPriority(ListenerPriority.HIGHEST)
+                .optionAsync()) {
+            @Override
+            public void onPacketSending(PacketEvent event) {
+                WorldState state = getState(event.getPlayer());
+                if (state == null || event.isCancelled()) {
+                    return;
+                }
+
+                try {
+                    obfuscate(state, event);
+                } catch (Throwable ex) {
+                    // send the chunk as it is
+                    reportError(event, ex);
+                }
+            }
+        };
+        this.protocolManager.addPacketListener(this.chunkListener);
+
+        this.blockChangeListener = new PacketAdapter(this.plugin, ListenerPriority.MONITOR,
+                PacketType.Play.Server.BLOCK_CHANGE, PacketType.Play.Server.MULTI_BLOCK_CHANGE) {
+            @Override
+            public void onPacketSending(PacketEvent event) {
+                Player player = event.getPlayer();
+                if (player == null || event.isCancelled()) {
+                    return;
+                }
+
+                PacketContainer packet = event.getPacket();
+                BlockPosition position = packet.getType() == PacketType.Play.Server.BLOCK_CHANGE
+                        ? packet.getBlockPositionModifier().readSafely(0)
+                        : packet.getSectionPositions().readSafely(0);
+                if (position == null) {
+                    return;
+                }
+
+                String world = player.getWorld().getName();
+                int chunkX = packet.getType() == PacketType.Play.Server.BLOCK_CHANGE ? position.getX() >> 4 : position.getX();
+                int chunkZ = packet.getType() == PacketType.Play.Server.BLOCK_CHANGE ? position.getZ() >> 4 : position.getZ();
+                invalidate(world, chunkX, chunkZ);
+
+                WorldState state = getState(player);
+                if (state != null) {
+                    revealNeighbours(player, world, state, getUncoveredNeighbours(packet));
+                }
+            }
+        };
+        this.protocolManager.addPacketListener(this.blockChangeListener);
+    }
+
+    /**
+     * Stop obfuscating chunks.
+     */
+    public synchronized void close() {
+        if (this.chunkListener != null) {
+            this.protocolManager.removePacketListener(this.chunkListener);
+            this.protocolManager.removePacketListener(this.blockChangeListener);
+            this.chunkListener = null;
+            this.blockChangeListener = null;
+        }
+        this.worlds.clear();
+    }
+
+    private WorldState getState(Player player) {
+        return player != null && !this.worlds.isEmpty() ? this.worlds.get(player.getWorld().getName()) : null;
+    }
+
+    /**
+     * Retrieve the blocks next to the blocks changed by a block change packet whose new state does not hide them.
+     * <p>
+     * These blocks may have been hidden when their chunk was sent, and must be revealed now.
+     *
+     * @param packet - the block change or multi block change packet.
+     * @return The positions of the neighbouring blocks.
+     */
+    static Set<BlockPosition> getUncoveredNeighbours(PacketContainer packet) {
+        Set<BlockPosition> neighbours = new LinkedHashSet<>();
+
+        if (packet.getType() == PacketType.Play.Server.BLOCK_CHANGE) {
+            BlockPosition position = packet.getBlockPositionModifier().readSafely(0);
+            WrappedBlockData data = packet.getBlockData().readSafely(0);
+            if (position != null && data != null && !ChunkObfuscator.isOccluding(data.getStateId())) {
+                addNeighbours(neighbours, position.getX(), position.getY(), position.getZ());
+            }
+        } else if (packet.getType() == PacketType.Play.Server.MULTI_BLOCK_CHANGE) {
+            SectionBlockChanges changes = SectionBlockChanges.fromPacket(packet);
+            for (int index = 0; index < changes.size(); index++) {
+                if (!ChunkObfuscator.isOccluding(changes.getStateId(index))) {
+                    addNeighbours(neighbours, changes.getBlockX(index), changes.getBlockY(index), changes.getBlockZ(index));
+                }
+            }
+        } else {
+            return Collections.emptySet();
+        }
+        return neighbours;
+    }
+
+    private static void addNeighbours(Set<BlockPosition> neighbours, int x, int y, int z) {
+        neighbours.add(new BlockPosition(x - 1, y, z));
+        neighbours.add(new BlockPosition(x + 1, y, z));
+        neighbours.add(new BlockPosition(x, y - 1, z));
+        neighbours.add(new BlockPosition(x, y + 1, z));
+        neighbours.add(new BlockPosition(x, y, z - 1));
+        neighbours.add(new BlockPosition(x, y, z + 1));
+    }
+
+    private void revealNeighbours(Player player, String world, WorldState state, Set<BlockPosition> neighbours) {
+        if (neighbours.isEmpty()) {
+            return;
+        }
+
+        // the world can only be read from the server thread
+        if (Bukkit.isPrimaryThread()) {
+            reveal(player, world, state, neighbours);
+        } else {
+            this.scheduler.runTask(() -> reveal(player, world, state, neighbours));
+        }
+    }
+
+    private static void reveal(Player player, String worldName, WorldState state, Set<BlockPosition> neighbours) {
+        World world = player.getWorld();
+        if (!player.isOnline() || !world.getName().equals(worldName)) {
+            return;
+        }
+
+        for (BlockPosition position : neighbours) {
+            if (position.getY() < world.getMinHeight() || position.getY() >= world.getMaxHeight()
+                    || !world.isChunkLoaded(position.getX() >> 4, position.getZ() >> 4)) {
+                continue;
+            }
+
+            // the real state, as the player may have been sent the replacement
+            Block block = world.getBlockAt(position.getX(), position.getY(), position.getZ());
+            if (state.config.getHiddenBlocks().containsKey(block.getType())) {
+                player.sendBlockChange(block.getLocation(), block.getBlockData());
+            }
+        }
+    }
+
+    private void obfuscate(WorldState state, PacketEvent event) {
+        PacketContainer packet = event.getPacket();
+        WrappedLevelChunkData.ChunkData data = packet.getLevelChunkData().read(0);
+        byte[] buffer = data.getBuffer();
+        byte[] obfuscated = this.obfuscate(state, chunkKey(packet.getIntegers().read(0), packet.getIntegers().read(1)), buffer);
+
+        if (obfuscated != buffer) {
+            // the chunk data may be sent to other players too, so the packet is copied instead of modified
+            WrappedLevelChunkData.ChunkData copy = HEIGHTMAP_TAG
+                    ? WrappedLevelChunkData.ChunkData.fromValues(data.getHeightmapsTag(), obfuscated, data.getBlockEntityInfo())
+                    : WrappedLevelChunkData.ChunkData.fromValues(data.getHeightmaps(), obfuscated, data.getBlockEntityInfo());
+
+            PacketContainer clone = packet.shallowClone();
+            clone.getLevelChunkData().write(0, copy);
+            event.setPacket(clone);
+        }
+    }
+
+    /**
+     * Obfuscate the serialized sections of a chunk, or retrieve them from the cache of the world.
+     *
+     * @param world  - the name of the world.
+     * @param chunkX - the x coordinate of the chunk.
+     * @param chunkZ - the z coordinate of the chunk.
+     * @param buffer - the serialized chunk sections, which are not modified.
+     * @return The obfuscated chunk sections, or the given buffer if nothing is hidden.
+     */
+    byte[] obfuscate(String world, int chunkX, int chunkZ, byte[] buffer) {
+        WorldState state = this.worlds.get(world);
+        return state != null ? this.obfuscate(state, chunkKey(chunkX, chunkZ), buffer) : buffer;
+    }
+
+    private byte[] obfuscate(WorldState state, long key, byte[] buffer) {
+        if (this.cacheSize == 0) {
+            return state.obfuscator.obfuscate(buffer);
+        }
+
+        HashCode hash = CONTENT_HASH.hashBytes(buffer);
+        CachedChunk cached = state.cache.getIfPresent(key);
+        if (cached != null && cached.hash.equals(hash)) {
+            return cached.obfuscated;
+        }
+
+        byte[] obfuscated = state.obfuscator.obfuscate(buffer);
+        state.cache.put(key, new CachedChunk(hash, obfuscated));
+        return obfuscated;
+    }
+
+    private void reportError(PacketEvent event, Throwable error) {
+        PacketContainer packet = event.getPacket();
+        this.reporter.reportWarning(this, Report.newBuilder(REPORT_CANNOT_OBFUSCATE_CHUNK)
+                .messageParam(packet.getIntegers().readSafely(0), packet.getIntegers().readSafely(1))
+                .error(error));
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return (long) chunkX << 32 | chunkZ & 0xFFFFFFFFL;
+    }
+
+    private static final class WorldState {
+
+        private final AntiXrayConfig config;
+        private final ChunkObfuscator obfuscator;
+
+        // the obfuscated chunks by position, least recently used first
+        private final Cache<Long, CachedChunk> cache;
+
+        private WorldState(AntiXrayConfig config, ChunkObfuscator obfuscator, int cacheSize) {
+            this.config = config;
+            this.obfuscator = obfuscator;
+            this.cache = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+        }
+    }
+
+    private static final class CachedChunk {
+
+        // the hash of the chunk that was obfuscated, instead of the chunk itself
+        private final HashCode hash;
+        private final byte[] obfuscated;
+
+        private CachedChunk(HashCode hash, byte[] obfuscated) {
+            this.hash = hash;
+            this.obfuscated = obfuscated;
+        }
+    }
+}
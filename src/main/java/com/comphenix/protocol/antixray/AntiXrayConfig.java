@@ -0,0 +1,97 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.antixray;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+import org.bukkit.Material;
+
+/**
+ * The blocks that are hidden in the chunks of a world, and the blocks that are shown instead.
+ */
+public final class AntiXrayConfig {
+
+    private final Map<Material, Material> hiddenBlocks;
+
+    private AntiXrayConfig(Builder builder) {
+        this.hiddenBlocks = Collections.unmodifiableMap(new EnumMap<>(builder.hiddenBlocks));
+    }
+
+    /**
+     * Construct a new configuration builder.
+     *
+     * @return The builder.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Retrieve every hidden block and the block that is shown instead.
+     *
+     * @return The hidden blocks and their replacements.
+     */
+    public Map<Material, Material> getHiddenBlocks() {
+        return this.hiddenBlocks;
+    }
+
+    @Override
+    public String toString() {
+        return "AntiXrayConfig[hiddenBlocks=" + this.hiddenBlocks + "]";
+    }
+
+    /**
+     * Builds an anti-xray configuration.
+     */
+    public static final class Builder {
+
+        private final Map<Material, Material> hiddenBlocks = new EnumMap<>(Material.class);
+
+        private Builder() {
+        }
+
+        /**
+         * Hide every state of a block that is enclosed by other blocks.
+         *
+         * @param hidden      - the hidden block.
+         * @param replacement - the block that is shown instead, which must hide the blocks behind it.
+         * @return This builder, for chaining.
+         */
+        public Builder hide(Material hidden, Material replacement) {
+            Preconditions.checkNotNull(hidden, "hidden cannot be NULL");
+            Preconditions.checkNotNull(replacement, "replacement cannot be NULL");
+            Preconditions.checkArgument(hidden.isBlock(), "%s is not a block", hidden);
+            Preconditions.checkArgument(replacement.isOccluding(), "%s does not hide the blocks behind it", replacement);
+
+            this.hiddenBlocks.put(hidden, replacement);
+            return this;
+        }
+
+        /**
+         * Create the configuration.
+         *
+         * @return The configuration.
+         */
+        public AntiXrayConfig build() {
+            return new AntiXrayConfig(this);
+        }
+    }
+}
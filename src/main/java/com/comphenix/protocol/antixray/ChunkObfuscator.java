@@ -0,0 +1,170 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.antixray;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.comphenix.protocol.wrappers.ChunkSectionCodec;
+import com.comphenix.protocol.wrappers.WrappedBlockData;
+import org.bukkit.Material;
+
+/**
+ * Replaces the hidden blocks of a chunk that are enclosed by blocks which cannot be seen through.
+ * <p>
+ * Blocks at the horizontal border of the chunk, or at the top and bottom of the world, count as visible, since the
+ * blocks next to them are not part of the chunk.
+ */
+final class ChunkObfuscator {
+
+    // whether each block state hides the blocks behind it, shared by all worlds
+    private static volatile boolean[] occluding;
+
+    private final int[] replacements;
+
+    ChunkObfuscator(AntiXrayConfig config) {
+        int stateCount = WrappedBlockData.getStateCount();
+        Map<Material, Integer> replacementIds = new EnumMap<>(Material.class);
+        for (Map.Entry<Material, Material> entry : config.getHiddenBlocks().entrySet()) {
+            replacementIds.put(entry.getKey(), WrappedBlockData.createData(entry.getValue()).getStateId());
+        }
+
+        this.replacements = new int[stateCount];
+        Arrays.fill(this.replacements, -1);
+        for (int id = 0; id < stateCount; id++) {
+            Integer replacement = replacementIds.get(WrappedBlockData.fromStateId(id).getType());
+            if (replacement != null) {
+                this.replacements[id] = replacement;
+            }
+        }
+        getOccluding();
+    }
+
+    private static boolean[] getOccluding() {
+        boolean[] table = occluding;
+        if (table == null) {
+            table = new boolean[WrappedBlockData.getStateCount()];
+            for (int id = 0; id < table.length; id++) {
+                table[id] = WrappedBlockData.fromStateId(id).getType().isOccluding();
+            }
+            occluding = table;
+        }
+        return table;
+    }
+
+    /**
+     * Hide the enclosed blocks of a chunk.
+     *
+     * @param buffer - the serialized chunk sections, which are not modified.
+     * @return The serialized chunk sections with the enclosed blocks replaced.
+     */
+    byte[] obfuscate(byte[] buffer) {
+        ChunkSectionCodec codec = ChunkSectionCodec.read(buffer.clone());
+        boolean[] occluding = getOccluding();
+        BitSet[] hidden = new BitSet[codec.getSectionCount()];
+        boolean changed = false;
+
+        // find every enclosed block before replacing any of them
+        for (int section = 0; section < codec.getSectionCount(); section++) {
+            ChunkSectionCodec.PalettedContainer blocks = codec.getSection(section).getBlockStates();
+            if (!this.mayContainHidden(blocks)) {
+                continue;
+            }
+
+            for (int index = 0; index < blocks.size(); index++) {
+                if (this.isHidden(blocks.get(index)) && this.isEnclosed(codec, occluding, section, index)) {
+                    if (hidden[section] == null) {
+                        hidden[section] = new BitSet(blocks.size());
+                    }
+                    hidden[section].set(index);
+                    changed = true;
+                }
+            }
+        }
+
+        if (!changed) {
+            return buffer;
+        }
+
+        for (int section = 0; section < hidden.length; section++) {
+            if (hidden[section] != null) {
+                ChunkSectionCodec.PalettedContainer blocks = codec.getSection(section).getBlockStates();
+                for (int index = hidden[section].nextSetBit(0); index >= 0; index = hidden[section].nextSetBit(index + 1)) {
+                    blocks.set(index, this.replacements[blocks.get(index)]);
+                }
+            }
+        }
+        return codec.encode();
+    }
+
+    private boolean isHidden(int id) {
+        return id < this.replacements.length && this.replacements[id] >= 0;
+    }
+
+    private boolean mayContainHidden(ChunkSectionCodec.PalettedContainer blocks) {
+        if (blocks.isDirect()) {
+            return true;
+        }
+        for (int i = 0; i < blocks.getPaletteSize(); i++) {
+            if (this.isHidden(blocks.getPaletteEntry(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isEnclosed(ChunkSectionCodec codec, boolean[] occluding, int section, int index) {
+        int x = index & 15;
+        int z = index >> 4 & 15;
+        int y = index >> 8;
+        if (x == 0 || x == 15 || z == 0 || z == 15) {
+            return false;
+        }
+
+        ChunkSectionCodec.PalettedContainer blocks = codec.getSection(section).getBlockStates();
+        if (!isOccluding(occluding, blocks.get(index - 1)) || !isOccluding(occluding, blocks.get(index + 1))
+                || !isOccluding(occluding, blocks.get(index - 16)) || !isOccluding(occluding, blocks.get(index + 16))) {
+            return false;
+        }
+
+        // the blocks above and below may be in the next sections
+        int below = y > 0 ? blocks.get(index - 256) : getBlock(codec, section - 1, index + 15 * 256);
+        int above = y < 15 ? blocks.get(index + 256) : getBlock(codec, section + 1, index - 15 * 256);
+        return isOccluding(occluding, below) && isOccluding(occluding, above);
+    }
+
+    private static int getBlock(ChunkSectionCodec codec, int section, int index) {
+        return section >= 0 && section < codec.getSectionCount() ? codec.getSection(section).getBlockStates().get(index) : -1;
+    }
+
+    /**
+     * Determine if a block state hides the blocks behind it.
+     *
+     * @param id - the block state id.
+     * @return TRUE if it does, FALSE otherwise.
+     */
+    static boolean isOccluding(int id) {
+        return isOccluding(getOccluding(), id);
+    }
+
+    private static boolean isOccluding(boolean[] occluding, int id) {
+        return id >= 0 && id < occluding.length && occluding[id];
+    }
+}
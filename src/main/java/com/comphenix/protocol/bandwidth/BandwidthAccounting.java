@@ -0,0 +1,172 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.bandwidth;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import com.comphenix.protocol.PacketType;
+
+/**
+ * Accounts the outbound bandwidth of every connection per packet type.
+ * <p>
+ * While enabled, two handlers of every connection count the size of each packet after it was encoded, and the bytes
+ * written after compression and framing. The latter are attributed to the packet that was encoded last on that
+ * connection. Once a connection is closed, its counters are added to the totals of their packet types.
+ */
+public final class BandwidthAccounting {
+
+    private static final Set<ConnectionBandwidth> CONNECTIONS = ConcurrentHashMap.newKeySet();
+    private static final Map<PacketType, BandwidthUsage> CLOSED_USAGE = new ConcurrentHashMap<>();
+
+    private static volatile boolean enabled;
+
+    private BandwidthAccounting() {
+        // Not constructable
+    }
+
+    /**
+     * Determine if the bandwidth is being accounted.
+     *
+     * @return TRUE if it is, FALSE otherwise.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start or stop accounting the bandwidth. The counters are kept when it is stopped.
+     *
+     * @param enabled - TRUE to start, FALSE to stop.
+     */
+    public static void setEnabled(boolean enabled) {
+        BandwidthAccounting.enabled = enabled;
+    }
+
+    /**
+     * Register the counters of a new connection, which are written by the calling thread.
+     *
+     * @param player - supplies the unique id of the player once it is known.
+     * @return The counters of the connection.
+     */
+    public static ConnectionBandwidth register(Supplier<UUID> player) {
+        return register(player, Runnable::run);
+    }
+
+    /**
+     * Register the counters of a new connection.
+     *
+     * @param player - supplies the unique id of the player once it is known.
+     * @param writer - the executor of the thread that writes the counters, such as the event loop of the connection.
+     * @return The counters of the connection.
+     */
+    public static ConnectionBandwidth register(Supplier<UUID> player, Executor writer) {
+        ConnectionBandwidth connection = new ConnectionBandwidth(player, writer);
+        CONNECTIONS.add(connection);
+        return connection;
+    }
+
+    /**
+     * Unregister the counters of a closed connection, adding them to the totals.
+     *
+     * @param connection - the counters of the connection.
+     */
+    public static void unregister(ConnectionBandwidth connection) {
+        if (CONNECTIONS.remove(connection)) {
+            connection.addTo(CLOSED_USAGE);
+        }
+    }
+
+    /**
+     * Retrieve the bandwidth used by every connection, including closed connections, per packet type.
+     *
+     * @return The usage per packet type.
+     */
+    public static Map<PacketType, BandwidthUsage> getUsage() {
+        Map<PacketType, BandwidthUsage> usage = new HashMap<>(CLOSED_USAGE);
+        for (ConnectionBandwidth connection : CONNECTIONS) {
+            connection.addTo(usage);
+        }
+        return usage;
+    }
+
+    /**
+     * Retrieve the bandwidth used by the connection of a player, per packet type.
+     *
+     * @param player - the unique id of the player.
+     * @return The usage per packet type, empty if the player is not connected.
+     */
+    public static Map<PacketType, BandwidthUsage> getUsage(UUID player) {
+        Map<PacketType, BandwidthUsage> usage = new HashMap<>();
+        for (ConnectionBandwidth connection : CONNECTIONS) {
+            if (player.equals(connection.getPlayer())) {
+                connection.addTo(usage);
+            }
+        }
+        return usage;
+    }
+
+    /**
+     * Retrieve the total bandwidth used by the connection of every connected player.
+     *
+     * @return The usage per player.
+     */
+    public static Map<UUID, BandwidthUsage> getUsageByPlayer() {
+        Map<UUID, BandwidthUsage> usage = new HashMap<>();
+        for (ConnectionBandwidth connection : CONNECTIONS) {
+            UUID player = connection.getPlayer();
+            if (player != null) {
+                Map<PacketType, BandwidthUsage> types = new HashMap<>();
+                connection.addTo(types);
+                usage.merge(player, sum(types), BandwidthUsage::add);
+            }
+        }
+        return usage;
+    }
+
+    /**
+     * Sum the usage of several packet types.
+     *
+     * @param usage - the usage per packet type.
+     * @return The total usage.
+     */
+    public static BandwidthUsage sum(Map<?, BandwidthUsage> usage) {
+        BandwidthUsage total = BandwidthUsage.EMPTY;
+        for (BandwidthUsage value : usage.values()) {
+            total = total.add(value);
+        }
+        return total;
+    }
+
+    /**
+     * Reset the counters of every connection and the totals of closed connections.
+     * <p>
+     * The counters of a connection are reset by the thread that writes them, which may happen after this returns.
+     */
+    public static void reset() {
+        CLOSED_USAGE.clear();
+        for (ConnectionBandwidth connection : CONNECTIONS) {
+            connection.reset();
+        }
+    }
+}
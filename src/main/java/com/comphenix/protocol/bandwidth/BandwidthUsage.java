@@ -0,0 +1,81 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.bandwidth;
+
+/**
+ * The number of packets and bytes that were sent, of a packet type or a player.
+ */
+public final class BandwidthUsage {
+
+    static final BandwidthUsage EMPTY = new BandwidthUsage(0, 0, 0);
+
+    private final long packets;
+    private final long encodedBytes;
+    private final long wireBytes;
+
+    BandwidthUsage(long packets, long encodedBytes, long wireBytes) {
+        this.packets = packets;
+        this.encodedBytes = encodedBytes;
+        this.wireBytes = wireBytes;
+    }
+
+    /**
+     * Retrieve the number of packets that were sent.
+     *
+     * @return The number of packets.
+     */
+    public long getPackets() {
+        return this.packets;
+    }
+
+    /**
+     * Retrieve the number of bytes of the encoded packets, before they were compressed.
+     *
+     * @return The number of encoded bytes.
+     */
+    public long getEncodedBytes() {
+        return this.encodedBytes;
+    }
+
+    /**
+     * Retrieve the number of bytes that were written to the connection, after compression and framing and before
+     * encryption, which does not change the size.
+     *
+     * @return The number of bytes on the wire.
+     */
+    public long getWireBytes() {
+        return this.wireBytes;
+    }
+
+    /**
+     * Add the given usage to this usage.
+     *
+     * @param other - the other usage.
+     * @return The sum of both.
+     */
+    public BandwidthUsage add(BandwidthUsage other) {
+        return new BandwidthUsage(this.packets + other.packets, this.encodedBytes + other.encodedBytes,
+                this.wireBytes + other.wireBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "BandwidthUsage[packets=" + this.packets + ", encodedBytes=" + this.encodedBytes + ", wireBytes="
+                + this.wireBytes + "]";
+    }
+}
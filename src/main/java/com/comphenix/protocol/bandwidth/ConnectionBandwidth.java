@@ -0,0 +1,191 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.bandwidth;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.PacketType.Protocol;
+import com.comphenix.protocol.PacketType.Sender;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * The bandwidth counters of a single connection.
+ * <p>
+ * The counters are only written by the event loop of the connection, and can be read from any thread. They are
+ * registered by the channel injector, plugins should use {@link BandwidthAccounting} instead.
+ */
+public final class ConnectionBandwidth {
+
+    private static final Protocol[] PROTOCOLS = Protocol.values();
+    private static final int MAXIMUM_PACKET_ID = 256;
+
+    private static final int PACKETS = 0;
+    private static final int ENCODED_BYTES = 1;
+    private static final int WIRE_BYTES = 2;
+    private static final int COUNTERS = 3;
+
+    private final Supplier<UUID> player;
+    private final Executor writer;
+
+    // counters of every packet id, per protocol, created once the protocol is used
+    private final AtomicLongArray[] counters = new AtomicLongArray[PROTOCOLS.length];
+
+    // the slot of the packet that was encoded last, only used by the event loop
+    private int lastSlot = -1;
+    private AtomicLongArray lastCounters;
+
+    ConnectionBandwidth(Supplier<UUID> player, Executor writer) {
+        this.player = player;
+        this.writer = writer;
+    }
+
+    private static void increment(AtomicLongArray counters, int index, long delta) {
+        // there is only a single writer
+        counters.lazySet(index, counters.get(index) + delta);
+    }
+
+    /**
+     * Record a sent packet, after it was encoded and before it is compressed.
+     *
+     * @param protocol - the protocol of the connection, or NULL if it is not known.
+     * @param frame    - the packet id followed by the packet contents, its indices are left untouched.
+     */
+    public void recordEncoded(Protocol protocol, ByteBuf frame) {
+        int packetId = readPacketId(frame);
+        if (protocol == null || packetId < 0 || packetId >= MAXIMUM_PACKET_ID) {
+            this.lastCounters = null;
+            return;
+        }
+
+        AtomicLongArray counters = this.counters[protocol.ordinal()];
+        if (counters == null) {
+            counters = this.counters[protocol.ordinal()] = new AtomicLongArray(MAXIMUM_PACKET_ID * COUNTERS);
+        }
+
+        int slot = packetId * COUNTERS;
+        increment(counters, slot + PACKETS, 1);
+        increment(counters, slot + ENCODED_BYTES, frame.readableBytes());
+
+        this.lastCounters = counters;
+        this.lastSlot = slot;
+    }
+
+    /**
+     * Record the bytes that were written to the connection, attributing them to the packet that was encoded last.
+     *
+     * @param bytes - the number of bytes.
+     */
+    public void recordWire(int bytes) {
+        AtomicLongArray counters = this.lastCounters;
+        if (counters != null) {
+            increment(counters, this.lastSlot + WIRE_BYTES, bytes);
+        }
+    }
+
+    private static int readPacketId(ByteBuf frame) {
+        int index = frame.readerIndex();
+        int end = frame.writerIndex();
+        int packetId = 0;
+        int shift = 0;
+        byte current;
+        do {
+            if (index >= end || shift >= 35) {
+                return -1;
+            }
+            current = frame.getByte(index++);
+            packetId |= (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return packetId;
+    }
+
+    /**
+     * Retrieve the unique id of the player of this connection.
+     *
+     * @return The unique id, or NULL if it is not yet known.
+     */
+    UUID getPlayer() {
+        return this.player.get();
+    }
+
+    /**
+     * Add the usage of this connection to the given usage per packet type.
+     *
+     * @param usage - the usage per packet type.
+     */
+    void addTo(Map<PacketType, BandwidthUsage> usage) {
+        for (int protocol = 0; protocol < PROTOCOLS.length; protocol++) {
+            AtomicLongArray counters = this.counters[protocol];
+            if (counters == null) {
+                continue;
+            }
+
+            for (int packetId = 0; packetId < MAXIMUM_PACKET_ID; packetId++) {
+                int slot = packetId * COUNTERS;
+                long packets = counters.get(slot + PACKETS);
+                if (packets == 0) {
+                    continue;
+                }
+
+                PacketType type = findType(PROTOCOLS[protocol], packetId);
+                if (type != null) {
+                    usage.merge(type, new BandwidthUsage(packets, counters.get(slot + ENCODED_BYTES),
+                            counters.get(slot + WIRE_BYTES)), BandwidthUsage::add);
+                }
+            }
+        }
+    }
+
+    private static PacketType findType(Protocol protocol, int packetId) {
+        try {
+            return PacketType.findCurrent(protocol, Sender.SERVER, packetId);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Reset every counter of this connection, on the thread that writes them.
+     */
+    void reset() {
+        // resetting from another thread would race with the increments, which are not atomic
+        try {
+            this.writer.execute(this::resetCounters);
+        } catch (RejectedExecutionException ex) {
+            // the event loop is shut down, so nothing writes the counters anymore
+            this.resetCounters();
+        }
+    }
+
+    private void resetCounters() {
+        for (AtomicLongArray counters : this.counters) {
+            if (counters == null) {
+                continue;
+            }
+            for (int i = 0; i < counters.length(); i++) {
+                counters.set(i, 0);
+            }
+        }
+    }
+}
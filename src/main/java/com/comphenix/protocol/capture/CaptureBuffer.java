@@ -0,0 +1,138 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.capture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * A ring of capture records, written by a single event loop and drained by the writer of the capture.
+ * <p>
+ * Neither side ever blocks: records that do not fit into the free space of the ring are dropped.
+ */
+final class CaptureBuffer {
+
+    private final byte[] ring;
+    private final int mask;
+
+    // positions only ever increase, the index into the ring is the position masked
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    // only used by the producer
+    private final ByteBuffer header = ByteBuffer.allocate(CaptureFormat.RECORD_HEADER_SIZE);
+
+    CaptureBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.ring = new byte[capacity];
+        this.mask = capacity - 1;
+    }
+
+    int capacity() {
+        return this.ring.length;
+    }
+
+    /**
+     * Append a record to this ring, must only be called by the owning thread.
+     *
+     * @return TRUE if the record was appended, FALSE if there was not enough space.
+     */
+    boolean offer(long timestamp, UUID player, byte sender, byte protocol, int packetId, ByteBuf content, int index, int length) {
+        int recordLength = CaptureFormat.RECORD_HEADER_SIZE + length;
+        long tail = this.tail.get();
+
+        if (recordLength > this.ring.length - (tail - this.head.get())) {
+            return false;
+        }
+
+        this.header.clear();
+        this.header.putInt(recordLength - 4)
+                .putLong(timestamp)
+                .putLong(player != null ? player.getMostSignificantBits() : 0)
+                .putLong(player != null ? player.getLeastSignificantBits() : 0)
+                .put(sender)
+                .put(protocol)
+                .putInt(packetId);
+
+        this.put(tail, this.header.array(), CaptureFormat.RECORD_HEADER_SIZE);
+
+        int start = (int) ((tail + CaptureFormat.RECORD_HEADER_SIZE) & this.mask);
+        int first = Math.min(length, this.ring.length - start);
+        content.getBytes(index, this.ring, start, first);
+        if (first < length) {
+            content.getBytes(index + first, this.ring, 0, length - first);
+        }
+
+        // publish the record to the writer
+        this.tail.lazySet(tail + recordLength);
+        return true;
+    }
+
+    private void put(long position, byte[] source, int length) {
+        int start = (int) (position & this.mask);
+        int first = Math.min(length, this.ring.length - start);
+        System.arraycopy(source, 0, this.ring, start, first);
+        if (first < length) {
+            System.arraycopy(source, first, this.ring, 0, length - first);
+        }
+    }
+
+    /**
+     * Move every published record to the given writer, must only be called by the writer of the capture.
+     *
+     * @return The number of records that were drained.
+     */
+    int drainTo(CaptureSegmentWriter writer) throws IOException {
+        long head = this.head.get();
+        long tail = this.tail.get();
+        int records = 0;
+
+        while (head < tail) {
+            int length = this.readInt(head) + 4;
+            int start = (int) (head & this.mask);
+            int first = Math.min(length, this.ring.length - start);
+
+            writer.beginRecord(length);
+            writer.write(this.ring, start, first);
+            if (first < length) {
+                writer.write(this.ring, 0, length - first);
+            }
+
+            head += length;
+            records++;
+        }
+
+        // release the space to the producer
+        this.head.lazySet(head);
+        return records;
+    }
+
+    private int readInt(long position) {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = (value << 8) | (this.ring[(int) ((position + i) & this.mask)] & 0xFF);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.capture;
+
+/**
+ * The layout of capture segment files.
+ * <p>
+ * A segment starts with a header of {@link #HEADER_SIZE} bytes: the magic number, the format version and the offset
+ * after the last complete record. It is followed by records, each of them starting with the number of bytes that
+ * follow the length itself:
+ * <pre>
+ * int    length
+ * long   timestamp, in milliseconds since the epoch
+ * long   most significant bits of the player's unique id
+ * long   least significant bits of the player's unique id
+ * byte   sender ordinal
+ * byte   protocol ordinal, or -1 if unknown
+ * int    packet id
+ * byte[] packet contents, without the packet id
+ * </pre>
+ */
+final class CaptureFormat {
+
+    static final int MAGIC = 0x504C4350; // PLCP
+    static final int VERSION = 1;
+
+    static final int LIMIT_OFFSET = 8;
+    static final int HEADER_SIZE = 16;
+
+    static final int RECORD_HEADER_SIZE = 4 + 8 + 8 + 8 + 1 + 1 + 4;
+
+    static final String SEGMENT_PREFIX = "capture-";
+    static final String SEGMENT_SUFFIX = ".plcap";
+
+    private CaptureFormat() {
+    }
+
+    static String segmentName(long index) {
+        return String.format("%s%08d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+    }
+
+    static long segmentIndex(String fileName) {
+        if (!fileName.startsWith(SEGMENT_PREFIX) || !fileName.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+
+        try {
+            return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.capture;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import com.comphenix.protocol.PacketType.Protocol;
+import com.comphenix.protocol.PacketType.Sender;
+
+/**
+ * Reads the segment files written by a {@link PacketCapture}.
+ * <p>
+ * The reader does not depend on a running server, and can also be run from the command line to print a capture:
+ * <pre>
+ * java -cp ProtocolLib.jar com.comphenix.protocol.capture.CaptureReader &lt;segment or directory&gt; [--hex]
+ * </pre>
+ */
+public final class CaptureReader {
+
+    private static final Sender[] SENDERS = Sender.values();
+    private static final Protocol[] PROTOCOLS = Protocol.values();
+
+    private CaptureReader() {
+        // Not constructable
+    }
+
+    /**
+     * Find the segment files of a capture, from the oldest to the newest.
+     *
+     * @param path - a segment file, or the directory of a capture.
+     * @return The segment files.
+     * @throws IOException If the directory could not be listed.
+     */
+    public static List<Path> findSegments(Path path) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(path)) {
+            segments.add(path);
+            return segments;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(path)) {
+            for (Path file : files) {
+                if (CaptureFormat.segmentIndex(file.getFileName().toString()) >= 0) {
+                    segments.add(file);
+                }
+            }
+        }
+
+        segments.sort(Comparator.comparingLong(file -> CaptureFormat.segmentIndex(file.getFileName().toString())));
+        return segments;
+    }
+
+    /**
+     * Read every packet of a capture, from the oldest to the newest.
+     *
+     * @param path     - a segment file, or the directory of a capture.
+     * @param consumer - the consumer of the packets.
+     * @throws IOException If a segment could not be read or is not a capture segment.
+     */
+    public static void read(Path path, Consumer<CapturedPacket> consumer) throws IOException {
+        for (Path segment : findSegments(path)) {
+            readSegment(segment, consumer);
+        }
+    }
+
+    /**
+     * Read every packet of a capture, from the oldest to the newest.
+     *
+     * @param path - a segment file, or the directory of a capture.
+     * @return The packets.
+     * @throws IOException If a segment could not be read or is not a capture segment.
+     */
+    public static List<CapturedPacket> readAll(Path path) throws IOException {
+        List<CapturedPacket> packets = new ArrayList<>();
+        read(path, packets::add);
+        return packets;
+    }
+
+    private static void readSegment(Path segment, Consumer<CapturedPacket> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.remaining() < CaptureFormat.HEADER_SIZE || buffer.getInt() != CaptureFormat.MAGIC) {
+                throw new IOException(segment + " is not a packet capture segment");
+            }
+
+            int version = buffer.getInt();
+            if (version != CaptureFormat.VERSION) {
+                throw new IOException("Unsupported capture version " + version + " of " + segment);
+            }
+
+            // records after the limit might be incomplete
+            int limit = Math.min(buffer.getInt(CaptureFormat.LIMIT_OFFSET), buffer.capacity());
+            buffer.position(CaptureFormat.HEADER_SIZE);
+
+            while (buffer.position() + CaptureFormat.RECORD_HEADER_SIZE <= limit) {
+                int length = buffer.getInt();
+                int end = buffer.position() + length;
+                if (length < CaptureFormat.RECORD_HEADER_SIZE - 4 || end > limit) {
+                    break;
+                }
+
+                long timestamp = buffer.getLong();
+                UUID player = new UUID(buffer.getLong(), buffer.getLong());
+                int sender = buffer.get();
+                int protocol = buffer.get();
+                int packetId = buffer.getInt();
+
+                byte[] content = new byte[end - buffer.position()];
+                buffer.get(content);
+
+                consumer.accept(new CapturedPacket(timestamp, player, SENDERS[sender],
+                        protocol >= 0 && protocol < PROTOCOLS.length ? PROTOCOLS[protocol] : null, packetId, content));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CaptureReader <segment or directory> [--hex]");
+            System.exit(1);
+            return;
+        }
+
+        boolean hex = args.length > 1 && args[1].equalsIgnoreCase("--hex");
+        read(Paths.get(args[0]), packet -> {
+            System.out.printf("%s %s %s %s 0x%02X (%d bytes)%n", Instant.ofEpochMilli(packet.getTimestamp()),
+                    packet.getPlayer(), packet.getSender(), packet.getProtocol(), packet.getPacketId(),
+                    packet.getContent().length);
+
+            if (hex) {
+                printHex(packet.getContent());
+            }
+        });
+    }
+
+    private static void printHex(byte[] content) {
+        StringBuilder line = new StringBuilder();
+        for (int offset = 0; offset < content.length; offset += 16) {
+            line.setLength(0);
+            line.append(String.format("  %08X ", offset));
+
+            for (int i = offset; i < Math.min(offset + 16, content.length); i++) {
+                line.append(String.format(" %02X", content[i]));
+            }
+            System.out.println(line);
+        }
+    }
+}
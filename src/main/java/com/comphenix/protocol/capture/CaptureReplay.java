@@ -0,0 +1,384 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.capture;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.PacketType.Protocol;
+import com.comphenix.protocol.ProtocolLibrary;
+import com.comphenix.protocol.error.ErrorReporter;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
+import com.comphenix.protocol.events.PacketListener;
+import com.comphenix.protocol.injector.ListenerManager;
+import com.comphenix.protocol.injector.collection.InboundPacketListenerSet;
+import com.comphenix.protocol.injector.collection.OutboundPacketListenerSet;
+import com.comphenix.protocol.injector.netty.channel.InjectionFactory;
+import com.comphenix.protocol.injector.netty.channel.NettyChannelInjector;
+import com.comphenix.protocol.reflect.FuzzyReflection;
+import com.comphenix.protocol.reflect.accessors.Accessors;
+import com.comphenix.protocol.reflect.accessors.FieldAccessor;
+import com.comphenix.protocol.timing.TimingReport;
+import com.comphenix.protocol.timing.TimingTrackerManager;
+import com.comphenix.protocol.utility.MinecraftReflection;
+import com.google.common.base.Preconditions;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.bukkit.entity.Player;
+
+/**
+ * Replays a packet capture through the packet listeners, without any connected client.
+ * <p>
+ * The packets are fed through an {@link EmbeddedChannel} that is injected like the channel of a real connection.
+ * Received packets pass the inbound interceptor of the injector, sent packets are written through the proxied channel
+ * of the network manager. The listener time of each plugin is tracked apart from the live connections, and returned
+ * with the result.
+ * <p>
+ * This requires an initialized server environment, such as a running server or the test bootstrap. Listeners are
+ * invoked on the replaying thread, and packets are discarded once they passed the listeners.
+ */
+public final class CaptureReplay {
+
+    private final ListenerManager listenerManager;
+    private final ErrorReporter errorReporter;
+    private final Player player;
+    private final double speed;
+
+    private CaptureReplay(Builder builder) {
+        this.listenerManager = builder.listenerManager;
+        this.errorReporter = builder.errorReporter;
+        this.player = builder.player;
+        this.speed = builder.speed;
+    }
+
+    /**
+     * Construct a new replay builder.
+     *
+     * @return The builder.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Replay every packet of a capture, from the oldest to the newest.
+     *
+     * @param capture - a segment file, or the directory of a capture.
+     * @return The outcome of the replay.
+     * @throws IOException If the capture could not be read.
+     */
+    public ReplayResult replay(Path capture) throws IOException {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ReplayDecoder decoder = new ReplayDecoder();
+        channel.pipeline().addLast("decoder", decoder);
+        channel.pipeline().addLast("encoder", new ReplayEncoder());
+
+        Object networkManager = createNetworkManager();
+        InjectionFactory factory = new InjectionFactory(ProtocolLibrary.getPlugin(), this.errorReporter, this.listenerManager);
+        ReplayInjector injector = new ReplayInjector(this.player, networkManager, channel, this.listenerManager, factory, this.errorReporter);
+        injector.inject();
+
+        // outbound packets are written through the proxy the injector installed into the network manager
+        Channel proxy = (Channel) getChannelAccessor(networkManager).get(networkManager);
+
+        // the listeners are invoked on this thread, so the replay is tracked apart from the live connections
+        boolean tracking = TimingTrackerManager.startLocalTracking();
+        TimingReport timings = null;
+
+        long[] counts = new long[2];
+        long start = System.nanoTime();
+        try {
+            long[] firstTimestamp = {-1};
+
+            CaptureReader.read(capture, packet -> {
+                PacketType type = resolveType(packet);
+                if (type == null) {
+                    counts[1]++;
+                    return;
+                }
+
+                if (firstTimestamp[0] < 0) {
+                    firstTimestamp[0] = packet.getTimestamp();
+                }
+                this.awaitTimestamp(start, packet.getTimestamp() - firstTimestamp[0]);
+
+                injector.protocol = packet.getProtocol();
+                if (packet.getSender() == PacketType.Sender.CLIENT) {
+                    decoder.type = type;
+                    channel.writeInbound(Unpooled.wrappedBuffer(packet.getContent()));
+                } else {
+                    proxy.writeAndFlush(decode(type, Unpooled.wrappedBuffer(packet.getContent())));
+                }
+
+                // nobody reads the packets after the listeners
+                channel.releaseInbound();
+                channel.releaseOutbound();
+                counts[0]++;
+            });
+        } finally {
+            if (tracking) {
+                timings = TimingTrackerManager.stopLocalTracking();
+            }
+            injector.close();
+            channel.finishAndReleaseAll();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        return new ReplayResult(counts[0], counts[1], elapsed, timings);
+    }
+
+    private void awaitTimestamp(long start, long offsetMillis) {
+        if (Double.isInfinite(this.speed)) {
+            return;
+        }
+
+        long deadline = start + (long) (TimeUnit.MILLISECONDS.toNanos(offsetMillis) / this.speed);
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static PacketType resolveType(CapturedPacket packet) {
+        try {
+            return packet.getPacketType();
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static Object decode(PacketType type, ByteBuf content) {
+        // the serializer shares the reference count of the content
+        Object serializer = MinecraftReflection.getPacketDataSerializer(content);
+        try {
+            return PacketContainer.deserializeFromBuffer(type, serializer);
+        } finally {
+            ReferenceCountUtil.safeRelease(serializer);
+        }
+    }
+
+    private static Object createNetworkManager() {
+        Class<?> networkManagerClass = MinecraftReflection.getNetworkManagerClass();
+        Class<?> packetFlowClass = MinecraftReflection.getPacketFlowClass();
+
+        // the connection of a client to the server
+        Object serverbound = packetFlowClass.getEnumConstants()[0];
+        return Accessors.getConstructorAccessor(networkManagerClass, packetFlowClass).invoke(serverbound);
+    }
+
+    private static FieldAccessor getChannelAccessor(Object networkManager) {
+        return Accessors.getFieldAccessor(FuzzyReflection.fromObject(networkManager, true).getFieldByType("channel", Channel.class));
+    }
+
+    /**
+     * An injector that reports the protocol of the packet that is being replayed.
+     */
+    private static final class ReplayInjector extends NettyChannelInjector {
+
+        private volatile Protocol protocol = Protocol.PLAY;
+
+        ReplayInjector(Player player, Object networkManager, Channel channel, ListenerManager listenerManager,
+                InjectionFactory factory, ErrorReporter errorReporter) {
+            super(player, networkManager, channel, listenerManager, factory, errorReporter);
+        }
+
+        @Override
+        public Protocol getCurrentProtocol(PacketType.Sender sender) {
+            return this.protocol;
+        }
+    }
+
+    /**
+     * Decodes the replayed frame into a packet of the type that is being replayed.
+     */
+    private static final class ReplayDecoder extends ChannelInboundHandlerAdapter {
+
+        private PacketType type;
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.fireChannelRead(decode(this.type, (ByteBuf) msg));
+        }
+    }
+
+    /**
+     * Discards the packets that were sent, as there is no client to send them to.
+     */
+    private static final class ReplayEncoder extends ChannelOutboundHandlerAdapter {
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            ReferenceCountUtil.release(msg);
+            promise.setSuccess();
+        }
+    }
+
+    /**
+     * Listeners that are invoked directly, without being scheduled on the main thread.
+     */
+    private static final class DirectListenerManager implements ListenerManager {
+
+        private final InboundPacketListenerSet inbound;
+        private final OutboundPacketListenerSet outbound;
+
+        DirectListenerManager(ErrorReporter errorReporter) {
+            this.inbound = new InboundPacketListenerSet(null, errorReporter);
+            this.outbound = new OutboundPacketListenerSet(null, errorReporter);
+        }
+
+        void addListener(PacketListener listener) {
+            if (listener.getSendingWhitelist().isEnabled()) {
+                this.outbound.addListener(listener);
+            }
+            if (listener.getReceivingWhitelist().isEnabled()) {
+                this.inbound.addListener(listener);
+            }
+        }
+
+        @Override
+        public boolean hasInboundListener(PacketType packetType) {
+            return this.inbound.containsPacketType(packetType);
+        }
+
+        @Override
+        public boolean hasOutboundListener(PacketType packetType) {
+            return this.outbound.containsPacketType(packetType);
+        }
+
+        @Override
+        public boolean hasMainThreadListener(PacketType packetType) {
+            return false;
+        }
+
+        @Override
+        public void invokeInboundPacketListeners(PacketEvent event) {
+            this.inbound.invoke(event);
+        }
+
+        @Override
+        public void invokeOutboundPacketListeners(PacketEvent event) {
+            this.outbound.invoke(event);
+        }
+    }
+
+    /**
+     * Builds a capture replay.
+     */
+    public static final class Builder {
+
+        private ErrorReporter errorReporter = ProtocolLibrary.getErrorReporter();
+        private ListenerManager listenerManager;
+        private DirectListenerManager listeners;
+        private Player player;
+        private double speed = 1;
+
+        private Builder() {
+        }
+
+        /**
+         * Replay the packets through the given packet listener. Listeners given this way are invoked directly on the
+         * replaying thread, even if they requested to run on the main thread.
+         *
+         * @param listener - the listener.
+         * @return This builder, for chaining.
+         */
+        public Builder listener(PacketListener listener) {
+            if (this.listeners == null) {
+                this.listeners = new DirectListenerManager(this.errorReporter);
+            }
+            this.listeners.addListener(listener);
+            return this;
+        }
+
+        /**
+         * Replay the packets through the listeners of the given manager, such as the listeners registered with
+         * ProtocolLib. The listeners of the running protocol manager are used by default.
+         *
+         * @param listenerManager - the listener manager.
+         * @return This builder, for chaining.
+         */
+        public Builder listenerManager(ListenerManager listenerManager) {
+            this.listenerManager = listenerManager;
+            return this;
+        }
+
+        /**
+         * Set the player the packets are replayed for.
+         *
+         * @param player - the player, or NULL to replay them for an unknown player.
+         * @return This builder, for chaining.
+         */
+        public Builder player(Player player) {
+            this.player = player;
+            return this;
+        }
+
+        /**
+         * Set the speed of the replay relative to the wall clock time of the capture. A speed of 1 replays the packets
+         * at the speed they were captured at, a speed of 10 ten times as fast.
+         *
+         * @param speed - the speed.
+         * @return This builder, for chaining.
+         */
+        public Builder speed(double speed) {
+            Preconditions.checkArgument(speed > 0, "speed must be positive");
+            this.speed = speed;
+            return this;
+        }
+
+        /**
+         * Replay the packets as fast as possible, ignoring the time they were captured at.
+         *
+         * @return This builder, for chaining.
+         */
+        public Builder maximumSpeed() {
+            this.speed = Double.POSITIVE_INFINITY;
+            return this;
+        }
+
+        /**
+         * Create the replay.
+         *
+         * @return The replay.
+         * @throws IllegalStateException If no listeners were given and ProtocolLib is not running.
+         */
+        public CaptureReplay build() {
+            if (this.listeners != null) {
+                this.listenerManager = this.listeners;
+            } else if (this.listenerManager == null) {
+                Object manager = ProtocolLibrary.getProtocolManager();
+                if (!(manager instanceof ListenerManager)) {
+                    throw new IllegalStateException("No listeners to replay the capture through");
+                }
+                this.listenerManager = (ListenerManager) manager;
+            }
+            return new CaptureReplay(this);
+        }
+    }
+}
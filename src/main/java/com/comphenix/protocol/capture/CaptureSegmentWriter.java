@@ -0,0 +1,146 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes capture records into a rotating set of memory mapped segment files of a fixed size.
+ * <p>
+ * Once a segment is full the next one is started, and the oldest segment is deleted so that the directory never holds
+ * more than the configured number of segments.
+ */
+final class CaptureSegmentWriter implements Closeable {
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int segmentCount;
+
+    private long index;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+
+    private long bytesWritten;
+
+    CaptureSegmentWriter(Path directory, int segmentSize, int segmentCount) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.segmentCount = segmentCount;
+
+        // continue after the segments of earlier captures
+        Files.createDirectories(directory);
+        this.index = findLastIndex(directory);
+        this.openNext();
+    }
+
+    private static long findLastIndex(Path directory) throws IOException {
+        long last = -1;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                last = Math.max(last, CaptureFormat.segmentIndex(file.getFileName().toString()));
+            }
+        }
+        return last;
+    }
+
+    private void openNext() throws IOException {
+        this.closeSegment();
+        this.index++;
+
+        // only keep the segment once it is mapped, so a failed segment is opened again by the next record
+        Path file = this.directory.resolve(CaptureFormat.segmentName(this.index));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, this.segmentSize);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+        this.channel = channel;
+
+        this.segment.putInt(CaptureFormat.MAGIC);
+        this.segment.putInt(CaptureFormat.VERSION);
+        this.segment.putInt(CaptureFormat.HEADER_SIZE);
+        this.segment.putInt(0);
+
+        // keep the ring within its size
+        long expired = this.index - this.segmentCount;
+        if (expired >= 0) {
+            Files.deleteIfExists(this.directory.resolve(CaptureFormat.segmentName(expired)));
+        }
+    }
+
+    /**
+     * Ensure that the current segment has room for a record of the given length, starting a new segment if it hasn't.
+     */
+    void beginRecord(int length) throws IOException {
+        if (length > this.segmentSize - CaptureFormat.HEADER_SIZE) {
+            throw new IOException("Record of " + length + " bytes exceeds the segment size");
+        }
+        if (this.segment == null || length > this.segment.remaining()) {
+            this.openNext();
+        }
+    }
+
+    void write(byte[] source, int offset, int length) {
+        this.segment.put(source, offset, length);
+        this.bytesWritten += length;
+    }
+
+    /**
+     * Mark every record written so far as complete, so it is seen by readers of the segment.
+     */
+    void commit() {
+        if (this.segment != null) {
+            this.segment.putInt(CaptureFormat.LIMIT_OFFSET, this.segment.position());
+        }
+    }
+
+    long getBytesWritten() {
+        return this.bytesWritten;
+    }
+
+    private void closeSegment() throws IOException {
+        FileChannel channel = this.channel;
+        MappedByteBuffer segment = this.segment;
+        this.channel = null;
+        this.segment = null;
+
+        // the previous segment may have failed to open
+        if (segment != null) {
+            segment.putInt(CaptureFormat.LIMIT_OFFSET, segment.position());
+            segment.force();
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.closeSegment();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.capture;
+
+import java.util.UUID;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.PacketType.Protocol;
+import com.comphenix.protocol.PacketType.Sender;
+
+/**
+ * A packet read from a capture.
+ */
+public final class CapturedPacket {
+
+    private static final UUID UNKNOWN_PLAYER = new UUID(0, 0);
+
+    private final long timestamp;
+    private final UUID player;
+    private final Sender sender;
+    private final Protocol protocol;
+    private final int packetId;
+    private final byte[] content;
+
+    CapturedPacket(long timestamp, UUID player, Sender sender, Protocol protocol, int packetId, byte[] content) {
+        this.timestamp = timestamp;
+        this.player = player;
+        this.sender = sender;
+        this.protocol = protocol;
+        this.packetId = packetId;
+        this.content = content;
+    }
+
+    /**
+     * Retrieve the time the packet was captured at.
+     *
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return this.timestamp;
+    }
+
+    /**
+     * Retrieve the unique id of the player that sent or received the packet.
+     *
+     * @return The unique id, or NULL if the player was not yet known when the packet was captured.
+     */
+    public UUID getPlayer() {
+        return UNKNOWN_PLAYER.equals(this.player) ? null : this.player;
+    }
+
+    /**
+     * Retrieve the sender of the packet.
+     *
+     * @return The sender.
+     */
+    public Sender getSender() {
+        return this.sender;
+    }
+
+    /**
+     * Retrieve the protocol the connection was in when the packet was captured.
+     *
+     * @return The protocol, or NULL if it was not known.
+     */
+    public Protocol getProtocol() {
+        return this.protocol;
+    }
+
+    /**
+     * Retrieve the id of the packet.
+     *
+     * @return The packet id.
+     */
+    public int getPacketId() {
+        return this.packetId;
+    }
+
+    /**
+     * Retrieve the type of the packet in the current server version.
+     * <p>
+     * This requires the packet registry of the server, and is only correct if the capture was made by a server of the
+     * same version.
+     *
+     * @return The packet type.
+     * @throws IllegalArgumentException If the protocol is unknown.
+     */
+    public PacketType getPacketType() {
+        if (this.protocol == null) {
+            throw new IllegalArgumentException("Protocol of packet " + this.packetId + " is unknown");
+        }
+        return PacketType.findCurrent(this.protocol, this.sender, this.packetId);
+    }
+
+    /**
+     * Retrieve the contents of the packet, without the packet id.
+     *
+     * @return The contents.
+     */
+    public byte[] getContent() {
+        return this.content;
+    }
+
+    @Override
+    public String toString() {
+        return "CapturedPacket[timestamp=" + this.timestamp + ", player=" + this.getPlayer() + ", sender=" + this.sender
+                + ", protocol=" + this.protocol + ", id=" + this.packetId + ", length=" + this.content.length + "]";
+    }
+}
@@ -0,0 +1,353 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.PacketType.Protocol;
+import com.comphenix.protocol.PacketType.Sender;
+import com.comphenix.protocol.ProtocolLogger;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Captures the raw packets of connected players to disk, without slowing down the threads that handle the packets.
+ * <p>
+ * Each event loop appends the packets it handles to a ring buffer of its own. A background thread drains these
+ * buffers into a rotating set of memory mapped segment files, see {@link CaptureReader} for reading them. Packets that
+ * do not fit into the buffer of their event loop are dropped rather than waited for.
+ * <p>
+ * Only one capture can be active at a time.
+ */
+public final class PacketCapture implements Closeable {
+
+    private static final AtomicReference<PacketCapture> ACTIVE = new AtomicReference<>();
+
+    private final Set<UUID> players;
+    private final Set<Integer> types;
+    private final int bufferSize;
+
+    private final CaptureSegmentWriter writer;
+
+    // the buffer of every event loop, only referenced by this capture so that they are freed with it
+    private final Map<Thread, CaptureBuffer> buffers = new ConcurrentHashMap<>();
+
+    private final Thread writerThread;
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private final LongAdder captured = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private PacketCapture(Builder builder) throws IOException {
+        this.players = ImmutableSet.copyOf(builder.players);
+        this.types = ImmutableSet.copyOf(builder.types);
+        this.bufferSize = builder.bufferSize;
+
+        this.writer = new CaptureSegmentWriter(builder.directory, builder.segmentSize, builder.segmentCount);
+
+        this.writerThread = new Thread(this::runWriter, "ProtocolLib Packet Capture");
+        this.writerThread.setDaemon(true);
+    }
+
+    /**
+     * Construct a new capture builder.
+     *
+     * @return The builder.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Retrieve the capture that is currently active.
+     *
+     * @return The active capture, or NULL if there is none.
+     */
+    public static PacketCapture getActive() {
+        return ACTIVE.get();
+    }
+
+    private static int typeKey(Protocol protocol, Sender sender, int packetId) {
+        return (protocol.ordinal() << 24) | (sender.ordinal() << 16) | (packetId & 0xFFFF);
+    }
+
+    /**
+     * Capture a packet, if it matches the filter of this capture.
+     * <p>
+     * This is called by the event loop that handles the packet, before it is decoded or after it was encoded.
+     *
+     * @param player   - the unique id of the player, or NULL if it is not yet known.
+     * @param sender   - the sender of the packet.
+     * @param protocol - the protocol of the connection, or NULL if it is not known.
+     * @param frame    - the packet id followed by the packet contents, its indices are left untouched.
+     */
+    public void capture(UUID player, Sender sender, Protocol protocol, ByteBuf frame) {
+        if (!this.running.get() || (!this.players.isEmpty() && !this.players.contains(player))) {
+            return;
+        }
+
+        // read the packet id without moving the reader index
+        int index = frame.readerIndex();
+        int end = frame.writerIndex();
+        int packetId = 0;
+        int shift = 0;
+        byte current;
+        do {
+            if (index >= end || shift >= 35) {
+                return;
+            }
+            current = frame.getByte(index++);
+            packetId |= (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+
+        if (!this.types.isEmpty() && (protocol == null || !this.types.contains(typeKey(protocol, sender, packetId)))) {
+            return;
+        }
+
+        CaptureBuffer buffer = this.getBuffer(Thread.currentThread());
+        byte protocolOrdinal = protocol != null ? (byte) protocol.ordinal() : -1;
+
+        if (buffer.offer(System.currentTimeMillis(), player, (byte) sender.ordinal(), protocolOrdinal, packetId, frame, index, end - index)) {
+            this.captured.increment();
+        } else {
+            this.dropped.increment();
+        }
+    }
+
+    private CaptureBuffer getBuffer(Thread thread) {
+        CaptureBuffer buffer = this.buffers.get(thread);
+        if (buffer == null) {
+            buffer = this.buffers.computeIfAbsent(thread, key -> new CaptureBuffer(this.bufferSize));
+        }
+        return buffer;
+    }
+
+    private void runWriter() {
+        while (this.running.get()) {
+            if (this.drain() == 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+        }
+    }
+
+    private int drain() {
+        int records = 0;
+        try {
+            for (CaptureBuffer buffer : this.buffers.values()) {
+                records += buffer.drainTo(this.writer);
+            }
+            if (records > 0) {
+                this.writer.commit();
+            }
+        } catch (IOException ex) {
+            ProtocolLogger.log(Level.WARNING, "Unable to write packet capture, stopping capture", ex);
+            this.running.set(false);
+            ACTIVE.compareAndSet(this, null);
+        }
+        return records;
+    }
+
+    private void start() {
+        if (!ACTIVE.compareAndSet(null, this)) {
+            throw new IllegalStateException("Another packet capture is already active");
+        }
+        this.writerThread.start();
+    }
+
+    /**
+     * Retrieve the number of packets that were captured.
+     *
+     * @return The number of captured packets.
+     */
+    public long getCapturedCount() {
+        return this.captured.sum();
+    }
+
+    /**
+     * Retrieve the number of packets that matched the filter, but were dropped as the buffer of their event loop was
+     * full.
+     *
+     * @return The number of dropped packets.
+     */
+    public long getDroppedCount() {
+        return this.dropped.sum();
+    }
+
+    /**
+     * Determine if this capture is still running.
+     *
+     * @return TRUE if it is, FALSE otherwise.
+     */
+    public boolean isRunning() {
+        return this.running.get();
+    }
+
+    /**
+     * Stop this capture, writing every packet that was captured so far to disk.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!this.closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        ACTIVE.compareAndSet(this, null);
+        this.running.set(false);
+
+        try {
+            this.writerThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        // packets captured while the writer was stopping
+        this.drain();
+        this.buffers.clear();
+        this.writer.close();
+    }
+
+    /**
+     * Builds a packet capture.
+     */
+    public static final class Builder {
+
+        private final Set<UUID> players = new HashSet<>();
+        private final Set<Integer> types = new HashSet<>();
+
+        private Path directory;
+        private int segmentSize = 64 * 1024 * 1024;
+        private int segmentCount = 8;
+        private int bufferSize = 4 * 1024 * 1024;
+
+        private Builder() {
+        }
+
+        /**
+         * Set the directory the segment files are written to.
+         *
+         * @param directory - the directory.
+         * @return This builder, for chaining.
+         */
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * Set the size of each segment file, 64 MiB by default.
+         *
+         * @param segmentSize - the size in bytes.
+         * @return This builder, for chaining.
+         */
+        public Builder segmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * Set the number of segment files that are kept, 8 by default.
+         *
+         * @param segmentCount - the number of segments.
+         * @return This builder, for chaining.
+         */
+        public Builder segmentCount(int segmentCount) {
+            this.segmentCount = segmentCount;
+            return this;
+        }
+
+        /**
+         * Set the size of the buffer of each event loop, 4 MiB by default. The size is rounded up to a power of two.
+         *
+         * @param bufferSize - the size in bytes.
+         * @return This builder, for chaining.
+         */
+        public Builder bufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * Only capture the packets of the given players. Packets of every player are captured if none are given.
+         *
+         * @param players - the unique ids of the players.
+         * @return This builder, for chaining.
+         */
+        public Builder players(Collection<UUID> players) {
+            this.players.addAll(players);
+            return this;
+        }
+
+        /**
+         * Only capture packets of the given types. Packets of every type are captured if none are given.
+         *
+         * @param types - the packet types.
+         * @return This builder, for chaining.
+         */
+        public Builder types(Collection<PacketType> types) {
+            for (PacketType type : types) {
+                this.types.add(typeKey(type.getProtocol(), type.getSender(), type.getCurrentId()));
+            }
+            return this;
+        }
+
+        /**
+         * Create and start the capture.
+         *
+         * @return The active capture.
+         * @throws IOException If the first segment file could not be created.
+         * @throws IllegalStateException If another capture is already active.
+         */
+        public PacketCapture start() throws IOException {
+            Preconditions.checkNotNull(this.directory, "directory cannot be NULL");
+            Preconditions.checkArgument(this.segmentCount > 0, "segmentCount must be positive");
+            Preconditions.checkArgument(this.bufferSize >= 1024, "bufferSize must be at least 1024 bytes");
+
+            // a segment must be able to hold every record a buffer can hold
+            this.bufferSize = Integer.highestOneBit(this.bufferSize - 1) << 1;
+            Preconditions.checkArgument(this.segmentSize >= this.bufferSize + CaptureFormat.HEADER_SIZE,
+                    "segmentSize must be larger than bufferSize");
+
+            PacketCapture capture = new PacketCapture(this);
+            try {
+                capture.start();
+            } catch (IllegalStateException ex) {
+                capture.writer.close();
+                throw ex;
+            }
+            return capture;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.capture;
+
+import java.util.concurrent.TimeUnit;
+
+import com.comphenix.protocol.timing.TimingReport;
+
+/**
+ * The outcome of replaying a capture.
+ */
+public final class ReplayResult {
+
+    private final long replayed;
+    private final long skipped;
+    private final long elapsedNanos;
+    private final TimingReport timings;
+
+    ReplayResult(long replayed, long skipped, long elapsedNanos, TimingReport timings) {
+        this.replayed = replayed;
+        this.skipped = skipped;
+        this.elapsedNanos = elapsedNanos;
+        this.timings = timings;
+    }
+
+    /**
+     * Retrieve the number of packets that were replayed through the listeners.
+     *
+     * @return The number of replayed packets.
+     */
+    public long getReplayedCount() {
+        return this.replayed;
+    }
+
+    /**
+     * Retrieve the number of captured packets that could not be replayed, as their type is unknown to the server.
+     *
+     * @return The number of skipped packets.
+     */
+    public long getSkippedCount() {
+        return this.skipped;
+    }
+
+    /**
+     * Retrieve the time it took to replay the capture.
+     *
+     * @param unit - the unit of the returned time.
+     * @return The elapsed time.
+     */
+    public long getElapsedTime(TimeUnit unit) {
+        return unit.convert(this.elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Retrieve the number of packets that were replayed per second.
+     *
+     * @return The throughput.
+     */
+    public double getThroughput() {
+        return this.elapsedNanos > 0 ? this.replayed * 1e9 / this.elapsedNanos : 0;
+    }
+
+    /**
+     * Retrieve the time spent in the listeners of each plugin, per listener type and packet type.
+     *
+     * @return The timings, or NULL if the replaying thread was already tracking its listeners.
+     */
+    public TimingReport getTimings() {
+        return this.timings;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ReplayResult[replayed=%d, skipped=%d, elapsed=%d ms, throughput=%.1f packets/s]",
+                this.replayed, this.skipped, this.getElapsedTime(TimeUnit.MILLISECONDS), this.getThroughput());
+    }
+}
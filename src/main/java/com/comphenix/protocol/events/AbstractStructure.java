@@ -2,7 +2,6 @@ package com.comphenix.protocol.events;
 
 import java.lang.reflect.Array;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.List;
@@ -1290,9 +1289,11 @@ public abstract class AbstractStructure {
         return structureModifier.withType(Optional.class, Converters.optional(converter));
     }
 
+    @SuppressWarnings({"unchecked", "rawtypes"})
     public StructureModifier<Iterable<PacketContainer>> getPacketBundles() {
-        return structureModifier.withType(Iterable.class, Converters.iterable(
-            BukkitConverters.getPacketContainerConverter(), ArrayList::new, ArrayList::new
+        // the list converter only wraps the bundled packets that are accessed
+        return structureModifier.withType(Iterable.class, (EquivalentConverter) BukkitConverters.getListConverter(
+            BukkitConverters.getPacketContainerConverter()
         ));
     }
 
@@ -21,8 +21,10 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -35,9 +37,10 @@ import javax.annotation.Nullable;
 
 import com.comphenix.protocol.PacketType;
 import com.comphenix.protocol.injector.StructureCache;
+import com.comphenix.protocol.injector.netty.WirePacket;
 import com.comphenix.protocol.injector.packet.PacketRegistry;
+import com.comphenix.protocol.reflect.CopyOnWriteTarget;
 import com.comphenix.protocol.reflect.FuzzyReflection;
-import com.comphenix.protocol.reflect.ObjectWriter;
 import com.comphenix.protocol.reflect.StructureModifier;
 import com.comphenix.protocol.reflect.accessors.Accessors;
 import com.comphenix.protocol.reflect.accessors.ConstructorAccessor;
@@ -60,7 +63,6 @@ import com.comphenix.protocol.utility.MinecraftVersion;
 import com.comphenix.protocol.wrappers.Converters;
 import com.comphenix.protocol.wrappers.WrappedStreamCodec;
 
-import com.google.common.collect.Sets;
 import io.netty.buffer.ByteBuf;
 import io.netty.util.ReferenceCountUtil;
 
@@ -97,20 +99,27 @@ public class PacketContainer extends AbstractStructure implements Serializable {
                 if (param == null)
                     throw new IllegalArgumentException("Cannot be NULL.");
 
-                return new FieldCloner(param.getAggregateCloner(), param.getInstanceProvider()) {{
-                    // Use a default writer with no concept of cloning
-                    writer = new ObjectWriter();
-                }};
+                return new FieldCloner(param.getAggregateCloner(), param.getInstanceProvider()) {
+                    @Override
+                    protected boolean isShared(Field field) {
+                        // Copy every value directly, with no concept of cloning
+                        return true;
+                    }
+                };
             })
             .build();
 
     // Packets that cannot be cloned by our default deep cloner
-    private static final Set<PacketType> FAST_CLONE_UNSUPPORTED = Sets.newHashSet(
-        PacketType.Play.Server.BOSS,
-        PacketType.Play.Server.ADVANCEMENTS,
-        PacketType.Play.Client.USE_ENTITY,
-        PacketType.Status.Server.SERVER_INFO
-    );
+    private static final Set<PacketType> FAST_CLONE_UNSUPPORTED = ConcurrentHashMap.newKeySet();
+
+    static {
+        Collections.addAll(FAST_CLONE_UNSUPPORTED,
+            PacketType.Play.Server.BOSS,
+            PacketType.Play.Server.ADVANCEMENTS,
+            PacketType.Play.Client.USE_ENTITY,
+            PacketType.Status.Server.SERVER_INFO
+        );
+    }
 
     /**
      * Creates a packet container for a new packet.
@@ -172,7 +181,27 @@ public class PacketContainer extends AbstractStructure implements Serializable {
      * @return Underlying Minecraft packet.
      */
     public Object getHandle() {
-        return handle;
+        CopyOnWriteTarget copyOnWrite = structureModifier != null ? structureModifier.getCopyOnWrite() : null;
+        return copyOnWrite != null ? copyOnWrite.get() : handle;
+    }
+
+    /**
+     * Retrieves the underlying Minecraft packet, copying it first if it is still shared by a copy-on-write container.
+     * @return Underlying Minecraft packet that may be modified.
+     */
+    private Object getWritableHandle() {
+        CopyOnWriteTarget copyOnWrite = structureModifier != null ? structureModifier.getCopyOnWrite() : null;
+        return copyOnWrite != null ? copyOnWrite.getWritable() : handle;
+    }
+
+    /**
+     * Determine if this is a copy-on-write container that still shares its packet with other containers.
+     * @return TRUE if the packet is still shared, FALSE otherwise.
+     * @see #copyOnWrite()
+     */
+    public boolean isSharedCopyOnWrite() {
+        CopyOnWriteTarget copyOnWrite = structureModifier != null ? structureModifier.getCopyOnWrite() : null;
+        return copyOnWrite != null && !copyOnWrite.isCopied();
     }
 
     /**
@@ -220,6 +249,53 @@ public class PacketContainer extends AbstractStructure implements Serializable {
         return new PacketContainer(getType(), clonedPacket);
     }
 
+    /**
+     * Create a copy-on-write container for the current packet.
+     * <p>
+     * The returned container shares the underlying packet with this container until it is first written to through
+     * one of its structure modifiers, at which point the packet is shallowly copied. Listeners that only read from the
+     * packet never cause a copy. This is a cheaper alternative to {@link #deepClone()} when personalising a packet that
+     * is sent to multiple recipients:
+     * <pre>{@code
+     * PacketContainer packet = event.getPacket().copyOnWrite();
+     * packet.getStrings().write(0, name);
+     * event.setPacket(packet);
+     * }</pre>
+     * Note that only the fields of the packet itself are protected. Objects read from the packet, such as lists, data
+     * watchers or internal structures, are still shared and must be replaced instead of being modified in place.
+     *
+     * @return A copy-on-write container for the current packet.
+     */
+    public PacketContainer copyOnWrite() {
+        PacketType packetType = this.getType();
+        CopyOnWriteTarget target = new CopyOnWriteTarget(this.getHandle(), original -> {
+            // the metadata is keyed by the packet, so the copy receives its own
+            Object copy = shallowCopy(packetType, original);
+            PacketMetadata.copy(original, copy);
+            return copy;
+        });
+        return new PacketContainer(packetType, target.getOriginal(), this.structureModifier.withCopyOnWrite(target));
+    }
+
+    private static Object shallowCopy(PacketType packetType, Object handle) {
+        if (!FAST_CLONE_UNSUPPORTED.contains(packetType)) {
+            try {
+                return SHALLOW_CLONER.clone(handle);
+            } catch (Exception ex) {
+                FAST_CLONE_UNSUPPORTED.add(packetType);
+            }
+        }
+
+        // Fall back on reading and writing back the packet
+        PacketContainer container = new PacketContainer(packetType, handle);
+        Object serialized = container.serializeToBuffer();
+        Object deserialized = deserializeFromBuffer(packetType, serialized);
+
+        // ensure that we don't leak memory
+        ReferenceCountUtil.safeRelease(serialized);
+        return deserialized;
+    }
+
     /**
      * Create a deep copy of the current packet.
      * <p>
@@ -263,19 +339,13 @@ public class PacketContainer extends AbstractStructure implements Serializable {
         return new com.google.common.base.Function<BuilderParameters, Cloner>() {
             @Override
             public Cloner apply(@Nullable BuilderParameters param) {
-                return new FieldCloner(param.getAggregateCloner(), param.getInstanceProvider()) {{
-                    this.writer = new ObjectWriter() {
-                        @Override
-                        protected void transformField(StructureModifier<Object> modifierSource,
-                                                      StructureModifier<Object> modifierDest, int fieldIndex) {
-                            // No need to clone inflated buffers
-                            if (modifierSource.getField(fieldIndex).getName().startsWith("inflatedBuffer"))
-                                modifierDest.write(fieldIndex, modifierSource.read(fieldIndex));
-                            else
-                                defaultTransform(modifierSource, modifierDest, getDefaultCloner(), fieldIndex);
-                        };
-                    };
-                }};
+                return new FieldCloner(param.getAggregateCloner(), param.getInstanceProvider()) {
+                    @Override
+                    protected boolean isShared(Field field) {
+                        // No need to clone inflated buffers
+                        return field.getName().startsWith("inflatedBuffer") || super.isShared(field);
+                    }
+                };
             }
         };
     }
@@ -347,7 +417,26 @@ public class PacketContainer extends AbstractStructure implements Serializable {
             return null;
         }
 
-        Function<Object, Object> deserializer = PACKET_DESERIALIZER_METHODS.computeIfAbsent(packetType, type -> {
+        return getDeserializer(packetType).apply(buffer);
+    }
+
+    /**
+     * Resolve the deserializer of the given packet type ahead of time, so that the first call to
+     * {@link #deserializeFromBuffer(PacketType, Object)} does not need to look it up.
+     *
+     * @param packetType - the packet type.
+     * @return TRUE if the packet type can be deserialized, FALSE otherwise.
+     */
+    public static boolean hasDeserializer(PacketType packetType) {
+        try {
+            return getDeserializer(packetType) != null;
+        } catch (RuntimeException ex) {
+            return false;
+        }
+    }
+
+    private static Function<Object, Object> getDeserializer(PacketType packetType) {
+        return PACKET_DESERIALIZER_METHODS.computeIfAbsent(packetType, type -> {
             WrappedStreamCodec streamCodec = PacketRegistry.getStreamCodec(type.getPacketClass());
             if (streamCodec != null) {
                 return streamCodec::decode;
@@ -390,7 +479,6 @@ public class PacketContainer extends AbstractStructure implements Serializable {
                 return packet;
             };
         });
-        return deserializer.apply(buffer);
     }
 
     public Object serializeToBuffer() {
@@ -399,16 +487,22 @@ public class PacketContainer extends AbstractStructure implements Serializable {
             return null;
         }
 
-        Object targetBuffer = MinecraftReflection.createPacketDataSerializer(0);
+        Object targetBuffer = MinecraftReflection.createPacketDataSerializer(WirePacket.estimateSize(handle.getClass()));
+        WirePacket.writePacket(handle, (ByteBuf) targetBuffer);
+        return targetBuffer;
+    }
 
-        WrappedStreamCodec streamCodec = PacketRegistry.getStreamCodec(type.getPacketClass());
-        if (streamCodec != null) {
-            streamCodec.encode(targetBuffer, handle);
-        } else {
-            MinecraftMethods.getPacketWriteByteBufMethod().invoke(handle, targetBuffer);
+    /**
+     * Serializes the current packet into the given buffer, after any bytes that were already written to it.
+     *
+     * @param targetBuffer - the buffer to write to, which is wrapped in a packet data serializer if necessary.
+     * @see WirePacket#writePacket(Object, ByteBuf)
+     */
+    public void serializeToBuffer(ByteBuf targetBuffer) {
+        Object handle = this.getHandle();
+        if (handle != null) {
+            WirePacket.writePacket(handle, targetBuffer);
         }
-
-        return targetBuffer;
     }
 
     // ---- Metadata
@@ -422,7 +516,7 @@ public class PacketContainer extends AbstractStructure implements Serializable {
      * @return The metadata value, or an empty optional
      */
     public <T> Optional<T> getMeta(String key) {
-        return PacketMetadata.get(handle, key);
+        return PacketMetadata.get(getHandle(), key);
     }
 
     /**
@@ -434,7 +528,7 @@ public class PacketContainer extends AbstractStructure implements Serializable {
      * @param <T> Metadata type
      */
     public <T> void setMeta(String key, T value) {
-        PacketMetadata.set(handle, key, value);
+        PacketMetadata.set(getWritableHandle(), key, value);
     }
 
     /**
@@ -442,7 +536,7 @@ public class PacketContainer extends AbstractStructure implements Serializable {
      * @param key Key to remove meta for
      */
     public void removeMeta(String key) {
-        PacketMetadata.remove(handle, key);
+        PacketMetadata.remove(getWritableHandle(), key);
     }
 
     /**
@@ -116,6 +116,17 @@ class PacketMetadata {
         META_CACHE.put(packet, packetMeta);
     }
 
+    public static void copy(Object source, Object target) {
+        if (META_CACHE == null) {
+            return;
+        }
+
+        List<MetaObject> packetMeta = META_CACHE.getIfPresent(source);
+        if (packetMeta != null) {
+            META_CACHE.put(target, new ArrayList<>(packetMeta));
+        }
+    }
+
     public static <T> Optional<T> remove(Object packet, String key) {
         Validate.notNull(key, "Null keys are not permitted!");
 
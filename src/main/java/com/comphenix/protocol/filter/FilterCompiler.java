@@ -0,0 +1,438 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+import com.comphenix.protocol.events.PacketEvent;
+import com.comphenix.protocol.reflect.StructureModifier;
+import com.comphenix.protocol.reflect.accessors.FieldAccessor;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Parses a filter expression into a tree of predicates.
+ */
+final class FilterCompiler {
+
+    private static final Map<String, Class<?>> FIELD_TYPES = ImmutableMap.<String, Class<?>>builder()
+            .put("byte", byte.class)
+            .put("short", short.class)
+            .put("int", int.class)
+            .put("long", long.class)
+            .put("float", float.class)
+            .put("double", double.class)
+            .put("boolean", boolean.class)
+            .put("string", String.class)
+            .put("uuid", UUID.class)
+            .put("field", Object.class)
+            .build();
+
+    private final String source;
+    private final List<Token> tokens = new ArrayList<>();
+    private int current;
+
+    FilterCompiler(String source) {
+        this.source = source;
+    }
+
+    Predicate<PacketEvent> compile() throws FilterSyntaxException {
+        this.tokenize();
+
+        Predicate<PacketEvent> result = this.parseOr();
+        Token token = this.peek();
+        if (token.kind != TokenKind.END) {
+            throw this.unexpected(token);
+        }
+        return result;
+    }
+
+    private Predicate<PacketEvent> parseOr() throws FilterSyntaxException {
+        Predicate<PacketEvent> result = this.parseAnd();
+        while (this.accept("||")) {
+            Predicate<PacketEvent> left = result;
+            Predicate<PacketEvent> right = this.parseAnd();
+            result = event -> left.test(event) || right.test(event);
+        }
+        return result;
+    }
+
+    private Predicate<PacketEvent> parseAnd() throws FilterSyntaxException {
+        Predicate<PacketEvent> result = this.parseUnary();
+        while (this.accept("&&")) {
+            Predicate<PacketEvent> left = result;
+            Predicate<PacketEvent> right = this.parseUnary();
+            result = event -> left.test(event) && right.test(event);
+        }
+        return result;
+    }
+
+    private Predicate<PacketEvent> parseUnary() throws FilterSyntaxException {
+        if (this.accept("!")) {
+            Predicate<PacketEvent> operand = this.parseUnary();
+            return event -> !operand.test(event);
+        }
+        if (this.accept("(")) {
+            Predicate<PacketEvent> result = this.parseOr();
+            this.expect(")");
+            return result;
+        }
+        return this.parseComparison();
+    }
+
+    private Predicate<PacketEvent> parseComparison() throws FilterSyntaxException {
+        Token start = this.peek();
+        Operand left = this.parseOperand();
+        Token operator = this.peek();
+
+        if (operator.kind != TokenKind.COMPARISON) {
+            if (left instanceof Constant && !(((Constant) left).value instanceof Boolean)) {
+                throw new FilterSyntaxException("Expected a comparison after " + start.text, operator.position,
+                        operator.kind == TokenKind.END);
+            }
+            return event -> asBoolean(left.evaluate(event));
+        }
+
+        this.current++;
+        Operand right = this.parseOperand();
+
+        switch (operator.text) {
+            case "==":
+                return event -> Values.equal(left.evaluate(event), right.evaluate(event));
+            case "!=":
+                return event -> !Values.equal(left.evaluate(event), right.evaluate(event));
+            case "<":
+                return ordered(left, right, order -> order < 0);
+            case "<=":
+                return ordered(left, right, order -> order <= 0);
+            case ">":
+                return ordered(left, right, order -> order > 0);
+            case ">=":
+                return ordered(left, right, order -> order >= 0);
+            default:
+                throw this.unexpected(operator);
+        }
+    }
+
+    private static Predicate<PacketEvent> ordered(Operand left, Operand right, IntPredicate result) {
+        return event -> {
+            Object leftValue = left.evaluate(event);
+            Object rightValue = right.evaluate(event);
+
+            // missing fields are neither smaller nor larger than anything
+            return leftValue != null && rightValue != null && result.test(Values.compare(leftValue, rightValue));
+        };
+    }
+
+    private Operand parseOperand() throws FilterSyntaxException {
+        Token token = this.next();
+
+        switch (token.kind) {
+            case NUMBER:
+                return new Constant(parseNumber(token));
+            case STRING:
+                return new Constant(token.text);
+            case IDENTIFIER:
+                break;
+            default:
+                throw this.unexpected(token);
+        }
+
+        switch (token.text) {
+            case "true":
+                return new Constant(Boolean.TRUE);
+            case "false":
+                return new Constant(Boolean.FALSE);
+            case "null":
+                return new Constant(null);
+            case "player":
+                return event -> event.isPlayerTemporary() || event.getPlayer() == null ? null : event.getPlayer().getName();
+            case "type":
+                return event -> event.getPacketType().name();
+            case "cancelled":
+                return PacketEvent::isCancelled;
+            default:
+                break;
+        }
+
+        Class<?> fieldType = FIELD_TYPES.get(token.text);
+        if (fieldType == null) {
+            throw new FilterSyntaxException("Unknown name " + token.text, token.position, false);
+        }
+
+        this.expect("[");
+        Token index = this.next();
+        if (index.kind != TokenKind.NUMBER || !index.text.chars().allMatch(Character::isDigit)) {
+            throw new FilterSyntaxException("Expected a field index", index.position, index.kind == TokenKind.END);
+        }
+        this.expect("]");
+
+        try {
+            return new FieldOperand(fieldType, Integer.parseInt(index.text));
+        } catch (NumberFormatException ex) {
+            throw new FilterSyntaxException("Field index " + index.text + " is too large", index.position, false);
+        }
+    }
+
+    private static Object parseNumber(Token token) throws FilterSyntaxException {
+        try {
+            if (token.text.indexOf('.') >= 0) {
+                return Double.parseDouble(token.text);
+            }
+            return Long.parseLong(token.text);
+        } catch (NumberFormatException ex) {
+            throw new FilterSyntaxException("Invalid number " + token.text, token.position, false);
+        }
+    }
+
+    private static boolean asBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw new IllegalArgumentException("Expected a boolean, but got " + value);
+    }
+
+    private Token peek() {
+        return this.tokens.get(this.current);
+    }
+
+    private Token next() {
+        Token token = this.tokens.get(this.current);
+        if (token.kind != TokenKind.END) {
+            this.current++;
+        }
+        return token;
+    }
+
+    private boolean accept(String operator) {
+        Token token = this.peek();
+        if (token.kind != TokenKind.STRING && token.kind != TokenKind.END && token.text.equals(operator)) {
+            this.current++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String operator) throws FilterSyntaxException {
+        if (!this.accept(operator)) {
+            Token token = this.peek();
+            throw new FilterSyntaxException("Expected " + operator, token.position, token.kind == TokenKind.END);
+        }
+    }
+
+    private FilterSyntaxException unexpected(Token token) {
+        if (token.kind == TokenKind.END) {
+            return new FilterSyntaxException("Unexpected end of expression", token.position, true);
+        }
+        return new FilterSyntaxException("Unexpected " + token.text, token.position, false);
+    }
+
+    private void tokenize() throws FilterSyntaxException {
+        int position = 0;
+        int length = this.source.length();
+
+        while (position < length) {
+            char c = this.source.charAt(position);
+
+            if (Character.isWhitespace(c)) {
+                position++;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int end = position + 1;
+                while (end < length && Character.isJavaIdentifierPart(this.source.charAt(end))) {
+                    end++;
+                }
+                this.tokens.add(new Token(TokenKind.IDENTIFIER, this.source.substring(position, end), position));
+                position = end;
+            } else if (Character.isDigit(c) || (c == '-' && position + 1 < length && Character.isDigit(this.source.charAt(position + 1)))) {
+                int end = position + 1;
+                while (end < length && (Character.isDigit(this.source.charAt(end)) || this.source.charAt(end) == '.')) {
+                    end++;
+                }
+                this.tokens.add(new Token(TokenKind.NUMBER, this.source.substring(position, end), position));
+                position = end;
+            } else if (c == '"' || c == '\'') {
+                position = this.readString(position, c);
+            } else {
+                String operator = this.source.startsWith("==", position) || this.source.startsWith("!=", position)
+                        || this.source.startsWith("<=", position) || this.source.startsWith(">=", position)
+                        || this.source.startsWith("&&", position) || this.source.startsWith("||", position)
+                        ? this.source.substring(position, position + 2)
+                        : String.valueOf(c);
+
+                switch (operator) {
+                    case "==": case "!=": case "<=": case ">=": case "<": case ">":
+                        this.tokens.add(new Token(TokenKind.COMPARISON, operator, position));
+                        break;
+                    case "&&": case "||": case "!": case "(": case ")": case "[": case "]":
+                        this.tokens.add(new Token(TokenKind.OPERATOR, operator, position));
+                        break;
+                    case "&": case "|": case "=":
+                        // the first half of an operator
+                        throw new FilterSyntaxException("Unexpected " + operator, position, position + 1 == length);
+                    default:
+                        throw new FilterSyntaxException("Unexpected " + operator, position, false);
+                }
+                position += operator.length();
+            }
+        }
+        this.tokens.add(new Token(TokenKind.END, "", length));
+    }
+
+    private int readString(int start, char quote) throws FilterSyntaxException {
+        StringBuilder text = new StringBuilder();
+        int position = start + 1;
+
+        while (position < this.source.length()) {
+            char c = this.source.charAt(position++);
+            if (c == quote) {
+                this.tokens.add(new Token(TokenKind.STRING, text.toString(), start));
+                return position;
+            }
+            if (c == '\\' && position < this.source.length()) {
+                c = this.source.charAt(position++);
+            }
+            text.append(c);
+        }
+        throw new FilterSyntaxException("Unterminated string", start, true);
+    }
+
+    private enum TokenKind {
+        IDENTIFIER, NUMBER, STRING, COMPARISON, OPERATOR, END
+    }
+
+    private static final class Token {
+
+        private final TokenKind kind;
+        private final String text;
+        private final int position;
+
+        Token(TokenKind kind, String text, int position) {
+            this.kind = kind;
+            this.text = text;
+            this.position = position;
+        }
+    }
+
+    /**
+     * A value of a packet event.
+     */
+    private interface Operand {
+
+        Object evaluate(PacketEvent event);
+    }
+
+    private static final class Constant implements Operand {
+
+        private final Object value;
+
+        Constant(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object evaluate(PacketEvent event) {
+            return this.value;
+        }
+    }
+
+    /**
+     * Reads a field of the packet, through an accessor that is resolved once per packet class.
+     */
+    private static final class FieldOperand implements Operand {
+
+        private final Map<Class<?>, Optional<FieldAccessor>> accessors = new ConcurrentHashMap<>();
+        private final Class<?> fieldType;
+        private final int index;
+
+        FieldOperand(Class<?> fieldType, int index) {
+            this.fieldType = fieldType;
+            this.index = index;
+        }
+
+        @Override
+        public Object evaluate(PacketEvent event) {
+            Object handle = event.getPacket().getHandle();
+            Optional<FieldAccessor> accessor = this.accessors.get(handle.getClass());
+
+            if (accessor == null) {
+                StructureModifier<Object> modifier = event.getPacket().getModifier();
+                if (this.fieldType != Object.class) {
+                    modifier = modifier.withType(this.fieldType);
+                }
+
+                List<FieldAccessor> fields = modifier.getFields();
+                accessor = Optional.ofNullable(this.index < fields.size() ? fields.get(this.index) : null);
+                this.accessors.put(handle.getClass(), accessor);
+            }
+
+            return accessor.isPresent() ? accessor.get().get(handle) : null;
+        }
+    }
+
+    /**
+     * Comparisons between the values of an expression.
+     */
+    private static final class Values {
+
+        private Values() {
+        }
+
+        static boolean equal(Object left, Object right) {
+            if (left == null || right == null) {
+                return left == right;
+            }
+            if (left instanceof Number && right instanceof Number) {
+                return compareNumbers((Number) left, (Number) right) == 0;
+            }
+            if (left instanceof Enum && right instanceof String) {
+                return ((Enum<?>) left).name().equals(right);
+            }
+            if (right instanceof Enum && left instanceof String) {
+                return ((Enum<?>) right).name().equals(left);
+            }
+            return left.equals(right);
+        }
+
+        static int compare(Object left, Object right) {
+            if (left instanceof Number && right instanceof Number) {
+                return compareNumbers((Number) left, (Number) right);
+            }
+            if (left instanceof String && right instanceof String) {
+                return ((String) left).compareTo((String) right);
+            }
+            throw new IllegalArgumentException("Cannot compare " + left + " with " + right);
+        }
+
+        private static int compareNumbers(Number left, Number right) {
+            if (isIntegral(left) && isIntegral(right)) {
+                return Long.compare(left.longValue(), right.longValue());
+            }
+            return Double.compare(left.doubleValue(), right.doubleValue());
+        }
+
+        private static boolean isIntegral(Number number) {
+            return number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte;
+        }
+    }
+}
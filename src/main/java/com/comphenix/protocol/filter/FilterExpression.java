@@ -0,0 +1,90 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.filter;
+
+import java.util.function.Predicate;
+
+import com.comphenix.protocol.events.PacketEvent;
+import com.google.common.base.Preconditions;
+
+/**
+ * A compiled predicate over packet events.
+ * <p>
+ * The expression is parsed once, into a tree of predicates that read the fields of a packet through cached field
+ * accessors. Evaluating it does not parse, reflect or interpret anything. The syntax is:
+ * <ul>
+ *     <li>Fields by type and index, in the order of the structure modifier of that type: {@code byte[0]},
+ *     {@code short[0]}, {@code int[0]}, {@code long[0]}, {@code float[0]}, {@code double[0]}, {@code boolean[0]},
+ *     {@code string[0]}, {@code uuid[0]}, or {@code field[0]} for any field. Missing fields read as {@code null}.</li>
+ *     <li>The event itself: {@code player} (the name of the player), {@code type} (the name of the packet type) and
+ *     {@code cancelled}.</li>
+ *     <li>Literals: numbers, strings in single or double quotes, {@code true}, {@code false} and {@code null}.</li>
+ *     <li>Comparisons: {@code ==}, {@code !=}, {@code <}, {@code <=}, {@code >} and {@code >=}. Enums are equal to
+ *     the string of their name.</li>
+ *     <li>Boolean operators: {@code !}, {@code &&}, {@code ||} and parentheses.</li>
+ * </ul>
+ * For instance, {@code type == "ENTITY_VELOCITY" && (int[1] > 1000 || int[1] < -1000)}.
+ */
+public final class FilterExpression implements Predicate<PacketEvent> {
+
+    private final String source;
+    private final Predicate<PacketEvent> predicate;
+
+    private FilterExpression(String source, Predicate<PacketEvent> predicate) {
+        this.source = source;
+        this.predicate = predicate;
+    }
+
+    /**
+     * Compile the given filter expression.
+     *
+     * @param source - the expression.
+     * @return The compiled expression.
+     * @throws FilterSyntaxException If the expression is not valid.
+     */
+    public static FilterExpression compile(String source) throws FilterSyntaxException {
+        Preconditions.checkNotNull(source, "source cannot be NULL");
+        return new FilterExpression(source, new FilterCompiler(source).compile());
+    }
+
+    /**
+     * Evaluate this expression for the given event.
+     *
+     * @param event - the packet event.
+     * @return TRUE if the event matches, FALSE otherwise.
+     * @throws IllegalArgumentException If the fields of the packet cannot be compared as the expression requires.
+     */
+    @Override
+    public boolean test(PacketEvent event) {
+        return this.predicate.test(event);
+    }
+
+    /**
+     * Retrieve the source of this expression.
+     *
+     * @return The source.
+     */
+    public String getSource() {
+        return this.source;
+    }
+
+    @Override
+    public String toString() {
+        return this.source;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.filter;
+
+/**
+ * Thrown when a filter expression could not be compiled.
+ */
+public class FilterSyntaxException extends Exception {
+
+    private static final long serialVersionUID = -4216780313585371029L;
+
+    private final int position;
+    private final boolean incomplete;
+
+    public FilterSyntaxException(String message, int position, boolean incomplete) {
+        super(message + " at position " + position);
+        this.position = position;
+        this.incomplete = incomplete;
+    }
+
+    /**
+     * Retrieve the position in the source the error was found at.
+     *
+     * @return The zero-based position.
+     */
+    public int getPosition() {
+        return this.position;
+    }
+
+    /**
+     * Determine if the expression ended before it was complete, so that more input could make it valid.
+     *
+     * @return TRUE if it did, FALSE otherwise.
+     */
+    public boolean isIncomplete() {
+        return this.incomplete;
+    }
+}
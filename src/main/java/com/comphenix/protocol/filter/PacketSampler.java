@@ -0,0 +1,239 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.PacketEvent;
+import com.google.common.base.Preconditions;
+
+/**
+ * Samples a fraction of the packets passed to packet logging or filtering, so that they can be left running for packet
+ * types that are sent thousands of times per second.
+ * <p>
+ * A policy is chosen per packet, in this order: the policy of the player, the policy of the packet type, then the
+ * default policy. Player policies sample each type of each player independently, packet type policies sample all
+ * players together. The decision only looks at the packet type and the player, so it should be made before the packet
+ * is serialized or formatted.
+ */
+public final class PacketSampler {
+
+    private final Map<PacketType, SamplingPolicy> typePolicies = new ConcurrentHashMap<>();
+    private final Map<UUID, SamplingPolicy> playerPolicies = new ConcurrentHashMap<>();
+    private volatile SamplingPolicy defaultPolicy = SamplingPolicy.all();
+
+    private final Map<StreamKey, SamplingPolicy.State> states = new ConcurrentHashMap<>();
+    private final Map<PacketType, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Determine if the packet of the given event is sampled.
+     *
+     * @param event - the packet event.
+     * @return TRUE if it is, FALSE if it should be skipped.
+     */
+    public boolean sample(PacketEvent event) {
+        UUID player = event.isPlayerTemporary() || event.getPlayer() == null ? null : event.getPlayer().getUniqueId();
+        return this.sample(event.getPacketType(), player);
+    }
+
+    /**
+     * Determine if a packet of the given type and player is sampled.
+     *
+     * @param type   - the packet type.
+     * @param player - the unique id of the player, or NULL if it is not known.
+     * @return TRUE if it is, FALSE if it should be skipped.
+     */
+    public boolean sample(PacketType type, UUID player) {
+        SamplingPolicy policy = player != null && !this.playerPolicies.isEmpty() ? this.playerPolicies.get(player) : null;
+        StreamKey key;
+
+        if (policy != null) {
+            key = new StreamKey(type, player);
+        } else {
+            policy = this.typePolicies.isEmpty() ? null : this.typePolicies.get(type);
+            if (policy == null) {
+                policy = this.defaultPolicy;
+            }
+            key = new StreamKey(type, null);
+        }
+
+        Counter counter = this.counters.get(type);
+        if (counter == null) {
+            counter = this.counters.computeIfAbsent(type, t -> new Counter());
+        }
+        counter.seen.increment();
+
+        boolean sampled;
+        if (policy == SamplingPolicy.all()) {
+            sampled = true;
+        } else {
+            SamplingPolicy.State state = this.states.get(key);
+            if (state == null) {
+                state = this.states.computeIfAbsent(key, k -> this.getPolicy(k).newState());
+            }
+            sampled = state.sample(System.nanoTime());
+        }
+
+        if (sampled) {
+            counter.sampled.increment();
+        }
+        return sampled;
+    }
+
+    private SamplingPolicy getPolicy(StreamKey key) {
+        SamplingPolicy policy = key.player != null ? this.playerPolicies.get(key.player) : this.typePolicies.get(key.type);
+        return policy != null ? policy : this.defaultPolicy;
+    }
+
+    /**
+     * Set the policy of packets that have no policy for their player or type. Every packet is sampled by default.
+     *
+     * @param policy - the policy.
+     */
+    public void setDefaultPolicy(SamplingPolicy policy) {
+        this.defaultPolicy = Preconditions.checkNotNull(policy, "policy cannot be NULL");
+        this.states.clear();
+    }
+
+    /**
+     * Retrieve the policy of packets that have no policy for their player or type.
+     *
+     * @return The default policy.
+     */
+    public SamplingPolicy getDefaultPolicy() {
+        return this.defaultPolicy;
+    }
+
+    /**
+     * Set the policy of a packet type.
+     *
+     * @param type   - the packet type.
+     * @param policy - the policy, or NULL to use the default policy.
+     */
+    public void setPolicy(PacketType type, SamplingPolicy policy) {
+        Preconditions.checkNotNull(type, "type cannot be NULL");
+        if (policy != null) {
+            this.typePolicies.put(type, policy);
+        } else {
+            this.typePolicies.remove(type);
+        }
+        this.states.keySet().removeIf(key -> key.type.equals(type) && key.player == null);
+    }
+
+    /**
+     * Set the policy of the packets of a player.
+     *
+     * @param player - the unique id of the player.
+     * @param policy - the policy, or NULL to use the policy of the packet type.
+     */
+    public void setPolicy(UUID player, SamplingPolicy policy) {
+        Preconditions.checkNotNull(player, "player cannot be NULL");
+        if (policy != null) {
+            this.playerPolicies.put(player, policy);
+        } else {
+            this.playerPolicies.remove(player);
+        }
+        this.states.keySet().removeIf(key -> player.equals(key.player));
+    }
+
+    /**
+     * Remove the policy and sampling state of a player, such as a player that left the server.
+     *
+     * @param player - the unique id of the player.
+     */
+    public void removePlayer(UUID player) {
+        this.setPolicy(player, null);
+    }
+
+    /**
+     * Retrieve the number of packets of a type that were seen and sampled.
+     *
+     * @param type - the packet type.
+     * @return The counts.
+     */
+    public SampleCounts getCounts(PacketType type) {
+        Counter counter = this.counters.get(type);
+        return counter != null ? counter.snapshot() : new SampleCounts(0, 0);
+    }
+
+    /**
+     * Retrieve the number of packets that were seen and sampled, for every packet type that was seen.
+     *
+     * @return The counts per packet type.
+     */
+    public Map<PacketType, SampleCounts> getCounts() {
+        Map<PacketType, SampleCounts> result = new HashMap<>();
+        this.counters.forEach((type, counter) -> result.put(type, counter.snapshot()));
+        return result;
+    }
+
+    /**
+     * Remove every policy and reset the counts.
+     */
+    public void reset() {
+        this.typePolicies.clear();
+        this.playerPolicies.clear();
+        this.defaultPolicy = SamplingPolicy.all();
+        this.states.clear();
+        this.counters.clear();
+    }
+
+    private static final class Counter {
+
+        private final LongAdder seen = new LongAdder();
+        private final LongAdder sampled = new LongAdder();
+
+        SampleCounts snapshot() {
+            return new SampleCounts(this.seen.sum(), this.sampled.sum());
+        }
+    }
+
+    private static final class StreamKey {
+
+        private final PacketType type;
+        private final UUID player;
+
+        StreamKey(PacketType type, UUID player) {
+            this.type = type;
+            this.player = player;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof StreamKey)) {
+                return false;
+            }
+            StreamKey other = (StreamKey) obj;
+            return this.type.equals(other.type) && Objects.equals(this.player, other.player);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.type.hashCode() + Objects.hashCode(this.player);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.filter;
+
+/**
+ * The number of packets of a type that were seen and sampled by a {@link PacketSampler}.
+ */
+public final class SampleCounts {
+
+    private final long seen;
+    private final long sampled;
+
+    SampleCounts(long seen, long sampled) {
+        this.seen = seen;
+        this.sampled = sampled;
+    }
+
+    /**
+     * Retrieve the number of packets that were offered to the sampler, sampled or not.
+     *
+     * @return The number of packets seen.
+     */
+    public long getSeen() {
+        return this.seen;
+    }
+
+    /**
+     * Retrieve the number of packets that were sampled.
+     *
+     * @return The number of sampled packets.
+     */
+    public long getSampled() {
+        return this.sampled;
+    }
+
+    /**
+     * Retrieve the number of packets each sampled packet stands for, which extrapolates a measurement of the sampled
+     * packets to every packet.
+     *
+     * @return The scale, or zero if no packet was sampled.
+     */
+    public double getScale() {
+        return this.sampled > 0 ? (double) this.seen / this.sampled : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "SampleCounts[seen=" + this.seen + ", sampled=" + this.sampled + "]";
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.filter;
+
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Decides which packets of a stream of packets are sampled.
+ * <p>
+ * Each stream of packets, such as a packet type or the packets of a type sent to one player, gets its own state from
+ * the policy. A decision only depends on the order and time of the packets, never on their contents.
+ */
+public abstract class SamplingPolicy {
+
+    /**
+     * The maximum number of packets a reservoir samples per window, as every stream keeps their positions.
+     */
+    public static final int MAXIMUM_RESERVOIR_SIZE = 4096;
+
+    private static final SamplingPolicy ALL = new SamplingPolicy() {
+        @Override
+        State newState() {
+            return now -> true;
+        }
+
+        @Override
+        public String toString() {
+            return "all";
+        }
+    };
+
+    private static final SamplingPolicy NONE = new SamplingPolicy() {
+        @Override
+        State newState() {
+            return now -> false;
+        }
+
+        @Override
+        public String toString() {
+            return "none";
+        }
+    };
+
+    SamplingPolicy() {
+        // Only the policies below
+    }
+
+    /**
+     * Retrieve a policy that samples every packet.
+     *
+     * @return The policy.
+     */
+    public static SamplingPolicy all() {
+        return ALL;
+    }
+
+    /**
+     * Retrieve a policy that samples no packet at all.
+     *
+     * @return The policy.
+     */
+    public static SamplingPolicy none() {
+        return NONE;
+    }
+
+    /**
+     * Retrieve a policy that samples one in every N packets.
+     *
+     * @param n - the interval between sampled packets.
+     * @return The policy.
+     */
+    public static SamplingPolicy oneIn(int n) {
+        Preconditions.checkArgument(n > 0, "n must be positive");
+        if (n == 1) {
+            return ALL;
+        }
+
+        return new SamplingPolicy() {
+            @Override
+            State newState() {
+                AtomicLong counter = new AtomicLong();
+                return now -> counter.getAndIncrement() % n == 0;
+            }
+
+            @Override
+            public String toString() {
+                return "1 in " + n;
+            }
+        };
+    }
+
+    /**
+     * Retrieve a policy that samples the first packets of every time window.
+     *
+     * @param size   - the maximum number of packets sampled per window.
+     * @param window - the length of a window.
+     * @param unit   - the unit of the length.
+     * @return The policy.
+     */
+    public static SamplingPolicy head(int size, long window, TimeUnit unit) {
+        Preconditions.checkArgument(size > 0, "size must be positive");
+        Preconditions.checkArgument(window > 0, "window must be positive");
+        long windowNanos = unit.toNanos(window);
+
+        return new SamplingPolicy() {
+            @Override
+            State newState() {
+                return new HeadState(size, windowNanos);
+            }
+
+            @Override
+            public String toString() {
+                return "first " + size + " per " + window + " " + unit.name().toLowerCase();
+            }
+        };
+    }
+
+    /**
+     * Retrieve a policy that samples packets spread uniformly over every time window.
+     * <p>
+     * As a packet must be sampled or skipped as soon as it arrives, the positions of the samples in a window are drawn
+     * from the number of packets in the previous window. The number of samples per window is at most the given size,
+     * and close to it when the rate of packets is steady.
+     *
+     * @param size   - the maximum number of packets sampled per window, at most {@link #MAXIMUM_RESERVOIR_SIZE}.
+     * @param window - the length of a window.
+     * @param unit   - the unit of the length.
+     * @return The policy.
+     */
+    public static SamplingPolicy reservoir(int size, long window, TimeUnit unit) {
+        Preconditions.checkArgument(size > 0, "size must be positive");
+        Preconditions.checkArgument(size <= MAXIMUM_RESERVOIR_SIZE, "size cannot be greater than %s", MAXIMUM_RESERVOIR_SIZE);
+        Preconditions.checkArgument(window > 0, "window must be positive");
+        long windowNanos = unit.toNanos(window);
+
+        return new SamplingPolicy() {
+            @Override
+            State newState() {
+                return new ReservoirState(size, windowNanos);
+            }
+
+            @Override
+            public String toString() {
+                return size + " uniform per " + window + " " + unit.name().toLowerCase();
+            }
+        };
+    }
+
+    /**
+     * Parse a policy from command arguments, removing the arguments that were parsed.
+     * <p>
+     * The syntax is one of {@code all}, {@code none}, {@code every <n>}, {@code head <size> <seconds>} or
+     * {@code reservoir <size> <seconds>}.
+     *
+     * @param arguments - the arguments.
+     * @return The policy.
+     * @throws IllegalArgumentException If the arguments are not a valid policy.
+     */
+    public static SamplingPolicy parse(Deque<String> arguments) {
+        String name = arguments.isEmpty() ? "" : arguments.poll().toLowerCase();
+
+        switch (name) {
+            case "all":
+                return all();
+            case "none":
+                return none();
+            case "every":
+                return oneIn(parseInt(arguments, "n"));
+            case "head":
+                return head(parseInt(arguments, "size"), parseInt(arguments, "seconds"), TimeUnit.SECONDS);
+            case "reservoir":
+                return reservoir(parseInt(arguments, "size"), parseInt(arguments, "seconds"), TimeUnit.SECONDS);
+            default:
+                throw new IllegalArgumentException("Unknown sampling policy " + name + ". Must be all, none, every, head or reservoir.");
+        }
+    }
+
+    private static int parseInt(Deque<String> arguments, String name) {
+        String argument = arguments.poll();
+        try {
+            if (argument != null) {
+                return Integer.parseInt(argument);
+            }
+        } catch (NumberFormatException ex) {
+            // Handled below
+        }
+        throw new IllegalArgumentException("Expected a number for " + name + ", but got " + argument);
+    }
+
+    /**
+     * Create the state of a new stream of packets.
+     *
+     * @return The state.
+     */
+    abstract State newState();
+
+    /**
+     * The sampling state of a stream of packets.
+     */
+    interface State {
+
+        /**
+         * Determine if the next packet of the stream is sampled.
+         *
+         * @param now - the current value of {@link System#nanoTime()}.
+         * @return TRUE if it is, FALSE otherwise.
+         */
+        boolean sample(long now);
+    }
+
+    private static final class HeadState implements State {
+
+        private final int size;
+        private final long windowNanos;
+
+        private long windowStart = Long.MIN_VALUE;
+        private int sampled;
+
+        HeadState(int size, long windowNanos) {
+            this.size = size;
+            this.windowNanos = windowNanos;
+        }
+
+        @Override
+        public synchronized boolean sample(long now) {
+            if (this.windowStart == Long.MIN_VALUE || now - this.windowStart >= this.windowNanos) {
+                this.windowStart = now;
+                this.sampled = 0;
+            }
+            if (this.sampled < this.size) {
+                this.sampled++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class ReservoirState implements State {
+
+        private final int size;
+        private final long windowNanos;
+        private final long[] positions;
+        private final Set<Long> drawn;
+
+        private long windowStart = Long.MIN_VALUE;
+        private long count;
+        private int next;
+
+        ReservoirState(int size, long windowNanos) {
+            this.size = size;
+            this.windowNanos = windowNanos;
+            this.positions = new long[size];
+            this.drawn = new HashSet<>(size * 2);
+        }
+
+        @Override
+        public synchronized boolean sample(long now) {
+            if (this.windowStart == Long.MIN_VALUE || now - this.windowStart >= this.windowNanos) {
+                // the previous window predicts the size of this one
+                this.drawPositions(this.windowStart == Long.MIN_VALUE ? this.size : this.count);
+                this.windowStart = now;
+                this.count = 0;
+            }
+
+            long position = this.count++;
+            if (this.next < this.size && this.positions[this.next] == position) {
+                this.next++;
+                return true;
+            }
+            return false;
+        }
+
+        private void drawPositions(long expected) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long range = Math.max(expected, this.size);
+
+            // Floyd's algorithm for distinct positions in [0, range)
+            int index = 0;
+            for (long j = range - this.size; j < range; j++) {
+                long candidate = random.nextLong(j + 1);
+                if (!this.drawn.add(candidate)) {
+                    candidate = j;
+                    this.drawn.add(candidate);
+                }
+                this.positions[index++] = candidate;
+            }
+
+            Arrays.sort(this.positions);
+            this.drawn.clear();
+            this.next = 0;
+        }
+    }
+}
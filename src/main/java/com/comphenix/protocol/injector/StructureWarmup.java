@@ -0,0 +1,204 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.injector;
+
+import java.lang.reflect.Field;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.ProtocolLogger;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.injector.packet.PacketRegistry;
+import com.comphenix.protocol.reflect.StructureModifier;
+import com.comphenix.protocol.reflect.accessors.FieldAccessor;
+import com.comphenix.protocol.wrappers.WrappedDataWatcher;
+
+/**
+ * Eagerly resolves the lazily initialized per-packet state (structure modifiers, instance creators, deserializers and
+ * field type modifiers) for every registered packet type on a dedicated fork-join pool, along with the data watcher
+ * serializers.
+ * <p>
+ * Without this, the work is done on a netty or the main thread the first time a packet of the type is seen, which
+ * usually means during the first player logins after a restart.
+ */
+public final class StructureWarmup {
+
+    /**
+     * The number of worker threads used when none is configured. The warm-up competes with the server for the CPU
+     * while it is starting, so this is deliberately kept small.
+     */
+    public static final int DEFAULT_PARALLELISM = 2;
+
+    private final ForkJoinPool pool;
+    private final CompletableFuture<Result> result = new CompletableFuture<>();
+
+    private final AtomicInteger prepared = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private StructureWarmup(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("ProtocolLib Warmup Worker #" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Start warming up every registered packet type in the background.
+     *
+     * @param parallelism - the number of worker threads to use, or a value below 1 to use {@link #DEFAULT_PARALLELISM}.
+     * @return The running warm-up.
+     */
+    public static StructureWarmup start(int parallelism) {
+        if (parallelism < 1) {
+            parallelism = DEFAULT_PARALLELISM;
+        }
+
+        StructureWarmup warmup = new StructureWarmup(parallelism);
+        warmup.pool.execute(warmup::run);
+        return warmup;
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+
+        Set<PacketType> types = new LinkedHashSet<>();
+        types.addAll(PacketRegistry.getServerPacketTypes());
+        types.addAll(PacketRegistry.getClientPacketTypes());
+
+        // one task per packet type, the pool takes care of balancing them across the workers
+        CompletableFuture<?>[] tasks = Stream.concat(
+                        types.stream().map(type -> CompletableFuture.runAsync(() -> this.prepare(type), this.pool)),
+                        Stream.of(CompletableFuture.runAsync(StructureWarmup::prepareSerializers, this.pool)))
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture.allOf(tasks).whenComplete((ignored, error) -> {
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            this.result.complete(new Result(this.prepared.get(), this.failed.get(), elapsed));
+            this.pool.shutdown();
+        });
+    }
+
+    private void prepare(PacketType type) {
+        try {
+            Optional<Class<?>> packetClass = PacketRegistry.tryGetPacketClass(type);
+            if (!packetClass.isPresent()) {
+                return;
+            }
+
+            StructureModifier<Object> structure = StructureCache.getStructure(type);
+            StructureCache.canCreateInstance(packetClass.get());
+            PacketContainer.hasDeserializer(type);
+
+            // populate the typed modifier cache for every distinct field type of the packet
+            Set<Class<?>> fieldTypes = new HashSet<>();
+            for (FieldAccessor accessor : structure.getFields()) {
+                Field field = accessor.getField();
+                if (fieldTypes.add(field.getType())) {
+                    structure.withType(field.getType());
+                }
+            }
+
+            this.prepared.incrementAndGet();
+        } catch (Throwable ex) {
+            this.failed.incrementAndGet();
+            ProtocolLogger.debug("Unable to warm up packet type " + type, ex);
+        }
+    }
+
+    private static void prepareSerializers() {
+        try {
+            WrappedDataWatcher.Registry.warmup();
+        } catch (Throwable ex) {
+            ProtocolLogger.debug("Unable to warm up the data watcher serializers", ex);
+        }
+    }
+
+    /**
+     * Retrieve a future that is completed once every packet type has been processed.
+     *
+     * @return The warm-up result.
+     */
+    public CompletableFuture<Result> getResult() {
+        return this.result;
+    }
+
+    /**
+     * Abort the warm-up if it is still running. Types that were not prepared yet are resolved lazily as usual.
+     */
+    public void cancel() {
+        this.pool.shutdownNow();
+    }
+
+    /**
+     * The outcome of a completed warm-up.
+     */
+    public static final class Result {
+        private final int prepared;
+        private final int failed;
+        private final long elapsedMillis;
+
+        Result(int prepared, int failed, long elapsedMillis) {
+            this.prepared = prepared;
+            this.failed = failed;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * Retrieve the number of packet types that were fully prepared.
+         *
+         * @return Number of prepared packet types.
+         */
+        public int getPrepared() {
+            return this.prepared;
+        }
+
+        /**
+         * Retrieve the number of packet types for which at least one step failed.
+         *
+         * @return Number of failed packet types.
+         */
+        public int getFailed() {
+            return this.failed;
+        }
+
+        /**
+         * Retrieve the wall clock time the warm-up took.
+         *
+         * @return Elapsed time in milliseconds.
+         */
+        public long getElapsedMillis() {
+            return this.elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Result[prepared=" + this.prepared + ", failed=" + this.failed + ", elapsed=" + this.elapsedMillis + "ms]";
+        }
+    }
+}
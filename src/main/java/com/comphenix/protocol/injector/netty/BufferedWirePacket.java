@@ -0,0 +1,340 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.injector.netty;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.PacketContainer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.util.IllegalReferenceCountException;
+import io.netty.util.ReferenceCounted;
+import java.util.zip.Deflater;
+
+/**
+ * A wire packet whose contents are kept in a {@link ByteBuf} instead of a byte array.
+ * <p>
+ * The buffer is written to the channel as-is, without being copied into the outbound buffer first. The same packet can
+ * therefore be sent to many players without copying it again. Sending a packet does not consume the reference of the
+ * caller, who must {@link #release()} the packet once it is no longer needed.
+ * <p>
+ * A packet can also be {@link #precompress() compressed ahead of time}. It is then written past the compression
+ * handler of channels that compress packets of its size, instead of being compressed again for every receiver.
+ */
+public class BufferedWirePacket extends WirePacket implements ReferenceCounted {
+
+    // the packet id followed by the contents
+    private final ByteBuf frame;
+    private final int headerLength;
+
+    // the uncompressed length followed by the zlib compressed frame, if compressed ahead of time
+    private volatile ByteBuf compressedFrame;
+
+    /**
+     * Constructs a new buffered wire packet with a given type and contents.
+     *
+     * @param type    Type of the packet
+     * @param content Contents of the packet, ownership is transferred to this packet
+     */
+    public BufferedWirePacket(PacketType type, ByteBuf content) {
+        this(checkNotNull(type, "type cannot be null").getCurrentId(), content);
+    }
+
+    /**
+     * Constructs a new buffered wire packet with a given id and contents.
+     *
+     * @param id      ID of the packet
+     * @param content Contents of the packet, ownership is transferred to this packet
+     */
+    public BufferedWirePacket(int id, ByteBuf content) {
+        super(id, null);
+        checkNotNull(content, "content cannot be null");
+
+        // the frame is a single buffer, as it is read from the event loops of every receiver at once
+        try {
+            ByteBuf frame = Unpooled.directBuffer(5 + content.readableBytes());
+            writeVarInt(frame, id);
+
+            this.headerLength = frame.readableBytes();
+            this.frame = frame.writeBytes(content, content.readerIndex(), content.readableBytes());
+        } finally {
+            content.release();
+        }
+    }
+
+    private BufferedWirePacket(int id, ByteBuf frame, int headerLength) {
+        super(id, null);
+        this.frame = frame;
+        this.headerLength = headerLength;
+    }
+
+    /**
+     * Creates a buffered wire packet from an existing PacketContainer, encoding the packet directly into the buffer that
+     * is written to the channel.
+     *
+     * @param packet Existing packet
+     * @return The resulting wire packet
+     */
+    public static BufferedWirePacket fromPacket(PacketContainer packet) {
+        return fromPacket(packet, ByteBufAllocator.DEFAULT);
+    }
+
+    /**
+     * Creates a buffered wire packet from an existing PacketContainer, encoding the packet directly into a direct buffer
+     * of the given allocator.
+     *
+     * @param packet    Existing packet
+     * @param allocator Allocator of the buffer
+     * @return The resulting wire packet
+     * @see WirePacket#encodeFully(Object, ByteBufAllocator)
+     */
+    public static BufferedWirePacket fromPacket(PacketContainer packet, ByteBufAllocator allocator) {
+        checkNotNull(packet, "packet cannot be null!");
+
+        Object handle = packet.getHandle();
+        ByteBuf frame = encodeFully(handle, allocator);
+
+        int id = packet.getType().getCurrentId();
+        return new BufferedWirePacket(id, frame, varIntSize(id));
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Gets the contents of this packet, without the packet id.
+     * <p>
+     * The returned buffer shares its memory with this packet and is only valid as long as this packet is.
+     *
+     * @return The contents
+     */
+    public ByteBuf content() {
+        return this.frame.slice(this.frame.readerIndex() + this.headerLength, this.frame.readableBytes() - this.headerLength);
+    }
+
+    /**
+     * Retrieves a retained view of the id and contents of this packet, as it is written to the channel.
+     * <p>
+     * The caller is responsible for releasing the returned buffer.
+     *
+     * @return The retained frame
+     */
+    public ByteBuf retainedFrame() {
+        return this.frame.retainedDuplicate();
+    }
+
+    /**
+     * Compresses the id and contents of this packet, in the format of the compression handler of the channel.
+     * <p>
+     * The compressed frame is only computed once, and is used for every channel whose compression threshold is at or
+     * below the length of this packet.
+     *
+     * @return This packet, for chaining
+     * @throws IllegalReferenceCountException If this packet was already released
+     */
+    public BufferedWirePacket precompress() {
+        if (this.compressedFrame == null) {
+            synchronized (this) {
+                // the compressed frame would never be released once the frame is
+                if (this.refCnt() <= 0) {
+                    throw new IllegalReferenceCountException(0);
+                }
+                if (this.compressedFrame == null) {
+                    this.compressedFrame = compress(this.frame);
+                }
+            }
+        }
+        return this;
+    }
+
+    private static ByteBuf compress(ByteBuf frame) {
+        int length = frame.readableBytes();
+        byte[] input = ByteBufUtil.getBytes(frame);
+        byte[] chunk = new byte[8192];
+
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+
+            ByteBuf compressed = Unpooled.directBuffer(5 + length / 2);
+            writeVarInt(compressed, length);
+
+            while (!deflater.finished()) {
+                int written = deflater.deflate(chunk);
+                compressed.writeBytes(chunk, 0, written);
+            }
+            return compressed;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Determines if this packet was compressed ahead of time.
+     *
+     * @return TRUE if it was, FALSE otherwise
+     * @see #precompress()
+     */
+    public boolean isPrecompressed() {
+        return this.compressedFrame != null;
+    }
+
+    /**
+     * Retrieves a retained view of the compressed id and contents of this packet, prefixed by their uncompressed length.
+     * <p>
+     * The caller is responsible for releasing the returned buffer.
+     *
+     * @return The retained compressed frame
+     * @throws IllegalStateException If this packet was not compressed ahead of time
+     */
+    public ByteBuf retainedCompressedFrame() {
+        ByteBuf compressed = this.compressedFrame;
+        if (compressed == null) {
+            throw new IllegalStateException("Packet was not compressed ahead of time");
+        }
+        return compressed.retainedDuplicate();
+    }
+
+    /**
+     * Gets the number of bytes held by this packet, including its compressed frame.
+     *
+     * @return The number of bytes
+     */
+    public int getMemoryUsage() {
+        ByteBuf compressed = this.compressedFrame;
+        return this.frame.capacity() + (compressed != null ? compressed.capacity() : 0);
+    }
+
+    /**
+     * Gets the number of bytes this packet occupies on the wire, including the packet id.
+     *
+     * @return The length of the id and contents
+     */
+    public int getLength() {
+        return this.frame.readableBytes();
+    }
+
+    /**
+     * Gets a copy of this packet's contents as a byte array
+     *
+     * @return The contents
+     */
+    @Override
+    public byte[] getBytes() {
+        return ByteBufUtil.getBytes(this.content());
+    }
+
+    @Override
+    public void writeBytes(ByteBuf output) {
+        checkNotNull(output, "output cannot be null!");
+        output.writeBytes(this.frame, this.frame.readerIndex() + this.headerLength, this.frame.readableBytes() - this.headerLength);
+    }
+
+    @Override
+    public void writeFully(ByteBuf output) {
+        checkNotNull(output, "output cannot be null!");
+        output.writeBytes(this.frame, this.frame.readerIndex(), this.frame.readableBytes());
+    }
+
+    @Override
+    public int refCnt() {
+        return this.frame.refCnt();
+    }
+
+    @Override
+    public BufferedWirePacket retain() {
+        this.frame.retain();
+        return this;
+    }
+
+    @Override
+    public BufferedWirePacket retain(int increment) {
+        this.frame.retain(increment);
+        return this;
+    }
+
+    @Override
+    public BufferedWirePacket touch() {
+        this.frame.touch();
+        return this;
+    }
+
+    @Override
+    public BufferedWirePacket touch(Object hint) {
+        this.frame.touch(hint);
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return this.deallocate(this.frame.release());
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return this.deallocate(this.frame.release(decrement));
+    }
+
+    private boolean deallocate(boolean released) {
+        if (released) {
+            // the compressed frame is only released once every written view of it is, and waits for a compression
+            // that is still running
+            synchronized (this) {
+                ByteBuf compressed = this.compressedFrame;
+                if (compressed != null) {
+                    compressed.release();
+                }
+            }
+        }
+        return released;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (obj instanceof BufferedWirePacket) {
+            BufferedWirePacket that = (BufferedWirePacket) obj;
+            return this.getId() == that.getId() && ByteBufUtil.equals(this.content(), that.content());
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * ByteBufUtil.hashCode(this.content()) + this.getId();
+    }
+
+    @Override
+    public String toString() {
+        return "BufferedWirePacket[id=" + this.getId() + ", length=" + (this.frame.readableBytes() - this.headerLength) + "]";
+    }
+}
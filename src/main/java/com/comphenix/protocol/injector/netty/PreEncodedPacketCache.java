@@ -0,0 +1,310 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.injector.netty;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import com.comphenix.protocol.ProtocolLibrary;
+import com.comphenix.protocol.ProtocolManager;
+import com.comphenix.protocol.events.PacketContainer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import io.netty.util.IllegalReferenceCountException;
+import org.bukkit.entity.Player;
+
+/**
+ * A cache of packets that are sent unchanged to many players, such as the chunks around a spawn point or the command
+ * tree of a lobby.
+ * <p>
+ * Each packet is encoded once into a {@link BufferedWirePacket} and stored under a key chosen by the plugin and the
+ * protocol version of the receiving player. Sending a cached packet writes the encoded buffer to the channel without
+ * encoding or copying it again. Packets are always encoded in the format of the server, the protocol version only
+ * keeps the entries of players connected through a protocol translation layer apart.
+ * <p>
+ * The least recently used packets are evicted once the encoded packets exceed the memory budget of the cache. Packets
+ * larger than the whole budget are encoded for each request and never cached.
+ * <p>
+ * A cache may also {@link BufferedWirePacket#precompress() compress} its packets when they are encoded, so they are
+ * not compressed again for each player either.
+ */
+public class PreEncodedPacketCache {
+
+    // the number of times a packet is encoded again after it was evicted before it could be retained
+    private static final int MAXIMUM_ATTEMPTS = 3;
+
+    private final Cache<Key, BufferedWirePacket> packets;
+    private final long maximumBytes;
+    private final boolean precompress;
+
+    /**
+     * Construct a new cache that holds at most the given number of encoded bytes.
+     *
+     * @param maximumBytes - the memory budget of the cache.
+     */
+    public PreEncodedPacketCache(long maximumBytes) {
+        this(maximumBytes, false);
+    }
+
+    /**
+     * Construct a new cache that holds at most the given number of encoded bytes.
+     *
+     * @param maximumBytes - the memory budget of the cache.
+     * @param precompress  - whether packets should be compressed ahead of time.
+     */
+    public PreEncodedPacketCache(long maximumBytes, boolean precompress) {
+        checkArgument(maximumBytes > 0, "maximumBytes must be positive");
+        this.maximumBytes = maximumBytes;
+        this.precompress = precompress;
+
+        // the cache holds one reference of each packet, which is released once the packet leaves the cache
+        RemovalListener<Key, BufferedWirePacket> release = notification -> notification.getValue().release();
+
+        // a single segment, as each segment only holds its share of the budget and evicts larger packets at once
+        this.packets = CacheBuilder.newBuilder()
+                .concurrencyLevel(1)
+                .maximumWeight(maximumBytes)
+                .weigher((Key key, BufferedWirePacket packet) -> packet.getMemoryUsage())
+                .removalListener(release)
+                .build();
+    }
+
+    /**
+     * Retrieve a cached packet.
+     * <p>
+     * The caller owns a reference of the returned packet and must release it once it is no longer needed.
+     *
+     * @param key             - the key of the packet.
+     * @param protocolVersion - the protocol version of the receiver.
+     * @return The retained packet, or NULL if it is not cached.
+     */
+    public BufferedWirePacket get(String key, int protocolVersion) {
+        Key cacheKey = new Key(key, protocolVersion);
+        BufferedWirePacket packet = this.packets.getIfPresent(cacheKey);
+
+        if (packet != null && !tryRetain(packet)) {
+            // evicted between the lookup and the retain
+            return null;
+        }
+        return packet;
+    }
+
+    /**
+     * Retrieve a cached packet, encoding and caching the given packet if it is absent.
+     * <p>
+     * The caller owns a reference of the returned packet and must release it once it is no longer needed.
+     *
+     * @param key             - the key of the packet.
+     * @param protocolVersion - the protocol version of the receiver.
+     * @param packet          - supplies the packet to encode if it is not cached.
+     * @return The retained packet.
+     */
+    public BufferedWirePacket get(String key, int protocolVersion, Supplier<PacketContainer> packet) {
+        checkNotNull(packet, "packet cannot be null");
+        Key cacheKey = new Key(key, protocolVersion);
+
+        for (int attempt = 0; attempt < MAXIMUM_ATTEMPTS; attempt++) {
+            BufferedWirePacket cached = this.packets.getIfPresent(cacheKey);
+            if (cached != null) {
+                if (tryRetain(cached)) {
+                    return cached;
+                }
+
+                // evicted between the lookup and the retain
+                this.packets.asMap().remove(cacheKey, cached);
+                continue;
+            }
+
+            BufferedWirePacket encoded = this.encode(packet.get());
+            if (!this.fits(encoded)) {
+                // it would be evicted and released as soon as it is inserted
+                return encoded;
+            }
+
+            // one reference for the cache and one for the caller, so an eviction cannot release it under the caller
+            encoded.retain();
+            BufferedWirePacket previous = this.packets.asMap().putIfAbsent(cacheKey, encoded);
+            if (previous == null) {
+                return encoded;
+            }
+
+            // cached by another thread in the meantime
+            encoded.release(2);
+            if (tryRetain(previous)) {
+                return previous;
+            }
+        }
+
+        // the packet keeps being evicted by other packets, send it without caching it
+        return this.encode(packet.get());
+    }
+
+    /**
+     * Encode and cache a packet, replacing any packet that was cached under the same key.
+     *
+     * @param key             - the key of the packet.
+     * @param protocolVersion - the protocol version of the receiver.
+     * @param packet          - the packet to encode.
+     */
+    public void put(String key, int protocolVersion, PacketContainer packet) {
+        checkNotNull(packet, "packet cannot be null");
+        Key cacheKey = new Key(key, protocolVersion);
+        BufferedWirePacket encoded = this.encode(packet);
+
+        if (this.fits(encoded)) {
+            this.packets.put(cacheKey, encoded);
+        } else {
+            this.packets.invalidate(cacheKey);
+            encoded.release();
+        }
+    }
+
+    private BufferedWirePacket encode(PacketContainer packet) {
+        BufferedWirePacket encoded = BufferedWirePacket.fromPacket(packet);
+        return this.precompress ? encoded.precompress() : encoded;
+    }
+
+    private boolean fits(BufferedWirePacket packet) {
+        return packet.getMemoryUsage() <= this.maximumBytes;
+    }
+
+    /**
+     * Send a cached packet to the given player, encoding and caching the given packet if it is absent.
+     *
+     * @param receiver - the receiver of the packet.
+     * @param key      - the key of the packet.
+     * @param packet   - supplies the packet to encode if it is not cached.
+     */
+    public void send(Player receiver, String key, Supplier<PacketContainer> packet) {
+        checkNotNull(receiver, "receiver cannot be null");
+
+        ProtocolManager manager = ProtocolLibrary.getProtocolManager();
+        BufferedWirePacket encoded = this.get(key, manager.getProtocolVersion(receiver), packet);
+
+        try {
+            manager.sendWirePacket(receiver, encoded);
+        } finally {
+            encoded.release();
+        }
+    }
+
+    /**
+     * Remove the packets cached under the given key for every protocol version.
+     *
+     * @param key - the key of the packets.
+     */
+    public void invalidate(String key) {
+        checkNotNull(key, "key cannot be null");
+        this.packets.asMap().keySet().removeIf(cacheKey -> cacheKey.key.equals(key));
+    }
+
+    /**
+     * Remove every cached packet.
+     */
+    public void invalidateAll() {
+        this.packets.invalidateAll();
+    }
+
+    /**
+     * Retrieve the number of cached packets.
+     *
+     * @return The number of packets.
+     */
+    public long size() {
+        return this.packets.size();
+    }
+
+    /**
+     * Retrieve the number of encoded bytes currently held by this cache.
+     *
+     * @return The number of bytes.
+     */
+    public long getMemoryUsage() {
+        long total = 0;
+        for (BufferedWirePacket packet : this.packets.asMap().values()) {
+            total += packet.getMemoryUsage();
+        }
+        return total;
+    }
+
+    /**
+     * Determine if packets are compressed ahead of time when they are encoded.
+     *
+     * @return TRUE if they are, FALSE otherwise.
+     */
+    public boolean isPrecompress() {
+        return this.precompress;
+    }
+
+    /**
+     * Retrieve the memory budget of this cache.
+     *
+     * @return The maximum number of encoded bytes.
+     */
+    public long getMaximumBytes() {
+        return this.maximumBytes;
+    }
+
+    private static boolean tryRetain(BufferedWirePacket packet) {
+        try {
+            packet.retain();
+            return true;
+        } catch (IllegalReferenceCountException ex) {
+            return false;
+        }
+    }
+
+    private static final class Key {
+
+        private final String key;
+        private final int protocolVersion;
+
+        private Key(String key, int protocolVersion) {
+            this.key = checkNotNull(key, "key cannot be null");
+            this.protocolVersion = protocolVersion;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (obj instanceof Key) {
+                Key that = (Key) obj;
+                return this.protocolVersion == that.protocolVersion && this.key.equals(that.key);
+            }
+
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.key, this.protocolVersion);
+        }
+
+        @Override
+        public String toString() {
+            return this.key + "@" + this.protocolVersion;
+        }
+    }
+}
@@ -19,14 +19,18 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.comphenix.protocol.PacketType;
 import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.injector.packet.PacketRegistry;
 import com.comphenix.protocol.reflect.accessors.MethodAccessor;
 import com.comphenix.protocol.utility.MinecraftMethods;
 import com.comphenix.protocol.utility.MinecraftReflection;
 import com.comphenix.protocol.utility.StreamSerializer;
+import com.comphenix.protocol.wrappers.WrappedStreamCodec;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
-import io.netty.util.ReferenceCountUtil;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A packet represented only by its id and bytes.
@@ -36,6 +40,12 @@ import java.util.Arrays;
 @SuppressWarnings("deprecation") // yea we need to do that :/
 public class WirePacket {
 
+    // initial buffer size for packet classes that were never encoded before
+    private static final int DEFAULT_SIZE_ESTIMATE = 256;
+
+    // recently encoded sizes of each packet class, slowly decaying towards smaller packets
+    private static final Map<Class<?>, Integer> ENCODED_SIZES = new ConcurrentHashMap<>();
+
     private final int id;
     private final byte[] bytes;
 
@@ -80,31 +90,107 @@ public class WirePacket {
      */
     public static byte[] bytesFromPacket(PacketContainer packet) {
         checkNotNull(packet, "packet cannot be null!");
+        return bytesFromHandle(packet.getHandle());
+    }
 
-        ByteBuf buffer = PacketContainer.createPacketBuffer();
-        ByteBuf store = PacketContainer.createPacketBuffer();
-
-        // Read the bytes once
-        MethodAccessor write = MinecraftMethods.getPacketWriteByteBufMethod();
-        write.invoke(packet.getHandle(), buffer);
+    private static byte[] bytesFromHandle(Object packet) {
+        ByteBuf buffer = Unpooled.buffer(estimateSize(packet.getClass()));
+        writePacket(packet, buffer);
+        return StreamSerializer.getDefault().getBytesAndRelease(buffer);
+    }
 
-        byte[] bytes = StreamSerializer.getDefault().getBytesAndRelease(buffer);
+    /**
+     * Writes the contents of a Minecraft packet, without its id, to the given buffer.
+     * <p>
+     * Packets with a stream codec (1.20.5+) are encoded by their codec, using a registry friendly buffer that wraps the
+     * given buffer. Older packets are written by their write method. The contents are appended after any bytes that
+     * were already written to the buffer, which is expanded if necessary. Use {@link #estimateSize(Class)} to allocate
+     * a buffer that will most likely not need to be expanded.
+     *
+     * @param packet Existing Minecraft packet
+     * @param output Buffer to write to
+     * @throws IllegalArgumentException If the packet is null or not a Minecraft packet
+     */
+    public static void writePacket(Object packet, ByteBuf output) {
+        checkNotNull(packet, "packet cannot be null!");
+        checkNotNull(output, "output cannot be null!");
+        checkArgument(MinecraftReflection.isPacketClass(packet), "packet must be a Minecraft packet");
 
-        // Rewrite them to the packet to avoid issues with certain packets
-        if (packet.getType() == PacketType.Play.Server.CUSTOM_PAYLOAD
-                || packet.getType() == PacketType.Play.Client.CUSTOM_PAYLOAD) {
-            // Make a copy of the array before writing
-            byte[] ret = Arrays.copyOf(bytes, bytes.length);
-            store.writeBytes(bytes);
+        int start = output.writerIndex();
+        Object serializer = MinecraftReflection.is(MinecraftReflection.getPacketDataSerializerClass(), output)
+                ? output
+                : MinecraftReflection.getPacketDataSerializer(output);
+
+        WrappedStreamCodec streamCodec = PacketRegistry.getStreamCodec(packet.getClass());
+        if (streamCodec != null) {
+            streamCodec.encode(serializer, packet);
+        } else {
+            MethodAccessor write = MinecraftMethods.getPacketWriteByteBufMethod();
+            write.invoke(packet, serializer);
+
+            // older custom payload packets give away their payload buffer while writing, so we read it back in
+            PacketType type = PacketType.fromClass(packet.getClass());
+            if (type == PacketType.Play.Server.CUSTOM_PAYLOAD || type == PacketType.Play.Client.CUSTOM_PAYLOAD) {
+                ByteBuf written = Unpooled.copiedBuffer(output.slice(start, output.writerIndex() - start));
+                try {
+                    MethodAccessor read = MinecraftMethods.getPacketReadByteBufMethod();
+                    read.invoke(packet, MinecraftReflection.getPacketDataSerializer(written));
+                } finally {
+                    written.release();
+                }
+            }
+        }
 
-            MethodAccessor read = MinecraftMethods.getPacketReadByteBufMethod();
-            read.invoke(packet.getHandle(), store);
+        recordSize(packet.getClass(), output.writerIndex() - start);
+    }
 
-            bytes = ret;
+    /**
+     * Estimates the number of bytes a packet of the given class is encoded to, based on the packets of this class that
+     * were encoded before.
+     *
+     * @param packetClass Class of the Minecraft packet
+     * @return The estimated size in bytes
+     */
+    public static int estimateSize(Class<?> packetClass) {
+        Integer size = ENCODED_SIZES.get(packetClass);
+        if (size == null) {
+            return DEFAULT_SIZE_ESTIMATE;
         }
 
-        ReferenceCountUtil.safeRelease(store);
-        return bytes;
+        // leave some room for packets that are slightly larger
+        return size + (size >> 3) + 8;
+    }
+
+    private static void recordSize(Class<?> packetClass, int size) {
+        // follow larger packets immediately, and smaller packets slowly
+        ENCODED_SIZES.merge(packetClass, size, (previous, current) -> Math.max(current, previous - (previous >> 3)));
+    }
+
+    /**
+     * Encodes the id and contents of a Minecraft packet into a new direct buffer of the given allocator.
+     * <p>
+     * The buffer is sized based on the previously encoded packets of the same class, so that it usually does not need
+     * to be expanded while encoding. The caller is responsible for releasing the returned buffer.
+     *
+     * @param packet    Existing Minecraft packet
+     * @param allocator Allocator of the buffer, such as the allocator of the channel the packet is sent to
+     * @return The encoded packet
+     */
+    public static ByteBuf encodeFully(Object packet, ByteBufAllocator allocator) {
+        checkNotNull(packet, "packet cannot be null!");
+        checkNotNull(allocator, "allocator cannot be null!");
+
+        int id = PacketType.fromClass(packet.getClass()).getCurrentId();
+        ByteBuf buffer = allocator.directBuffer(5 + estimateSize(packet.getClass()));
+
+        try {
+            writeVarInt(buffer, id);
+            writePacket(packet, buffer);
+            return buffer;
+        } catch (RuntimeException ex) {
+            buffer.release();
+            throw ex;
+        }
     }
 
     /**
@@ -118,12 +204,7 @@ public class WirePacket {
         checkNotNull(packet, "packet cannot be null!");
         checkArgument(MinecraftReflection.isPacketClass(packet), "packet must be a Minecraft packet");
 
-        ByteBuf buffer = PacketContainer.createPacketBuffer();
-
-        MethodAccessor write = MinecraftMethods.getPacketWriteByteBufMethod();
-        write.invoke(packet, buffer);
-
-        byte[] bytes = StreamSerializer.getDefault().getBytesAndRelease(buffer);
+        byte[] bytes = bytesFromHandle(packet);
         int id = PacketType.fromClass(packet.getClass()).getCurrentId();
 
         return new WirePacket(id, bytes);
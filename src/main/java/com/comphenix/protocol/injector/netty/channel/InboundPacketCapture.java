@@ -0,0 +1,47 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.injector.netty.channel;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.capture.PacketCapture;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+/**
+ * Hands the decompressed frames of received packets to the active packet capture, before they are decoded.
+ */
+final class InboundPacketCapture extends ChannelInboundHandlerAdapter {
+
+    private final NettyChannelInjector injector;
+
+    InboundPacketCapture(NettyChannelInjector injector) {
+        this.injector = injector;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        PacketCapture capture = PacketCapture.getActive();
+        if (capture != null && msg instanceof ByteBuf) {
+            capture.capture(this.injector.getPlayerUniqueId(), PacketType.Sender.CLIENT,
+                    this.injector.getInboundProtocol(), (ByteBuf) msg);
+        }
+        ctx.fireChannelRead(msg);
+    }
+}
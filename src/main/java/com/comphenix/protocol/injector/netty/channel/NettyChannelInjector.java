@@ -10,6 +10,7 @@ import java.util.UUID;
 import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -20,6 +21,8 @@ import com.comphenix.protocol.PacketType;
 import com.comphenix.protocol.PacketType.Protocol;
 import com.comphenix.protocol.ProtocolLibrary;
 import com.comphenix.protocol.ProtocolLogger;
+import com.comphenix.protocol.bandwidth.BandwidthAccounting;
+import com.comphenix.protocol.bandwidth.ConnectionBandwidth;
 import com.comphenix.protocol.error.ErrorReporter;
 import com.comphenix.protocol.error.Report;
 import com.comphenix.protocol.error.ReportType;
@@ -47,16 +50,24 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoop;
 import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
 
 public class NettyChannelInjector implements Injector {
 
     private static final String INBOUND_INTERCEPTOR_NAME = "protocol_lib_inbound_interceptor";
     private static final String INBOUND_PROTOCOL_GETTER_NAME = "protocol_lib_inbound_protocol_getter";
     private static final String WIRE_PACKET_ENCODER_NAME = "protocol_lib_wire_packet_encoder";
+    private static final String INBOUND_CAPTURE_NAME = "protocol_lib_inbound_capture";
+    private static final String OUTBOUND_CAPTURE_NAME = "protocol_lib_outbound_capture";
+    private static final String OUTBOUND_BANDWIDTH_NAME = "protocol_lib_outbound_bandwidth";
+    private static final String WIRE_BANDWIDTH_NAME = "protocol_lib_wire_bandwidth";
+    private static final String OUTBOUND_SHAPER_NAME = "protocol_lib_outbound_shaper";
 
     // all registered channel handlers to easier make sure we unregister them all from the pipeline
     private static final String[] NETTY_HANDLER_NAMES = new String[]{
-            WIRE_PACKET_ENCODER_NAME, INBOUND_INTERCEPTOR_NAME, INBOUND_PROTOCOL_GETTER_NAME
+            WIRE_PACKET_ENCODER_NAME, INBOUND_INTERCEPTOR_NAME, INBOUND_PROTOCOL_GETTER_NAME,
+            INBOUND_CAPTURE_NAME, OUTBOUND_CAPTURE_NAME, OUTBOUND_BANDWIDTH_NAME, WIRE_BANDWIDTH_NAME,
+            OUTBOUND_SHAPER_NAME
     };
 
     private static final ReportType REPORT_CANNOT_SEND_PACKET = new ReportType("Unable to send packet %s to %s");
@@ -66,6 +77,7 @@ public class NettyChannelInjector implements Injector {
 
     private static final WirePacketEncoder WIRE_PACKET_ENCODER = new WirePacketEncoder();
     private static final Map<Class<?>, FieldAccessor> PACKET_ACCESSORS = new ConcurrentHashMap<>(16, 0.9f);
+    private static final Map<Class<?>, FieldAccessor> CHANNEL_ACCESSORS = new ConcurrentHashMap<>(4, 0.9f);
 
     // use random attribute name because they need to be unique and would throw on reload
     private static final AttributeKey<Integer> PROTOCOL_VERSION = AttributeKey.valueOf(getRandomKey());
@@ -108,6 +120,7 @@ public class NettyChannelInjector implements Injector {
 
     // lazy initialized fields, if we don't need them we don't bother about them
     private volatile InboundProtocolReader inboundProtocolReader;
+    private volatile ConnectionBandwidth bandwidth;
 
     public NettyChannelInjector(
             Player player,
@@ -139,12 +152,14 @@ public class NettyChannelInjector implements Injector {
         this.channel.attr(INJECTOR).set(this);
 
         // read the channel field from the network manager given to this method
-        // we re-read this field every time as plugins/spigot forks might give us different network manager types
-        Field channelField = FuzzyReflection.fromObject(networkManager, true).getField(FuzzyFieldContract.newBuilder()
-                .typeExact(Channel.class)
-                .banModifier(Modifier.STATIC)
-                .build());
-        this.channelField = Accessors.getFieldAccessor(channelField);
+        // the field is looked up per network manager type as plugins/spigot forks might give us different types
+        this.channelField = CHANNEL_ACCESSORS.computeIfAbsent(networkManager.getClass(), key -> {
+            Field channelField = FuzzyReflection.fromClass(key, true).getField(FuzzyFieldContract.newBuilder()
+                    .typeExact(Channel.class)
+                    .banModifier(Modifier.STATIC)
+                    .build());
+            return Accessors.getFieldAccessor(channelField);
+        });
 
         // hook here into the close future to be 100% sure that this injector gets closed when the channel we wrap gets closed
         // normally we listen to the disconnect event, but there is a very small period of time, between the login and actual
@@ -216,6 +231,29 @@ public class NettyChannelInjector implements Injector {
             pipeline.addAfter(decoderName, INBOUND_INTERCEPTOR_NAME, new InboundPacketInterceptor(this));
         }
 
+        // try to add the packet capture handlers, they see the frames between the (de-)compressor and the codec
+        if (pipeline.context(INBOUND_CAPTURE_NAME) == null) {
+            pipeline.addBefore(decoderName, INBOUND_CAPTURE_NAME, new InboundPacketCapture(this));
+        }
+        if (pipeline.context(OUTBOUND_CAPTURE_NAME) == null) {
+            pipeline.addBefore(encoderName, OUTBOUND_CAPTURE_NAME, new OutboundPacketCapture(this));
+        }
+
+        // try to add the bandwidth counters, before the compressor and as the last outbound handler. The latter counts
+        // the encrypted bytes, which are as many as the unencrypted ones since the cipher is a stream cipher
+        if (pipeline.context(OUTBOUND_BANDWIDTH_NAME) == null) {
+            if (this.bandwidth == null) {
+                this.bandwidth = BandwidthAccounting.register(this::getPlayerUniqueId, this.channel.eventLoop());
+            }
+            pipeline.addBefore(encoderName, OUTBOUND_BANDWIDTH_NAME, new OutboundBandwidthCounter(this, this.bandwidth));
+            pipeline.addFirst(WIRE_BANDWIDTH_NAME, new WireBandwidthCounter(this.bandwidth));
+        }
+
+        // try to add the traffic shaper, it sees the packets after the listeners and before the encoder
+        if (pipeline.context(OUTBOUND_SHAPER_NAME) == null) {
+            pipeline.addAfter(encoderName, OUTBOUND_SHAPER_NAME, new OutboundPacketShaper(this));
+        }
+
         // mark injector as injected
         this.injected = true;
     }
@@ -256,6 +294,9 @@ public class NettyChannelInjector implements Injector {
             // cleanup
             this.savedMarkers.clear();
             this.skippedPackets.clear();
+            if (this.bandwidth != null) {
+                BandwidthAccounting.unregister(this.bandwidth);
+            }
 
             // wipe this injector completely
             this.injectionFactory.invalidate(this.getPlayer(), this.playerName);
@@ -315,16 +356,24 @@ public class NettyChannelInjector implements Injector {
             return;
         }
 
-        this.ensureInEventLoop(() -> {
-            try {
-                this.channel.writeAndFlush(packet);
-            } catch (Exception exception) {
-                this.errorReporter.reportWarning(this, Report.newBuilder(REPORT_CANNOT_SEND_WRITE_PACKET)
-                        .messageParam(packet, this.playerName)
-                        .error(exception)
-                        .build());
-            }
-        });
+        // the channel releases the packet once it was written, the reference of the caller must stay untouched
+        ReferenceCountUtil.retain(packet);
+
+        try {
+            this.ensureInEventLoop(() -> {
+                try {
+                    this.channel.writeAndFlush(packet);
+                } catch (Exception exception) {
+                    this.errorReporter.reportWarning(this, Report.newBuilder(REPORT_CANNOT_SEND_WRITE_PACKET)
+                            .messageParam(packet, this.playerName)
+                            .error(exception)
+                            .build());
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            // the event loop is shutting down, the packet is never written
+            ReferenceCountUtil.release(packet);
+        }
     }
 
     @Override
@@ -0,0 +1,63 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.injector.netty.channel;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.bandwidth.BandwidthAccounting;
+import com.comphenix.protocol.bandwidth.ConnectionBandwidth;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Counts the size of sent packets after they were encoded and before they are compressed.
+ * <p>
+ * Packets that were compressed ahead of time are written past this handler, they are recorded by the
+ * {@link WirePacketEncoder} instead.
+ */
+final class OutboundBandwidthCounter extends ChannelOutboundHandlerAdapter {
+
+    private final NettyChannelInjector injector;
+    private final ConnectionBandwidth bandwidth;
+
+    OutboundBandwidthCounter(NettyChannelInjector injector, ConnectionBandwidth bandwidth) {
+        this.injector = injector;
+        this.bandwidth = bandwidth;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof ByteBuf) {
+            this.record((ByteBuf) msg);
+        }
+        ctx.write(msg, promise);
+    }
+
+    /**
+     * Record a sent packet, after it was encoded and before it is compressed.
+     *
+     * @param frame - the packet id followed by the packet contents, its indices are left untouched.
+     */
+    void record(ByteBuf frame) {
+        if (BandwidthAccounting.isEnabled()) {
+            this.bandwidth.recordEncoded(this.injector.getCurrentProtocol(PacketType.Sender.SERVER), frame);
+        }
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.injector.netty.channel;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.PacketType.Protocol;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.injector.packet.PacketRegistry;
+import com.comphenix.protocol.shaping.PacketMerger;
+import com.comphenix.protocol.shaping.ShapingPolicy;
+import com.comphenix.protocol.shaping.TrafficShaping;
+import com.comphenix.protocol.utility.MinecraftReflection;
+import com.comphenix.protocol.wrappers.BlockPosition;
+import com.comphenix.protocol.wrappers.ChunkCoordIntPair;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+
+/**
+ * Shapes the sent packets of a connection, after they passed the packet listeners and before they are encoded.
+ * <p>
+ * Every method of this handler is called on the event loop of the channel, which is the only thread that touches its
+ * state. Deferred packets are sent before the connection leaves the play protocol or the world, or dropped if it already
+ * left the play protocol. Deferred block changes are dropped once their chunk is sent again or unloaded, as the client
+ * would apply them to the newer chunk or to a chunk it no longer has. See {@link TrafficShaping} for the configuration.
+ */
+final class OutboundPacketShaper extends ChannelDuplexHandler {
+
+    private final NettyChannelInjector injector;
+    private final Map<PacketType, TypeState> states = new HashMap<>();
+
+    private ChannelHandlerContext context;
+    private ScheduledFuture<?> flushTask;
+    private int deferredPackets;
+
+    OutboundPacketShaper(NettyChannelInjector injector) {
+        this.injector = injector;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.context = ctx;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if ((!TrafficShaping.isActive() && this.deferredPackets == 0) || !MinecraftReflection.isPacketClass(msg)) {
+            ctx.write(msg, promise);
+            return;
+        }
+
+        Protocol protocol = this.injector.getCurrentProtocol(PacketType.Sender.SERVER);
+        PacketType type = protocol == Protocol.PLAY ? PacketRegistry.getPacketType(protocol, msg.getClass()) : null;
+
+        // the deferred packets can only be encoded in the play protocol, send them before it is left
+        if (this.deferredPackets > 0) {
+            if (protocol != Protocol.PLAY) {
+                this.dropDeferred();
+            } else if (type == PacketType.Play.Server.START_CONFIGURATION || type == PacketType.Play.Server.RESPAWN) {
+                this.writeDeferred(ctx);
+            } else if (type == PacketType.Play.Server.MAP_CHUNK || type == PacketType.Play.Server.UNLOAD_CHUNK) {
+                this.dropBlockChanges(getChunk(type, msg));
+            }
+        }
+        ShapingPolicy policy = type != null ? TrafficShaping.getPolicy(this.injector.getPlayerUniqueId(), type) : null;
+        TypeState state = type != null ? this.states.get(type) : null;
+
+        if (policy == null && (state == null || state.queue.isEmpty())) {
+            ctx.write(msg, promise);
+            return;
+        }
+
+        if (state == null) {
+            state = new TypeState(type, policy);
+            this.states.put(type, state);
+        }
+        state.update(policy);
+
+        // keep the order of the packets of the type
+        if (state.queue.isEmpty() && ctx.channel().isWritable() && state.tryAcquire(System.nanoTime())) {
+            ctx.write(msg, promise);
+            return;
+        }
+
+        // packets of a type that is no longer shaped wait for the packets deferred before them
+        if (policy != null && (policy.getOverflow() == ShapingPolicy.Overflow.DROP
+                || state.queue.size() >= policy.getMaximumDeferred())) {
+            drop(msg, promise);
+            return;
+        }
+
+        state.queue.add(new DeferredPacket(msg, promise));
+        this.deferredPackets++;
+        TrafficShaping.count(1, 0, 0);
+        this.scheduleFlush(ctx);
+    }
+
+    private static void drop(Object msg, ChannelPromise promise) {
+        ReferenceCountUtil.release(msg);
+        promise.trySuccess();
+        TrafficShaping.count(0, 0, 1);
+    }
+
+    private void scheduleFlush(ChannelHandlerContext ctx) {
+        if (this.flushTask == null) {
+            long interval = TrafficShaping.getFlushInterval(TimeUnit.NANOSECONDS);
+            this.flushTask = ctx.executor().schedule(this::flushDeferred, interval, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable() && this.deferredPackets > 0) {
+            this.cancelFlush();
+            this.flushDeferred();
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    private void flushDeferred() {
+        this.flushTask = null;
+        ChannelHandlerContext ctx = this.context;
+        if (ctx == null || ctx.isRemoved()) {
+            return;
+        }
+
+        // the protocol was left without a packet that passed this handler
+        if (this.injector.getCurrentProtocol(PacketType.Sender.SERVER) != Protocol.PLAY) {
+            this.dropDeferred();
+            return;
+        }
+
+        long now = System.nanoTime();
+        boolean written = false;
+
+        for (TypeState state : this.states.values()) {
+            if (state.queue.isEmpty()) {
+                continue;
+            }
+
+            // the policy may have been removed since the last packet of the type
+            state.update(TrafficShaping.getPolicy(this.injector.getPlayerUniqueId(), state.type));
+            PacketMerger merger = TrafficShaping.getMerger(state.type);
+            if (state.policy == null) {
+                // no longer shaped
+                written |= this.writeAll(ctx, state);
+            } else if (state.policy.getOverflow() == ShapingPolicy.Overflow.MERGE && merger != null && ctx.channel().isWritable()) {
+                written |= this.writeMerged(ctx, state, merger);
+            } else {
+                while (!state.queue.isEmpty() && ctx.channel().isWritable() && state.tryAcquire(now)) {
+                    DeferredPacket packet = state.queue.poll();
+                    ctx.write(packet.packet, packet.promise);
+                    this.deferredPackets--;
+                    written = true;
+                }
+            }
+        }
+
+        if (written) {
+            ctx.flush();
+        }
+        if (this.deferredPackets > 0) {
+            this.scheduleFlush(ctx);
+        }
+    }
+
+    private void writeDeferred(ChannelHandlerContext ctx) {
+        this.cancelFlush();
+        for (TypeState state : this.states.values()) {
+            this.writeAll(ctx, state);
+        }
+    }
+
+    private void dropDeferred() {
+        this.cancelFlush();
+        for (TypeState state : this.states.values()) {
+            DeferredPacket packet;
+            while ((packet = state.queue.poll()) != null) {
+                drop(packet.packet, packet.promise);
+            }
+        }
+        this.deferredPackets = 0;
+    }
+
+    private void dropBlockChanges(ChunkCoordIntPair chunk) {
+        if (chunk == null) {
+            return;
+        }
+
+        for (TypeState state : this.states.values()) {
+            if (state.type != PacketType.Play.Server.BLOCK_CHANGE && state.type != PacketType.Play.Server.MULTI_BLOCK_CHANGE) {
+                continue;
+            }
+
+            Iterator<DeferredPacket> packets = state.queue.iterator();
+            while (packets.hasNext()) {
+                DeferredPacket packet = packets.next();
+                if (chunk.equals(getChunk(state.type, packet.packet))) {
+                    packets.remove();
+                    drop(packet.packet, packet.promise);
+                    this.deferredPackets--;
+                }
+            }
+        }
+    }
+
+    private static ChunkCoordIntPair getChunk(PacketType type, Object msg) {
+        PacketContainer packet = new PacketContainer(type, msg);
+        if (type == PacketType.Play.Server.BLOCK_CHANGE) {
+            BlockPosition position = packet.getBlockPositionModifier().readSafely(0);
+            return position != null ? new ChunkCoordIntPair(position.getX() >> 4, position.getZ() >> 4) : null;
+        }
+        if (type == PacketType.Play.Server.MULTI_BLOCK_CHANGE) {
+            BlockPosition section = packet.getSectionPositions().readSafely(0);
+            if (section != null) {
+                return new ChunkCoordIntPair(section.getX(), section.getZ());
+            }
+        }
+
+        // the other packets have the position of the chunk, or only its coordinates
+        ChunkCoordIntPair chunk = packet.getChunkCoordIntPairs().readSafely(0);
+        if (chunk == null && packet.getIntegers().size() >= 2) {
+            chunk = new ChunkCoordIntPair(packet.getIntegers().read(0), packet.getIntegers().read(1));
+        }
+        return chunk;
+    }
+
+    private void cancelFlush() {
+        if (this.flushTask != null) {
+            this.flushTask.cancel(false);
+            this.flushTask = null;
+        }
+    }
+
+    private boolean writeAll(ChannelHandlerContext ctx, TypeState state) {
+        boolean written = !state.queue.isEmpty();
+        DeferredPacket packet;
+        while ((packet = state.queue.poll()) != null) {
+            ctx.write(packet.packet, packet.promise);
+            this.deferredPackets--;
+        }
+        return written;
+    }
+
+    private boolean writeMerged(ChannelHandlerContext ctx, TypeState state, PacketMerger merger) {
+        List<PacketContainer> packets = new ArrayList<>(state.queue.size());
+        List<ChannelPromise> promises = new ArrayList<>(state.queue.size());
+        for (DeferredPacket packet : state.queue) {
+            packets.add(new PacketContainer(state.type, packet.packet));
+            promises.add(packet.promise);
+        }
+
+        List<PacketContainer> merged = merger.merge(packets);
+        TrafficShaping.count(0, packets.size() - merged.size(), 0);
+        this.deferredPackets -= state.queue.size();
+        state.queue.clear();
+
+        if (merged.isEmpty()) {
+            promises.forEach(ChannelPromise::trySuccess);
+            return false;
+        }
+
+        // the deferred packets are sent once the last merged packet is
+        for (int i = 0; i < merged.size() - 1; i++) {
+            ctx.write(merged.get(i).getHandle(), ctx.voidPromise());
+        }
+        ctx.write(merged.get(merged.size() - 1).getHandle()).addListener(future -> {
+            for (ChannelPromise promise : promises) {
+                if (future.isSuccess()) {
+                    promise.trySuccess();
+                } else {
+                    promise.tryFailure(future.cause());
+                }
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        this.cancelFlush();
+
+        // send the deferred packets right away if we are only uninjected
+        boolean active = ctx.channel().isActive();
+        for (TypeState state : this.states.values()) {
+            DeferredPacket packet;
+            while ((packet = state.queue.poll()) != null) {
+                if (active) {
+                    ctx.write(packet.packet, packet.promise);
+                } else {
+                    ReferenceCountUtil.release(packet.packet);
+                    packet.promise.tryFailure(new ClosedChannelException());
+                }
+            }
+        }
+
+        this.deferredPackets = 0;
+        if (active) {
+            ctx.flush();
+        }
+    }
+
+    /**
+     * The token bucket and deferred packets of a packet type.
+     */
+    private static final class TypeState {
+
+        private final PacketType type;
+        private final ArrayDeque<DeferredPacket> queue = new ArrayDeque<>();
+
+        private ShapingPolicy policy;
+        private double tokens;
+        private long lastRefill;
+
+        TypeState(PacketType type, ShapingPolicy policy) {
+            this.type = type;
+            this.policy = policy;
+            this.tokens = policy != null ? policy.getBurst() : 0;
+            this.lastRefill = System.nanoTime();
+        }
+
+        void update(ShapingPolicy policy) {
+            if (this.policy != policy) {
+                this.policy = policy;
+                if (policy != null) {
+                    this.tokens = Math.min(this.tokens, policy.getBurst());
+                }
+            }
+        }
+
+        boolean tryAcquire(long now) {
+            if (this.policy == null) {
+                return true;
+            }
+
+            double refill = (now - this.lastRefill) * this.policy.getRate() / TimeUnit.SECONDS.toNanos(1);
+            this.tokens = Math.min(this.policy.getBurst(), this.tokens + refill);
+            this.lastRefill = now;
+
+            if (this.tokens >= 1) {
+                this.tokens--;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class DeferredPacket {
+
+        private final Object packet;
+        private final ChannelPromise promise;
+
+        DeferredPacket(Object packet, ChannelPromise promise) {
+            this.packet = packet;
+            this.promise = promise;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.injector.netty.channel;
+
+import com.comphenix.protocol.bandwidth.BandwidthAccounting;
+import com.comphenix.protocol.bandwidth.ConnectionBandwidth;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+
+/**
+ * Counts the bytes written to the connection after compression, framing and encryption, as the first handler of the
+ * pipeline. Encryption does not change the number of bytes.
+ */
+final class WireBandwidthCounter extends ChannelOutboundHandlerAdapter {
+
+    private final ConnectionBandwidth bandwidth;
+
+    WireBandwidthCounter(ConnectionBandwidth bandwidth) {
+        this.bandwidth = bandwidth;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (BandwidthAccounting.isEnabled() && msg instanceof ByteBuf) {
+            this.bandwidth.recordWire(((ByteBuf) msg).readableBytes());
+        }
+        ctx.write(msg, promise);
+    }
+}
@@ -1,12 +1,104 @@
 package com.comphenix.protocol.injector.netty.channel;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.comphenix.protocol.injector.netty.BufferedWirePacket;
 import com.comphenix.protocol.injector.netty.WirePacket;
+import com.comphenix.protocol.reflect.FuzzyReflection;
+import com.comphenix.protocol.reflect.accessors.Accessors;
+import com.comphenix.protocol.reflect.accessors.FieldAccessor;
+import com.comphenix.protocol.reflect.fuzzy.FuzzyFieldContract;
+import com.comphenix.protocol.utility.MinecraftReflection;
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.MessageToByteEncoder;
 
 final class WirePacketEncoder extends MessageToByteEncoder<WirePacket> {
 
+    private static final String COMPRESSOR_NAME = "compress";
+
+    // the precompressed frames are in the format of the vanilla compressor only
+    private static final Class<?> COMPRESSOR_CLASS = MinecraftReflection.getNullableNMS(
+            "network.CompressionEncoder", "network.PacketCompressor");
+
+    // the vanilla compressor refuses to compress larger packets
+    private static final int MAXIMUM_UNCOMPRESSED_LENGTH = 8388608;
+
+    private static final Map<Class<?>, Optional<FieldAccessor>> THRESHOLD_ACCESSORS = new ConcurrentHashMap<>(4, 0.9f);
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof BufferedWirePacket) {
+            // pass the buffer through instead of copying it into a new one
+            BufferedWirePacket packet = (BufferedWirePacket) msg;
+            try {
+                ChannelHandlerContext compressor = findCompressor(ctx, packet);
+                if (compressor != null) {
+                    // the frame is already compressed, write it past the compressor and the bandwidth counter
+                    recordBypassed(ctx, packet);
+                    compressor.write(packet.retainedCompressedFrame(), promise);
+                } else {
+                    ctx.write(packet.retainedFrame(), promise);
+                }
+            } finally {
+                packet.release();
+            }
+        } else {
+            super.write(ctx, msg, promise);
+        }
+    }
+
+    private static void recordBypassed(ChannelHandlerContext ctx, BufferedWirePacket packet) {
+        // record the uncompressed frame, so that the written bytes are attributed to this packet
+        OutboundBandwidthCounter counter = ctx.pipeline().get(OutboundBandwidthCounter.class);
+        if (counter != null) {
+            ByteBuf frame = packet.retainedFrame();
+            try {
+                counter.record(frame);
+            } finally {
+                frame.release();
+            }
+        }
+    }
+
+    private static ChannelHandlerContext findCompressor(ChannelHandlerContext ctx, BufferedWirePacket packet) {
+        if (!packet.isPrecompressed() || packet.getLength() > MAXIMUM_UNCOMPRESSED_LENGTH) {
+            return null;
+        }
+
+        ChannelHandlerContext compressor = ctx.pipeline().context(COMPRESSOR_NAME);
+        if (compressor == null) {
+            return null;
+        }
+
+        // the compressor only compresses packets at or above its threshold
+        int threshold = getThreshold(compressor.handler());
+        return threshold >= 0 && packet.getLength() >= threshold ? compressor : null;
+    }
+
+    private static int getThreshold(ChannelHandler compressor) {
+        Optional<FieldAccessor> accessor = THRESHOLD_ACCESSORS.computeIfAbsent(compressor.getClass(), type -> {
+            // only trust the vanilla compressor, with a single int field which is the threshold
+            if (type != COMPRESSOR_CLASS) {
+                return Optional.empty();
+            }
+
+            List<Field> fields = FuzzyReflection.fromClass(type, true).getFieldList(FuzzyFieldContract.newBuilder()
+                    .typeExact(int.class)
+                    .banModifier(Modifier.STATIC)
+                    .build());
+            return fields.size() == 1 ? Optional.of(Accessors.getFieldAccessor(fields.get(0))) : Optional.empty();
+        });
+        return accessor.map(field -> (int) field.get(compressor)).orElse(-1);
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, WirePacket msg, ByteBuf out) throws Exception {
         msg.writeFully(out);
@@ -0,0 +1,93 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.reflect;
+
+import java.util.function.UnaryOperator;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A structure modifier target that may be shared with other readers, and is only copied before it is first written to.
+ * <p>
+ * Every structure modifier derived from a copy-on-write modifier shares the same target, so the copy made by the first
+ * write is seen by all of them.
+ */
+public final class CopyOnWriteTarget {
+
+    private final Object original;
+    private final UnaryOperator<Object> copier;
+
+    private volatile Object copy;
+
+    /**
+     * Construct a new copy-on-write target.
+     *
+     * @param original - the shared object.
+     * @param copier   - creates a private copy of the shared object.
+     */
+    public CopyOnWriteTarget(Object original, UnaryOperator<Object> copier) {
+        this.original = Preconditions.checkNotNull(original, "original cannot be NULL");
+        this.copier = Preconditions.checkNotNull(copier, "copier cannot be NULL");
+    }
+
+    /**
+     * Retrieve the object that should be read from. This is the shared object until the first write.
+     *
+     * @return The current object.
+     */
+    public Object get() {
+        Object copy = this.copy;
+        return copy != null ? copy : this.original;
+    }
+
+    /**
+     * Retrieve the object that may be written to, creating a private copy of the shared object if necessary.
+     *
+     * @return The private copy.
+     */
+    public Object getWritable() {
+        Object copy = this.copy;
+        if (copy == null) {
+            synchronized (this) {
+                copy = this.copy;
+                if (copy == null) {
+                    this.copy = copy = Preconditions.checkNotNull(this.copier.apply(this.original), "copier returned NULL");
+                }
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Retrieve the shared object this target was created from.
+     *
+     * @return The shared object.
+     */
+    public Object getOriginal() {
+        return this.original;
+    }
+
+    /**
+     * Determine if the shared object has been copied.
+     *
+     * @return TRUE if it has been copied, FALSE otherwise.
+     */
+    public boolean isCopied() {
+        return this.copy != null;
+    }
+}
@@ -305,14 +305,23 @@ public class FuzzyReflection {
      * @return List of found methods.
      */
     public List<Method> getMethodList(AbstractFuzzyMatcher<MethodInfo> matcher) {
+        // try the members resolved during a previous start first
+        String cacheKey = ResolvedMemberCache.key('M', this.source, this.forceAccess, matcher);
+        List<Method> cached = ResolvedMemberCache.get(cacheKey, this.source, Method.class,
+                method -> matcher.isMatch(MethodInfo.fromMethod(method), this.source));
+        if (cached != null) {
+            return cached;
+        }
+
         // finds and adds all matching methods
         List<Method> methods = new ArrayList<>();
-        for (Method method : this.getMethods()) {
+        for (Method method : MemberTable.of(this.source).methods(this.forceAccess).candidates(matcher)) {
             if (matcher.isMatch(MethodInfo.fromMethod(method), this.source)) {
                 methods.add(method);
             }
         }
 
+        ResolvedMemberCache.put(cacheKey, methods);
         return methods;
     }
 
@@ -326,8 +335,8 @@ public class FuzzyReflection {
     public List<Method> getMethodListByParameters(Class<?> returnType, Class<?>... args) {
         List<Method> methods = new ArrayList<>();
         // Find the correct method to call
-        for (Method method : this.getMethods()) {
-            if (method.getReturnType().equals(returnType) && Arrays.equals(method.getParameterTypes(), args)) {
+        for (Method method : MemberTable.of(this.source).methods(this.forceAccess).withType(returnType)) {
+            if (Arrays.equals(method.getParameterTypes(), args)) {
                 methods.add(method);
             }
         }
@@ -424,13 +433,11 @@ public class FuzzyReflection {
      * @throws IllegalArgumentException If the field cannot be found
      */
     public Field getParameterizedField(Class<?> fieldType, Class<?>... params) {
-        for (Field field : this.getFields()) {
-            if (field.getType().equals(fieldType)) {
-                Type type = field.getGenericType();
-                if (type instanceof ParameterizedType) {
-                    if (Arrays.equals(((ParameterizedType) type).getActualTypeArguments(), params)) {
-                        return field;
-                    }
+        for (Field field : MemberTable.of(this.source).fields(this.forceAccess).withType(fieldType)) {
+            Type type = field.getGenericType();
+            if (type instanceof ParameterizedType) {
+                if (Arrays.equals(((ParameterizedType) type).getActualTypeArguments(), params)) {
+                    return field;
                 }
             }
         }
@@ -451,14 +458,23 @@ public class FuzzyReflection {
      * @return List of found fields.
      */
     public List<Field> getFieldList(AbstractFuzzyMatcher<Field> matcher) {
+        // try the members resolved during a previous start first
+        String cacheKey = ResolvedMemberCache.key('F', this.source, this.forceAccess, matcher);
+        List<Field> cached = ResolvedMemberCache.get(cacheKey, this.source, Field.class,
+                field -> matcher.isMatch(field, this.source));
+        if (cached != null) {
+            return cached;
+        }
+
         // Add all matching fields to the list
         List<Field> fields = new ArrayList<>();
-        for (Field field : this.getFields()) {
+        for (Field field : MemberTable.of(this.source).fields(this.forceAccess).candidates(matcher)) {
             if (matcher.isMatch(field, this.source)) {
                 fields.add(field);
             }
         }
 
+        ResolvedMemberCache.put(cacheKey, fields);
         return fields;
     }
 
@@ -519,15 +535,25 @@ public class FuzzyReflection {
      * @param matcher - the matcher to apply.
      * @return List of found constructors.
      */
+    @SuppressWarnings({"rawtypes", "unchecked"})
     public List<Constructor<?>> getConstructorList(AbstractFuzzyMatcher<MethodInfo> matcher) {
+        // try the members resolved during a previous start first
+        String cacheKey = ResolvedMemberCache.key('C', this.source, this.forceAccess, matcher);
+        List cached = ResolvedMemberCache.get(cacheKey, this.source, Constructor.class,
+                constructor -> matcher.isMatch(MethodInfo.fromConstructor(constructor), this.source));
+        if (cached != null) {
+            return (List<Constructor<?>>) cached;
+        }
+
         // Add all matching constructors to the list
         List<Constructor<?>> constructors = new ArrayList<>();
-        for (Constructor<?> constructor : this.getConstructors()) {
+        for (Constructor<?> constructor : MemberTable.of(this.source).constructors(this.forceAccess).candidates(matcher)) {
             if (matcher.isMatch(MethodInfo.fromConstructor(constructor), this.source)) {
                 constructors.add(constructor);
             }
         }
 
+        ResolvedMemberCache.put(cacheKey, constructors);
         return constructors;
     }
 
@@ -539,11 +565,7 @@ public class FuzzyReflection {
      * @return Every field.
      */
     public Set<Field> getFields() {
-        if (this.forceAccess) {
-            return combineArrays(this.source.getDeclaredFields(), this.source.getFields());
-        } else {
-            return combineArrays(this.source.getFields());
-        }
+        return combineArrays(MemberTable.of(this.source).fields(this.forceAccess).all());
     }
 
     /**
@@ -559,7 +581,7 @@ public class FuzzyReflection {
             Set<Field> fields = Sets.newLinkedHashSet();
 
             while (current != null && current != excludeClass) {
-                fields.addAll(Arrays.asList(current.getDeclaredFields()));
+                fields.addAll(Arrays.asList(MemberTable.of(current).getDeclaredFields()));
                 current = current.getSuperclass();
             }
 
@@ -577,11 +599,7 @@ public class FuzzyReflection {
      * @return Every method.
      */
     public Set<Method> getMethods() {
-        if (this.forceAccess) {
-            return combineArrays(this.source.getDeclaredMethods(), this.source.getMethods());
-        } else {
-            return combineArrays(this.source.getMethods());
-        }
+        return combineArrays(MemberTable.of(this.source).methods(this.forceAccess).all());
     }
 
     /**
@@ -592,6 +610,6 @@ public class FuzzyReflection {
      * @return Every constructor.
      */
     public Set<Constructor<?>> getConstructors() {
-        return combineArrays(this.forceAccess ? this.source.getDeclaredConstructors() : this.source.getConstructors());
+        return combineArrays(MemberTable.of(this.source).constructors(this.forceAccess).all());
     }
 }
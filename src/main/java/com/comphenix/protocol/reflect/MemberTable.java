@@ -0,0 +1,273 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.reflect;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import com.comphenix.protocol.reflect.fuzzy.AbstractFuzzyMatcher;
+import com.comphenix.protocol.reflect.fuzzy.AbstractFuzzyMember;
+import com.comphenix.protocol.reflect.fuzzy.FuzzyFieldContract;
+import com.comphenix.protocol.reflect.fuzzy.FuzzyMethodContract;
+
+/**
+ * The reflected members of a single class, indexed by the properties fuzzy contracts most commonly constrain.
+ * <p>
+ * Tables are built lazily the first time a kind of member is requested and are cached per class, so that repeated
+ * lookups neither copy the member arrays of the class again nor test every member against the contract.
+ */
+final class MemberTable {
+
+    private static final ClassValue<MemberTable> TABLES = new ClassValue<MemberTable>() {
+        @Override
+        protected MemberTable computeValue(Class<?> type) {
+            return new MemberTable(type);
+        }
+    };
+
+    private final Class<?> source;
+
+    // lazily initialized, a race only results in the same index being built twice
+    private volatile Field[] declaredFields;
+    private volatile Index<Field> allFields;
+    private volatile Index<Field> publicFields;
+    private volatile Index<Method> allMethods;
+    private volatile Index<Method> publicMethods;
+    private volatile Index<Constructor<?>> declaredConstructors;
+    private volatile Index<Constructor<?>> publicConstructors;
+
+    private MemberTable(Class<?> source) {
+        this.source = source;
+    }
+
+    /**
+     * Retrieve the member table of the given class.
+     *
+     * @param source - the class.
+     * @return The member table.
+     */
+    static MemberTable of(Class<?> source) {
+        return TABLES.get(source);
+    }
+
+    /**
+     * Retrieve the fields declared directly by this class.
+     *
+     * @return The declared fields, must not be modified.
+     */
+    Field[] getDeclaredFields() {
+        Field[] fields = this.declaredFields;
+        if (fields == null) {
+            this.declaredFields = fields = this.source.getDeclaredFields();
+        }
+        return fields;
+    }
+
+    /**
+     * Retrieve the field index.
+     *
+     * @param forceAccess - whether to include non-public fields declared by this class.
+     * @return The field index.
+     */
+    Index<Field> fields(boolean forceAccess) {
+        Index<Field> index = forceAccess ? this.allFields : this.publicFields;
+        if (index == null) {
+            Field[] fields = forceAccess
+                    ? FuzzyReflection.combineArrays(this.getDeclaredFields(), this.source.getFields()).toArray(new Field[0])
+                    : this.source.getFields();
+
+            index = new Index<>(fields, Field[]::new, Field::getType, null);
+            if (forceAccess) {
+                this.allFields = index;
+            } else {
+                this.publicFields = index;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Retrieve the method index.
+     *
+     * @param forceAccess - whether to include non-public methods declared by this class.
+     * @return The method index.
+     */
+    Index<Method> methods(boolean forceAccess) {
+        Index<Method> index = forceAccess ? this.allMethods : this.publicMethods;
+        if (index == null) {
+            Method[] methods = forceAccess
+                    ? FuzzyReflection.combineArrays(this.source.getDeclaredMethods(), this.source.getMethods()).toArray(new Method[0])
+                    : this.source.getMethods();
+
+            index = new Index<>(methods, Method[]::new, Method::getReturnType, Method::getParameterCount);
+            if (forceAccess) {
+                this.allMethods = index;
+            } else {
+                this.publicMethods = index;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Retrieve the constructor index.
+     *
+     * @param forceAccess - whether to include non-public constructors.
+     * @return The constructor index.
+     */
+    Index<Constructor<?>> constructors(boolean forceAccess) {
+        Index<Constructor<?>> index = forceAccess ? this.declaredConstructors : this.publicConstructors;
+        if (index == null) {
+            Constructor<?>[] constructors = forceAccess
+                    ? this.source.getDeclaredConstructors()
+                    : this.source.getConstructors();
+
+            index = new Index<>(constructors, Constructor<?>[]::new, null, Constructor::getParameterCount);
+            if (forceAccess) {
+                this.declaredConstructors = index;
+            } else {
+                this.publicConstructors = index;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Members of one kind in declared order, together with lookup tables by type, parameter count and staticness.
+     * Every lookup table preserves the declared order.
+     *
+     * @param <T> Member type.
+     */
+    static final class Index<T extends Member> {
+
+        private final T[] members;
+        private final T[] staticMembers;
+        private final T[] instanceMembers;
+        private final Map<Class<?>, T[]> byType;
+        private final Map<Integer, T[]> byParameterCount;
+        private final T[] empty;
+
+        private Index(T[] members, IntFunction<T[]> arrayFactory, Function<T, Class<?>> type, Function<T, Integer> parameterCount) {
+            this.members = members;
+            this.empty = arrayFactory.apply(0);
+
+            List<T> statics = new ArrayList<>();
+            List<T> instances = new ArrayList<>();
+            Map<Class<?>, List<T>> types = new HashMap<>();
+            Map<Integer, List<T>> counts = new HashMap<>();
+
+            for (T member : members) {
+                (Modifier.isStatic(member.getModifiers()) ? statics : instances).add(member);
+                if (type != null) {
+                    types.computeIfAbsent(type.apply(member), key -> new ArrayList<>()).add(member);
+                }
+                if (parameterCount != null) {
+                    counts.computeIfAbsent(parameterCount.apply(member), key -> new ArrayList<>()).add(member);
+                }
+            }
+
+            this.staticMembers = statics.toArray(arrayFactory.apply(statics.size()));
+            this.instanceMembers = instances.toArray(arrayFactory.apply(instances.size()));
+            this.byType = toArrays(types, arrayFactory);
+            this.byParameterCount = toArrays(counts, arrayFactory);
+        }
+
+        private static <K, T> Map<K, T[]> toArrays(Map<K, List<T>> lists, IntFunction<T[]> arrayFactory) {
+            Map<K, T[]> result = new HashMap<>(lists.size());
+            lists.forEach((key, values) -> result.put(key, values.toArray(arrayFactory.apply(values.size()))));
+            return result;
+        }
+
+        /**
+         * Retrieve every member in declared order.
+         *
+         * @return Every member, must not be modified.
+         */
+        T[] all() {
+            return this.members;
+        }
+
+        /**
+         * Retrieve every member with the given field type or method return type.
+         *
+         * @param type - the exact type.
+         * @return The members in declared order, must not be modified.
+         */
+        T[] withType(Class<?> type) {
+            return this.byType.getOrDefault(type, this.empty);
+        }
+
+        /**
+         * Retrieve the smallest set of members that contains every member the given matcher could accept. The result
+         * must still be tested against the matcher.
+         *
+         * @param matcher - the matcher.
+         * @return The candidates in declared order, must not be modified.
+         */
+        T[] candidates(AbstractFuzzyMatcher<?> matcher) {
+            if (!(matcher instanceof AbstractFuzzyMember)) {
+                return this.members;
+            }
+
+            T[] candidates = this.members;
+
+            // split by the static modifier, the most common modifier constraint
+            AbstractFuzzyMember<?> member = (AbstractFuzzyMember<?>) matcher;
+            if ((member.getModifiersRequired() & Modifier.STATIC) != 0) {
+                candidates = this.staticMembers;
+            } else if ((member.getModifiersBanned() & Modifier.STATIC) != 0) {
+                candidates = this.instanceMembers;
+            }
+
+            // field type or method return type
+            Class<?> exactType = null;
+            if (matcher instanceof FuzzyFieldContract) {
+                exactType = ((FuzzyFieldContract) matcher).getExactType();
+            } else if (matcher instanceof FuzzyMethodContract) {
+                exactType = ((FuzzyMethodContract) matcher).getExactReturnType();
+            }
+
+            if (exactType != null && !this.byType.isEmpty()) {
+                candidates = smallest(candidates, this.byType.getOrDefault(exactType, this.empty));
+            }
+
+            // parameter count
+            if (matcher instanceof FuzzyMethodContract && !this.byParameterCount.isEmpty()) {
+                Integer count = ((FuzzyMethodContract) matcher).getParamCount();
+                if (count != null) {
+                    candidates = smallest(candidates, this.byParameterCount.getOrDefault(count, this.empty));
+                }
+            }
+
+            return candidates;
+        }
+
+        private static <T> T[] smallest(T[] first, T[] second) {
+            return second.length < first.length ? second : first;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.reflect;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+import com.comphenix.protocol.ProtocolLogger;
+import com.comphenix.protocol.reflect.fuzzy.AbstractFuzzyMatcher;
+import com.comphenix.protocol.reflect.fuzzy.AbstractFuzzyMember;
+import com.google.gson.Gson;
+
+/**
+ * Persists the members resolved by {@link FuzzyReflection} across restarts.
+ * <p>
+ * Entries are keyed by the class, the access mode and the textual representation of the fuzzy contract, and record
+ * the name and descriptor of every matching member. The whole file is discarded as soon as the server build or the
+ * ProtocolLib version changes. Every cached member is looked up directly and checked against the contract again
+ * before it is handed out, if that fails the class is scanned as usual.
+ */
+public final class ResolvedMemberCache {
+
+    // only classes shipped with the server can be assumed to be unchanged for the same build
+    private static final String[] CACHEABLE_PACKAGES = { "net.minecraft.", "org.bukkit.craftbukkit.", "com.mojang." };
+
+    // string representations that contain these are not stable across restarts
+    private static final Pattern IDENTITY_STRING = Pattern.compile("\\$\\$Lambda|@[0-9a-f]+\\b");
+
+    private static final Gson GSON = new Gson();
+
+    private static volatile ResolvedMemberCache instance;
+
+    private final Path file;
+    private final String buildKey;
+    private final Map<String, List<String>> entries = new ConcurrentHashMap<>();
+
+    private volatile boolean dirty;
+
+    private ResolvedMemberCache(Path file, String buildKey) {
+        this.file = file;
+        this.buildKey = buildKey;
+    }
+
+    /**
+     * Enable the cache, loading all entries from the given file if it was written by the same build.
+     *
+     * @param file     - the cache file.
+     * @param buildKey - identifies the server build and ProtocolLib version, see {@link #computeBuildKey(File, String)}.
+     */
+    public static void enable(File file, String buildKey) {
+        ResolvedMemberCache cache = new ResolvedMemberCache(file.toPath(), buildKey);
+        cache.load();
+        instance = cache;
+    }
+
+    /**
+     * Write any new entries to disk and disable the cache.
+     */
+    public static void disable() {
+        save();
+        instance = null;
+    }
+
+    /**
+     * Write the cache to disk, if anything was added since the last time.
+     */
+    public static void save() {
+        ResolvedMemberCache cache = instance;
+        if (cache != null && cache.dirty) {
+            cache.write();
+        }
+    }
+
+    /**
+     * Compute a key that uniquely identifies the content of the given server jar together with the given ProtocolLib
+     * version.
+     *
+     * @param serverJar - the server jar.
+     * @param version   - the ProtocolLib version.
+     * @return The build key.
+     * @throws IOException If the jar cannot be read.
+     */
+    public static String computeBuildKey(File serverJar, String version) throws IOException {
+        CRC32C checksum = new CRC32C();
+        byte[] buffer = new byte[64 * 1024];
+
+        try (InputStream input = Files.newInputStream(serverJar.toPath())) {
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                checksum.update(buffer, 0, read);
+            }
+        }
+
+        return Long.toHexString(checksum.getValue()) + "-" + serverJar.length() + "-" + version;
+    }
+
+    /**
+     * Retrieve the key under which the result of applying the given matcher to the given class is stored.
+     *
+     * @return The key, or NULL if the result cannot be cached.
+     */
+    static String key(char kind, Class<?> source, boolean forceAccess, AbstractFuzzyMatcher<?> matcher) {
+        if (instance == null || !(matcher instanceof AbstractFuzzyMember) || !isCacheable(source)) {
+            return null;
+        }
+
+        String contract = matcher.toString();
+        if (IDENTITY_STRING.matcher(contract).find()) {
+            return null;
+        }
+
+        return kind + "|" + source.getName() + "|" + forceAccess + "|" + contract;
+    }
+
+    /**
+     * Retrieve the cached members for the given key.
+     *
+     * @param key       - the key, from {@link #key(char, Class, boolean, AbstractFuzzyMatcher)}.
+     * @param source    - the class the members were looked up in.
+     * @param type      - the expected member type.
+     * @param validator - checks that a resolved member still satisfies the contract.
+     * @return The members, or NULL if they are not cached or no longer valid.
+     */
+    static <T extends Member> List<T> get(String key, Class<?> source, Class<T> type, Predicate<T> validator) {
+        ResolvedMemberCache cache = instance;
+        if (cache == null || key == null) {
+            return null;
+        }
+
+        List<String> descriptors = cache.entries.get(key);
+        if (descriptors == null) {
+            return null;
+        }
+
+        List<T> members = new ArrayList<>(descriptors.size());
+        try {
+            for (String descriptor : descriptors) {
+                T member = type.cast(resolve(descriptor, source.getClassLoader()));
+                if (!validator.test(member)) {
+                    cache.invalidate(key);
+                    return null;
+                }
+
+                members.add(member);
+            }
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError ex) {
+            ProtocolLogger.debug("Discarding stale reflection cache entry " + key, ex);
+            cache.invalidate(key);
+            return null;
+        }
+
+        return members;
+    }
+
+    /**
+     * Store the members that were found for the given key.
+     *
+     * @param key     - the key, or NULL if the result should not be cached.
+     * @param members - the matching members.
+     */
+    static void put(String key, List<? extends Member> members) {
+        ResolvedMemberCache cache = instance;
+        if (cache == null || key == null || members.isEmpty()) {
+            return;
+        }
+
+        List<String> descriptors = new ArrayList<>(members.size());
+        for (Member member : members) {
+            descriptors.add(describe(member));
+        }
+
+        if (!descriptors.equals(cache.entries.put(key, descriptors))) {
+            cache.dirty = true;
+        }
+    }
+
+    private static boolean isCacheable(Class<?> source) {
+        String name = source.getName();
+        for (String cacheablePackage : CACHEABLE_PACKAGES) {
+            if (name.startsWith(cacheablePackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void invalidate(String key) {
+        if (this.entries.remove(key) != null) {
+            this.dirty = true;
+        }
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(this.file)) {
+            return;
+        }
+
+        try (Reader reader = Files.newBufferedReader(this.file, StandardCharsets.UTF_8)) {
+            CacheFile content = GSON.fromJson(reader, CacheFile.class);
+            if (content != null && this.buildKey.equals(content.build) && content.entries != null) {
+                this.entries.putAll(content.entries);
+            }
+        } catch (Exception ex) {
+            ProtocolLogger.debug("Unable to read reflection cache " + this.file, ex);
+        }
+    }
+
+    private void write() {
+        CacheFile content = new CacheFile();
+        content.build = this.buildKey;
+        content.entries = this.entries;
+
+        try {
+            Files.createDirectories(this.file.getParent());
+
+            // write to a temporary file first, so that a crash never leaves a truncated cache behind
+            Path temporary = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                GSON.toJson(content, CacheFile.class, writer);
+            }
+
+            Files.move(temporary, this.file, StandardCopyOption.REPLACE_EXISTING);
+            this.dirty = false;
+        } catch (IOException ex) {
+            ProtocolLogger.debug("Unable to write reflection cache " + this.file, ex);
+        }
+    }
+
+    // ---- Member descriptors
+
+    static String describe(Member member) {
+        StringBuilder builder = new StringBuilder(member.getDeclaringClass().getName()).append('#');
+        if (member instanceof Field) {
+            Field field = (Field) member;
+            builder.append(field.getName()).append(':').append(descriptor(field.getType()));
+        } else if (member instanceof Method) {
+            Method method = (Method) member;
+            builder.append(method.getName());
+            appendParameters(builder, method.getParameterTypes());
+            builder.append(descriptor(method.getReturnType()));
+        } else if (member instanceof Constructor) {
+            builder.append("<init>");
+            appendParameters(builder, ((Constructor<?>) member).getParameterTypes());
+            builder.append('V');
+        } else {
+            throw new IllegalArgumentException("Unsupported member " + member);
+        }
+        return builder.toString();
+    }
+
+    static Member resolve(String descriptor, ClassLoader sourceLoader) throws ReflectiveOperationException {
+        int separator = descriptor.indexOf('#');
+        Class<?> declaring = Class.forName(descriptor.substring(0, separator), false, sourceLoader);
+        ClassLoader loader = declaring.getClassLoader();
+
+        int fieldType = descriptor.indexOf(':', separator);
+        if (fieldType >= 0) {
+            Field field = declaring.getDeclaredField(descriptor.substring(separator + 1, fieldType));
+            if (!descriptor(field.getType()).equals(descriptor.substring(fieldType + 1))) {
+                throw new NoSuchFieldException(descriptor);
+            }
+            return field;
+        }
+
+        int open = descriptor.indexOf('(', separator);
+        int close = descriptor.indexOf(')', open);
+        String name = descriptor.substring(separator + 1, open);
+
+        List<Class<?>> parameters = new ArrayList<>();
+        for (int index = open + 1; index < close; ) {
+            int end = descriptorEnd(descriptor, index);
+            parameters.add(fromDescriptor(descriptor.substring(index, end), loader));
+            index = end;
+        }
+
+        Class<?>[] parameterTypes = parameters.toArray(new Class<?>[0]);
+        if (name.equals("<init>")) {
+            return declaring.getDeclaredConstructor(parameterTypes);
+        }
+
+        Method method = declaring.getDeclaredMethod(name, parameterTypes);
+        if (!descriptor(method.getReturnType()).equals(descriptor.substring(close + 1))) {
+            throw new NoSuchMethodException(descriptor);
+        }
+        return method;
+    }
+
+    private static void appendParameters(StringBuilder builder, Class<?>[] parameters) {
+        builder.append('(');
+        for (Class<?> parameter : parameters) {
+            builder.append(descriptor(parameter));
+        }
+        builder.append(')');
+    }
+
+    private static String descriptor(Class<?> type) {
+        if (type.isArray()) {
+            return "[" + descriptor(type.getComponentType());
+        } else if (type.isPrimitive()) {
+            if (type == void.class) return "V";
+            if (type == boolean.class) return "Z";
+            if (type == byte.class) return "B";
+            if (type == char.class) return "C";
+            if (type == short.class) return "S";
+            if (type == int.class) return "I";
+            if (type == long.class) return "J";
+            if (type == float.class) return "F";
+            return "D";
+        } else {
+            return "L" + type.getName() + ";";
+        }
+    }
+
+    private static int descriptorEnd(String descriptor, int start) {
+        int index = start;
+        while (descriptor.charAt(index) == '[') {
+            index++;
+        }
+        return descriptor.charAt(index) == 'L' ? descriptor.indexOf(';', index) + 1 : index + 1;
+    }
+
+    private static Class<?> fromDescriptor(String descriptor, ClassLoader loader) throws ClassNotFoundException {
+        switch (descriptor.charAt(0)) {
+            case 'Z': return boolean.class;
+            case 'B': return byte.class;
+            case 'C': return char.class;
+            case 'S': return short.class;
+            case 'I': return int.class;
+            case 'J': return long.class;
+            case 'F': return float.class;
+            case 'D': return double.class;
+            case 'L': return Class.forName(descriptor.substring(1, descriptor.length() - 1), false, loader);
+            case '[': return Array.newInstance(fromDescriptor(descriptor.substring(1), loader), 0).getClass();
+            default: throw new ClassNotFoundException(descriptor);
+        }
+    }
+
+    private static final class CacheFile {
+        private String build;
+        private Map<String, List<String>> entries;
+    }
+}
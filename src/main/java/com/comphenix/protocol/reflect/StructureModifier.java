@@ -31,6 +31,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
@@ -79,6 +80,9 @@ public class StructureModifier<T> {
     protected Object target;
     protected Class<?> targetType;
 
+    // Shared target that is copied before the first write, or NULL
+    protected CopyOnWriteTarget copyOnWrite;
+
     // The fields to read in order
     protected Class<?> fieldType;
     protected List<FieldAccessor> accessors = new ArrayList<>();
@@ -90,6 +94,8 @@ public class StructureModifier<T> {
     protected Map<FieldAccessor, Integer> defaultFields;
     // Cache of previous types
     protected Map<Class<?>, StructureModifier<?>> subtypeCache;
+    // Cache of previous parameterized types, keyed by the field type followed by its type parameters
+    private Map<List<Class<?>>, StructureModifier<?>> paramTypeCache;
 
     // Whether or subclasses should handle conversion
     protected boolean customConvertHandling;
@@ -118,7 +124,7 @@ public class StructureModifier<T> {
         List<FieldAccessor> fields = getFields(targetType, superclassExclude);
         Map<FieldAccessor, Integer> defaults = requireDefault ? generateDefaultFields(fields) : new HashMap<>();
 
-        this.initialize(targetType, Object.class, fields, defaults, null, new HashMap<>());
+        this.initialize(targetType, Object.class, fields, defaults, null, new ConcurrentHashMap<>());
     }
 
     /**
@@ -201,6 +207,7 @@ public class StructureModifier<T> {
                 other.defaultFields,
                 other.converter,
                 other.subtypeCache);
+        this.paramTypeCache = other.paramTypeCache;
     }
 
     /**
@@ -227,6 +234,7 @@ public class StructureModifier<T> {
         this.defaultFields = defaultFields;
         this.converter = converter;
         this.subtypeCache = subTypeCache;
+        this.paramTypeCache = new ConcurrentHashMap<>();
     }
 
     /**
@@ -299,7 +307,7 @@ public class StructureModifier<T> {
         }
 
         // get the field value and convert it if needed
-        Object fieldValue = accessor.get(this.target);
+        Object fieldValue = accessor.get(this.getTarget());
         return this.needConversion() ? this.converter.getSpecific(fieldValue) : (T) fieldValue;
     }
 
@@ -358,7 +366,7 @@ public class StructureModifier<T> {
 
         // convert and write
         Object fieldValue = this.needConversion() ? this.converter.getGeneric(value) : value;
-        accessor.set(this.target, fieldValue);
+        accessor.set(this.getWritableTarget(), fieldValue);
 
         return this;
     }
@@ -392,6 +400,8 @@ public class StructureModifier<T> {
      * @throws FieldAccessException If we're unable to write to the fields due to a security limitation.
      */
     public StructureModifier<T> writeDefaults() throws FieldAccessException {
+        Object target = this.getWritableTarget();
+
         // Write a default instance to every field
         for (FieldAccessor accessor : this.defaultFields.keySet()) {
             // Special case for Spigot's custom chat components
@@ -433,7 +443,25 @@ public class StructureModifier<T> {
      * @return Object we're modifying.
      */
     public Object getTarget() {
-        return this.target;
+        return this.copyOnWrite != null ? this.copyOnWrite.get() : this.target;
+    }
+
+    /**
+     * Retrieves the object we're currently modifying, copying it first if it is a shared copy-on-write target.
+     *
+     * @return Object we may write to.
+     */
+    private Object getWritableTarget() {
+        return this.copyOnWrite != null ? this.copyOnWrite.getWritable() : this.target;
+    }
+
+    /**
+     * Retrieves the copy-on-write target of this modifier.
+     *
+     * @return The copy-on-write target, or NULL if this modifier writes directly to its target.
+     */
+    public CopyOnWriteTarget getCopyOnWrite() {
+        return this.copyOnWrite;
     }
 
     /**
@@ -531,8 +559,19 @@ public class StructureModifier<T> {
             return (StructureModifier<R>) NO_OP_MODIFIER;
         }
 
-        // Do we need to update the cache?
-        StructureModifier<R> result = (StructureModifier<R>) this.subtypeCache.get(fieldType);
+        // Do we need to update the cache? The fields of a parameterized type are a subset of the fields of the raw type,
+        // so they must not share the same entry
+        List<Class<?>> paramTypeKey = null;
+        StructureModifier<R> result;
+        if (paramTypes.length > 0) {
+            paramTypeKey = new ArrayList<>(paramTypes.length + 1);
+            paramTypeKey.add(fieldType);
+            paramTypeKey.addAll(Arrays.asList(paramTypes));
+            result = (StructureModifier<R>) this.paramTypeCache.get(paramTypeKey);
+        } else {
+            result = (StructureModifier<R>) this.subtypeCache.get(fieldType);
+        }
+
         if (result == null) {
             List<FieldAccessor> fields = new ArrayList<>();
             Map<FieldAccessor, Integer> defaults = new HashMap<>();
@@ -571,11 +610,16 @@ public class StructureModifier<T> {
 
             // Cache structure modifiers
             result = this.withFieldType(fieldType, fields, defaults);
-            this.subtypeCache.put(fieldType, result);
+            if (paramTypeKey != null) {
+                this.paramTypeCache.put(paramTypeKey, result);
+            } else {
+                this.subtypeCache.put(fieldType, result);
+            }
         }
 
         // Add the target too
         result = result.withTarget(this.target);
+        result.copyOnWrite = this.copyOnWrite;
         result.converter = converter;
 
         return result;
@@ -622,7 +666,7 @@ public class StructureModifier<T> {
                 filtered,
                 defaults,
                 converter,
-                new HashMap<>());
+                new ConcurrentHashMap<>());
         return result;
     }
 
@@ -641,6 +685,20 @@ public class StructureModifier<T> {
         return copy;
     }
 
+    /**
+     * Retrieves a structure modifier of the same type for a shared target, which is only copied before the first write.
+     * <p>
+     * Structure modifiers derived from the returned modifier share the same target, and will see the copy as well.
+     *
+     * @param target - the copy-on-write target.
+     * @return Structure modifier with the new target.
+     */
+    public StructureModifier<T> withCopyOnWrite(CopyOnWriteTarget target) {
+        StructureModifier<T> copy = this.withTarget(target.getOriginal());
+        copy.copyOnWrite = target;
+        return copy;
+    }
+
     /**
      * Retrieves a structure modifier with the same type and target, but using a new object converter.
      *
@@ -650,6 +708,7 @@ public class StructureModifier<T> {
     @SuppressWarnings("unchecked")
     private <V> StructureModifier<V> withConverter(EquivalentConverter<V> converter) {
         StructureModifier<V> copy = (StructureModifier<V>) this.withTarget(this.target);
+        copy.copyOnWrite = this.copyOnWrite;
         copy.setConverter(converter);
         return copy;
     }
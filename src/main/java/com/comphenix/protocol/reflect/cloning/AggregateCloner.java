@@ -22,11 +22,16 @@ import com.comphenix.protocol.reflect.instances.ExistingGenerator;
 import com.comphenix.protocol.reflect.instances.InstanceProvider;
 import com.google.common.base.Function;
 
-import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.common.collect.ImmutableSet;
 
 /**
  * Implements a cloning procedure by trying multiple methods in turn until one is successful.
@@ -166,11 +171,22 @@ public class AggregateCloner implements Cloner {
             andThen(FieldCloner.class).
             build();
 
+    /**
+     * Cloners that only consider the class of an object when deciding whether they can clone it.
+     */
+    private static final Set<Class<?>> CLASS_BASED_CLONERS = ImmutableSet.of(
+            BukkitCloner.class, ImmutableDetector.class, JavaOptionalCloner.class,
+            GuavaOptionalCloner.class, CollectionCloner.class, FieldCloner.class
+    );
+
     // List of clone methods
     private List<Cloner> cloners;
 
-    private WeakReference<Object> lastObject;
-    private int lastResult;
+    // Number of leading cloners whose decision only depends on the class of the source
+    private int classBasedCloners;
+
+    // The index of the first cloner that accepts a given class
+    private final Map<Class<?>, Integer> firstCloner = new ConcurrentHashMap<>();
 
     /**
      * Begins constructing a new aggregate cloner.
@@ -201,14 +217,34 @@ public class AggregateCloner implements Cloner {
      */
     private void setCloners(Collection<? extends Cloner> cloners) {
         this.cloners = new ArrayList<>(cloners);
+        this.classBasedCloners = 0;
+
+        // the decision can be remembered per class until we reach a cloner that may inspect the object itself
+        for (Cloner cloner : this.cloners) {
+            if (!isClassBased(cloner))
+                break;
+            this.classBasedCloners++;
+        }
+    }
+
+    /**
+     * Determine if the given cloner decides whether it can clone an object solely from the class of the object.
+     * @param cloner - the cloner.
+     * @return TRUE if the decision only depends on the class, FALSE otherwise.
+     */
+    private static boolean isClassBased(Cloner cloner) {
+        try {
+            Method canClone = cloner.getClass().getMethod("canClone", Object.class);
+            return CLASS_BASED_CLONERS.contains(canClone.getDeclaringClass());
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
     }
 
     @Override
     public boolean canClone(Object source) {
-        // Optimize a bit
-        lastResult = getFirstCloner(source);
-        lastObject = new WeakReference<>(source);
-        return lastResult >= 0 && lastResult < cloners.size();
+        int index = getFirstCloner(source);
+        return index >= 0 && index < cloners.size();
     }
 
     /**
@@ -219,6 +255,23 @@ public class AggregateCloner implements Cloner {
      * @return The index of the cloner object.
      */
     private int getFirstCloner(Object source) {
+        if (source == null)
+            return findFirstCloner(null);
+
+        Class<?> type = source.getClass();
+        Integer cached = firstCloner.get(type);
+        if (cached != null)
+            return cached;
+
+        int index = findFirstCloner(source);
+
+        // only remember decisions that cannot depend on the object itself
+        if (index < classBasedCloners || classBasedCloners == cloners.size())
+            firstCloner.put(type, index);
+        return index;
+    }
+
+    private int findFirstCloner(Object source) {
         for (int i = 0; i < cloners.size(); i++) {
             if (cloners.get(i).canClone(source))
                 return i;
@@ -231,14 +284,7 @@ public class AggregateCloner implements Cloner {
     public Object clone(Object source) {
         if (source == null)
             throw new IllegalAccessError("source cannot be NULL.");
-        int index = 0;
-
-        // Are we dealing with the same object?
-        if (lastObject != null && lastObject.get() == source) {
-            index = lastResult;
-        } else {
-            index = getFirstCloner(source);
-        }
+        int index = getFirstCloner(source);
 
         // Make sure the object is valid
         if (index < cloners.size()) {
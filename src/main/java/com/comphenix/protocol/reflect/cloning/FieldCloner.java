@@ -17,10 +17,19 @@
 
 package com.comphenix.protocol.reflect.cloning;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.comphenix.protocol.reflect.FuzzyReflection;
 import com.comphenix.protocol.reflect.ObjectWriter;
 import com.comphenix.protocol.reflect.StructureModifier;
+import com.comphenix.protocol.reflect.accessors.Accessors;
+import com.comphenix.protocol.reflect.accessors.FieldAccessor;
 import com.comphenix.protocol.reflect.instances.InstanceProvider;
 import com.comphenix.protocol.reflect.instances.NotConstructableException;
+import com.google.common.primitives.Primitives;
 
 /**
  * Represents a class capable of cloning objects by deeply copying its fields.
@@ -33,6 +42,17 @@ public class FieldCloner implements Cloner {
     
     // Used to clone objects
     protected ObjectWriter writer;
+
+    // The writer we created ourselves - as long as it is in use, the compiled plans below are equivalent
+    private final ObjectWriter defaultWriter;
+
+    // How to copy each field of a given class
+    private final ClassValue<ClonePlan> plans = new ClassValue<ClonePlan>() {
+        @Override
+        protected ClonePlan computeValue(Class<?> type) {
+            return compilePlan(type);
+        }
+    };
     
     /**
      * Constructs a field cloner that copies objects by reading and writing the internal fields directly.
@@ -44,15 +64,41 @@ public class FieldCloner implements Cloner {
         this.instanceProvider = instanceProvider;
         
         // Remember to clone the value too
-        this.writer = new ObjectWriter() {
+        this.writer = this.defaultWriter = new ObjectWriter() {
             @Override
             protected void transformField(StructureModifier<Object> modifierSource,
                     StructureModifier<Object> modifierDest, int fieldIndex) {
-                defaultTransform(modifierDest, modifierDest, getDefaultCloner(), fieldIndex);
+                defaultTransform(modifierSource, modifierDest, getDefaultCloner(), fieldIndex);
             }
         };
     }
 
+    /**
+     * Determine if the value of the given field can be copied directly to the clone, instead of being cloned.
+     * <p>
+     * By default, this is only the case for primitive fields and fields of known immutable final types.
+     * @param field - the non-static field.
+     * @return TRUE if the value is shared with the clone, FALSE if it is cloned using the default cloner.
+     */
+    protected boolean isShared(Field field) {
+        Class<?> type = field.getType();
+        return type.isPrimitive() || type.isEnum() || Primitives.isWrapperType(type) || String.class.equals(type);
+    }
+
+    private ClonePlan compilePlan(Class<?> type) {
+        List<FieldAccessor> shared = new ArrayList<>();
+        List<FieldAccessor> cloned = new ArrayList<>();
+
+        // Copy public and private fields alike. Skip static fields.
+        for (Field field : FuzzyReflection.fromClass(type, true).getDeclaredFields(Object.class)) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                (isShared(field) ? shared : cloned).add(Accessors.getFieldAccessor(field));
+            }
+        }
+
+        return new ClonePlan(shared.toArray(new FieldAccessor[0]), cloned.toArray(new FieldAccessor[0]));
+    }
+
     /**
      * Default implementation of the field transform. Applies a clone operation before a field value is written.
      * @param modifierSource - modifier for the original object.
@@ -86,9 +132,13 @@ public class FieldCloner implements Cloner {
             throw new IllegalArgumentException("source cannot be NULL.");
         
         Object copy = instanceProvider.create(source.getClass());
-        
-        // Copy public and private fields alike. Skip static fields.
-        writer.copyTo(source, copy, source.getClass());
+
+        if (writer == defaultWriter) {
+            plans.get(source.getClass()).copy(source, copy, defaultCloner);
+        } else {
+            // Copy public and private fields alike. Skip static fields.
+            writer.copyTo(source, copy, source.getClass());
+        }
         return copy;
     }
     
@@ -107,4 +157,26 @@ public class FieldCloner implements Cloner {
     public InstanceProvider getInstanceProvider() {
         return instanceProvider;
     }
+
+    /**
+     * The fields of a class, split into the fields that are copied directly and the fields that must be cloned.
+     */
+    private static final class ClonePlan {
+        private final FieldAccessor[] shared;
+        private final FieldAccessor[] cloned;
+
+        private ClonePlan(FieldAccessor[] shared, FieldAccessor[] cloned) {
+            this.shared = shared;
+            this.cloned = cloned;
+        }
+
+        private void copy(Object source, Object copy, Cloner cloner) {
+            for (FieldAccessor accessor : shared) {
+                accessor.set(copy, accessor.get(source));
+            }
+            for (FieldAccessor accessor : cloned) {
+                accessor.set(copy, cloner.clone(accessor.get(source)));
+            }
+        }
+    }
 }
@@ -55,6 +55,15 @@ public class FuzzyFieldContract extends AbstractFuzzyMember<Field> {
         return this.typeMatcher;
     }
 
+    /**
+     * Retrieve the type a field must have, if the contract only accepts a single type.
+     *
+     * @return The exact field type, or NULL if the contract accepts more than one type.
+     */
+    public Class<?> getExactType() {
+        return FuzzyMatchers.getExactClass(this.typeMatcher);
+    }
+
     @Override
     public boolean isMatch(Field value, Object parent) {
         if (super.isMatch(value, parent)) {
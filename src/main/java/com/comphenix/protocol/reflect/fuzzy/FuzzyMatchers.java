@@ -128,6 +128,22 @@ public class FuzzyMatchers {
         return FuzzyMatchers.matchRegex(Pattern.compile(regex));
     }
 
+    /**
+     * Retrieve the class an exact class matcher matches.
+     *
+     * @param matcher - the class matcher.
+     * @return The only class the matcher accepts, or NULL if it is not an exact matcher.
+     */
+    static Class<?> getExactClass(AbstractFuzzyMatcher<Class<?>> matcher) {
+        if (matcher instanceof ClassTypeMatcher) {
+            ClassTypeMatcher typeMatcher = (ClassTypeMatcher) matcher;
+            if (typeMatcher.getMatchVariant() == MatchVariant.MATCH_EXACT) {
+                return typeMatcher.getMatcher();
+            }
+        }
+        return null;
+    }
+
     /**
      * Determine if two patterns are the same.
      * <p>
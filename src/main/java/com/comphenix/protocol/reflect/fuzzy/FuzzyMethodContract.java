@@ -70,6 +70,15 @@ public class FuzzyMethodContract extends AbstractFuzzyMember<MethodInfo> {
         return this.returnMatcher;
     }
 
+    /**
+     * Retrieve the return type a method must have, if the contract only accepts a single return type.
+     *
+     * @return The exact return type, or NULL if the contract accepts more than one return type.
+     */
+    public Class<?> getExactReturnType() {
+        return FuzzyMatchers.getExactClass(this.returnMatcher);
+    }
+
     /**
      * Retrieve an immutable list of every parameter matcher for this method.
      *
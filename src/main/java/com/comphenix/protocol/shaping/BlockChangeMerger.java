@@ -0,0 +1,87 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.shaping;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.wrappers.BlockPosition;
+import com.comphenix.protocol.wrappers.WrappedBlockData;
+
+/**
+ * Merges block changes into a multi block change per chunk section. Sections with a single change keep their block
+ * change, and later changes of the same block replace earlier ones.
+ * <p>
+ * This requires the section based multi block change of Minecraft 1.16.2 and later.
+ */
+final class BlockChangeMerger implements PacketMerger {
+
+    @Override
+    public List<PacketContainer> merge(List<PacketContainer> packets) {
+        Map<BlockPosition, Map<Short, BlockChange>> sections = new LinkedHashMap<>();
+
+        for (PacketContainer packet : packets) {
+            BlockPosition position = packet.getBlockPositionModifier().read(0);
+            BlockPosition section = new BlockPosition(position.getX() >> 4, position.getY() >> 4, position.getZ() >> 4);
+            short location = (short) ((position.getX() & 15) << 8 | (position.getZ() & 15) << 4 | (position.getY() & 15));
+
+            Map<Short, BlockChange> changes = sections.computeIfAbsent(section, key -> new LinkedHashMap<>());
+            changes.remove(location);
+            changes.put(location, new BlockChange(packet, location));
+        }
+
+        List<PacketContainer> result = new ArrayList<>(sections.size());
+        for (Map.Entry<BlockPosition, Map<Short, BlockChange>> entry : sections.entrySet()) {
+            Map<Short, BlockChange> changes = entry.getValue();
+            if (changes.size() == 1) {
+                result.add(changes.values().iterator().next().packet);
+                continue;
+            }
+
+            short[] locations = new short[changes.size()];
+            WrappedBlockData[] blocks = new WrappedBlockData[changes.size()];
+            int index = 0;
+            for (BlockChange change : changes.values()) {
+                locations[index] = change.location;
+                blocks[index++] = change.packet.getBlockData().read(0);
+            }
+
+            PacketContainer merged = new PacketContainer(PacketType.Play.Server.MULTI_BLOCK_CHANGE);
+            merged.getSectionPositions().write(0, entry.getKey());
+            merged.getShortArrays().write(0, locations);
+            merged.getBlockDataArrays().write(0, blocks);
+            result.add(merged);
+        }
+        return result;
+    }
+
+    private static final class BlockChange {
+
+        private final PacketContainer packet;
+        private final short location;
+
+        BlockChange(PacketContainer packet, short location) {
+            this.packet = packet;
+            this.location = location;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.shaping;
+
+import java.util.List;
+
+import com.comphenix.protocol.events.PacketContainer;
+
+/**
+ * Merges the deferred packets of a type into fewer packets with the same effect on the client.
+ */
+@FunctionalInterface
+public interface PacketMerger {
+
+    /**
+     * Merge the given packets, which were deferred in the order they are given.
+     * <p>
+     * This is called on the event loop of the connection. The merged packets are sent in the order they are returned,
+     * without passing the packet listeners again.
+     *
+     * @param packets - the deferred packets, which were already sent to the packet listeners.
+     * @return The packets to send instead.
+     */
+    List<PacketContainer> merge(List<PacketContainer> packets);
+}
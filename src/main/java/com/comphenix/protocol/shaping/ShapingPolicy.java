@@ -0,0 +1,185 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.shaping;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The budget of a packet type on a single connection, and what happens to the packets that exceed it.
+ * <p>
+ * The budget is a token bucket: every sent packet takes a token, and tokens are refilled at a steady rate up to the
+ * size of the burst.
+ */
+public final class ShapingPolicy {
+
+    /**
+     * What happens to a packet that exceeds the budget of its type.
+     */
+    public enum Overflow {
+        /**
+         * The packet is deferred to the next flush window in which its type has budget again.
+         */
+        DEFER,
+
+        /**
+         * The packet is deferred, and all packets deferred by the next flush window are merged by the
+         * {@link PacketMerger} of their type and sent at once. Types without a merger are deferred.
+         */
+        MERGE,
+
+        /**
+         * The packet is dropped.
+         */
+        DROP
+    }
+
+    private final double rate;
+    private final double burst;
+    private final Overflow overflow;
+    private final int maximumDeferred;
+
+    private ShapingPolicy(Builder builder) {
+        this.rate = builder.rate;
+        this.burst = builder.burst > 0 ? builder.burst : Math.max(1, builder.rate);
+        this.overflow = builder.overflow;
+        this.maximumDeferred = builder.maximumDeferred;
+    }
+
+    /**
+     * Construct a new policy builder.
+     *
+     * @return The builder.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Retrieve the number of packets per second that are sent without being shaped.
+     *
+     * @return The rate.
+     */
+    public double getRate() {
+        return this.rate;
+    }
+
+    /**
+     * Retrieve the number of packets that can be sent at once after the type was idle.
+     *
+     * @return The burst size.
+     */
+    public double getBurst() {
+        return this.burst;
+    }
+
+    /**
+     * Retrieve what happens to the packets that exceed the budget.
+     *
+     * @return The overflow behaviour.
+     */
+    public Overflow getOverflow() {
+        return this.overflow;
+    }
+
+    /**
+     * Retrieve the maximum number of deferred packets of the type per connection, further packets are dropped.
+     *
+     * @return The maximum number of deferred packets.
+     */
+    public int getMaximumDeferred() {
+        return this.maximumDeferred;
+    }
+
+    @Override
+    public String toString() {
+        return "ShapingPolicy[rate=" + this.rate + ", burst=" + this.burst + ", overflow=" + this.overflow
+                + ", maximumDeferred=" + this.maximumDeferred + "]";
+    }
+
+    /**
+     * Builds a shaping policy.
+     */
+    public static final class Builder {
+
+        private double rate = -1;
+        private double burst;
+        private Overflow overflow = Overflow.DEFER;
+        private int maximumDeferred = 4096;
+
+        private Builder() {
+        }
+
+        /**
+         * Set the number of packets per second that are sent without being shaped.
+         *
+         * @param rate - the rate.
+         * @return This builder, for chaining.
+         */
+        public Builder rate(double rate) {
+            this.rate = rate;
+            return this;
+        }
+
+        /**
+         * Set the number of packets that can be sent at once after the type was idle, the rate of one second by
+         * default.
+         *
+         * @param burst - the burst size.
+         * @return This builder, for chaining.
+         */
+        public Builder burst(double burst) {
+            this.burst = burst;
+            return this;
+        }
+
+        /**
+         * Set what happens to the packets that exceed the budget, they are deferred by default.
+         *
+         * @param overflow - the overflow behaviour.
+         * @return This builder, for chaining.
+         */
+        public Builder overflow(Overflow overflow) {
+            this.overflow = overflow;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of deferred packets of the type per connection, 4096 by default.
+         *
+         * @param maximumDeferred - the maximum number of deferred packets.
+         * @return This builder, for chaining.
+         */
+        public Builder maximumDeferred(int maximumDeferred) {
+            this.maximumDeferred = maximumDeferred;
+            return this;
+        }
+
+        /**
+         * Create the policy.
+         *
+         * @return The policy.
+         */
+        public ShapingPolicy build() {
+            Preconditions.checkArgument(this.rate > 0, "rate must be positive");
+            Preconditions.checkArgument(this.burst >= 0, "burst cannot be negative");
+            Preconditions.checkNotNull(this.overflow, "overflow cannot be NULL");
+            Preconditions.checkArgument(this.maximumDeferred >= 0, "maximumDeferred cannot be negative");
+            return new ShapingPolicy(this);
+        }
+    }
+}
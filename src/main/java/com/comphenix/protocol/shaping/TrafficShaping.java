@@ -0,0 +1,243 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.shaping;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.utility.MinecraftVersion;
+import com.google.common.base.Preconditions;
+
+/**
+ * Shapes the packets sent to each player with a token bucket per packet type.
+ * <p>
+ * Every connection has a shaping stage between the packet listeners and the encoder. A packet of a type with a policy
+ * is sent right away while its type has budget and the channel is writable. Otherwise it is deferred to the next flush
+ * window, merged or dropped, as its policy says. Flush windows run on the event loop of the connection, so shaping
+ * never blocks a thread.
+ * <p>
+ * Deferring packets changes their order relative to packets of other types. Only shape types whose order does not
+ * matter to the client, such as block changes or particles.
+ */
+public final class TrafficShaping {
+
+    private static final Map<PacketType, ShapingPolicy> TYPE_POLICIES = new ConcurrentHashMap<>();
+    private static final Map<UUID, Map<PacketType, ShapingPolicy>> PLAYER_POLICIES = new ConcurrentHashMap<>();
+    private static final Map<PacketType, PacketMerger> MERGERS = new ConcurrentHashMap<>();
+
+    private static final LongAdder DEFERRED = new LongAdder();
+    private static final LongAdder MERGED = new LongAdder();
+    private static final LongAdder DROPPED = new LongAdder();
+
+    private static volatile boolean active;
+    private static volatile long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(50);
+
+    static {
+        if (MinecraftVersion.NETHER_UPDATE_2.atOrAbove()) {
+            MERGERS.put(PacketType.Play.Server.BLOCK_CHANGE, new BlockChangeMerger());
+        }
+    }
+
+    private TrafficShaping() {
+        // Not constructable
+    }
+
+    /**
+     * Determine if any packet type is shaped.
+     *
+     * @return TRUE if there is at least one policy, FALSE otherwise.
+     */
+    public static boolean isActive() {
+        return active;
+    }
+
+    private static void updateActive() {
+        active = !TYPE_POLICIES.isEmpty() || !PLAYER_POLICIES.isEmpty();
+    }
+
+    /**
+     * Retrieve the policy of a packet type sent to a player.
+     *
+     * @param player - the unique id of the player, or NULL if it is not known.
+     * @param type   - the packet type.
+     * @return The policy, or NULL if the type is not shaped.
+     */
+    public static ShapingPolicy getPolicy(UUID player, PacketType type) {
+        if (player != null && !PLAYER_POLICIES.isEmpty()) {
+            Map<PacketType, ShapingPolicy> policies = PLAYER_POLICIES.get(player);
+            ShapingPolicy policy = policies != null ? policies.get(type) : null;
+            if (policy != null) {
+                return policy;
+            }
+        }
+        return TYPE_POLICIES.get(type);
+    }
+
+    /**
+     * Set the policy of a packet type for every player.
+     *
+     * @param type   - the packet type.
+     * @param policy - the policy, or NULL to stop shaping the type.
+     */
+    public static void setPolicy(PacketType type, ShapingPolicy policy) {
+        Preconditions.checkNotNull(type, "type cannot be NULL");
+        if (policy != null) {
+            TYPE_POLICIES.put(type, policy);
+        } else {
+            TYPE_POLICIES.remove(type);
+        }
+        updateActive();
+    }
+
+    /**
+     * Set the policy of a packet type for a single player, which takes precedence over the policy for every player.
+     *
+     * @param player - the unique id of the player.
+     * @param type   - the packet type.
+     * @param policy - the policy, or NULL to use the policy for every player.
+     */
+    public static void setPolicy(UUID player, PacketType type, ShapingPolicy policy) {
+        Preconditions.checkNotNull(player, "player cannot be NULL");
+        Preconditions.checkNotNull(type, "type cannot be NULL");
+
+        if (policy != null) {
+            PLAYER_POLICIES.computeIfAbsent(player, key -> new ConcurrentHashMap<>()).put(type, policy);
+        } else {
+            PLAYER_POLICIES.computeIfPresent(player, (key, policies) -> {
+                policies.remove(type);
+                return policies.isEmpty() ? null : policies;
+            });
+        }
+        updateActive();
+    }
+
+    /**
+     * Remove every policy of a single player.
+     *
+     * @param player - the unique id of the player.
+     */
+    public static void clearPolicies(UUID player) {
+        PLAYER_POLICIES.remove(player);
+        updateActive();
+    }
+
+    /**
+     * Remove every policy.
+     */
+    public static void clearPolicies() {
+        TYPE_POLICIES.clear();
+        PLAYER_POLICIES.clear();
+        updateActive();
+    }
+
+    /**
+     * Retrieve the merger of a packet type. Block changes are merged into multi block changes by default.
+     *
+     * @param type - the packet type.
+     * @return The merger, or NULL if the packets of the type cannot be merged.
+     */
+    public static PacketMerger getMerger(PacketType type) {
+        return MERGERS.get(type);
+    }
+
+    /**
+     * Set the merger of a packet type.
+     *
+     * @param type   - the packet type.
+     * @param merger - the merger, or NULL if the packets of the type cannot be merged.
+     */
+    public static void setMerger(PacketType type, PacketMerger merger) {
+        Preconditions.checkNotNull(type, "type cannot be NULL");
+        if (merger != null) {
+            MERGERS.put(type, merger);
+        } else {
+            MERGERS.remove(type);
+        }
+    }
+
+    /**
+     * Retrieve the time between the flush windows of deferred packets.
+     *
+     * @param unit - the unit of the returned time.
+     * @return The flush interval.
+     */
+    public static long getFlushInterval(TimeUnit unit) {
+        return unit.convert(flushIntervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Set the time between the flush windows of deferred packets, 50 milliseconds by default.
+     *
+     * @param interval - the interval.
+     * @param unit     - the unit of the interval.
+     */
+    public static void setFlushInterval(long interval, TimeUnit unit) {
+        Preconditions.checkArgument(interval > 0, "interval must be positive");
+        flushIntervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * Retrieve the number of packets that were deferred.
+     *
+     * @return The number of deferred packets.
+     */
+    public static long getDeferredCount() {
+        return DEFERRED.sum();
+    }
+
+    /**
+     * Retrieve the number of deferred packets that were merged into other packets.
+     *
+     * @return The number of merged packets.
+     */
+    public static long getMergedCount() {
+        return MERGED.sum();
+    }
+
+    /**
+     * Retrieve the number of packets that were dropped.
+     *
+     * @return The number of dropped packets.
+     */
+    public static long getDroppedCount() {
+        return DROPPED.sum();
+    }
+
+    /**
+     * Count packets that were deferred, merged and dropped. Called by the shaping stage of the connections.
+     *
+     * @param deferred - the number of deferred packets.
+     * @param merged   - the number of merged packets.
+     * @param dropped  - the number of dropped packets.
+     */
+    public static void count(int deferred, int merged, int dropped) {
+        if (deferred > 0) {
+            DEFERRED.add(deferred);
+        }
+        if (merged > 0) {
+            MERGED.add(merged);
+        }
+        if (dropped > 0) {
+            DROPPED.add(dropped);
+        }
+    }
+}
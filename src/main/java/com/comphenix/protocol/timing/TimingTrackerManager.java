@@ -2,6 +2,7 @@ package com.comphenix.protocol.timing;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -18,6 +19,9 @@ public class TimingTrackerManager {
 
     private static final Map<String, ImmutableMap<TimingListenerType, PluginTimingTracker>> TRACKER_MAP = new ConcurrentHashMap<>();
 
+    // listeners invoked by a thread that tracks them by itself are not part of the global report
+    private static final ThreadLocal<LocalTracking> LOCAL_TRACKING = new ThreadLocal<>();
+
     public static boolean startTracking() {
         if (IS_TRACKING.compareAndSet(false, true)) {
             startTime = Calendar.getInstance().getTime();
@@ -44,7 +48,41 @@ public class TimingTrackerManager {
         return report;
     }
 
+    /**
+     * Start tracking the listeners invoked by the current thread, separately from the global tracking.
+     *
+     * @return TRUE if tracking was started, FALSE if the current thread is already tracking.
+     */
+    public static boolean startLocalTracking() {
+        if (LOCAL_TRACKING.get() != null) {
+            return false;
+        }
+        LOCAL_TRACKING.set(new LocalTracking(Calendar.getInstance().getTime()));
+        return true;
+    }
+
+    /**
+     * Stop tracking the listeners invoked by the current thread.
+     *
+     * @return The report of the listeners invoked since tracking was started, or NULL if the thread was not tracking.
+     */
+    public static TimingReport stopLocalTracking() {
+        LocalTracking tracking = LOCAL_TRACKING.get();
+        if (tracking == null) {
+            return null;
+        }
+
+        LOCAL_TRACKING.remove();
+        return new TimingReport(tracking.startTime, Calendar.getInstance().getTime(), ImmutableMap.copyOf(tracking.trackerMap));
+    }
+
     public static TimingTracker get(PacketListener listener, TimingListenerType type) {
+        LocalTracking tracking = LOCAL_TRACKING.get();
+        if (tracking != null) {
+            String plugin = listener.getPlugin().getName();
+            return tracking.trackerMap.computeIfAbsent(plugin, k -> newTrackerMap()).get(type);
+        }
+
         if (!IS_TRACKING.get()) {
             return TimingTracker.EMPTY;
         }
@@ -62,4 +100,14 @@ public class TimingTrackerManager {
 
         return builder.build();
     }
+
+    private static final class LocalTracking {
+
+        private final Date startTime;
+        private final Map<String, ImmutableMap<TimingListenerType, PluginTimingTracker>> trackerMap = new HashMap<>();
+
+        private LocalTracking(Date startTime) {
+            this.startTime = startTime;
+        }
+    }
 }
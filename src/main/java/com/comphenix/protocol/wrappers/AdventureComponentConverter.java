@@ -16,7 +16,12 @@
  */
 package com.comphenix.protocol.wrappers;
 
+import com.comphenix.protocol.reflect.accessors.Accessors;
+import com.comphenix.protocol.reflect.accessors.MethodAccessor;
+import com.comphenix.protocol.utility.MinecraftReflection;
 import com.comphenix.protocol.utility.MinecraftVersion;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.JsonObject;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.Style;
@@ -30,12 +35,42 @@ import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
 public class AdventureComponentConverter {
     private static final GsonComponentSerializer SERIALIZER;
 
+    // direct conversions between Adventure and NMS components, only present on Paper
+    private static final MethodAccessor AS_VANILLA;
+    private static final MethodAccessor AS_ADVENTURE;
+
+    // Adventure components are immutable and can always be shared, NMS components only if the caller asked for it
+    private static final int MAXIMUM_CACHED_COMPONENTS = 4096;
+    private static final long MAXIMUM_CACHED_JSON_LENGTH = 4 * 1024 * 1024;
+    private static final Cache<Component, Object> COMPONENT_HANDLES = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_CACHED_COMPONENTS)
+            .softValues()
+            .build();
+    private static final Cache<String, Component> JSON_COMPONENTS = CacheBuilder.newBuilder()
+            .maximumWeight(MAXIMUM_CACHED_JSON_LENGTH)
+            .weigher((String json, Component component) -> json.length())
+            .softValues()
+            .build();
+
     static {
         if (MinecraftVersion.NETHER_UPDATE.atOrAbove()) {
             SERIALIZER = GsonComponentSerializer.gson();
         } else {
             SERIALIZER = GsonComponentSerializer.colorDownsamplingGson();
         }
+
+        MethodAccessor asVanilla = null;
+        MethodAccessor asAdventure = null;
+        try {
+            Class<?> paperAdventure = Class.forName("io.papermc.paper.adventure.PaperAdventure");
+            asVanilla = Accessors.getMethodAccessorOrNull(paperAdventure, "asVanilla", Component.class);
+            asAdventure = Accessors.getMethodAccessorOrNull(paperAdventure, "asAdventure",
+                    MinecraftReflection.getIChatBaseComponentClass());
+        } catch (ClassNotFoundException | LinkageError ignored) {
+            // Not Paper, so we convert through JSON
+        }
+        AS_VANILLA = asVanilla;
+        AS_ADVENTURE = asAdventure;
     }
 
     private AdventureComponentConverter() {
@@ -47,7 +82,17 @@ public class AdventureComponentConverter {
      * @return Component
      */
     public static Component fromWrapper(WrappedChatComponent wrapper) {
-        return SERIALIZER.deserialize(wrapper.getJson());
+        if (AS_ADVENTURE != null) {
+            return (Component) AS_ADVENTURE.invoke(null, wrapper.getHandle());
+        }
+
+        String json = wrapper.getJson();
+        Component component = JSON_COMPONENTS.getIfPresent(json);
+        if (component == null) {
+            component = SERIALIZER.deserialize(json);
+            JSON_COMPONENTS.put(json, component);
+        }
+        return component;
     }
 
     /**
@@ -83,9 +128,30 @@ public class AdventureComponentConverter {
      * @return ProtocolLib wrapper
      */
     public static WrappedChatComponent fromComponent(Component component) {
+        if (AS_VANILLA != null) {
+            return WrappedChatComponent.fromHandle(AS_VANILLA.invoke(null, component));
+        }
         return WrappedChatComponent.fromJson(SERIALIZER.serialize(component));
     }
 
+    /**
+     * Converts a {@link Component} into a ProtocolLib wrapper, reusing the NMS component converted from an equal
+     * component earlier if it is still cached.
+     * <p>
+     * The NMS component is shared, so neither the handle nor the component that is sent may be modified. See
+     * {@link WrappedChatComponent#fromJsonShared(String)}.
+     * @param component Component
+     * @return ProtocolLib wrapper, with a shared NMS component
+     */
+    public static WrappedChatComponent fromComponentShared(Component component) {
+        Object handle = COMPONENT_HANDLES.getIfPresent(component);
+        if (handle == null) {
+            handle = fromComponent(component).getHandle();
+            COMPONENT_HANDLES.put(component, handle);
+        }
+        return WrappedChatComponent.fromHandle(handle);
+    }
+
     /**
      * Converts an object that is instance of {@link Component} into a ProtocolLib wrapper
      * @param component Component
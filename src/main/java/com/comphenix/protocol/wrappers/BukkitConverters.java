@@ -22,15 +22,21 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.RandomAccess;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
@@ -61,6 +67,9 @@ import com.comphenix.protocol.wrappers.Either.Right;
 import com.comphenix.protocol.wrappers.EnumWrappers.Dimension;
 import com.comphenix.protocol.wrappers.EnumWrappers.FauxEnumConverter;
 import com.comphenix.protocol.wrappers.WrappedProfilePublicKey.WrappedProfileKeyData;
+import com.comphenix.protocol.wrappers.collection.CopyOnWriteList;
+import com.comphenix.protocol.wrappers.collection.CopyOnWriteMap;
+import com.comphenix.protocol.wrappers.collection.CopyOnWriteSet;
 import com.comphenix.protocol.wrappers.nbt.NbtBase;
 import com.comphenix.protocol.wrappers.nbt.NbtFactory;
 
@@ -238,6 +247,10 @@ public class BukkitConverters {
             @Override
             public Map<K, V> getSpecific(Object generic) {
                 Map<Object, Object> genericMap = (Map<Object, Object>) generic;
+                if (generic instanceof Map) {
+                    return new MapView<>(new CopyOnWriteMap<>(genericMap), keyConverter, valConverter);
+                }
+
                 Map<K, V> newMap;
 
                 try {
@@ -255,6 +268,22 @@ public class BukkitConverters {
 
             @Override
             public Object getGeneric(Map<K, V> specific) {
+                if (specific instanceof MapView && ((MapView<?, ?>) specific).isCompatible(keyConverter, valConverter)) {
+                    CopyOnWriteMap<Object, Object> entries = ((MapView<?, ?>) specific).writeBack();
+                    if (!entries.isModified()) {
+                        return entries.getSource();
+                    }
+
+                    Map<Object, Object> newMap;
+                    try {
+                        newMap = entries.getSource().getClass().getConstructor().newInstance();
+                    } catch (ReflectiveOperationException ex) {
+                        newMap = new HashMap<>();
+                    }
+                    newMap.putAll(entries);
+                    return newMap;
+                }
+
                 Map<Object, Object> newMap;
 
                 try {
@@ -280,6 +309,36 @@ public class BukkitConverters {
     private static final Map<Class<?>, Supplier<List<Object>>> LIST_SUPPLIERS = new ConcurrentHashMap<>();
 
     private static <T> Object getGenericList(Class<?> listClass, List<T> specific, EquivalentConverter<T> itemConverter) {
+        // views only need their generic items copied if they were modified
+        if (specific instanceof ListView && ((ListView<?>) specific).isCompatible(itemConverter)) {
+            CopyOnWriteList<Object> items = ((ListView<?>) specific).writeBack();
+            if (!items.isModified()) {
+                return items.getSource();
+            }
+
+            List<Object> newList = newGenericList(listClass);
+            newList.addAll(items);
+            return newList;
+        }
+
+        List<Object> newList = newGenericList(listClass);
+
+        // Convert each object
+        for (T position : specific) {
+            if (position != null) {
+                Object converted = itemConverter.getGeneric(position);
+                if (converted != null) {
+                    newList.add(converted);
+                }
+            } else {
+                newList.add(null);
+            }
+        }
+
+        return newList;
+    }
+
+    private static List<Object> newGenericList(Class<?> listClass) {
         List<Object> newList;
         Supplier<List<Object>> supplier = LIST_SUPPLIERS.get(listClass);
         if (supplier == null) {
@@ -303,28 +362,20 @@ public class BukkitConverters {
         } else {
             newList = supplier.get();
         }
-
-        // Convert each object
-        for (T position : specific) {
-            if (position != null) {
-                Object converted = itemConverter.getGeneric(position);
-                if (converted != null) {
-                    newList.add(converted);
-                }
-            } else {
-                newList.add(null);
-            }
-        }
-
         return newList;
     }
 
     private static <T> List<T> getSpecificList(Object generic, EquivalentConverter<T> itemConverter) {
-        if (generic instanceof Collection) {
+        // items are converted as they are accessed, unless null items have to be skipped
+        if (generic instanceof List && !containsNull((List<?>) generic)) {
+            return new ListView<>(new CopyOnWriteList<>((List<Object>) generic), itemConverter);
+        }
+
+        if (generic instanceof Iterable) {
             List<T> items = new ArrayList<>();
 
             // Copy everything to a new list
-            for (Object item : (Collection<Object>) generic) {
+            for (Object item : (Iterable<Object>) generic) {
                 T result = itemConverter.getSpecific(item);
 
                 if (item != null)
@@ -466,6 +517,11 @@ public class BukkitConverters {
 
             @Override
             public Set<T> getSpecific(Object generic) {
+                // items are converted as they are accessed, unless null items have to be skipped
+                if (generic instanceof Set && !containsNull((Set<?>) generic)) {
+                    return new SetView<>(new CopyOnWriteSet<>((Set<Object>) generic), itemConverter);
+                }
+
                 if (generic instanceof Collection) {
                     Set<T> items = new HashSet<>();
 
@@ -486,6 +542,22 @@ public class BukkitConverters {
 
             @Override
             public Object getGeneric(Set<T> specific) {
+                if (specific instanceof SetView && ((SetView<?>) specific).isCompatible(itemConverter)) {
+                    CopyOnWriteSet<Object> items = ((SetView<?>) specific).writeBack();
+                    if (!items.isModified()) {
+                        return items.getSource();
+                    }
+
+                    Set<Object> newSet;
+                    try {
+                        newSet = items.getSource().getClass().getConstructor().newInstance();
+                    } catch (ReflectiveOperationException ex) {
+                        newSet = new HashSet<>();
+                    }
+                    newSet.addAll(items);
+                    return newSet;
+                }
+
                 Set<Object> newList;
 
                 try {
@@ -534,14 +606,8 @@ public class BukkitConverters {
             @Override
             public List<T> getSpecific(Object generic) {
                 if (generic instanceof Object[]) {
-                    ImmutableList.Builder<T> builder = ImmutableList.builder();
-
-                    // Copy everything to a new list
-                    for (Object item : (Object[]) generic) {
-                        T result = itemConverter.getSpecific(item);
-                        builder.add(result);
-                    }
-                    return builder.build();
+                    // Convert the items as they are accessed
+                    return new ArrayView<>((Object[]) generic, itemConverter);
                 }
 
                 // Not valid
@@ -1993,4 +2059,438 @@ public class BukkitConverters {
             }
         };
     }
+
+    /**
+     * Determine if the generic items of a view can be used by the given converter as they are.
+     * <p>
+     * Every specific type has a single generic type, so converters of the same specific type are interchangeable.
+     */
+    private static boolean isCompatible(EquivalentConverter<?> viewConverter, EquivalentConverter<?> converter) {
+        if (viewConverter == converter) {
+            return true;
+        }
+        Class<?> specificType = viewConverter.getSpecificType();
+        return specificType != null && specificType == converter.getSpecificType();
+    }
+
+    /**
+     * Determine if a generic collection contains a null item, which the eager conversion skips.
+     */
+    private static boolean containsNull(Iterable<?> items) {
+        for (Object item : items) {
+            if (item == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determine if a wrapper that was handed out still converts to the generic item it was read from.
+     */
+    private static boolean isUnchanged(Object generic, Object current) {
+        return generic == current || Objects.equal(generic, current);
+    }
+
+    /**
+     * A list that converts the generic items as they are accessed, and copies them once it is modified.
+     * <p>
+     * Every converted item is kept by position, so the list returns the same wrapper for the same position. Wrappers may be
+     * modified after they were handed out, so they are converted back when the list is written to the packet.
+     */
+    private static final class ListView<T> extends AbstractList<T> implements RandomAccess {
+        private final CopyOnWriteList<Object> items;
+        private final EquivalentConverter<T> itemConverter;
+
+        // the specific items handed out or added, by position
+        private List<T> converted;
+
+        ListView(CopyOnWriteList<Object> items, EquivalentConverter<T> itemConverter) {
+            this.items = items;
+            this.itemConverter = itemConverter;
+        }
+
+        boolean isCompatible(EquivalentConverter<?> converter) {
+            return BukkitConverters.isCompatible(this.itemConverter, converter);
+        }
+
+        private List<T> converted() {
+            if (this.converted == null) {
+                this.converted = new ArrayList<>(Collections.nCopies(this.items.size(), null));
+            }
+            return this.converted;
+        }
+
+        private Object toGeneric(T specific) {
+            return specific != null ? this.itemConverter.getGeneric(specific) : null;
+        }
+
+        /**
+         * Store the generic form of every wrapper that was handed out, if it was changed through the wrapper.
+         *
+         * @return The generic items.
+         */
+        CopyOnWriteList<Object> writeBack() {
+            if (this.converted != null) {
+                for (int i = 0; i < this.converted.size(); i++) {
+                    T specific = this.converted.get(i);
+                    if (specific != null) {
+                        Object generic = this.itemConverter.getGeneric(specific);
+                        if (!isUnchanged(this.items.get(i), generic)) {
+                            this.items.set(i, generic);
+                        }
+                    }
+                }
+            }
+            return this.items;
+        }
+
+        @Override
+        public T get(int index) {
+            Object generic = this.items.get(index);
+            List<T> converted = this.converted();
+
+            T specific = converted.get(index);
+            if (specific == null && generic != null) {
+                specific = this.itemConverter.getSpecific(generic);
+                converted.set(index, specific);
+            }
+            return specific;
+        }
+
+        @Override
+        public T set(int index, T element) {
+            T previous = this.get(index);
+            this.items.set(index, this.toGeneric(element));
+            this.converted.set(index, element);
+            return previous;
+        }
+
+        @Override
+        public void add(int index, T element) {
+            this.items.add(index, this.toGeneric(element));
+            this.converted().add(index, element);
+            this.modCount++;
+        }
+
+        @Override
+        public T remove(int index) {
+            T previous = this.get(index);
+            this.items.remove(index);
+            this.converted.remove(index);
+            this.modCount++;
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            this.items.clear();
+            this.converted = null;
+            this.modCount++;
+        }
+
+        @Override
+        public int size() {
+            return this.items.size();
+        }
+    }
+
+    /**
+     * A read-only list over a generic array, that converts the items as they are accessed.
+     * <p>
+     * Every converted item is kept by position, so wrappers that are changed after they were handed out are written back.
+     */
+    private static final class ArrayView<T> extends AbstractList<T> implements RandomAccess {
+        private final Object[] items;
+        private final Object[] converted;
+        private final EquivalentConverter<T> itemConverter;
+
+        ArrayView(Object[] items, EquivalentConverter<T> itemConverter) {
+            this.items = items;
+            this.converted = new Object[items.length];
+            this.itemConverter = itemConverter;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            Object specific = this.converted[index];
+            if (specific == null) {
+                specific = this.converted[index] = this.itemConverter.getSpecific(this.items[index]);
+            }
+            return (T) specific;
+        }
+
+        @Override
+        public int size() {
+            return this.items.length;
+        }
+    }
+
+    /**
+     * A set that converts the generic items as they are accessed, and copies them once it is modified.
+     * <p>
+     * Every converted item is kept by its generic item, so wrappers that are changed after they were handed out are
+     * written back.
+     */
+    private static final class SetView<T> extends AbstractSet<T> {
+        private final CopyOnWriteSet<Object> items;
+        private final EquivalentConverter<T> itemConverter;
+
+        // the specific items handed out or added, by their generic item
+        private final Map<Object, T> converted = new HashMap<>();
+
+        SetView(CopyOnWriteSet<Object> items, EquivalentConverter<T> itemConverter) {
+            this.items = items;
+            this.itemConverter = itemConverter;
+        }
+
+        boolean isCompatible(EquivalentConverter<?> converter) {
+            return BukkitConverters.isCompatible(this.itemConverter, converter);
+        }
+
+        @SuppressWarnings("unchecked")
+        private Object toGeneric(Object specific) {
+            return specific != null ? this.itemConverter.getGeneric((T) specific) : null;
+        }
+
+        /**
+         * Store the generic form of every wrapper that was handed out, if it was changed through the wrapper.
+         *
+         * @return The generic items.
+         */
+        CopyOnWriteSet<Object> writeBack() {
+            Map<Object, T> changed = new HashMap<>();
+            for (Iterator<Map.Entry<Object, T>> it = this.converted.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Object, T> entry = it.next();
+                Object generic = this.itemConverter.getGeneric(entry.getValue());
+                if (!isUnchanged(entry.getKey(), generic)) {
+                    this.items.remove(entry.getKey());
+                    this.items.add(generic);
+                    changed.put(generic, entry.getValue());
+                    it.remove();
+                }
+            }
+            this.converted.putAll(changed);
+            return this.items;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            Iterator<Object> iterator = this.items.iterator();
+            return new Iterator<T>() {
+                private Object current;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    this.current = iterator.next();
+                    return this.current != null
+                            ? SetView.this.converted.computeIfAbsent(this.current, SetView.this.itemConverter::getSpecific)
+                            : null;
+                }
+
+                @Override
+                public void remove() {
+                    iterator.remove();
+                    SetView.this.converted.remove(this.current);
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return this.items.contains(this.toGeneric(o));
+        }
+
+        @Override
+        public boolean add(T element) {
+            Object generic = this.toGeneric(element);
+            if (this.items.add(generic)) {
+                if (generic != null) {
+                    this.converted.put(generic, element);
+                }
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            Object generic = this.toGeneric(o);
+            this.converted.remove(generic);
+            return this.items.remove(generic);
+        }
+
+        @Override
+        public void clear() {
+            this.items.clear();
+            this.converted.clear();
+        }
+
+        @Override
+        public int size() {
+            return this.items.size();
+        }
+    }
+
+    /**
+     * A map that converts the generic keys and values as they are accessed, and copies them once it is modified.
+     * <p>
+     * Every converted value is kept by its generic key, so wrappers that are changed after they were handed out are
+     * written back. Keys must not be changed while they are in the map.
+     */
+    private static final class MapView<K, V> extends AbstractMap<K, V> {
+        private final CopyOnWriteMap<Object, Object> entries;
+        private final EquivalentConverter<K> keyConverter;
+        private final EquivalentConverter<V> valConverter;
+
+        // the specific values handed out or added, by their generic key
+        private final Map<Object, V> converted = new HashMap<>();
+
+        MapView(CopyOnWriteMap<Object, Object> entries, EquivalentConverter<K> keyConverter,
+                EquivalentConverter<V> valConverter) {
+            this.entries = entries;
+            this.keyConverter = keyConverter;
+            this.valConverter = valConverter;
+        }
+
+        boolean isCompatible(EquivalentConverter<?> keyConverter, EquivalentConverter<?> valConverter) {
+            return BukkitConverters.isCompatible(this.keyConverter, keyConverter)
+                    && BukkitConverters.isCompatible(this.valConverter, valConverter);
+        }
+
+        private static <T> Object toGeneric(EquivalentConverter<T> converter, T specific) {
+            return specific != null ? converter.getGeneric(specific) : null;
+        }
+
+        private static <T> T toSpecific(EquivalentConverter<T> converter, Object generic) {
+            return generic != null ? converter.getSpecific(generic) : null;
+        }
+
+        /**
+         * Store the generic form of every value that was handed out, if it was changed through the wrapper.
+         *
+         * @return The generic entries.
+         */
+        CopyOnWriteMap<Object, Object> writeBack() {
+            for (Map.Entry<Object, V> entry : this.converted.entrySet()) {
+                Object generic = toGeneric(this.valConverter, entry.getValue());
+                if (!isUnchanged(this.entries.get(entry.getKey()), generic)) {
+                    this.entries.put(entry.getKey(), generic);
+                }
+            }
+            return this.entries;
+        }
+
+        private V getValue(Object genericKey, Object genericValue) {
+            if (genericValue == null) {
+                return null;
+            }
+
+            V value = this.converted.get(genericKey);
+            if (value == null) {
+                value = this.valConverter.getSpecific(genericValue);
+                this.converted.put(genericKey, value);
+            }
+            return value;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            Object genericKey = toGeneric(this.keyConverter, (K) key);
+            return this.getValue(genericKey, this.entries.get(genericKey));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean containsKey(Object key) {
+            return this.entries.containsKey(toGeneric(this.keyConverter, (K) key));
+        }
+
+        @Override
+        public V put(K key, V value) {
+            Object genericKey = toGeneric(this.keyConverter, key);
+            V previous = this.getValue(genericKey, this.entries.get(genericKey));
+
+            this.entries.put(genericKey, toGeneric(this.valConverter, value));
+            if (value != null) {
+                this.converted.put(genericKey, value);
+            } else {
+                this.converted.remove(genericKey);
+            }
+            return previous;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V remove(Object key) {
+            Object genericKey = toGeneric(this.keyConverter, (K) key);
+            V previous = this.getValue(genericKey, this.entries.get(genericKey));
+
+            this.entries.remove(genericKey);
+            this.converted.remove(genericKey);
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            this.entries.clear();
+            this.converted.clear();
+        }
+
+        @Override
+        public int size() {
+            return this.entries.size();
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return new AbstractSet<Entry<K, V>>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    Iterator<Entry<Object, Object>> iterator = MapView.this.entries.entrySet().iterator();
+                    return new Iterator<Entry<K, V>>() {
+                        private Object current;
+
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<K, V> next() {
+                            Entry<Object, Object> inner = iterator.next();
+                            this.current = inner.getKey();
+
+                            K key = toSpecific(MapView.this.keyConverter, inner.getKey());
+                            return new SimpleEntry<K, V>(key, MapView.this.getValue(inner.getKey(), inner.getValue())) {
+                                @Override
+                                public V setValue(V value) {
+                                    super.setValue(value);
+                                    return MapView.this.put(key, value);
+                                }
+                            };
+                        }
+
+                        @Override
+                        public void remove() {
+                            iterator.remove();
+                            MapView.this.converted.remove(this.current);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return MapView.this.size();
+                }
+            };
+        }
+    }
 }
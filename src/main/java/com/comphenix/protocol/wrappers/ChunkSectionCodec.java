@@ -0,0 +1,660 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.wrappers;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+import com.comphenix.protocol.utility.MinecraftVersion;
+import com.google.common.base.Preconditions;
+
+/**
+ * Reads and modifies the chunk sections of a chunk packet directly in its serialized buffer, without creating the
+ * sections of the server.
+ * <p>
+ * Each section holds the number of non-empty blocks, the paletted block states and the paletted biomes. Changes that
+ * keep the size of a section are written into the buffer right away. Other changes decode the block states of that
+ * section, which is then packed again by {@link #encode()}, while all other sections are copied as they are.
+ * <p>
+ * The buffer is modified in place. Chunk packets are usually sent to several players, so copy the buffer first if the
+ * changes are meant for a single player. This supports the section format of Minecraft 1.18 and later.
+ */
+public final class ChunkSectionCodec {
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    // the data arrays are no longer prefixed by their length since 1.21.5
+    private static final boolean PREFIXED_DATA = !MinecraftVersion.v1_21_5.atOrAbove();
+
+    private final byte[] buffer;
+    private final List<Section> sections;
+
+    private ChunkSectionCodec(byte[] buffer, List<Section> sections) {
+        this.buffer = buffer;
+        this.sections = sections;
+    }
+
+    /**
+     * Read the chunk sections in the given buffer.
+     *
+     * @param buffer - the serialized chunk sections.
+     * @return The codec over the buffer.
+     * @throws IllegalArgumentException If the buffer does not contain chunk sections.
+     */
+    public static ChunkSectionCodec read(byte[] buffer) {
+        Preconditions.checkNotNull(buffer, "buffer cannot be NULL");
+
+        List<Section> sections = new ArrayList<>();
+        Reader reader = new Reader(buffer);
+        try {
+            while (reader.position < buffer.length) {
+                sections.add(new Section(reader));
+            }
+        } catch (IndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException("Chunk section " + sections.size() + " ends after the buffer", ex);
+        }
+        return new ChunkSectionCodec(buffer, sections);
+    }
+
+    /**
+     * Read the chunk sections of the given chunk data.
+     *
+     * @param data - the chunk data.
+     * @return The codec over the buffer of the chunk data.
+     * @throws IllegalArgumentException If the buffer does not contain chunk sections.
+     */
+    public static ChunkSectionCodec read(WrappedLevelChunkData.ChunkData data) {
+        return read(data.getBuffer());
+    }
+
+    /**
+     * Retrieve the number of sections, from the bottom to the top of the world.
+     *
+     * @return The number of sections.
+     */
+    public int getSectionCount() {
+        return this.sections.size();
+    }
+
+    /**
+     * Retrieve a section by its index, where zero is the bottom of the world.
+     *
+     * @param index - the index of the section.
+     * @return The section.
+     */
+    public Section getSection(int index) {
+        return this.sections.get(index);
+    }
+
+    /**
+     * Retrieve every section, from the bottom to the top of the world.
+     *
+     * @return The sections.
+     */
+    public List<Section> getSections() {
+        return Collections.unmodifiableList(this.sections);
+    }
+
+    /**
+     * Determine if any section has to be packed again by {@link #encode()}.
+     *
+     * @return TRUE if a section changed its size, FALSE otherwise.
+     */
+    public boolean isRepackRequired() {
+        for (Section section : this.sections) {
+            if (section.blockStates.isDecoded()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Serialize the sections, packing only the sections that changed their size.
+     *
+     * @return The read buffer if no section has to be packed again, or a new buffer otherwise.
+     */
+    public byte[] encode() {
+        if (!this.isRepackRequired()) {
+            return this.buffer;
+        }
+
+        Writer writer = new Writer(this.buffer.length);
+        for (Section section : this.sections) {
+            if (section.blockStates.isDecoded()) {
+                section.encode(writer);
+            } else {
+                writer.write(this.buffer, section.start, section.end - section.start);
+            }
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * Serialize the sections into the given chunk data.
+     *
+     * @param data - the chunk data.
+     */
+    public void write(WrappedLevelChunkData.ChunkData data) {
+        byte[] encoded = this.encode();
+        if (encoded != data.getBuffer()) {
+            data.setBuffer(encoded);
+        }
+    }
+
+    /**
+     * A section of 16x16x16 blocks.
+     */
+    public static final class Section {
+
+        private final byte[] buffer;
+        private final int start;
+        private final int end;
+        private final PalettedContainer blockStates;
+        private final PalettedContainer biomes;
+
+        private Section(Reader reader) {
+            this.buffer = reader.buffer;
+            this.start = reader.position;
+            reader.position += Short.BYTES;
+            this.blockStates = new PalettedContainer(reader, ContainerType.BLOCK_STATES);
+            this.biomes = new PalettedContainer(reader, ContainerType.BIOMES);
+            this.end = reader.position;
+        }
+
+        /**
+         * Retrieve the number of blocks that are not air.
+         *
+         * @return The number of non-empty blocks.
+         */
+        public int getNonEmptyBlockCount() {
+            return (this.buffer[this.start] & 0xFF) << 8 | this.buffer[this.start + 1] & 0xFF;
+        }
+
+        /**
+         * Set the number of blocks that are not air. Update this when blocks are replaced with or by air.
+         *
+         * @param count - the number of non-empty blocks.
+         */
+        public void setNonEmptyBlockCount(int count) {
+            Preconditions.checkArgument(count >= 0 && count <= 4096, "count must be between 0 and 4096");
+            this.buffer[this.start] = (byte) (count >> 8);
+            this.buffer[this.start + 1] = (byte) count;
+        }
+
+        /**
+         * Retrieve the block states of this section, as block state ids.
+         *
+         * @return The block states.
+         * @see WrappedBlockData#fromStateId(int)
+         */
+        public PalettedContainer getBlockStates() {
+            return this.blockStates;
+        }
+
+        /**
+         * Retrieve the biomes of this section, in 4x4x4 cells. The biomes cannot be modified.
+         *
+         * @return The biomes.
+         */
+        public PalettedContainer getBiomes() {
+            return this.biomes;
+        }
+
+        private void encode(Writer writer) {
+            writer.write(this.buffer, this.start, Short.BYTES);
+            this.blockStates.encode(writer);
+            writer.write(this.buffer, this.biomes.start, this.end - this.biomes.start);
+        }
+    }
+
+    private enum ContainerType {
+        BLOCK_STATES(16, 4, 8, true),
+        BIOMES(4, 1, 3, false);
+
+        private final int sideLength;
+        private final int minimumIndirectBits;
+        private final int maximumIndirectBits;
+        private final boolean modifiable;
+
+        ContainerType(int sideLength, int minimumIndirectBits, int maximumIndirectBits, boolean modifiable) {
+            this.sideLength = sideLength;
+            this.minimumIndirectBits = minimumIndirectBits;
+            this.maximumIndirectBits = maximumIndirectBits;
+            this.modifiable = modifiable;
+        }
+
+        int getSize() {
+            return this.sideLength * this.sideLength * this.sideLength;
+        }
+    }
+
+    /**
+     * The values of a section, stored either as a single value, as indexes into a palette, or directly as ids.
+     */
+    public static final class PalettedContainer {
+
+        private final byte[] buffer;
+        private final ContainerType type;
+        private final int start;
+        private final int bits;
+        private final int[] palette;
+        private final int[] paletteOffsets;
+        private final int dataOffset;
+        private final int valuesPerLong;
+
+        // the values of the container, once it no longer fits into the buffer
+        private int[] decoded;
+
+        private PalettedContainer(Reader reader, ContainerType type) {
+            this.buffer = reader.buffer;
+            this.type = type;
+            this.start = reader.position;
+            this.bits = reader.readUnsignedByte();
+
+            if (this.bits == 0) {
+                this.paletteOffsets = new int[]{reader.position};
+                this.palette = new int[]{reader.readVarInt()};
+            } else if (this.bits <= type.maximumIndirectBits) {
+                int length = reader.readVarInt();
+                Preconditions.checkArgument(length > 0 && length <= 1 << this.bits, "Invalid palette length %s", length);
+                this.palette = new int[length];
+                this.paletteOffsets = new int[length];
+                for (int i = 0; i < length; i++) {
+                    this.paletteOffsets[i] = reader.position;
+                    this.palette[i] = reader.readVarInt();
+                }
+            } else {
+                this.palette = null;
+                this.paletteOffsets = null;
+            }
+
+            this.valuesPerLong = this.bits > 0 ? Long.SIZE / this.bits : 0;
+            int longs = this.bits > 0 ? (type.getSize() + this.valuesPerLong - 1) / this.valuesPerLong : 0;
+            if (PREFIXED_DATA) {
+                int length = reader.readVarInt();
+                Preconditions.checkArgument(length == longs, "Expected %s longs of data, but got %s", longs, length);
+            }
+
+            this.dataOffset = reader.position;
+            reader.position += longs * Long.BYTES;
+            if (reader.position > reader.buffer.length) {
+                throw new IndexOutOfBoundsException("Data ends after the buffer");
+            }
+        }
+
+        /**
+         * Retrieve the number of values in this container.
+         *
+         * @return The number of values.
+         */
+        public int size() {
+            return this.type.getSize();
+        }
+
+        /**
+         * Retrieve the number of bits per value in the buffer, which is zero if the container holds a single value.
+         *
+         * @return The number of bits per value.
+         */
+        public int getBitsPerEntry() {
+            return this.bits;
+        }
+
+        /**
+         * Determine if the values are stored as ids rather than as indexes into a palette.
+         *
+         * @return TRUE if there is no palette, FALSE otherwise.
+         */
+        public boolean isDirect() {
+            return this.palette == null;
+        }
+
+        /**
+         * Retrieve the number of entries in the palette.
+         *
+         * @return The palette size, or zero if there is no palette.
+         */
+        public int getPaletteSize() {
+            return this.palette != null ? this.palette.length : 0;
+        }
+
+        /**
+         * Retrieve an entry of the palette.
+         *
+         * @param index - the index of the entry.
+         * @return The id in the palette.
+         */
+        public int getPaletteEntry(int index) {
+            Preconditions.checkState(this.palette != null, "container has no palette");
+            return this.palette[index];
+        }
+
+        /**
+         * Determine if the values were decoded, because a change did not fit into the buffer.
+         *
+         * @return TRUE if the container has to be packed again, FALSE otherwise.
+         */
+        public boolean isDecoded() {
+            return this.decoded != null;
+        }
+
+        /**
+         * Retrieve the value at the given index.
+         *
+         * @param index - the index, which is {@code (y * side + z) * side + x}.
+         * @return The id at the index.
+         */
+        public int get(int index) {
+            Preconditions.checkElementIndex(index, this.size());
+            if (this.decoded != null) {
+                return this.decoded[index];
+            }
+            if (this.bits == 0) {
+                return this.palette[0];
+            }
+
+            int raw = this.readRaw(index);
+            return this.palette != null ? this.palette[raw] : raw;
+        }
+
+        /**
+         * Retrieve the value at the given position within the section.
+         *
+         * @param x - the x position, relative to the section.
+         * @param y - the y position, relative to the section.
+         * @param z - the z position, relative to the section.
+         * @return The id at the position.
+         */
+        public int get(int x, int y, int z) {
+            return this.get(this.index(x, y, z));
+        }
+
+        /**
+         * Set the value at the given index. This is written into the buffer if the id is in the palette, or fits
+         * into the bits of a container without one.
+         *
+         * @param index - the index, which is {@code (y * side + z) * side + x}.
+         * @param id    - the new id.
+         */
+        public void set(int index, int id) {
+            this.checkModifiable();
+            Preconditions.checkElementIndex(index, this.size());
+            Preconditions.checkArgument(id >= 0, "id cannot be negative");
+
+            if (this.decoded == null) {
+                if (this.palette == null) {
+                    if (id < 1 << this.bits) {
+                        this.writeRaw(index, id);
+                        return;
+                    }
+                } else if (this.bits == 0) {
+                    if (this.palette[0] == id) {
+                        return;
+                    }
+                } else {
+                    int paletteIndex = indexOf(this.palette, id);
+                    if (paletteIndex >= 0) {
+                        this.writeRaw(index, paletteIndex);
+                        return;
+                    }
+                }
+                this.decode();
+            }
+            this.decoded[index] = id;
+        }
+
+        /**
+         * Set the value at the given position within the section.
+         *
+         * @param x  - the x position, relative to the section.
+         * @param y  - the y position, relative to the section.
+         * @param z  - the z position, relative to the section.
+         * @param id - the new id.
+         * @see #set(int, int)
+         */
+        public void set(int x, int y, int z, int id) {
+            this.set(this.index(x, y, z), id);
+        }
+
+        /**
+         * Replace every value of this container with the result of the given mapping.
+         * <p>
+         * Containers with a palette only map their palette entries, which are written into the buffer as long as
+         * their encoded sizes do not change. Several entries may map to the same id.
+         *
+         * @param mapping - maps an id to its replacement.
+         */
+        public void replaceAll(IntUnaryOperator mapping) {
+            this.checkModifiable();
+
+            if (this.decoded == null && this.palette != null) {
+                int[] replaced = new int[this.palette.length];
+                boolean inPlace = true;
+                for (int i = 0; i < this.palette.length; i++) {
+                    replaced[i] = mapping.applyAsInt(this.palette[i]);
+                    inPlace &= varIntSize(replaced[i]) == varIntSize(this.palette[i]);
+                }
+
+                if (inPlace) {
+                    for (int i = 0; i < this.palette.length; i++) {
+                        if (replaced[i] != this.palette[i]) {
+                            writeVarInt(this.buffer, this.paletteOffsets[i], replaced[i]);
+                            this.palette[i] = replaced[i];
+                        }
+                    }
+                    return;
+                }
+                this.decode();
+            }
+
+            if (this.decoded == null) {
+                for (int i = 0; i < this.size(); i++) {
+                    int id = this.readRaw(i);
+                    int replaced = mapping.applyAsInt(id);
+                    if (replaced != id) {
+                        this.set(i, replaced);
+                    }
+                }
+            } else {
+                for (int i = 0; i < this.decoded.length; i++) {
+                    this.decoded[i] = mapping.applyAsInt(this.decoded[i]);
+                }
+            }
+        }
+
+        private int index(int x, int y, int z) {
+            int side = this.type.sideLength;
+            Preconditions.checkElementIndex(x, side, "x");
+            Preconditions.checkElementIndex(y, side, "y");
+            Preconditions.checkElementIndex(z, side, "z");
+            return (y * side + z) * side + x;
+        }
+
+        private void checkModifiable() {
+            if (!this.type.modifiable) {
+                throw new UnsupportedOperationException("Biomes cannot be modified");
+            }
+        }
+
+        private int readRaw(int index) {
+            int offset = this.dataOffset + index / this.valuesPerLong * Long.BYTES;
+            int shift = index % this.valuesPerLong * this.bits;
+            long word = (long) LONGS.get(this.buffer, offset);
+            return (int) (word >>> shift & (1L << this.bits) - 1);
+        }
+
+        private void writeRaw(int index, int value) {
+            int offset = this.dataOffset + index / this.valuesPerLong * Long.BYTES;
+            int shift = index % this.valuesPerLong * this.bits;
+            long mask = (1L << this.bits) - 1 << shift;
+            long word = (long) LONGS.get(this.buffer, offset);
+            LONGS.set(this.buffer, offset, word & ~mask | (long) value << shift & mask);
+        }
+
+        private void decode() {
+            int[] values = new int[this.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = this.get(i);
+            }
+            this.decoded = values;
+        }
+
+        private void encode(Writer writer) {
+            // the distinct values, in the order they first appear
+            int[] palette = new int[16];
+            int paletteSize = 0;
+            int[] indexes = new int[this.decoded.length];
+            for (int i = 0; i < this.decoded.length; i++) {
+                int index = indexOf(palette, paletteSize, this.decoded[i]);
+                if (index < 0) {
+                    if (paletteSize == palette.length) {
+                        palette = Arrays.copyOf(palette, paletteSize * 2);
+                    }
+                    index = paletteSize;
+                    palette[paletteSize++] = this.decoded[i];
+                }
+                indexes[i] = index;
+            }
+
+            if (paletteSize == 1) {
+                writer.write(0);
+                writer.writeVarInt(palette[0]);
+                if (PREFIXED_DATA) {
+                    writer.writeVarInt(0);
+                }
+                return;
+            }
+
+            int bits = Math.max(this.type.minimumIndirectBits, Integer.SIZE - Integer.numberOfLeadingZeros(paletteSize - 1));
+            int[] values = indexes;
+            if (bits <= this.type.maximumIndirectBits) {
+                writer.write(bits);
+                writer.writeVarInt(paletteSize);
+                for (int i = 0; i < paletteSize; i++) {
+                    writer.writeVarInt(palette[i]);
+                }
+            } else {
+                bits = Integer.SIZE - Integer.numberOfLeadingZeros(WrappedBlockData.getStateCount() - 1);
+                values = this.decoded;
+                writer.write(bits);
+            }
+
+            int valuesPerLong = Long.SIZE / bits;
+            int longs = (values.length + valuesPerLong - 1) / valuesPerLong;
+            if (PREFIXED_DATA) {
+                writer.writeVarInt(longs);
+            }
+
+            for (int i = 0; i < longs; i++) {
+                long word = 0;
+                for (int j = 0; j < valuesPerLong; j++) {
+                    int index = i * valuesPerLong + j;
+                    if (index < values.length) {
+                        word |= (long) values[index] << j * bits;
+                    }
+                }
+                writer.writeLong(word);
+            }
+        }
+    }
+
+    private static int indexOf(int[] values, int value) {
+        return indexOf(values, values.length, value);
+    }
+
+    private static int indexOf(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void writeVarInt(byte[] buffer, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[offset++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset] = (byte) value;
+    }
+
+    private static final class Reader {
+
+        private final byte[] buffer;
+        private int position;
+
+        Reader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int readUnsignedByte() {
+            return this.buffer[this.position++] & 0xFF;
+        }
+
+        int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte current = this.buffer[this.position++];
+                value |= (current & 0x7F) << shift;
+                if ((current & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("VarInt is too big");
+        }
+    }
+
+    private static final class Writer extends ByteArrayOutputStream {
+
+        Writer(int size) {
+            super(size);
+        }
+
+        void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                this.write(value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            this.write(value);
+        }
+
+        void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                this.write((int) (value >>> shift));
+            }
+        }
+    }
+}
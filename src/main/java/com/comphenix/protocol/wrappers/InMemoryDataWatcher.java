@@ -1,10 +1,14 @@
 package com.comphenix.protocol.wrappers;
 
 import java.lang.reflect.Modifier;
-import java.util.HashMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import com.comphenix.protocol.injector.BukkitUnwrapper;
@@ -19,14 +23,22 @@ import com.comphenix.protocol.utility.MinecraftVersion;
 import com.comphenix.protocol.wrappers.WrappedDataWatcher.WrappedDataWatcherObject;
 
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Lists;
 import org.bukkit.entity.Entity;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public final class InMemoryDataWatcher implements IDataWatcher {
+    private static final int INITIAL_CAPACITY = 32;
+
     private Object entityHandle;
-    private Map<Integer, WrappedWatchableObject> entries = new HashMap<>();
+
+    // entries indexed by watcher id, and the ids that have an entry
+    private WrappedWatchableObject[] entries = new WrappedWatchableObject[INITIAL_CAPACITY];
+    private final BitSet present = new BitSet(INITIAL_CAPACITY);
+
+    // the watcher object and raw value of entries copied by deepClone, until the entry itself is requested
+    private Object[] pendingObjects;
+    private Object[] pendingValues;
 
     public InMemoryDataWatcher() {
 
@@ -44,7 +56,7 @@ public final class InMemoryDataWatcher implements IDataWatcher {
 
     public InMemoryDataWatcher(List<WrappedWatchableObject> objects) {
         for (WrappedWatchableObject obj : objects) {
-            entries.put(obj.getIndex(), obj);
+            put(obj.getIndex(), obj);
         }
     }
 
@@ -109,7 +121,7 @@ public final class InMemoryDataWatcher implements IDataWatcher {
             }
 
             WrappedWatchableObject object = new WrappedWatchableObject(itemHandle);
-            entries.put(object.getIndex(), object);
+            put(object.getIndex(), object);
         }
     }
 
@@ -136,25 +148,94 @@ public final class InMemoryDataWatcher implements IDataWatcher {
             throw new IllegalStateException("Cannot find constructor for DataWatcher.");
         }
 
-        Object[] items = new Object[entries.size()];
-        for (int i = 0; i < items.length; i++) {
-            items[i] = entries.get(i).getHandle();
+        // the watcher does not accept missing items, so indexes without an item are left out
+        Object[] items = new Object[present.cardinality()];
+        int count = 0;
+        for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+            WrappedWatchableObject entry = getEntry(i);
+            if (entry != null) {
+                items[count++] = entry.getHandle();
+            }
+        }
+
+        return CONSTRUCTOR.invoke(null, entityHandle, count < items.length ? Arrays.copyOf(items, count) : items);
+    }
+
+    private void put(int index, WrappedWatchableObject object) {
+        if (index >= entries.length) {
+            int capacity = Math.max(index + 1, entries.length * 2);
+            entries = Arrays.copyOf(entries, capacity);
+            if (pendingObjects != null) {
+                pendingObjects = Arrays.copyOf(pendingObjects, capacity);
+                pendingValues = Arrays.copyOf(pendingValues, capacity);
+            }
+        }
+
+        entries[index] = object;
+        present.set(index);
+        clearPending(index);
+    }
+
+    private void clearPending(int index) {
+        if (pendingObjects != null && index < pendingObjects.length) {
+            pendingObjects[index] = null;
+            pendingValues[index] = null;
+        }
+    }
+
+    private boolean isPresent(int index) {
+        return index >= 0 && present.get(index);
+    }
+
+    // retrieves an entry, creating it first if it was copied by deepClone
+    private WrappedWatchableObject getEntry(int index) {
+        WrappedWatchableObject entry = entries[index];
+        if (entry == null && pendingObjects != null && pendingObjects[index] != null) {
+            entry = new WrappedWatchableObject(new WrappedDataWatcherObject(pendingObjects[index]), pendingValues[index]);
+            entries[index] = entry;
+            clearPending(index);
+        }
+        return entry;
+    }
+
+    private Object getRawValue(int index) {
+        if (!isPresent(index)) {
+            return null;
+        }
+
+        WrappedWatchableObject entry = entries[index];
+        if (entry != null) {
+            return entry.getRawValue();
         }
 
-        return CONSTRUCTOR.invoke(null, entityHandle, items);
+        // an index can be set to no item at all
+        return pendingValues != null ? pendingValues[index] : null;
     }
 
     /**
-     * @return
+     * Copies this watcher without creating new items. The items of the copy are created from the values at the time
+     * of the copy when they are first requested, and their values can be read without creating them.
+     *
+     * @return The copy
      */
     @Override
     public IDataWatcher deepClone() {
         InMemoryDataWatcher clone = new InMemoryDataWatcher();
-        clone.entries = new HashMap<>(this.entries.size());
         clone.entityHandle = this.entityHandle;
-
-        for (WrappedWatchableObject object : this) {
-            clone.setObject(object.getWatcherObject(), object.getValue(), false);
+        clone.entries = new WrappedWatchableObject[this.entries.length];
+        clone.present.or(this.present);
+        clone.pendingObjects = new Object[this.entries.length];
+        clone.pendingValues = new Object[this.entries.length];
+
+        for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+            WrappedWatchableObject entry = entries[i];
+            if (entry != null) {
+                clone.pendingObjects[i] = entry.getWatcherObjectHandle();
+                clone.pendingValues[i] = entry.getRawValue();
+            } else {
+                clone.pendingObjects[i] = pendingObjects[i];
+                clone.pendingValues[i] = pendingValues[i];
+            }
         }
 
         return clone;
@@ -184,7 +265,11 @@ public final class InMemoryDataWatcher implements IDataWatcher {
      */
     @Override
     public Map<Integer, WrappedWatchableObject> asMap() {
-        return ImmutableMap.copyOf(entries);
+        ImmutableMap.Builder<Integer, WrappedWatchableObject> builder = ImmutableMap.builderWithExpectedSize(size());
+        for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+            builder.put(i, getEntry(i));
+        }
+        return builder.build();
     }
 
     /**
@@ -192,7 +277,32 @@ public final class InMemoryDataWatcher implements IDataWatcher {
      */
     @Override
     public Set<Integer> getIndexes() {
-        return entries.keySet();
+        return new AbstractSet<Integer>() {
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Integer && hasIndex((Integer) o);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                return o instanceof Integer && InMemoryDataWatcher.this.remove((Integer) o) != null;
+            }
+
+            @Override
+            public int size() {
+                return present.cardinality();
+            }
+
+            @Override
+            public Iterator<Integer> iterator() {
+                return new IndexIterator<Integer>() {
+                    @Override
+                    protected Integer get(int index) {
+                        return index;
+                    }
+                };
+            }
+        };
     }
 
     /**
@@ -200,7 +310,11 @@ public final class InMemoryDataWatcher implements IDataWatcher {
      */
     @Override
     public List<WrappedWatchableObject> getWatchableObjects() {
-        return Lists.newArrayList(entries.values());
+        List<WrappedWatchableObject> objects = new ArrayList<>(size());
+        for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i + 1)) {
+            objects.add(getEntry(i));
+        }
+        return objects;
     }
 
     /**
@@ -208,7 +322,7 @@ public final class InMemoryDataWatcher implements IDataWatcher {
      */
     @Override
     public int size() {
-        return entries.size();
+        return present.cardinality();
     }
 
     /**
@@ -217,7 +331,7 @@ public final class InMemoryDataWatcher implements IDataWatcher {
      */
     @Override
     public WrappedWatchableObject getWatchableObject(int index) {
-        return entries.get(index);
+        return isPresent(index) ? getEntry(index) : null;
     }
 
     /**
@@ -226,7 +340,14 @@ public final class InMemoryDataWatcher implements IDataWatcher {
      */
     @Override
     public WrappedWatchableObject remove(int index) {
-        return entries.remove(index);
+        if (!isPresent(index)) {
+            return null;
+        }
+
+        WrappedWatchableObject previous = getEntry(index);
+        entries[index] = null;
+        present.clear(index);
+        return previous;
     }
 
     /**
@@ -235,7 +356,7 @@ public final class InMemoryDataWatcher implements IDataWatcher {
      */
     @Override
     public boolean hasIndex(int index) {
-        return entries.containsKey(index);
+        return isPresent(index);
     }
 
     /**
@@ -243,13 +364,60 @@ public final class InMemoryDataWatcher implements IDataWatcher {
      */
     @Override
     public void clear() {
-        entries.clear();
+        Arrays.fill(entries, null);
+        present.clear();
+        pendingObjects = null;
+        pendingValues = null;
     }
 
     @Override
     public Object getObject(int index) {
-        WrappedWatchableObject obj = getWatchableObject(index);
-        return obj != null ? obj.getValue() : null;
+        return WrappedWatchableObject.getWrapped(getRawValue(index));
+    }
+
+    /**
+     * Gets the int value at the given index, without creating its item.
+     *
+     * @param index Index of the value
+     * @return The value
+     * @throws IllegalArgumentException If there is no int value at the index
+     */
+    public int getInt(int index) {
+        return getValue(index, Integer.class);
+    }
+
+    /**
+     * Gets the byte value at the given index, without creating its item.
+     *
+     * @param index Index of the value
+     * @return The value
+     * @throws IllegalArgumentException If there is no byte value at the index
+     */
+    public byte getByte(int index) {
+        return getValue(index, Byte.class);
+    }
+
+    /**
+     * Gets the float value at the given index, without creating its item.
+     *
+     * @param index Index of the value
+     * @return The value
+     * @throws IllegalArgumentException If there is no float value at the index
+     */
+    public float getFloat(int index) {
+        return getValue(index, Float.class);
+    }
+
+    private <T> T getValue(int index, Class<T> type) {
+        Object value = getRawValue(index);
+        if (value == null) {
+            throw new IllegalArgumentException("No value at index " + index);
+        }
+        if (!type.isInstance(value)) {
+            throw new IllegalArgumentException("Value at index " + index + " is a " + value.getClass().getSimpleName()
+                    + ", not a " + type.getSimpleName());
+        }
+        return type.cast(value);
     }
 
     /**
@@ -268,7 +436,7 @@ public final class InMemoryDataWatcher implements IDataWatcher {
      */
     @Override
     public void setObject(WrappedDataWatcherObject object, WrappedWatchableObject value, boolean update) {
-        entries.put(object.getIndex(), value);
+        put(object.getIndex(), value);
 
         if (update) {
             value.setDirtyState(true);
@@ -291,6 +459,44 @@ public final class InMemoryDataWatcher implements IDataWatcher {
     @NotNull
     @Override
     public Iterator<WrappedWatchableObject> iterator() {
-        return entries.values().iterator();
+        return new IndexIterator<WrappedWatchableObject>() {
+            @Override
+            protected WrappedWatchableObject get(int index) {
+                return getEntry(index);
+            }
+        };
+    }
+
+    private abstract class IndexIterator<T> implements Iterator<T> {
+        private int next = present.nextSetBit(0);
+        private int last = -1;
+
+        protected abstract T get(int index);
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public T next() {
+            if (next < 0) {
+                throw new NoSuchElementException();
+            }
+
+            last = next;
+            next = present.nextSetBit(next + 1);
+            return get(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException("next() has not been called");
+            }
+
+            InMemoryDataWatcher.this.remove(last);
+            last = -1;
+        }
     }
 }
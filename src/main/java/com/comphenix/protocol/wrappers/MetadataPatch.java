@@ -0,0 +1,333 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.wrappers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.reflect.StructureModifier;
+import com.comphenix.protocol.wrappers.WrappedDataWatcher.Serializer;
+import com.google.common.base.Preconditions;
+
+/**
+ * Represents a set of changes to the metadata values of an entity metadata packet, keyed by metadata index.
+ * <p>
+ * The serializer and value of every patched index are resolved when the patch is built. Applying a patch copies the
+ * value list of the packet once and replaces, adds or removes the patched indexes, without wrapping the values that are
+ * not patched. Each packet receives its own data values, constructed from the serializer and value of the patch, so a
+ * listener that changes them does not change the patch. Patches are immutable, so they can be shared between threads
+ * and applied to any number of packets.
+ * <p>
+ * This requires the data values of Minecraft 1.19.3 and later.
+ */
+public final class MetadataPatch {
+
+    private static final MetadataPatch EMPTY = new MetadataPatch(new int[0], new PatchedValue[0]);
+
+    // sorted indexes, and the value of each index or NULL to remove it
+    private final int[] indexes;
+    private final PatchedValue[] values;
+
+    private MetadataPatch(int[] indexes, PatchedValue[] values) {
+        this.indexes = indexes;
+        this.values = values;
+    }
+
+    /**
+     * Retrieve a patch without any changes.
+     *
+     * @return The empty patch.
+     */
+    public static MetadataPatch empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Construct a new patch builder.
+     *
+     * @return The builder.
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Compute the patch that turns a list of metadata values into another.
+     * <p>
+     * Values of the target list that are missing from the source list or that differ from it are set, and indexes
+     * that are only in the source list are removed.
+     *
+     * @param source - the source values.
+     * @param target - the target values.
+     * @return The patch.
+     */
+    public static MetadataPatch diff(List<WrappedDataValue> source, List<WrappedDataValue> target) {
+        Preconditions.checkNotNull(source, "source cannot be NULL");
+        Preconditions.checkNotNull(target, "target cannot be NULL");
+
+        Map<Integer, Object> sourceValues = new HashMap<>();
+        for (WrappedDataValue value : source) {
+            sourceValues.put(value.getIndex(), value.getHandle());
+        }
+
+        Builder builder = newBuilder();
+        for (WrappedDataValue value : target) {
+            Object previous = sourceValues.remove(value.getIndex());
+            if (previous == null || !Objects.equals(WrappedDataValue.getRawValue(previous), value.getRawValue())) {
+                builder.set(value);
+            }
+        }
+        for (Integer index : sourceValues.keySet()) {
+            builder.remove(index);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Determine if this patch has no changes.
+     *
+     * @return TRUE if it is empty, FALSE otherwise.
+     */
+    public boolean isEmpty() {
+        return this.indexes.length == 0;
+    }
+
+    /**
+     * Retrieve the number of patched indexes.
+     *
+     * @return The number of patched indexes.
+     */
+    public int size() {
+        return this.indexes.length;
+    }
+
+    /**
+     * Determine if this patch changes the given index.
+     *
+     * @param index - the metadata index.
+     * @return TRUE if the index is set or removed, FALSE otherwise.
+     */
+    public boolean isPatched(int index) {
+        return Arrays.binarySearch(this.indexes, index) >= 0;
+    }
+
+    /**
+     * Retrieve the value this patch sets at the given index.
+     *
+     * @param index - the metadata index.
+     * @return A copy of the value, or NULL if the index is removed or not patched.
+     */
+    public WrappedDataValue getValue(int index) {
+        int position = Arrays.binarySearch(this.indexes, index);
+        return position >= 0 && this.values[position] != null
+                ? new WrappedDataValue(this.values[position].newHandle(index))
+                : null;
+    }
+
+    /**
+     * Combine this patch with another patch, whose changes take precedence.
+     *
+     * @param other - the other patch.
+     * @return The combined patch.
+     */
+    public MetadataPatch merge(MetadataPatch other) {
+        Preconditions.checkNotNull(other, "other cannot be NULL");
+        if (other.isEmpty()) {
+            return this;
+        } else if (this.isEmpty()) {
+            return other;
+        }
+
+        Builder builder = newBuilder();
+        builder.putAll(this);
+        builder.putAll(other);
+        return builder.build();
+    }
+
+    /**
+     * Apply this patch to an entity metadata packet.
+     * <p>
+     * The packet receives a new value list, so the previous list is not modified. Use a
+     * {@link PacketContainer#shallowClone() shallow clone} if the packet is sent to other players as well.
+     *
+     * @param packet - the entity metadata packet.
+     */
+    public void apply(PacketContainer packet) {
+        Preconditions.checkNotNull(packet, "packet cannot be NULL");
+        Preconditions.checkArgument(packet.getType() == PacketType.Play.Server.ENTITY_METADATA,
+                "%s is not an entity metadata packet", packet.getType());
+        if (this.isEmpty()) {
+            return;
+        }
+
+        StructureModifier<Collection<?>> modifier = packet.getModifier().withType(Collection.class);
+        Collection<?> values = modifier.read(0);
+        modifier.write(0, this.apply(values != null ? values : List.of()));
+    }
+
+    /**
+     * Apply this patch to a list of NMS data values.
+     *
+     * @param values - the NMS data values, which are not modified.
+     * @return A new list with copies of the patched values.
+     */
+    public List<Object> apply(Collection<?> values) {
+        Preconditions.checkNotNull(values, "values cannot be NULL");
+
+        List<Object> result = new ArrayList<>(values.size() + this.indexes.length);
+        boolean[] applied = new boolean[this.indexes.length];
+
+        for (Object value : values) {
+            int position = Arrays.binarySearch(this.indexes, WrappedDataValue.getIndex(value));
+            if (position < 0) {
+                result.add(value);
+            } else if (!applied[position]) {
+                applied[position] = true;
+                if (this.values[position] != null) {
+                    result.add(this.values[position].newHandle(this.indexes[position]));
+                }
+            }
+        }
+
+        // indexes that were not in the packet
+        for (int position = 0; position < this.indexes.length; position++) {
+            if (!applied[position] && this.values[position] != null) {
+                result.add(this.values[position].newHandle(this.indexes[position]));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("MetadataPatch[");
+        for (int position = 0; position < this.indexes.length; position++) {
+            if (position > 0) {
+                builder.append(", ");
+            }
+            builder.append(this.indexes[position]).append('=');
+            builder.append(this.values[position] != null ? this.values[position].value : "<removed>");
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * Builds a metadata patch.
+     */
+    public static final class Builder {
+
+        private final TreeMap<Integer, PatchedValue> values = new TreeMap<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Set the value at an index, replacing the value in the packet if it has one.
+         *
+         * @param index      - the metadata index.
+         * @param serializer - the serializer of the value.
+         * @param value      - the value, which may be a ProtocolLib wrapper.
+         * @return This builder, for chaining.
+         */
+        public Builder set(int index, Serializer serializer, Object value) {
+            Preconditions.checkNotNull(serializer, "serializer cannot be NULL");
+            Object unwrapped = value != null ? WrappedWatchableObject.getUnwrapped(value) : null;
+            this.values.put(index, new PatchedValue(serializer.getHandle(), unwrapped));
+            return this;
+        }
+
+        /**
+         * Set a value at its index, replacing the value in the packet if it has one.
+         * <p>
+         * The serializer and value are read once, so later changes to the data value do not change the patch.
+         *
+         * @param value - the value.
+         * @return This builder, for chaining.
+         */
+        public Builder set(WrappedDataValue value) {
+            Preconditions.checkNotNull(value, "value cannot be NULL");
+            Object handle = value.getHandle();
+            this.values.put(value.getIndex(), new PatchedValue(WrappedDataValue.getSerializer(handle),
+                    WrappedDataValue.getRawValue(handle)));
+            return this;
+        }
+
+        /**
+         * Remove the value at an index from the packet.
+         *
+         * @param index - the metadata index.
+         * @return This builder, for chaining.
+         */
+        public Builder remove(int index) {
+            this.values.put(index, null);
+            return this;
+        }
+
+        private void putAll(MetadataPatch patch) {
+            for (int position = 0; position < patch.indexes.length; position++) {
+                this.values.put(patch.indexes[position], patch.values[position]);
+            }
+        }
+
+        /**
+         * Create the patch.
+         *
+         * @return The patch.
+         */
+        public MetadataPatch build() {
+            if (this.values.isEmpty()) {
+                return EMPTY;
+            }
+
+            int[] indexes = new int[this.values.size()];
+            PatchedValue[] values = new PatchedValue[this.values.size()];
+            int position = 0;
+            for (Map.Entry<Integer, PatchedValue> entry : this.values.entrySet()) {
+                indexes[position] = entry.getKey();
+                values[position++] = entry.getValue();
+            }
+            return new MetadataPatch(indexes, values);
+        }
+    }
+
+    /**
+     * The serializer and raw value that a patch sets at an index.
+     */
+    private static final class PatchedValue {
+
+        private final Object serializer;
+        private final Object value;
+
+        private PatchedValue(Object serializer, Object value) {
+            this.serializer = serializer;
+            this.value = value;
+        }
+
+        Object newHandle(int index) {
+            return WrappedDataValue.newHandle(index, this.serializer, this.value);
+        }
+    }
+}
@@ -26,6 +26,8 @@ import javax.annotation.Nullable;
 import com.comphenix.protocol.PacketType;
 import com.comphenix.protocol.reflect.EquivalentConverter;
 import com.comphenix.protocol.reflect.StructureModifier;
+import com.comphenix.protocol.reflect.accessors.Accessors;
+import com.comphenix.protocol.reflect.accessors.ConstructorAccessor;
 import com.comphenix.protocol.utility.MinecraftReflection;
 import com.comphenix.protocol.utility.MinecraftVersion;
 import com.comphenix.protocol.wrappers.EnumWrappers.NativeGameMode;
@@ -36,7 +38,8 @@ import com.comphenix.protocol.wrappers.WrappedProfilePublicKey.WrappedProfileKey
  * @author dmulloy2
  */
 public class PlayerInfoData {
-    private static Constructor<?> constructor;
+    private static final Class<?>[] EMPTY_CLASS_ARRAY = new Class<?>[0];
+    private static ConstructorAccessor constructorAccessor;
 
     private final UUID profileId;
     private final int latency;
@@ -268,126 +271,157 @@ public class PlayerInfoData {
     }
 
     /**
-     * Used to convert between NMS PlayerInfoData and the wrapper instance.
-     * @return A new converter.
+     * Retrieve the accessor of the NMS PlayerInfoData constructor, which is resolved on first use.
+     * @return The constructor accessor.
      */
-    public static EquivalentConverter<PlayerInfoData> getConverter() {
-        return new EquivalentConverter<>() {
-            private static final Class<?>[] EMPTY_CLASS_ARRAY = new Class<?>[0];
-
-            @Override
-            public Object getGeneric(PlayerInfoData specific) {
-                if (constructor == null) {
-                    try {
-                        List<Class<?>> args = new ArrayList<>();
-                        if (!MinecraftVersion.CAVES_CLIFFS_1.atOrAbove()) {
-                            args.add(PacketType.Play.Server.PLAYER_INFO.getPacketClass());
-                        }
-
-                        if (MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
-                            args.add(UUID.class);
-                        }
-
-                        args.add(MinecraftReflection.getGameProfileClass());
-                        if (MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
-                            args.add(boolean.class);
-                        }
-
-                        args.add(int.class);
-                        args.add(EnumWrappers.getGameModeClass());
-                        args.add(MinecraftReflection.getIChatBaseComponentClass());
-
-                        if (MinecraftVersion.v1_21_4.atOrAbove()) {
-                            args.add(boolean.class);
-                        }
-                        if (MinecraftVersion.v1_21_2.atOrAbove()) {
-                            args.add(int.class);
-                        }
-
-                        if (MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
-                            args.add(MinecraftReflection.getRemoteChatSessionDataClass());
-                        } else if (MinecraftVersion.WILD_UPDATE.atOrAbove()) {
-                            args.add(MinecraftReflection.getProfilePublicKeyDataClass());
-                        }
-
-                        constructor = MinecraftReflection.getPlayerInfoDataClass().getConstructor(args.toArray(EMPTY_CLASS_ARRAY));
-                    } catch (Exception e) {
-                        throw new RuntimeException("Cannot find PlayerInfoData constructor.", e);
-                    }
+    static ConstructorAccessor getConstructorAccessor() {
+        if (constructorAccessor == null) {
+            try {
+                List<Class<?>> args = new ArrayList<>();
+                if (!MinecraftVersion.CAVES_CLIFFS_1.atOrAbove()) {
+                    args.add(PacketType.Play.Server.PLAYER_INFO.getPacketClass());
                 }
 
-                // Attempt to construct the underlying PlayerInfoData
+                if (MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
+                    args.add(UUID.class);
+                }
 
-                try {
-                    Object gameMode = Converters.ignoreNull(EnumWrappers.getGameModeConverter()).getGeneric(specific.gameMode);
-                    Object displayName = specific.displayName != null ? specific.displayName.handle : null;
-                    Object profile = specific.profile != null ? specific.profile.handle : null;
-                    Object remoteChatSessionData = specific.remoteChatSessionData != null ? BukkitConverters.getWrappedRemoteChatSessionDataConverter().getGeneric(specific.remoteChatSessionData) : null;
+                args.add(MinecraftReflection.getGameProfileClass());
+                if (MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
+                    args.add(boolean.class);
+                }
 
-                    Object[] args;
+                args.add(int.class);
+                args.add(EnumWrappers.getGameModeClass());
+                args.add(MinecraftReflection.getIChatBaseComponentClass());
 
-                    if (MinecraftVersion.v1_21_4.atOrAbove()) {
-                        args = new Object[] {
-                            specific.profileId,
-                            profile,
-                            specific.listed,
-                            specific.latency,
-                            gameMode,
-                            displayName,
-                            specific.showHat,
-                            specific.listOrder,
-                            remoteChatSessionData
-                        };
-                    } else if (MinecraftVersion.v1_21_2.atOrAbove()) {
-                        args = new Object[] {
-                            specific.profileId,
-                            profile,
-                            specific.listed,
-                            specific.latency,
-                            gameMode,
-                            displayName,
-                            specific.listOrder,
-                            remoteChatSessionData
-                        };
-                    } else if (MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
-                        args = new Object[] {
-                            specific.profileId,
-                            profile,
-                            specific.listed,
-                            specific.latency,
-                            gameMode,
-                            displayName,
-                            remoteChatSessionData
-                        };
-                    } else if (MinecraftVersion.WILD_UPDATE.atOrAbove()) {
-                        args = new Object[] {
-                            profile,
-                            specific.latency,
-                            gameMode,
-                            displayName,
-                            specific.profileKeyData == null ? null : specific.profileKeyData.handle
-                        };
-                    } else if (MinecraftVersion.CAVES_CLIFFS_1.atOrAbove()) {
-                        args = new Object[] {
-                            profile,
-                            specific.latency,
-                            gameMode,
-                            displayName
-                        };
-                    } else {
-                        args = new Object[] {
-                            null,
-                            profile,
-                            specific.latency,
-                            gameMode,
-                            displayName
-                        };
-                    }
+                if (MinecraftVersion.v1_21_4.atOrAbove()) {
+                    args.add(boolean.class);
+                }
+                if (MinecraftVersion.v1_21_2.atOrAbove()) {
+                    args.add(int.class);
+                }
 
-                    return constructor.newInstance(args);
-                } catch (Exception e) {
-                    throw new RuntimeException("Failed to construct PlayerInfoData.", e);
+                if (MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
+                    args.add(MinecraftReflection.getRemoteChatSessionDataClass());
+                } else if (MinecraftVersion.WILD_UPDATE.atOrAbove()) {
+                    args.add(MinecraftReflection.getProfilePublicKeyDataClass());
                 }
+
+                Constructor<?> constructor = MinecraftReflection.getPlayerInfoDataClass().getConstructor(args.toArray(EMPTY_CLASS_ARRAY));
+                constructorAccessor = Accessors.getConstructorAccessor(constructor);
+            } catch (Exception e) {
+                throw new RuntimeException("Cannot find PlayerInfoData constructor.", e);
+            }
+        }
+
+        return constructorAccessor;
+    }
+
+    /**
+     * Construct a NMS PlayerInfoData from values that have already been converted to NMS.
+     * <p>
+     * Values that do not exist in the current version are ignored.
+     * @param profileId the id of the profile
+     * @param profile the NMS game profile
+     * @param listed whether the player is listed
+     * @param latency the latency in milliseconds
+     * @param gameMode the NMS game mode
+     * @param displayName the NMS display name
+     * @param showHat whether the hat layer is shown
+     * @param listOrder the list order
+     * @param remoteChatSessionData the NMS remote chat session
+     * @param profileKeyData the NMS profile public key, used before 1.19.3
+     * @return The NMS PlayerInfoData.
+     */
+    static Object newHandle(UUID profileId, Object profile, boolean listed, int latency, Object gameMode,
+                            Object displayName, boolean showHat, int listOrder, Object remoteChatSessionData,
+                            Object profileKeyData) {
+        ConstructorAccessor accessor = getConstructorAccessor();
+
+        Object[] args;
+
+        if (MinecraftVersion.v1_21_4.atOrAbove()) {
+            args = new Object[] {
+                profileId,
+                profile,
+                listed,
+                latency,
+                gameMode,
+                displayName,
+                showHat,
+                listOrder,
+                remoteChatSessionData
+            };
+        } else if (MinecraftVersion.v1_21_2.atOrAbove()) {
+            args = new Object[] {
+                profileId,
+                profile,
+                listed,
+                latency,
+                gameMode,
+                displayName,
+                listOrder,
+                remoteChatSessionData
+            };
+        } else if (MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
+            args = new Object[] {
+                profileId,
+                profile,
+                listed,
+                latency,
+                gameMode,
+                displayName,
+                remoteChatSessionData
+            };
+        } else if (MinecraftVersion.WILD_UPDATE.atOrAbove()) {
+            args = new Object[] {
+                profile,
+                latency,
+                gameMode,
+                displayName,
+                profileKeyData
+            };
+        } else if (MinecraftVersion.CAVES_CLIFFS_1.atOrAbove()) {
+            args = new Object[] {
+                profile,
+                latency,
+                gameMode,
+                displayName
+            };
+        } else {
+            args = new Object[] {
+                null,
+                profile,
+                latency,
+                gameMode,
+                displayName
+            };
+        }
+
+        try {
+            return accessor.invoke(args);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to construct PlayerInfoData.", e);
+        }
+    }
+
+    /**
+     * Used to convert between NMS PlayerInfoData and the wrapper instance.
+     * @return A new converter.
+     */
+    public static EquivalentConverter<PlayerInfoData> getConverter() {
+        return new EquivalentConverter<>() {
+            @Override
+            public Object getGeneric(PlayerInfoData specific) {
+                Object gameMode = Converters.ignoreNull(EnumWrappers.getGameModeConverter()).getGeneric(specific.gameMode);
+                Object displayName = specific.displayName != null ? specific.displayName.handle : null;
+                Object profile = specific.profile != null ? specific.profile.handle : null;
+                Object remoteChatSessionData = specific.remoteChatSessionData != null ? BukkitConverters.getWrappedRemoteChatSessionDataConverter().getGeneric(specific.remoteChatSessionData) : null;
+                Object profileKeyData = specific.profileKeyData != null ? specific.profileKeyData.handle : null;
+
+                return newHandle(specific.profileId, profile, specific.listed, specific.latency, gameMode, displayName,
+                        specific.showHat, specific.listOrder, remoteChatSessionData, profileKeyData);
             }
 
             @Override
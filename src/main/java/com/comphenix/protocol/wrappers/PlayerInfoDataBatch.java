@@ -0,0 +1,162 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.wrappers;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.annotation.Nullable;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.wrappers.EnumWrappers.NativeGameMode;
+import com.google.common.base.Preconditions;
+
+/**
+ * Builds the NMS entry list of a player info packet directly, without a {@link PlayerInfoData} per entry.
+ * <p>
+ * Game modes and remote chat sessions are converted once per batch, and sessions shared by several entries are only
+ * converted once. A batch can be written to any number of packets, which then share the same immutable list.
+ * <p>
+ * A batch is not thread safe.
+ */
+public final class PlayerInfoDataBatch {
+
+    private final List<Object> entries;
+    private final Map<NativeGameMode, Object> gameModes = new EnumMap<>(NativeGameMode.class);
+    private final Map<WrappedRemoteChatSessionData, Object> sessions = new IdentityHashMap<>();
+    private final Map<WrappedProfilePublicKey.WrappedProfileKeyData, Object> profileKeys = new IdentityHashMap<>();
+
+    // the list written to packets, until another entry is added
+    private List<Object> written;
+
+    /**
+     * Construct a new empty batch.
+     */
+    public PlayerInfoDataBatch() {
+        this(16);
+    }
+
+    /**
+     * Construct a new empty batch.
+     *
+     * @param expectedSize - the expected number of entries.
+     */
+    public PlayerInfoDataBatch(int expectedSize) {
+        Preconditions.checkArgument(expectedSize >= 0, "expectedSize cannot be negative");
+        this.entries = new ArrayList<>(expectedSize);
+    }
+
+    /**
+     * Add an entry to this batch.
+     *
+     * @param data - the entry.
+     * @return This batch, for chaining.
+     */
+    public PlayerInfoDataBatch add(PlayerInfoData data) {
+        Preconditions.checkNotNull(data, "data cannot be NULL");
+        return this.add(data.getProfileId(), data.getProfile(), data.isListed(), data.getLatency(), data.getGameMode(),
+                data.getDisplayName(), data.isShowHat(), data.getListOrder(), data.getRemoteChatSessionData(),
+                data.getRemoteChatSessionData() == null ? data.getProfileKeyData() : null);
+    }
+
+    /**
+     * Add an entry to this batch. Values that do not exist in the current version are ignored.
+     *
+     * @param profileId         - the id of the profile.
+     * @param profile           - the game profile, or NULL.
+     * @param listed            - whether the player is listed.
+     * @param latency           - the latency in milliseconds.
+     * @param gameMode          - the game mode, or NULL.
+     * @param displayName       - the display name, or NULL.
+     * @param showHat           - whether the hat layer is shown.
+     * @param listOrder         - the list order.
+     * @param remoteChatSession - the remote chat session, or NULL.
+     * @return This batch, for chaining.
+     */
+    public PlayerInfoDataBatch add(UUID profileId, @Nullable WrappedGameProfile profile, boolean listed, int latency,
+                                   @Nullable NativeGameMode gameMode, @Nullable WrappedChatComponent displayName,
+                                   boolean showHat, int listOrder, @Nullable WrappedRemoteChatSessionData remoteChatSession) {
+        return this.add(profileId, profile, listed, latency, gameMode, displayName, showHat, listOrder, remoteChatSession, null);
+    }
+
+    private PlayerInfoDataBatch add(UUID profileId, WrappedGameProfile profile, boolean listed, int latency,
+                                    NativeGameMode gameMode, WrappedChatComponent displayName, boolean showHat,
+                                    int listOrder, WrappedRemoteChatSessionData remoteChatSession,
+                                    WrappedProfilePublicKey.WrappedProfileKeyData profileKey) {
+        Object gameModeHandle = gameMode != null
+                ? this.gameModes.computeIfAbsent(gameMode, EnumWrappers.getGameModeConverter()::getGeneric)
+                : null;
+        Object sessionHandle = remoteChatSession != null
+                ? this.sessions.computeIfAbsent(remoteChatSession, BukkitConverters.getWrappedRemoteChatSessionDataConverter()::getGeneric)
+                : null;
+        Object profileKeyHandle = profileKey != null
+                ? this.profileKeys.computeIfAbsent(profileKey, WrappedProfilePublicKey.WrappedProfileKeyData::getHandle)
+                : null;
+
+        this.entries.add(PlayerInfoData.newHandle(profileId,
+                profile != null ? profile.getHandle() : null,
+                listed,
+                latency,
+                gameModeHandle,
+                displayName != null ? displayName.getHandle() : null,
+                showHat,
+                listOrder,
+                sessionHandle,
+                profileKeyHandle));
+        this.written = null;
+        return this;
+    }
+
+    /**
+     * Retrieve the number of entries in this batch.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Retrieve the NMS entries of this batch.
+     *
+     * @return An immutable list of the NMS entries.
+     */
+    public List<Object> getHandles() {
+        if (this.written == null) {
+            this.written = List.copyOf(this.entries);
+        }
+        return this.written;
+    }
+
+    /**
+     * Write the entries of this batch to a player info packet, replacing its entries.
+     *
+     * @param packet - the player info packet.
+     */
+    public void write(PacketContainer packet) {
+        Preconditions.checkNotNull(packet, "packet cannot be NULL");
+        Preconditions.checkArgument(packet.getType() == PacketType.Play.Server.PLAYER_INFO,
+                "%s is not a player info packet", packet.getType());
+
+        packet.getModifier().withType(List.class).write(0, this.getHandles());
+    }
+}
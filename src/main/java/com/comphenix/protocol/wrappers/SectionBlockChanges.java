@@ -0,0 +1,250 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.wrappers;
+
+import java.lang.reflect.Array;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.reflect.StructureModifier;
+import com.comphenix.protocol.utility.MinecraftReflection;
+import com.google.common.base.Preconditions;
+
+/**
+ * Represents the block changes of a multi block change packet as primitive arrays.
+ * <p>
+ * Multi block changes store a position and a block state for every changed block of a chunk section. Unlike
+ * {@link MultiBlockChangeInfo}, this reads and writes every change at once as block state ids, so large edits can be
+ * processed without an object per block. Block data is only created on request, and is then shared and read-only.
+ * <p>
+ * This requires the section based multi block change of Minecraft 1.16.2 and later.
+ */
+public final class SectionBlockChanges {
+
+    private static Class<?> blockStateArrayClass;
+
+    private final BlockPosition section;
+    private final short[] positions;
+    private final int[] stateIds;
+
+    private SectionBlockChanges(BlockPosition section, short[] positions, int[] stateIds) {
+        this.section = section;
+        this.positions = positions;
+        this.stateIds = stateIds;
+    }
+
+    /**
+     * Construct a new set of block changes.
+     *
+     * @param section   - the position of the chunk section, in sections.
+     * @param positions - the position of every changed block, see {@link #pack(int, int, int)}.
+     * @param stateIds  - the block state id of every changed block.
+     * @return The block changes, which use the given arrays.
+     */
+    public static SectionBlockChanges create(BlockPosition section, short[] positions, int[] stateIds) {
+        Preconditions.checkNotNull(section, "section cannot be NULL");
+        Preconditions.checkNotNull(positions, "positions cannot be NULL");
+        Preconditions.checkNotNull(stateIds, "stateIds cannot be NULL");
+        Preconditions.checkArgument(positions.length == stateIds.length,
+                "%s positions, but %s state ids", positions.length, stateIds.length);
+
+        return new SectionBlockChanges(section, positions, stateIds);
+    }
+
+    /**
+     * Read the block changes of a multi block change packet.
+     * <p>
+     * The arrays are copied, so modifying the changes does not modify the packet until they are written back.
+     *
+     * @param packet - the multi block change packet.
+     * @return The block changes.
+     */
+    public static SectionBlockChanges fromPacket(PacketContainer packet) {
+        Preconditions.checkNotNull(packet, "packet cannot be NULL");
+        Preconditions.checkArgument(packet.getType() == PacketType.Play.Server.MULTI_BLOCK_CHANGE,
+                "%s is not a multi block change", packet.getType());
+
+        BlockPosition section = packet.getSectionPositions().read(0);
+        short[] positions = packet.getShortArrays().read(0).clone();
+        Object[] states = (Object[]) getBlockStates(packet).read(0);
+
+        int[] stateIds = new int[states.length];
+        for (int i = 0; i < states.length; i++) {
+            stateIds[i] = WrappedBlockData.getStateId(states[i]);
+        }
+        return new SectionBlockChanges(section, positions, stateIds);
+    }
+
+    private static StructureModifier<Object> getBlockStates(PacketContainer packet) {
+        if (blockStateArrayClass == null) {
+            blockStateArrayClass = MinecraftReflection.getArrayClass(MinecraftReflection.getIBlockDataClass());
+        }
+        return packet.getModifier().withType(blockStateArrayClass);
+    }
+
+    /**
+     * Pack the position of a block in its chunk section.
+     *
+     * @param x - the x coordinate, of which only the lowest four bits are used.
+     * @param y - the y coordinate, of which only the lowest four bits are used.
+     * @param z - the z coordinate, of which only the lowest four bits are used.
+     * @return The packed position.
+     */
+    public static short pack(int x, int y, int z) {
+        return (short) ((x & 15) << 8 | (z & 15) << 4 | y & 15);
+    }
+
+    /**
+     * Write these block changes to a multi block change packet.
+     *
+     * @param packet - the multi block change packet.
+     */
+    public void write(PacketContainer packet) {
+        Preconditions.checkNotNull(packet, "packet cannot be NULL");
+        Preconditions.checkArgument(packet.getType() == PacketType.Play.Server.MULTI_BLOCK_CHANGE,
+                "%s is not a multi block change", packet.getType());
+
+        Object[] states = (Object[]) Array.newInstance(MinecraftReflection.getIBlockDataClass(), this.stateIds.length);
+        for (int i = 0; i < states.length; i++) {
+            states[i] = WrappedBlockData.fromStateId(this.stateIds[i]).getHandle();
+        }
+
+        packet.getSectionPositions().write(0, this.section);
+        packet.getShortArrays().write(0, this.positions.clone());
+        getBlockStates(packet).write(0, states);
+    }
+
+    /**
+     * Create a multi block change packet with these block changes.
+     *
+     * @return The new packet.
+     */
+    public PacketContainer toPacket() {
+        PacketContainer packet = new PacketContainer(PacketType.Play.Server.MULTI_BLOCK_CHANGE);
+        this.write(packet);
+        return packet;
+    }
+
+    /**
+     * Retrieve the position of the chunk section, in sections.
+     *
+     * @return The section position.
+     */
+    public BlockPosition getSection() {
+        return this.section;
+    }
+
+    /**
+     * Retrieve the number of changed blocks.
+     *
+     * @return The number of changes.
+     */
+    public int size() {
+        return this.positions.length;
+    }
+
+    /**
+     * Retrieve the packed position of every changed block. Modifying the array modifies these changes.
+     *
+     * @return The packed positions.
+     * @see #pack(int, int, int)
+     */
+    public short[] getPositions() {
+        return this.positions;
+    }
+
+    /**
+     * Retrieve the block state id of every changed block. Modifying the array modifies these changes.
+     *
+     * @return The block state ids.
+     */
+    public int[] getStateIds() {
+        return this.stateIds;
+    }
+
+    /**
+     * Retrieve the absolute x coordinate of a changed block.
+     *
+     * @param index - the index of the change.
+     * @return The x coordinate.
+     */
+    public int getBlockX(int index) {
+        return this.section.getX() << 4 | this.positions[index] >> 8 & 15;
+    }
+
+    /**
+     * Retrieve the absolute y coordinate of a changed block.
+     *
+     * @param index - the index of the change.
+     * @return The y coordinate.
+     */
+    public int getBlockY(int index) {
+        return this.section.getY() << 4 | this.positions[index] & 15;
+    }
+
+    /**
+     * Retrieve the absolute z coordinate of a changed block.
+     *
+     * @param index - the index of the change.
+     * @return The z coordinate.
+     */
+    public int getBlockZ(int index) {
+        return this.section.getZ() << 4 | this.positions[index] >> 4 & 15;
+    }
+
+    /**
+     * Retrieve the block state id of a changed block.
+     *
+     * @param index - the index of the change.
+     * @return The block state id.
+     */
+    public int getStateId(int index) {
+        return this.stateIds[index];
+    }
+
+    /**
+     * Set the block state id of a changed block.
+     *
+     * @param index   - the index of the change.
+     * @param stateId - the new block state id.
+     */
+    public void setStateId(int index, int stateId) {
+        this.stateIds[index] = stateId;
+    }
+
+    /**
+     * Retrieve the shared, read-only block data of a changed block.
+     *
+     * @param index - the index of the change.
+     * @return The block data.
+     * @see WrappedBlockData#fromStateId(int)
+     */
+    public WrappedBlockData getBlockData(int index) {
+        return WrappedBlockData.fromStateId(this.stateIds[index]);
+    }
+
+    /**
+     * Set the block data of a changed block.
+     *
+     * @param index - the index of the change.
+     * @param data  - the new block data.
+     */
+    public void setBlockData(int index, WrappedBlockData data) {
+        this.stateIds[index] = data.getStateId();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.wrappers;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
+import com.google.common.base.Preconditions;
+import org.bukkit.entity.Player;
+
+/**
+ * Stores the metadata patches of each entity as seen by each player, and applies them to entity metadata packets.
+ * <p>
+ * Patches of the same viewer and entity are merged, so several features can change different indexes. Call
+ * {@link #removeViewer(UUID)} when a player leaves, and {@link #removeEntity(int)} when an entity is removed.
+ */
+public final class ViewerMetadataPatches {
+
+    private final Map<UUID, Map<Integer, MetadataPatch>> patches = new ConcurrentHashMap<>();
+
+    /**
+     * Retrieve the patch of an entity as seen by a player.
+     *
+     * @param viewer   - the unique id of the player.
+     * @param entityId - the entity id.
+     * @return The patch, which is empty if there is none.
+     */
+    public MetadataPatch getPatch(UUID viewer, int entityId) {
+        Map<Integer, MetadataPatch> entities = this.patches.get(viewer);
+        MetadataPatch patch = entities != null ? entities.get(entityId) : null;
+        return patch != null ? patch : MetadataPatch.empty();
+    }
+
+    /**
+     * Set the patch of an entity as seen by a player, replacing the previous patch.
+     *
+     * @param viewer   - the unique id of the player.
+     * @param entityId - the entity id.
+     * @param patch    - the patch, or NULL to remove it.
+     */
+    public void setPatch(UUID viewer, int entityId, MetadataPatch patch) {
+        Preconditions.checkNotNull(viewer, "viewer cannot be NULL");
+
+        if (patch == null || patch.isEmpty()) {
+            this.patches.computeIfPresent(viewer, (key, entities) -> {
+                entities.remove(entityId);
+                return entities.isEmpty() ? null : entities;
+            });
+        } else {
+            this.patches.computeIfAbsent(viewer, key -> new ConcurrentHashMap<>()).put(entityId, patch);
+        }
+    }
+
+    /**
+     * Merge a patch into the patch of an entity as seen by a player. The changes of the given patch take precedence.
+     *
+     * @param viewer   - the unique id of the player.
+     * @param entityId - the entity id.
+     * @param patch    - the patch to merge.
+     */
+    public void mergePatch(UUID viewer, int entityId, MetadataPatch patch) {
+        Preconditions.checkNotNull(viewer, "viewer cannot be NULL");
+        Preconditions.checkNotNull(patch, "patch cannot be NULL");
+
+        if (!patch.isEmpty()) {
+            this.patches.computeIfAbsent(viewer, key -> new ConcurrentHashMap<>())
+                    .merge(entityId, patch, MetadataPatch::merge);
+        }
+    }
+
+    /**
+     * Remove every patch of a player.
+     *
+     * @param viewer - the unique id of the player.
+     */
+    public void removeViewer(UUID viewer) {
+        this.patches.remove(viewer);
+    }
+
+    /**
+     * Remove every patch of an entity.
+     *
+     * @param entityId - the entity id.
+     */
+    public void removeEntity(int entityId) {
+        for (Map<Integer, MetadataPatch> entities : this.patches.values()) {
+            entities.remove(entityId);
+        }
+    }
+
+    /**
+     * Apply the patch of the receiver to an entity metadata packet that is being sent.
+     * <p>
+     * The packet is shallow cloned before it is patched, as it may be sent to other players.
+     *
+     * @param event - the packet event.
+     * @return TRUE if a patch was applied, FALSE otherwise.
+     */
+    public boolean apply(PacketEvent event) {
+        PacketContainer packet = event.getPacket();
+        Player player = event.getPlayer();
+        if (player == null || packet.getType() != PacketType.Play.Server.ENTITY_METADATA || this.patches.isEmpty()) {
+            return false;
+        }
+
+        MetadataPatch patch = this.getPatch(player.getUniqueId(), packet.getIntegers().read(0));
+        if (patch.isEmpty()) {
+            return false;
+        }
+
+        PacketContainer copy = packet.shallowClone();
+        patch.apply(copy);
+        event.setPacket(copy);
+        return true;
+    }
+}
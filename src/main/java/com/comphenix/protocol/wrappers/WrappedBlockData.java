@@ -16,11 +16,18 @@
  */
 package com.comphenix.protocol.wrappers;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.comphenix.protocol.reflect.FuzzyReflection;
 import com.comphenix.protocol.reflect.accessors.Accessors;
 import com.comphenix.protocol.reflect.accessors.MethodAccessor;
+import com.comphenix.protocol.reflect.fuzzy.FuzzyFieldContract;
 import com.comphenix.protocol.reflect.fuzzy.FuzzyMethodContract;
 import com.comphenix.protocol.utility.MinecraftReflection;
 import com.comphenix.protocol.utility.MinecraftVersion;
@@ -247,6 +254,180 @@ public abstract class WrappedBlockData extends AbstractWrapper implements Clonab
         }
     }
 
+    /**
+     * Read-only block data that is shared by everyone who looks up its block state, with its type and data computed
+     * up front.
+     */
+    private static final class InternedBlockData extends WrappedBlockData {
+        // invoked exactly, so that reading the id of a state neither boxes the id nor allocates the arguments
+        private static final MethodHandle STATE_TO_ID;
+        private static final MethodAccessor ID_TO_STATE;
+
+        // indexed by the block state id, grown as higher ids are looked up
+        private static volatile AtomicReferenceArray<InternedBlockData> table = new AtomicReferenceArray<>(4096);
+
+        static {
+            FuzzyReflection fuzzy = FuzzyReflection.fromClass(BLOCK);
+            FuzzyMethodContract contract = FuzzyMethodContract
+                    .newBuilder()
+                    .requireModifier(Modifier.STATIC)
+                    .parameterExactArray(IBLOCK_DATA)
+                    .returnTypeExact(int.class)
+                    .build();
+            Method stateToId = fuzzy.getMethod(contract, "getId");
+            try {
+                STATE_TO_ID = MethodHandles.lookup().unreflect(stateToId)
+                        .asType(MethodType.methodType(int.class, Object.class));
+            } catch (IllegalAccessException ex) {
+                throw new IllegalStateException("Unable to access method " + stateToId, ex);
+            }
+
+            contract = FuzzyMethodContract
+                    .newBuilder()
+                    .requireModifier(Modifier.STATIC)
+                    .parameterExactArray(int.class)
+                    .returnTypeExact(IBLOCK_DATA)
+                    .build();
+            ID_TO_STATE = Accessors.getMethodAccessor(fuzzy.getMethod(contract, "stateById"));
+        }
+
+        private final int stateId;
+        private final Material type;
+        private final int data;
+
+        private InternedBlockData(Object handle, int stateId) {
+            super(handle);
+            WrappedBlockData mutable = fromHandle(handle);
+            this.stateId = stateId;
+            this.type = mutable.getType();
+            this.data = mutable.getData();
+        }
+
+        private static volatile int stateCount = -1;
+
+        private static int toStateId(Object handle) {
+            try {
+                return (int) STATE_TO_ID.invokeExact(handle);
+            } catch (Throwable throwable) {
+                throw new IllegalStateException("Unable to retrieve the id of block state " + handle, throwable);
+            }
+        }
+
+        private static int countStates() {
+            if (stateCount < 0) {
+                // the registry of every block state, which is the only static iterable of the block class
+                Field registryField = FuzzyReflection.fromClass(BLOCK, true).getField(FuzzyFieldContract.newBuilder()
+                        .requireModifier(Modifier.STATIC)
+                        .typeDerivedOf(Iterable.class)
+                        .build());
+                Object registry = Accessors.getFieldAccessor(registryField).get(null);
+
+                Method size = FuzzyReflection.fromObject(registry, true).getMethod(FuzzyMethodContract.newBuilder()
+                        .banModifier(Modifier.STATIC)
+                        .parameterCount(0)
+                        .returnTypeExact(int.class)
+                        .build(), "size");
+                stateCount = (int) Accessors.getMethodAccessor(size).invoke(registry);
+            }
+            return stateCount;
+        }
+
+        private static InternedBlockData lookup(int stateId) {
+            if (stateId < 0) {
+                throw new IllegalArgumentException("Invalid block state id " + stateId);
+            }
+
+            AtomicReferenceArray<InternedBlockData> current = table;
+            InternedBlockData cached = stateId < current.length() ? current.get(stateId) : null;
+            if (cached != null) {
+                return cached;
+            }
+
+            // the registry maps unknown ids to air, which has an id of its own
+            Object handle = ID_TO_STATE.invoke(null, stateId);
+            if (handle == null || toStateId(handle) != stateId) {
+                throw new IllegalArgumentException("Unknown block state id " + stateId);
+            }
+            return intern(handle, stateId);
+        }
+
+        private static InternedBlockData intern(Object handle, int stateId) {
+            AtomicReferenceArray<InternedBlockData> current = table;
+            InternedBlockData cached = stateId < current.length() ? current.get(stateId) : null;
+            if (cached != null) {
+                return cached;
+            }
+
+            return publish(new InternedBlockData(handle, stateId));
+        }
+
+        // growing copies the table, so entries are published under the same lock to never be left out of the copy
+        private static synchronized InternedBlockData publish(InternedBlockData created) {
+            AtomicReferenceArray<InternedBlockData> current = grow(created.stateId);
+            InternedBlockData cached = current.get(created.stateId);
+            if (cached != null) {
+                return cached;
+            }
+
+            current.set(created.stateId, created);
+            return created;
+        }
+
+        private static AtomicReferenceArray<InternedBlockData> grow(int stateId) {
+            AtomicReferenceArray<InternedBlockData> current = table;
+            if (stateId < current.length()) {
+                return current;
+            }
+
+            int length = current.length();
+            while (length <= stateId) {
+                length <<= 1;
+            }
+
+            AtomicReferenceArray<InternedBlockData> grown = new AtomicReferenceArray<>(length);
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            table = grown;
+            return grown;
+        }
+
+        @Override
+        public int getStateId() {
+            return this.stateId;
+        }
+
+        @Override
+        public Material getType() {
+            return this.type;
+        }
+
+        @Override
+        public int getData() {
+            return this.data;
+        }
+
+        @Override
+        public void setType(Material material) {
+            throw new UnsupportedOperationException("Interned block data is read-only");
+        }
+
+        @Override
+        public void setData(int data) {
+            throw new UnsupportedOperationException("Interned block data is read-only");
+        }
+
+        @Override
+        public void setTypeAndData(Material material, int data) {
+            throw new UnsupportedOperationException("Interned block data is read-only");
+        }
+
+        @Override
+        public WrappedBlockData deepClone() {
+            return fromHandle(handle);
+        }
+    }
+
     public WrappedBlockData(Object handle) {
         super(IBLOCK_DATA);
         setHandle(handle);
@@ -285,6 +466,14 @@ public abstract class WrappedBlockData extends AbstractWrapper implements Clonab
 
     public abstract WrappedBlockData deepClone();
 
+    /**
+     * Gets the id of this BlockData's block state in the block state registry
+     * @return The block state id
+     */
+    public int getStateId() {
+        return InternedBlockData.toStateId(handle);
+    }
+
     /**
      * Creates a new BlockData instance with the given type and no data.
      * @param type Block type
@@ -308,6 +497,47 @@ public abstract class WrappedBlockData extends AbstractWrapper implements Clonab
         return FLATTENED ? new NewBlockData(handle) : new OldBlockData(handle);
     }
 
+    /**
+     * Gets the shared, read-only BlockData of a block state.
+     * <p>
+     * Every block state has a single instance, whose type and data are computed once. Use {@link #deepClone()} to
+     * get a BlockData that can be modified.
+     * @param handle The block state
+     * @return The interned BlockData
+     */
+    public static WrappedBlockData intern(Object handle) {
+        return InternedBlockData.intern(handle, InternedBlockData.toStateId(handle));
+    }
+
+    /**
+     * Gets the shared, read-only BlockData of a block state id, as used in chunk and multi block change packets.
+     * <p>
+     * Looking up a known id is a single array access.
+     * @param stateId The block state id
+     * @return The interned BlockData
+     * @throws IllegalArgumentException If no block state has the given id
+     */
+    public static WrappedBlockData fromStateId(int stateId) {
+        return InternedBlockData.lookup(stateId);
+    }
+
+    /**
+     * Gets the id of a block state in the block state registry
+     * @param handle The block state
+     * @return The block state id
+     */
+    public static int getStateId(Object handle) {
+        return InternedBlockData.toStateId(handle);
+    }
+
+    /**
+     * Gets the number of block states in the block state registry
+     * @return The number of block states
+     */
+    public static int getStateCount() {
+        return InternedBlockData.countStates();
+    }
+
     /**
      * Creates a new Wrapped Block Data instance from a given Spigot Block Data
      * @param data Spigot block data
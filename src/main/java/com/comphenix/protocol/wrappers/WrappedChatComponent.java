@@ -19,6 +19,8 @@ import com.comphenix.protocol.utility.MinecraftReflection;
 import com.comphenix.protocol.utility.MinecraftRegistryAccess;
 import com.comphenix.protocol.utility.MinecraftVersion;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.gson.JsonObject;
 
 /**
@@ -43,6 +45,14 @@ public class WrappedChatComponent extends AbstractWrapper implements ClonableWra
     private static WrappedCodec CODEC;
     private static WrappedDynamicOps REGISTRY_JSON_OPS;
 
+    // parsed components by JSON, limited by the total length of the JSON strings
+    private static final long MAXIMUM_CACHED_JSON_LENGTH = 4 * 1024 * 1024;
+    private static final Cache<String, Object> PARSED_COMPONENTS = CacheBuilder.newBuilder()
+            .maximumWeight(MAXIMUM_CACHED_JSON_LENGTH)
+            .weigher((String json, Object handle) -> json.length())
+            .softValues()
+            .build();
+
     static {
         FuzzyReflection fuzzy = FuzzyReflection.fromClass(SERIALIZER, true);
 
@@ -133,6 +143,22 @@ public class WrappedChatComponent extends AbstractWrapper implements ClonableWra
         return ComponentParser.deserialize(GSON, COMPONENT, str);
     }
 
+    /**
+     * Parse the given JSON, reusing the component of an earlier call with the same JSON if it is still cached.
+     * @param json - the json.
+     * @return The NMS component, which may be shared.
+     */
+    private static Object parse(String json) {
+        Preconditions.checkNotNull(json, "json cannot be NULL.");
+
+        Object handle = PARSED_COMPONENTS.getIfPresent(json);
+        if (handle == null) {
+            handle = deserialize(json);
+            PARSED_COMPONENTS.put(json, handle);
+        }
+        return handle;
+    }
+
     private transient String cache;
 
     private WrappedChatComponent(Object handle, String cache) {
@@ -159,6 +185,20 @@ public class WrappedChatComponent extends AbstractWrapper implements ClonableWra
         return new WrappedChatComponent(deserialize(json), json);
     }
 
+    /**
+     * Construct a chat component wrapper from the given JSON string, reusing the NMS component parsed from the same
+     * JSON earlier if it is still cached.
+     * <p>
+     * This is meant for components that are sent many times without being modified, such as scoreboard or tab list
+     * entries. The NMS component is shared, so neither the handle nor the component that is sent may be modified.
+     * Use {@link #fromJson(String)} or {@link #deepClone()} for a component that can be modified.
+     * @param json - the json.
+     * @return The chat component wrapper, with a shared NMS component.
+     */
+    public static WrappedChatComponent fromJsonShared(String json) {
+        return new WrappedChatComponent(parse(json), json);
+    }
+
     /**
      * Construct a wrapper around a new text chat component with the given text.
      * <p>
@@ -1,8 +1,11 @@
 package com.comphenix.protocol.wrappers;
 
+import java.util.List;
+
 import com.comphenix.protocol.reflect.StructureModifier;
 import com.comphenix.protocol.reflect.accessors.Accessors;
 import com.comphenix.protocol.reflect.accessors.ConstructorAccessor;
+import com.comphenix.protocol.reflect.accessors.FieldAccessor;
 import com.comphenix.protocol.utility.MinecraftReflection;
 import com.comphenix.protocol.wrappers.WrappedDataWatcher.Registry;
 import com.comphenix.protocol.wrappers.WrappedDataWatcher.Serializer;
@@ -57,12 +60,50 @@ public class WrappedDataValue extends AbstractWrapper {
         return new WrappedDataValue(index, serializer, value == null ? null : WrappedWatchableObject.getUnwrapped(value));
     }
 
-    private static Object newHandle(int index, Serializer serializer, Object value) {
+    static Object newHandle(int index, Serializer serializer, Object value) {
+        return newHandle(index, serializer.getHandle(), value);
+    }
+
+    /**
+     * Creates a new NMS DataValue through its constructor.
+     * @param index the index of the metadata value
+     * @param serializer the NMS serializer
+     * @param value the raw value
+     * @return The NMS DataValue
+     */
+    static Object newHandle(int index, Object serializer, Object value) {
         if (constructor == null) {
             constructor = Accessors.getConstructorAccessor(HANDLE_TYPE.getConstructors()[0]);
         }
 
-        return constructor.invoke(index, serializer.getHandle(), value);
+        return constructor.invoke(index, serializer, value);
+    }
+
+    /**
+     * Returns the NMS serializer of a NMS DataValue without wrapping it.
+     * @param handle the NMS DataValue
+     * @return NMS serializer of the DataValue
+     */
+    static Object getSerializer(Object handle) {
+        return HandleFields.SERIALIZER.get(handle);
+    }
+
+    /**
+     * Returns the index of a NMS DataValue without wrapping it.
+     * @param handle the NMS DataValue
+     * @return index of the DataValue
+     */
+    static int getIndex(Object handle) {
+        return (Integer) HandleFields.INDEX.get(handle);
+    }
+
+    /**
+     * Returns the raw value of a NMS DataValue without wrapping it.
+     * @param handle the NMS DataValue
+     * @return Raw value (not wrapped)
+     */
+    static Object getRawValue(Object handle) {
+        return HandleFields.VALUE.get(handle);
     }
 
     /**
@@ -138,4 +179,19 @@ public class WrappedDataValue extends AbstractWrapper {
     public void setRawValue(Object value) {
         this.modifier.writeSafely(2, value);
     }
+
+    // resolved on first use, since DataValue does not exist before 1.19.3
+    private static final class HandleFields {
+
+        private static final FieldAccessor INDEX;
+        private static final FieldAccessor SERIALIZER;
+        private static final FieldAccessor VALUE;
+
+        static {
+            List<FieldAccessor> fields = new StructureModifier<>(HANDLE_TYPE).getFields();
+            INDEX = fields.get(0);
+            SERIALIZER = fields.get(1);
+            VALUE = fields.get(2);
+        }
+    }
 }
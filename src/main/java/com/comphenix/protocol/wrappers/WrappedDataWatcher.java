@@ -20,7 +20,9 @@ import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -1012,10 +1014,16 @@ public class WrappedDataWatcher implements IDataWatcher {
      * @author dmulloy2
      */
     public static class Registry {
-        private static boolean INITIALIZED = false;
-
-        private static Map<Type, Serializer> RAW_REGISTRY = null;
-        private static Map<Type, Serializer> OPTIONAL_REGISTRY = null;
+        private static volatile Lookup LOOKUP = null;
+
+        // the raw and optional serializer of each class, resolved once per class
+        private static final ClassValue<Serializer[]> CLASS_SERIALIZERS = new ClassValue<Serializer[]>() {
+            @Override
+            protected Serializer[] computeValue(Class<?> type) {
+                Lookup lookup = initialize();
+                return new Serializer[] { lookup.raw.get(type), lookup.optional.get(type) };
+            }
+        };
 
         /**
          * @deprecated use {@link #get(Type)} instead.
@@ -1039,9 +1047,11 @@ public class WrappedDataWatcher implements IDataWatcher {
          */
         public static Serializer get(Type type) {
             Validate.notNull(type,"Type cannot be null!");
-            initialize();
 
-            Serializer serializer = RAW_REGISTRY.getOrDefault(type, OPTIONAL_REGISTRY.get(type));
+            Serializer serializer = find(type, false);
+            if (serializer == null) {
+                serializer = find(type, true);
+            }
             if (serializer == null) {
                 throw new IllegalArgumentException("No serializer found for " + type);
             }
@@ -1069,9 +1079,8 @@ public class WrappedDataWatcher implements IDataWatcher {
          */
         public static Serializer get(Type type, boolean optional) {
             Validate.notNull(type, "Type cannot be null!");
-            initialize();
 
-            Serializer serializer = optional ? OPTIONAL_REGISTRY.get(type) : RAW_REGISTRY.get(type);
+            Serializer serializer = find(type, optional);
             if (serializer == null) {
                 throw new IllegalArgumentException("No serializer found for " + (optional ? "Optional<" + type + ">" : type));
             }
@@ -1086,30 +1095,42 @@ public class WrappedDataWatcher implements IDataWatcher {
          */
         public static Serializer fromHandle(Object handle) {
             Validate.notNull(handle, "handle cannot be null!");
-            initialize();
 
-            for (Serializer serializer : RAW_REGISTRY.values()) {
-                if (serializer.getHandle().equals(handle)) {
-                    return serializer;
-                }
-            }
+            // serializers are singletons, so they are looked up by identity
+            return initialize().byHandle.get(handle);
+        }
 
-            for (Serializer serializer : OPTIONAL_REGISTRY.values()) {
-                if (serializer.getHandle().equals(handle)) {
-                    return serializer;
-                }
+        private static Serializer find(Type type, boolean optional) {
+            if (type instanceof Class<?> clazz) {
+                return CLASS_SERIALIZERS.get(clazz)[optional ? 1 : 0];
             }
 
-            return null;
+            Lookup lookup = initialize();
+            return optional ? lookup.optional.get(type) : lookup.raw.get(type);
         }
 
-        private static void initialize() {
-            if (!INITIALIZED) {
-                INITIALIZED = true;
-            } else {
-                return;
+        /**
+         * Resolves every serializer of the server. This happens on first use if it is not called beforehand.
+         */
+        public static void warmup() {
+            initialize();
+        }
+
+        private static Lookup initialize() {
+            Lookup lookup = LOOKUP;
+            if (lookup == null) {
+                synchronized (Registry.class) {
+                    lookup = LOOKUP;
+                    if (lookup == null) {
+                        lookup = createLookup();
+                        LOOKUP = lookup;
+                    }
+                }
             }
+            return lookup;
+        }
 
+        private static Lookup createLookup() {
             Map<Type, Serializer> rawRegistry = new HashMap<>();
             Map<Type, Serializer> optionalRegistry = new HashMap<>();
 
@@ -1143,8 +1164,23 @@ public class WrappedDataWatcher implements IDataWatcher {
                 }
             }
 
-            RAW_REGISTRY = Map.copyOf(rawRegistry);
-            OPTIONAL_REGISTRY = Map.copyOf(optionalRegistry);
+            Map<Object, Serializer> byHandle = new IdentityHashMap<>();
+            optionalRegistry.values().forEach(serializer -> byHandle.putIfAbsent(serializer.getHandle(), serializer));
+            rawRegistry.values().forEach(serializer -> byHandle.put(serializer.getHandle(), serializer));
+
+            return new Lookup(Map.copyOf(rawRegistry), Map.copyOf(optionalRegistry), Collections.unmodifiableMap(byHandle));
+        }
+
+        private static final class Lookup {
+            private final Map<Type, Serializer> raw;
+            private final Map<Type, Serializer> optional;
+            private final Map<Object, Serializer> byHandle;
+
+            private Lookup(Map<Type, Serializer> raw, Map<Type, Serializer> optional, Map<Object, Serializer> byHandle) {
+                this.raw = raw;
+                this.optional = optional;
+                this.byHandle = byHandle;
+            }
         }
 
         // ---- Helper methods
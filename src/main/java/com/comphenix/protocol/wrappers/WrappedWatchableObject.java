@@ -178,6 +178,15 @@ public final class WrappedWatchableObject extends AbstractWrapper {
         return new WrappedDataWatcherObject(this.modifier.read(0));
     }
 
+    /**
+     * Gets the NMS watcher object of this Item, without wrapping it.
+     *
+     * @return The NMS watcher object
+     */
+    Object getWatcherObjectHandle() {
+        return this.modifier.read(0);
+    }
+
     /**
      * Gets this Item's index from the watcher object
      *
@@ -0,0 +1,119 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.wrappers.collection;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Represents a list that reads from a source list until it is first modified, after which it works on its own copy.
+ * <p>
+ * The source list is never modified, so it may be immutable or shared with other readers.
+ *
+ * @param <E> - type of each element in the list.
+ */
+public final class CopyOnWriteList<E> extends AbstractList<E> implements RandomAccess {
+
+    private final List<E> source;
+    private List<E> copy;
+
+    /**
+     * Construct a list that reads from the given source list.
+     * <p>
+     * Lists without random access are copied right away, as reading them by index would be slow.
+     *
+     * @param source - the source list.
+     */
+    public CopyOnWriteList(List<E> source) {
+        this.source = Preconditions.checkNotNull(source, "source cannot be NULL.");
+        if (!(source instanceof RandomAccess)) {
+            this.copy = new ArrayList<>(source);
+        }
+    }
+
+    /**
+     * Retrieve the list this list reads from until it is modified.
+     *
+     * @return The source list.
+     */
+    public List<E> getSource() {
+        return this.source;
+    }
+
+    /**
+     * Determine if this list has been modified and no longer reads from the source list.
+     *
+     * @return TRUE if it has been modified, FALSE otherwise.
+     */
+    public boolean isModified() {
+        return this.copy != null;
+    }
+
+    private List<E> read() {
+        return this.copy != null ? this.copy : this.source;
+    }
+
+    private List<E> write() {
+        if (this.copy == null) {
+            this.copy = new ArrayList<>(this.source);
+        }
+        return this.copy;
+    }
+
+    @Override
+    public E get(int index) {
+        return this.read().get(index);
+    }
+
+    @Override
+    public int size() {
+        return this.read().size();
+    }
+
+    @Override
+    public E set(int index, E element) {
+        return this.write().set(index, element);
+    }
+
+    @Override
+    public void add(int index, E element) {
+        this.write().add(index, element);
+        this.modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+        E removed = this.write().remove(index);
+        this.modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        if (this.copy == null) {
+            this.copy = new ArrayList<>();
+        } else {
+            this.copy.clear();
+        }
+        this.modCount++;
+    }
+}
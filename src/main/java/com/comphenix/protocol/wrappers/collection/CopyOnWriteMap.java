@@ -0,0 +1,165 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.wrappers.collection;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Represents a map that reads from a source map until it is first modified, after which it works on its own copy.
+ * <p>
+ * The source map is never modified, so it may be immutable or shared with other readers.
+ *
+ * @param <K> - type of the keys.
+ * @param <V> - type of the values.
+ */
+public final class CopyOnWriteMap<K, V> extends AbstractMap<K, V> {
+
+    private final Map<K, V> source;
+    private Map<K, V> copy;
+
+    /**
+     * Construct a map that reads from the given source map.
+     *
+     * @param source - the source map.
+     */
+    public CopyOnWriteMap(Map<K, V> source) {
+        this.source = Preconditions.checkNotNull(source, "source cannot be NULL.");
+    }
+
+    /**
+     * Retrieve the map this map reads from until it is modified.
+     *
+     * @return The source map.
+     */
+    public Map<K, V> getSource() {
+        return this.source;
+    }
+
+    /**
+     * Determine if this map has been modified and no longer reads from the source map.
+     *
+     * @return TRUE if it has been modified, FALSE otherwise.
+     */
+    public boolean isModified() {
+        return this.copy != null;
+    }
+
+    private Map<K, V> read() {
+        return this.copy != null ? this.copy : this.source;
+    }
+
+    private Map<K, V> write() {
+        if (this.copy == null) {
+            this.copy = new LinkedHashMap<>(this.source);
+        }
+        return this.copy;
+    }
+
+    @Override
+    public V get(Object key) {
+        return this.read().get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return this.read().containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return this.read().size();
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return this.write().put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return this.read().containsKey(key) ? this.write().remove(key) : null;
+    }
+
+    @Override
+    public void clear() {
+        if (this.copy == null) {
+            this.copy = new LinkedHashMap<>();
+        } else {
+            this.copy.clear();
+        }
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public int size() {
+                return CopyOnWriteMap.this.size();
+            }
+
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return CopyOnWriteMap.this.entryIterator();
+            }
+        };
+    }
+
+    private Iterator<Entry<K, V>> entryIterator() {
+        if (this.copy != null) {
+            return this.copy.entrySet().iterator();
+        }
+
+        // modifying copies the source, which keeps the iteration over the source valid
+        Iterator<Entry<K, V>> iterator = this.source.entrySet().iterator();
+        return new Iterator<Entry<K, V>>() {
+            private Entry<K, V> last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Entry<K, V> next() {
+                Entry<K, V> entry = iterator.next();
+                this.last = entry;
+                return new SimpleEntry<K, V>(entry) {
+                    @Override
+                    public V setValue(V value) {
+                        super.setValue(value);
+                        return CopyOnWriteMap.this.write().put(this.getKey(), value);
+                    }
+                };
+            }
+
+            @Override
+            public void remove() {
+                Preconditions.checkState(this.last != null, "next() has not been called");
+                CopyOnWriteMap.this.write().remove(this.last.getKey());
+                this.last = null;
+            }
+        };
+    }
+}
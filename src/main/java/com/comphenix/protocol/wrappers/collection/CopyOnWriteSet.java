@@ -0,0 +1,138 @@
+/*
+ *  ProtocolLib - Bukkit server library that allows access to the Minecraft protocol.
+ *  Copyright (C) 2012 Kristian S. Stangeland
+ *
+ *  This program is free software; you can redistribute it and/or modify it under the terms of the
+ *  GNU General Public License as published by the Free Software Foundation; either version 2 of
+ *  the License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *  without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *  See the GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License along with this program;
+ *  if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA
+ *  02111-1307 USA
+ */
+
+package com.comphenix.protocol.wrappers.collection;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Represents a set that reads from a source set until it is first modified, after which it works on its own copy.
+ * <p>
+ * The source set is never modified, so it may be immutable or shared with other readers.
+ *
+ * @param <E> - type of each element in the set.
+ */
+public final class CopyOnWriteSet<E> extends AbstractSet<E> {
+
+    private final Set<E> source;
+    private Set<E> copy;
+
+    /**
+     * Construct a set that reads from the given source set.
+     *
+     * @param source - the source set.
+     */
+    public CopyOnWriteSet(Set<E> source) {
+        this.source = Preconditions.checkNotNull(source, "source cannot be NULL.");
+    }
+
+    /**
+     * Retrieve the set this set reads from until it is modified.
+     *
+     * @return The source set.
+     */
+    public Set<E> getSource() {
+        return this.source;
+    }
+
+    /**
+     * Determine if this set has been modified and no longer reads from the source set.
+     *
+     * @return TRUE if it has been modified, FALSE otherwise.
+     */
+    public boolean isModified() {
+        return this.copy != null;
+    }
+
+    private Set<E> read() {
+        return this.copy != null ? this.copy : this.source;
+    }
+
+    private Set<E> write() {
+        if (this.copy == null) {
+            this.copy = new LinkedHashSet<>(this.source);
+        }
+        return this.copy;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return this.read().contains(o);
+    }
+
+    @Override
+    public int size() {
+        return this.read().size();
+    }
+
+    @Override
+    public boolean add(E e) {
+        return !this.read().contains(e) && this.write().add(e);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return this.read().contains(o) && this.write().remove(o);
+    }
+
+    @Override
+    public void clear() {
+        if (this.copy == null) {
+            this.copy = new LinkedHashSet<>();
+        } else {
+            this.copy.clear();
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        if (this.copy != null) {
+            return this.copy.iterator();
+        }
+
+        // removing copies the source, which keeps the iteration over the source valid
+        Iterator<E> iterator = this.source.iterator();
+        return new Iterator<E>() {
+            private E last;
+            private boolean removable;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public E next() {
+                this.last = iterator.next();
+                this.removable = true;
+                return this.last;
+            }
+
+            @Override
+            public void remove() {
+                Preconditions.checkState(this.removable, "next() has not been called");
+                CopyOnWriteSet.this.write().remove(this.last);
+                this.removable = false;
+            }
+        };
+    }
+}
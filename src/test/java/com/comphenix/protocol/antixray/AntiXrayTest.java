@@ -0,0 +1,202 @@
+package com.comphenix.protocol.antixray;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.comphenix.protocol.BukkitInitialization;
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.ProtocolManager;
+import com.comphenix.protocol.error.ErrorReporter;
+import com.comphenix.protocol.events.ListenerOptions;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
+import com.comphenix.protocol.events.PacketListener;
+import com.comphenix.protocol.injector.netty.WirePacket;
+import com.comphenix.protocol.scheduler.ProtocolScheduler;
+import com.comphenix.protocol.utility.MinecraftVersion;
+import com.comphenix.protocol.wrappers.BlockPosition;
+import com.comphenix.protocol.wrappers.ChunkSectionCodec;
+import com.comphenix.protocol.wrappers.SectionBlockChanges;
+import com.comphenix.protocol.wrappers.WrappedBlockData;
+import com.comphenix.protocol.wrappers.WrappedLevelChunkData;
+import com.comphenix.protocol.wrappers.nbt.NbtFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AntiXrayTest {
+
+    @BeforeAll
+    public static void initializeBukkit() {
+        BukkitInitialization.initializeAll();
+    }
+
+    private static byte[] createChunk(int stone, int ore) {
+        ByteBuf buffer = Unpooled.buffer();
+        buffer.writeShort(4096);
+        buffer.writeByte(0);
+        WirePacket.writeVarInt(buffer, stone);
+        if (!MinecraftVersion.v1_21_5.atOrAbove()) {
+            WirePacket.writeVarInt(buffer, 0);
+        }
+        buffer.writeByte(0);
+        WirePacket.writeVarInt(buffer, 0);
+        if (!MinecraftVersion.v1_21_5.atOrAbove()) {
+            WirePacket.writeVarInt(buffer, 0);
+        }
+
+        ChunkSectionCodec codec = ChunkSectionCodec.read(ByteBufUtil.getBytes(buffer));
+        codec.getSection(0).getBlockStates().set(5, 5, 5, ore);
+        return codec.encode();
+    }
+
+    @Test
+    public void testCache() {
+        int stone = WrappedBlockData.createData(Material.STONE).getStateId();
+        int ore = WrappedBlockData.createData(Material.DIAMOND_ORE).getStateId();
+
+        AntiXray antiXray = new AntiXray(mock(Plugin.class), mock(ProtocolManager.class), mock(ErrorReporter.class),
+                mock(ProtocolScheduler.class), 16);
+        try {
+            antiXray.setConfig("world", AntiXrayConfig.newBuilder().hide(Material.DIAMOND_ORE, Material.STONE).build());
+
+            byte[] chunk = createChunk(stone, ore);
+            byte[] obfuscated = antiXray.obfuscate("world", 1, 2, chunk);
+            assertEquals(stone, ChunkSectionCodec.read(obfuscated).getSection(0).getBlockStates().get(5, 5, 5));
+
+            // the same content is served from the cache, even from another array
+            assertSame(obfuscated, antiXray.obfuscate("world", 1, 2, chunk.clone()));
+
+            // other content or an invalidated chunk is obfuscated again
+            byte[] other = createChunk(stone, stone);
+            assertSame(other, antiXray.obfuscate("world", 1, 2, other));
+            byte[] cached = antiXray.obfuscate("world", 1, 2, chunk);
+            assertNotSame(obfuscated, cached);
+            assertSame(cached, antiXray.obfuscate("world", 1, 2, chunk));
+
+            antiXray.invalidate("world", 1, 2);
+            byte[] again = antiXray.obfuscate("world", 1, 2, chunk);
+            assertNotSame(cached, again);
+            assertArrayEquals(cached, again);
+
+            // worlds without a configuration are sent as they are
+            assertSame(chunk, antiXray.obfuscate("world_nether", 1, 2, chunk));
+        } finally {
+            antiXray.close();
+        }
+    }
+
+    private static PacketContainer createChunkPacket(int chunkX, int chunkZ, byte[] buffer) {
+        PacketContainer packet = new PacketContainer(PacketType.Play.Server.MAP_CHUNK);
+        packet.getIntegers().write(0, chunkX).write(1, chunkZ);
+        packet.getLevelChunkData().write(0, MinecraftVersion.v1_21_5.atOrAbove()
+                ? WrappedLevelChunkData.ChunkData.fromValues(Collections.emptyMap(), buffer, Collections.emptyList())
+                : WrappedLevelChunkData.ChunkData.fromValues(NbtFactory.ofCompound(""), buffer, Collections.emptyList()));
+        return packet;
+    }
+
+    @Test
+    public void testPacketOrder() {
+        int stone = WrappedBlockData.createData(Material.STONE).getStateId();
+        int ore = WrappedBlockData.createData(Material.DIAMOND_ORE).getStateId();
+
+        ProtocolManager protocolManager = mock(ProtocolManager.class);
+        World world = mock(World.class);
+        when(world.getName()).thenReturn("world");
+        Player player = mock(Player.class);
+        when(player.getWorld()).thenReturn(world);
+
+        AntiXray antiXray = new AntiXray(mock(Plugin.class), protocolManager, mock(ErrorReporter.class),
+                mock(ProtocolScheduler.class), 16);
+        try {
+            antiXray.setConfig("world", AntiXrayConfig.newBuilder().hide(Material.DIAMOND_ORE, Material.STONE).build());
+            antiXray.start();
+
+            ArgumentCaptor<PacketListener> listeners = ArgumentCaptor.forClass(PacketListener.class);
+            verify(protocolManager, times(2)).addPacketListener(listeners.capture());
+
+            // the chunk is not held back in the asynchronous queue, nor moved to the main thread
+            verify(protocolManager, never()).getAsynchronousManager();
+            PacketListener chunkListener = listeners.getAllValues().get(0);
+            assertTrue(chunkListener.getSendingWhitelist().getTypes().contains(PacketType.Play.Server.MAP_CHUNK));
+            assertTrue(chunkListener.getSendingWhitelist().getOptions().contains(ListenerOptions.ASYNC));
+
+            // so the packets are sent in the order they were written, and the chunk is obfuscated before its unload
+            List<PacketEvent> events = new ArrayList<>();
+            events.add(PacketEvent.fromServer(this, createChunkPacket(1, 2, createChunk(stone, ore)), player));
+            events.add(PacketEvent.fromServer(this, new PacketContainer(PacketType.Play.Server.UNLOAD_CHUNK), player));
+
+            List<PacketContainer> sent = new ArrayList<>();
+            for (PacketEvent event : events) {
+                for (PacketListener listener : listeners.getAllValues()) {
+                    if (listener.getSendingWhitelist().getTypes().contains(event.getPacketType())) {
+                        listener.onPacketSending(event);
+                    }
+                }
+                assertFalse(event.isCancelled());
+                sent.add(event.getPacket());
+            }
+
+            assertEquals(2, sent.size());
+            assertEquals(PacketType.Play.Server.MAP_CHUNK, sent.get(0).getType());
+            byte[] buffer = sent.get(0).getLevelChunkData().read(0).getBuffer();
+            assertEquals(stone, ChunkSectionCodec.read(buffer).getSection(0).getBlockStates().get(5, 5, 5));
+            assertEquals(PacketType.Play.Server.UNLOAD_CHUNK, sent.get(1).getType());
+        } finally {
+            antiXray.close();
+        }
+    }
+
+    @Test
+    public void testUncoveredNeighbours() {
+        PacketContainer mined = new PacketContainer(PacketType.Play.Server.BLOCK_CHANGE);
+        mined.getBlockPositionModifier().write(0, new BlockPosition(10, 64, -3));
+        mined.getBlockData().write(0, WrappedBlockData.createData(Material.AIR));
+
+        Set<BlockPosition> neighbours = AntiXray.getUncoveredNeighbours(mined);
+        assertEquals(6, neighbours.size());
+        assertTrue(neighbours.contains(new BlockPosition(9, 64, -3)));
+        assertTrue(neighbours.contains(new BlockPosition(10, 65, -3)));
+        assertTrue(neighbours.contains(new BlockPosition(10, 64, -4)));
+
+        // a block that hides its neighbours does not uncover them
+        PacketContainer placed = new PacketContainer(PacketType.Play.Server.BLOCK_CHANGE);
+        placed.getBlockPositionModifier().write(0, new BlockPosition(10, 64, -3));
+        placed.getBlockData().write(0, WrappedBlockData.createData(Material.STONE));
+        assertTrue(AntiXray.getUncoveredNeighbours(placed).isEmpty());
+
+        // blocks changed next to each other only uncover each neighbour once
+        PacketContainer exploded = SectionBlockChanges.create(new BlockPosition(0, 4, 0),
+                new short[]{SectionBlockChanges.pack(1, 1, 1), SectionBlockChanges.pack(2, 1, 1), SectionBlockChanges.pack(8, 8, 8)},
+                new int[]{
+                        WrappedBlockData.createData(Material.AIR).getStateId(),
+                        WrappedBlockData.createData(Material.AIR).getStateId(),
+                        WrappedBlockData.createData(Material.STONE).getStateId()
+                }).toPacket();
+        neighbours = AntiXray.getUncoveredNeighbours(exploded);
+        assertEquals(12, neighbours.size());
+        assertTrue(neighbours.contains(new BlockPosition(0, 65, 1)));
+        assertTrue(neighbours.contains(new BlockPosition(3, 65, 1)));
+    }
+}
@@ -0,0 +1,83 @@
+package com.comphenix.protocol.antixray;
+
+import com.comphenix.protocol.BukkitInitialization;
+import com.comphenix.protocol.injector.netty.WirePacket;
+import com.comphenix.protocol.utility.MinecraftVersion;
+import com.comphenix.protocol.wrappers.ChunkSectionCodec;
+import com.comphenix.protocol.wrappers.WrappedBlockData;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.bukkit.Material;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ChunkObfuscatorTest {
+
+    @BeforeAll
+    public static void initializeBukkit() {
+        BukkitInitialization.initializeAll();
+    }
+
+    private static void writeSingleValued(ByteBuf buffer, int value) {
+        buffer.writeByte(0);
+        WirePacket.writeVarInt(buffer, value);
+        if (!MinecraftVersion.v1_21_5.atOrAbove()) {
+            WirePacket.writeVarInt(buffer, 0);
+        }
+    }
+
+    private static byte[] createStoneSections(int stone) {
+        ByteBuf buffer = Unpooled.buffer();
+        for (int i = 0; i < 2; i++) {
+            buffer.writeShort(4096);
+            writeSingleValued(buffer, stone);
+            writeSingleValued(buffer, 0);
+        }
+        return ByteBufUtil.getBytes(buffer);
+    }
+
+    @Test
+    public void testObfuscate() {
+        int stone = WrappedBlockData.createData(Material.STONE).getStateId();
+        int air = WrappedBlockData.createData(Material.AIR).getStateId();
+        int ore = WrappedBlockData.createData(Material.DIAMOND_ORE).getStateId();
+
+        ChunkObfuscator obfuscator = new ChunkObfuscator(AntiXrayConfig.newBuilder()
+                .hide(Material.DIAMOND_ORE, Material.STONE)
+                .build());
+
+        // without any hidden block the buffer is sent as it is
+        byte[] plain = createStoneSections(stone);
+        assertSame(plain, obfuscator.obfuscate(plain));
+
+        ChunkSectionCodec codec = ChunkSectionCodec.read(createStoneSections(stone));
+        ChunkSectionCodec.PalettedContainer bottom = codec.getSection(0).getBlockStates();
+        bottom.set(5, 5, 5, ore);
+        bottom.set(8, 5, 8, ore);
+        bottom.set(8, 6, 8, air);
+        bottom.set(3, 15, 3, ore);
+        bottom.set(0, 3, 3, ore);
+        byte[] buffer = codec.encode();
+        byte[] copy = buffer.clone();
+
+        ChunkSectionCodec obfuscated = ChunkSectionCodec.read(obfuscator.obfuscate(buffer));
+        ChunkSectionCodec.PalettedContainer blocks = obfuscated.getSection(0).getBlockStates();
+
+        // enclosed, also by the section above
+        assertEquals(stone, blocks.get(5, 5, 5));
+        assertEquals(stone, blocks.get(3, 15, 3));
+
+        // next to air, or at the border of the chunk
+        assertEquals(ore, blocks.get(8, 5, 8));
+        assertEquals(ore, blocks.get(0, 3, 3));
+        assertEquals(air, blocks.get(8, 6, 8));
+
+        // the original buffer is not modified
+        assertArrayEquals(copy, buffer);
+    }
+}
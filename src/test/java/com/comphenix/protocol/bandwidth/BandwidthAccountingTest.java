@@ -0,0 +1,96 @@
+package com.comphenix.protocol.bandwidth;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+
+import com.comphenix.protocol.BukkitInitialization;
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.PacketType.Protocol;
+import com.comphenix.protocol.injector.netty.WirePacket;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BandwidthAccountingTest {
+
+    @BeforeAll
+    static void beforeClass() {
+        BukkitInitialization.initializeAll();
+    }
+
+    @AfterEach
+    void resetCounters() {
+        BandwidthAccounting.reset();
+    }
+
+    private static ByteBuf frame(PacketType type, int contentLength) {
+        ByteBuf frame = Unpooled.buffer();
+        WirePacket.writeVarInt(frame, type.getCurrentId());
+        frame.writeZero(contentLength);
+        return frame;
+    }
+
+    @Test
+    void testAttribution() {
+        UUID player = UUID.randomUUID();
+        ConnectionBandwidth connection = BandwidthAccounting.register(() -> player);
+        PacketType type = PacketType.Play.Server.KEEP_ALIVE;
+
+        ByteBuf frame = frame(type, 8);
+        int encoded = frame.readableBytes();
+        for (int i = 0; i < 3; i++) {
+            connection.recordEncoded(Protocol.PLAY, frame);
+            connection.recordWire(encoded + 2);
+        }
+        assertEquals(encoded, frame.readableBytes());
+
+        BandwidthUsage usage = BandwidthAccounting.getUsage(player).get(type);
+        assertEquals(3, usage.getPackets());
+        assertEquals(3L * encoded, usage.getEncodedBytes());
+        assertEquals(3L * (encoded + 2), usage.getWireBytes());
+        assertEquals(usage.getWireBytes(), BandwidthAccounting.getUsageByPlayer().get(player).getWireBytes());
+
+        // closed connections are kept in the totals
+        BandwidthAccounting.unregister(connection);
+        assertTrue(BandwidthAccounting.getUsage(player).isEmpty());
+        assertEquals(3, BandwidthAccounting.getUsage().get(type).getPackets());
+    }
+
+    @Test
+    void testUnknownProtocol() {
+        UUID player = UUID.randomUUID();
+        ConnectionBandwidth connection = BandwidthAccounting.register(() -> player);
+
+        connection.recordEncoded(null, frame(PacketType.Play.Server.KEEP_ALIVE, 8));
+        connection.recordWire(10);
+
+        Map<PacketType, BandwidthUsage> usage = BandwidthAccounting.getUsage(player);
+        assertTrue(usage.isEmpty());
+        BandwidthAccounting.unregister(connection);
+    }
+
+    @Test
+    void testResetOnWriter() {
+        UUID player = UUID.randomUUID();
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        ConnectionBandwidth connection = BandwidthAccounting.register(() -> player, tasks::add);
+        PacketType type = PacketType.Play.Server.KEEP_ALIVE;
+
+        connection.recordEncoded(Protocol.PLAY, frame(type, 8));
+        BandwidthAccounting.reset();
+
+        // the counters are reset by the thread that writes them
+        assertEquals(1, BandwidthAccounting.getUsage(player).get(type).getPackets());
+        assertEquals(1, tasks.size());
+        tasks.poll().run();
+        assertTrue(BandwidthAccounting.getUsage(player).isEmpty());
+        BandwidthAccounting.unregister(connection);
+    }
+}
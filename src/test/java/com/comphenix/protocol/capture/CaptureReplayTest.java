@@ -0,0 +1,143 @@
+package com.comphenix.protocol.capture;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.comphenix.protocol.BukkitInitialization;
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.PacketType.Protocol;
+import com.comphenix.protocol.PacketType.Sender;
+import com.comphenix.protocol.events.PacketAdapter;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
+import com.comphenix.protocol.injector.netty.WirePacket;
+import com.comphenix.protocol.timing.TimingTrackerManager;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CaptureReplayTest {
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void beforeClass() {
+        BukkitInitialization.initializeAll();
+    }
+
+    private static Plugin createPlugin() {
+        Plugin plugin = mock(Plugin.class);
+        when(plugin.getName()).thenReturn("Replay");
+        return plugin;
+    }
+
+    @Test
+    void testReplayInbound() throws IOException {
+        PacketContainer keepAlive = new PacketContainer(PacketType.Play.Client.KEEP_ALIVE);
+        keepAlive.getLongs().write(0, 42L);
+
+        ByteBuf frame = Unpooled.buffer();
+        WirePacket.writeVarInt(frame, PacketType.Play.Client.KEEP_ALIVE.getCurrentId());
+        keepAlive.serializeToBuffer(frame);
+
+        try (PacketCapture capture = PacketCapture.newBuilder()
+                .directory(this.directory)
+                .segmentSize(64 * 1024)
+                .bufferSize(4096)
+                .start()) {
+            capture.capture(null, Sender.CLIENT, Protocol.PLAY, frame);
+        }
+
+        List<Long> received = new ArrayList<>();
+        CaptureReplay replay = CaptureReplay.newBuilder()
+                .listener(new PacketAdapter(createPlugin(), PacketType.Play.Client.KEEP_ALIVE) {
+                    @Override
+                    public void onPacketReceiving(PacketEvent event) {
+                        received.add(event.getPacket().getLongs().read(0));
+                    }
+                })
+                .maximumSpeed()
+                .build();
+
+        ReplayResult result = replay.replay(this.directory);
+        assertEquals(1, result.getReplayedCount());
+        assertEquals(0, result.getSkippedCount());
+        assertEquals(List.of(42L), received);
+    }
+
+    @Test
+    void testReplayOutbound() throws IOException {
+        PacketContainer keepAlive = new PacketContainer(PacketType.Play.Server.KEEP_ALIVE);
+        keepAlive.getLongs().write(0, 7L);
+
+        ByteBuf frame = Unpooled.buffer();
+        WirePacket.writeVarInt(frame, PacketType.Play.Server.KEEP_ALIVE.getCurrentId());
+        keepAlive.serializeToBuffer(frame);
+
+        try (PacketCapture capture = PacketCapture.newBuilder()
+                .directory(this.directory)
+                .segmentSize(64 * 1024)
+                .bufferSize(4096)
+                .start()) {
+            capture.capture(null, Sender.SERVER, Protocol.PLAY, frame);
+        }
+
+        List<Long> sent = new ArrayList<>();
+        CaptureReplay replay = CaptureReplay.newBuilder()
+                .listener(new PacketAdapter(createPlugin(), PacketType.Play.Server.KEEP_ALIVE) {
+                    @Override
+                    public void onPacketSending(PacketEvent event) {
+                        sent.add(event.getPacket().getLongs().read(0));
+                    }
+                })
+                .maximumSpeed()
+                .build();
+
+        ReplayResult result = replay.replay(this.directory);
+        assertEquals(1, result.getReplayedCount());
+        assertEquals(List.of(7L), sent);
+
+        // the replay is timed on its own, without turning on the global tracking
+        assertFalse(TimingTrackerManager.isTracking());
+        assertNotNull(result.getTimings());
+
+        Path report = this.directory.resolve("timings.txt");
+        result.getTimings().saveTo(report);
+        String timings = Files.readString(report);
+        assertTrue(timings.contains("=== PLUGIN Replay ==="));
+        assertTrue(timings.contains("SYNC_OUTBOUND"));
+    }
+
+    @Test
+    void testReplayFailure() throws IOException {
+        Path segment = this.directory.resolve("broken.bin");
+        Files.write(segment, new byte[4]);
+
+        CaptureReplay replay = CaptureReplay.newBuilder()
+                .listener(new PacketAdapter(createPlugin(), PacketType.Play.Server.KEEP_ALIVE) {
+                })
+                .maximumSpeed()
+                .build();
+        assertThrows(IOException.class, () -> replay.replay(segment));
+
+        // tracking is stopped even if the replay failed
+        assertNull(TimingTrackerManager.stopLocalTracking());
+        assertFalse(TimingTrackerManager.isTracking());
+    }
+}
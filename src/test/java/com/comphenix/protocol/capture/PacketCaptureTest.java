@@ -0,0 +1,91 @@
+package com.comphenix.protocol.capture;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import com.comphenix.protocol.PacketType.Protocol;
+import com.comphenix.protocol.PacketType.Sender;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PacketCaptureTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testCaptureAndRead() throws IOException {
+        UUID player = UUID.randomUUID();
+        PacketCapture capture = PacketCapture.newBuilder()
+                .directory(this.directory)
+                .players(Collections.singleton(player))
+                .segmentSize(64 * 1024)
+                .bufferSize(4096)
+                .start();
+
+        assertSame(capture, PacketCapture.getActive());
+
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeByte(0x81).writeByte(0x01); // packet id 129
+        frame.writeBytes(new byte[]{1, 2, 3});
+
+        for (int i = 0; i < 1000; i++) {
+            capture.capture(player, Sender.SERVER, Protocol.PLAY, frame);
+        }
+        capture.capture(UUID.randomUUID(), Sender.SERVER, Protocol.PLAY, frame);
+        capture.close();
+
+        // the frame is left untouched
+        assertEquals(0, frame.readerIndex());
+        assertNull(PacketCapture.getActive());
+
+        List<CapturedPacket> packets = CaptureReader.readAll(this.directory);
+        assertEquals(capture.getCapturedCount(), packets.size());
+        assertEquals(1000, capture.getCapturedCount() + capture.getDroppedCount());
+
+        CapturedPacket packet = packets.get(0);
+        assertEquals(player, packet.getPlayer());
+        assertEquals(Sender.SERVER, packet.getSender());
+        assertEquals(Protocol.PLAY, packet.getProtocol());
+        assertEquals(129, packet.getPacketId());
+        assertArrayEquals(new byte[]{1, 2, 3}, packet.getContent());
+    }
+
+    @Test
+    void testSegmentFailure() throws IOException {
+        int segmentSize = 1024;
+        byte[] record = new byte[segmentSize - CaptureFormat.HEADER_SIZE];
+
+        try (CaptureSegmentWriter writer = new CaptureSegmentWriter(this.directory, segmentSize, 4)) {
+            writer.beginRecord(record.length);
+            writer.write(record, 0, record.length);
+            writer.commit();
+
+            // the next segment cannot be opened, as a directory is in its place
+            Files.createDirectory(this.directory.resolve(CaptureFormat.segmentName(1)));
+            assertThrows(IOException.class, () -> writer.beginRecord(record.length));
+            writer.commit();
+
+            // so the record after it starts another segment
+            writer.beginRecord(record.length);
+            writer.write(record, 0, record.length);
+            writer.commit();
+        }
+
+        assertTrue(Files.isRegularFile(this.directory.resolve(CaptureFormat.segmentName(0))));
+        assertTrue(Files.isRegularFile(this.directory.resolve(CaptureFormat.segmentName(2))));
+    }
+}
@@ -181,6 +181,46 @@ public class PacketContainerTest {
         assertArrayEquals(testArray, bytes.read(0));
     }
 
+    @Test
+    public void testCopyOnWrite() {
+        PacketContainer original = new PacketContainer(PacketType.Play.Server.UPDATE_TIME);
+        original.getLongs().write(0, 10L);
+
+        PacketContainer copy = original.copyOnWrite();
+        StructureModifier<Long> longs = copy.getLongs();
+
+        // reading does not copy the packet
+        assertEquals(10L, longs.read(0));
+        assertSame(original.getHandle(), copy.getHandle());
+        assertTrue(copy.isSharedCopyOnWrite());
+
+        // the first write copies it, and modifiers retrieved earlier see the copy
+        copy.getLongs().write(0, 20L);
+        assertNotSame(original.getHandle(), copy.getHandle());
+        assertFalse(copy.isSharedCopyOnWrite());
+        assertEquals(20L, longs.read(0));
+        assertEquals(10L, original.getLongs().read(0));
+    }
+
+    @Test
+    public void testCopyOnWriteMeta() {
+        PacketContainer original = new PacketContainer(PacketType.Play.Server.UPDATE_TIME);
+        original.setMeta("origin", "original");
+
+        // the copy made by setting metadata keeps the metadata of the original
+        PacketContainer copy = original.copyOnWrite();
+        assertEquals(Optional.of("original"), copy.getMeta("origin"));
+        copy.setMeta("recipient", "copy");
+        assertNotSame(original.getHandle(), copy.getHandle());
+        assertEquals(Optional.of("original"), copy.getMeta("origin"));
+        assertEquals(Optional.of("copy"), copy.getMeta("recipient"));
+
+        // without changing the metadata of the original
+        copy.removeMeta("origin");
+        assertEquals(Optional.of("original"), original.getMeta("origin"));
+        assertEquals(Optional.empty(), original.getMeta("recipient"));
+    }
+
     @Test
     public void testGetShorts() {
         PacketContainer itemData = new PacketContainer(PacketType.Play.Server.REL_ENTITY_MOVE);
@@ -0,0 +1,65 @@
+package com.comphenix.protocol.filter;
+
+import com.comphenix.protocol.BukkitInitialization;
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilterExpressionTest {
+
+    @BeforeAll
+    static void beforeClass() {
+        BukkitInitialization.initializeAll();
+    }
+
+    private static PacketEvent keepAlive(long id) {
+        PacketContainer packet = new PacketContainer(PacketType.Play.Client.KEEP_ALIVE);
+        packet.getLongs().write(0, id);
+        return PacketEvent.fromClient(FilterExpressionTest.class, packet, null);
+    }
+
+    private static boolean test(String source, PacketEvent event) throws FilterSyntaxException {
+        return FilterExpression.compile(source).test(event);
+    }
+
+    @Test
+    void testComparisons() throws FilterSyntaxException {
+        PacketEvent event = keepAlive(42);
+
+        assertTrue(test("long[0] == 42", event));
+        assertTrue(test("long[0] > 41.5 && long[0] <= 42", event));
+        assertFalse(test("long[0] != 42 || long[0] < -1", event));
+        assertTrue(test("!(long[0] >= 100)", event));
+        assertTrue(test("type == 'KEEP_ALIVE' && !cancelled", event));
+    }
+
+    @Test
+    void testMissingFields() throws FilterSyntaxException {
+        PacketEvent event = keepAlive(42);
+
+        assertTrue(test("long[5] == null", event));
+        assertFalse(test("long[5] > 0", event));
+        assertFalse(test("player != null", event));
+    }
+
+    @Test
+    void testSyntaxErrors() {
+        assertTrue(assertThrows(FilterSyntaxException.class, () -> FilterExpression.compile("long[0] >")).isIncomplete());
+        assertTrue(assertThrows(FilterSyntaxException.class, () -> FilterExpression.compile("(long[0] > 1")).isIncomplete());
+        assertFalse(assertThrows(FilterSyntaxException.class, () -> FilterExpression.compile("long[0] > > 1")).isIncomplete());
+        assertFalse(assertThrows(FilterSyntaxException.class, () -> FilterExpression.compile("unknown[0] == 1")).isIncomplete());
+        assertThrows(FilterSyntaxException.class, () -> FilterExpression.compile("42"));
+    }
+
+    @Test
+    void testIncomparableValues() throws FilterSyntaxException {
+        FilterExpression expression = FilterExpression.compile("long[0] < 'text'");
+        assertThrows(IllegalArgumentException.class, () -> expression.test(keepAlive(1)));
+    }
+}
@@ -0,0 +1,102 @@
+package com.comphenix.protocol.filter;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.comphenix.protocol.BukkitInitialization;
+import com.comphenix.protocol.PacketType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PacketSamplerTest {
+
+    private static final PacketType MOVE = PacketType.Play.Server.REL_ENTITY_MOVE;
+    private static final PacketType METADATA = PacketType.Play.Server.ENTITY_METADATA;
+
+    @BeforeAll
+    static void beforeClass() {
+        BukkitInitialization.initializeAll();
+    }
+
+    private static int sample(PacketSampler sampler, PacketType type, UUID player, int packets) {
+        int sampled = 0;
+        for (int i = 0; i < packets; i++) {
+            if (sampler.sample(type, player)) {
+                sampled++;
+            }
+        }
+        return sampled;
+    }
+
+    @Test
+    void testOneIn() {
+        PacketSampler sampler = new PacketSampler();
+        sampler.setPolicy(MOVE, SamplingPolicy.oneIn(10));
+
+        assertEquals(10, sample(sampler, MOVE, UUID.randomUUID(), 100));
+        assertEquals(100, sample(sampler, METADATA, null, 100));
+
+        SampleCounts counts = sampler.getCounts(MOVE);
+        assertEquals(100, counts.getSeen());
+        assertEquals(10, counts.getSampled());
+        assertEquals(10, counts.getScale(), 1e-9);
+    }
+
+    @Test
+    void testPlayerPolicy() {
+        PacketSampler sampler = new PacketSampler();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        sampler.setDefaultPolicy(SamplingPolicy.none());
+        sampler.setPolicy(first, SamplingPolicy.head(5, 1, TimeUnit.HOURS));
+
+        assertEquals(5, sample(sampler, MOVE, first, 50));
+        assertEquals(5, sample(sampler, METADATA, first, 50));
+        assertEquals(0, sample(sampler, MOVE, second, 50));
+
+        sampler.setPolicy(first, null);
+        assertFalse(sampler.sample(MOVE, first));
+
+        // the policy of a player that left is removed
+        sampler.setPolicy(second, SamplingPolicy.all());
+        assertTrue(sampler.sample(MOVE, second));
+        sampler.removePlayer(second);
+        assertFalse(sampler.sample(MOVE, second));
+    }
+
+    @Test
+    void testReservoir() {
+        PacketSampler sampler = new PacketSampler();
+        sampler.setPolicy(MOVE, SamplingPolicy.reservoir(8, 1, TimeUnit.HOURS));
+
+        // the first window has no previous window to predict its size from
+        assertEquals(8, sample(sampler, MOVE, null, 1000));
+    }
+
+    @Test
+    void testReservoirSize() {
+        PacketSampler sampler = new PacketSampler();
+        int size = SamplingPolicy.MAXIMUM_RESERVOIR_SIZE;
+        sampler.setPolicy(MOVE, SamplingPolicy.reservoir(size, 1, TimeUnit.HOURS));
+        assertEquals(size, sample(sampler, MOVE, null, 2 * size));
+
+        assertThrows(IllegalArgumentException.class, () -> SamplingPolicy.reservoir(size + 1, 1, TimeUnit.HOURS));
+        assertThrows(IllegalArgumentException.class,
+                () -> SamplingPolicy.parse(new ArrayDeque<>(Arrays.asList("reservoir", "1000000000", "1"))));
+    }
+
+    @Test
+    void testParse() {
+        assertEquals("1 in 4", SamplingPolicy.parse(new ArrayDeque<>(Arrays.asList("every", "4"))).toString());
+        assertTrue(SamplingPolicy.parse(new ArrayDeque<>(Arrays.asList("all"))) == SamplingPolicy.all());
+        assertThrows(IllegalArgumentException.class, () -> SamplingPolicy.parse(new ArrayDeque<>(Arrays.asList("head", "x"))));
+    }
+}
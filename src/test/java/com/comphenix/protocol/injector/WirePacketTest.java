@@ -5,18 +5,28 @@ package com.comphenix.protocol.injector;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.Inflater;
 
 import com.comphenix.protocol.BukkitInitialization;
 import com.comphenix.protocol.PacketType;
 import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.injector.netty.BufferedWirePacket;
+import com.comphenix.protocol.injector.netty.PreEncodedPacketCache;
 import com.comphenix.protocol.injector.netty.WirePacket;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.IllegalReferenceCountException;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author dmulloy2
@@ -68,4 +78,124 @@ public class WirePacketTest {
         assertEquals(id, backId);
         assertArrayEquals(array, backArray);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBufferedSerialization() {
+        int id = 42;
+        byte[] array = {1, 3, 7, 21, 88, 67, 8};
+
+        BufferedWirePacket packet = new BufferedWirePacket(id, Unpooled.wrappedBuffer(array));
+        assertEquals(new WirePacket(id, array).serialize(), packet.serialize());
+        assertArrayEquals(array, packet.getBytes());
+
+        // the frame is shared, but has its own indices
+        ByteBuf frame = packet.retainedFrame();
+        assertEquals(id, WirePacket.readVarInt(frame));
+        assertEquals(array.length, frame.readableBytes());
+        assertEquals(2, packet.refCnt());
+
+        frame.release();
+        assertTrue(packet.release());
+    }
+
+    @Test
+    public void testPreEncodedCache() {
+        PreEncodedPacketCache cache = new PreEncodedPacketCache(1024);
+        PacketContainer time = new PacketContainer(PacketType.Play.Server.UPDATE_TIME);
+        time.getLongs().write(0, 1000L);
+
+        BufferedWirePacket first = cache.get("time", 1, () -> time);
+        BufferedWirePacket second = cache.get("time", 1, () -> {
+            throw new AssertionError("packet should be cached");
+        });
+
+        assertSame(first, second);
+        assertArrayEquals(WirePacket.fromPacket(time).getBytes(), first.getBytes());
+        assertEquals(3, first.refCnt());
+        assertNull(cache.get("time", 2));
+
+        first.release();
+        second.release();
+
+        // evicted packets are released by the cache
+        cache.invalidate("time");
+        assertEquals(0, cache.size());
+        assertEquals(0, first.refCnt());
+    }
+
+    @Test
+    public void testPreEncodedCacheLargePackets() {
+        PacketContainer time = new PacketContainer(PacketType.Play.Server.UPDATE_TIME);
+        time.getLongs().write(0, 1000L);
+
+        BufferedWirePacket measured = BufferedWirePacket.fromPacket(time);
+        int usage = measured.getMemoryUsage();
+        measured.release();
+
+        // larger than a quarter of the budget, but within it
+        PreEncodedPacketCache cache = new PreEncodedPacketCache(usage * 2L);
+        BufferedWirePacket first = cache.get("time", 1, () -> time);
+        BufferedWirePacket second = cache.get("time", 1, () -> {
+            throw new AssertionError("packet should be cached");
+        });
+
+        assertSame(first, second);
+        assertEquals(1, cache.size());
+        assertEquals(3, first.refCnt());
+        first.release();
+        second.release();
+        cache.invalidateAll();
+
+        // larger than the whole budget, so it is returned without being cached
+        PreEncodedPacketCache small = new PreEncodedPacketCache(usage / 2);
+        BufferedWirePacket oversized = small.get("time", 1, () -> time);
+
+        assertEquals(0, small.size());
+        assertEquals(1, oversized.refCnt());
+        assertArrayEquals(WirePacket.fromPacket(time).getBytes(), oversized.getBytes());
+        assertTrue(oversized.release());
+    }
+
+    @Test
+    public void testPrecompression() throws Exception {
+        byte[] array = new byte[1024];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = (byte) (i % 16);
+        }
+
+        BufferedWirePacket packet = new BufferedWirePacket(42, Unpooled.wrappedBuffer(array));
+        assertFalse(packet.isPrecompressed());
+        assertTrue(packet.precompress().isPrecompressed());
+
+        // the uncompressed length is followed by the zlib compressed frame
+        ByteBuf compressed = packet.retainedCompressedFrame();
+        assertEquals(packet.getLength(), WirePacket.readVarInt(compressed));
+
+        byte[] input = new byte[compressed.readableBytes()];
+        compressed.readBytes(input);
+        compressed.release();
+
+        Inflater inflater = new Inflater();
+        inflater.setInput(input);
+        byte[] frame = new byte[packet.getLength()];
+        assertEquals(frame.length, inflater.inflate(frame));
+        inflater.end();
+
+        ByteBuf expected = packet.retainedFrame();
+        assertEquals(expected, Unpooled.wrappedBuffer(frame));
+        expected.release();
+
+        assertTrue(packet.release());
+        assertEquals(0, compressed.refCnt());
+    }
+
+    @Test
+    public void testPrecompressionAfterRelease() {
+        BufferedWirePacket packet = new BufferedWirePacket(42, Unpooled.wrappedBuffer(new byte[64]));
+        assertTrue(packet.release());
+
+        // the compressed frame would never be released
+        assertThrows(IllegalReferenceCountException.class, packet::precompress);
+        assertFalse(packet.isPrecompressed());
+    }
+}
@@ -0,0 +1,248 @@
+package com.comphenix.protocol.injector.netty.channel;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.comphenix.protocol.BukkitInitialization;
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.PacketType.Protocol;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.shaping.ShapingPolicy;
+import com.comphenix.protocol.shaping.TrafficShaping;
+import com.comphenix.protocol.wrappers.BlockPosition;
+import com.comphenix.protocol.wrappers.ChunkCoordIntPair;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class OutboundPacketShaperTest {
+
+    private static final PacketType TYPE = PacketType.Play.Server.BLOCK_CHANGE;
+
+    private final UUID player = UUID.randomUUID();
+    private NettyChannelInjector injector;
+    private EmbeddedChannel channel;
+
+    @BeforeAll
+    public static void beforeClass() {
+        BukkitInitialization.initializeAll();
+    }
+
+    @BeforeEach
+    public void createChannel() {
+        this.injector = mock(NettyChannelInjector.class);
+        when(this.injector.getPlayerUniqueId()).thenReturn(this.player);
+        when(this.injector.getCurrentProtocol(PacketType.Sender.SERVER)).thenReturn(Protocol.PLAY);
+
+        this.channel = new EmbeddedChannel(new OutboundPacketShaper(this.injector));
+        TrafficShaping.setFlushInterval(1, TimeUnit.MILLISECONDS);
+    }
+
+    @AfterEach
+    public void resetShaping() {
+        this.channel.finishAndReleaseAll();
+        TrafficShaping.clearPolicies();
+        TrafficShaping.setFlushInterval(50, TimeUnit.MILLISECONDS);
+    }
+
+    private static Object createPacket(PacketType type) {
+        return new PacketContainer(type).getHandle();
+    }
+
+    private static Object createBlockChange(int x, int z) {
+        PacketContainer packet = new PacketContainer(TYPE);
+        packet.getBlockPositionModifier().write(0, new BlockPosition(x, 64, z));
+        return packet.getHandle();
+    }
+
+    private void setPolicy(double rate) {
+        TrafficShaping.setPolicy(this.player, TYPE, ShapingPolicy.newBuilder().rate(rate).burst(1).build());
+    }
+
+    private void runFlushWindow() throws InterruptedException {
+        Thread.sleep(5);
+        this.channel.runScheduledPendingTasks();
+    }
+
+    @Test
+    public void testDefer() throws InterruptedException {
+        this.setPolicy(0.001);
+
+        Object first = createPacket(TYPE);
+        Object second = createPacket(TYPE);
+        this.channel.writeAndFlush(first);
+        ChannelFuture deferred = this.channel.writeAndFlush(second);
+
+        // only the burst is sent, the other packet waits for budget
+        assertSame(first, this.channel.readOutbound());
+        assertNull(this.channel.readOutbound());
+        assertFalse(deferred.isDone());
+
+        // packets of other types are not shaped
+        Object other = createPacket(PacketType.Play.Server.KEEP_ALIVE);
+        this.channel.writeAndFlush(other);
+        assertSame(other, this.channel.readOutbound());
+
+        // deferred packets are sent once the type is no longer shaped
+        TrafficShaping.clearPolicies();
+        this.runFlushWindow();
+        assertSame(second, this.channel.readOutbound());
+        assertTrue(deferred.isSuccess());
+    }
+
+    @Test
+    public void testDrop() {
+        TrafficShaping.setPolicy(this.player, TYPE, ShapingPolicy.newBuilder()
+                .rate(0.001)
+                .burst(1)
+                .overflow(ShapingPolicy.Overflow.DROP)
+                .build());
+        long dropped = TrafficShaping.getDroppedCount();
+
+        Object first = createPacket(TYPE);
+        this.channel.writeAndFlush(first);
+        ChannelFuture future = this.channel.writeAndFlush(createPacket(TYPE));
+
+        assertSame(first, this.channel.readOutbound());
+        assertNull(this.channel.readOutbound());
+        assertTrue(future.isSuccess());
+        assertEquals(dropped + 1, TrafficShaping.getDroppedCount());
+    }
+
+    @Test
+    public void testWritability() {
+        this.setPolicy(1000);
+
+        // packets are deferred while the channel is not writable
+        this.channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        this.channel.runPendingTasks();
+        assertFalse(this.channel.isWritable());
+
+        Object packet = createPacket(TYPE);
+        this.channel.writeAndFlush(packet);
+        assertNull(this.channel.readOutbound());
+
+        // and sent right away once it is writable again
+        this.channel.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+        this.channel.runPendingTasks();
+        assertSame(packet, this.channel.readOutbound());
+    }
+
+    @Test
+    public void testStartConfiguration() {
+        this.setPolicy(0.001);
+
+        this.channel.writeAndFlush(createPacket(TYPE));
+        assertNotNull(this.channel.readOutbound());
+
+        Object deferred = createPacket(TYPE);
+        this.channel.writeAndFlush(deferred);
+        assertNull(this.channel.readOutbound());
+
+        // deferred packets are sent before the play protocol is left
+        Object start = createPacket(PacketType.Play.Server.START_CONFIGURATION);
+        this.channel.writeAndFlush(start);
+        assertSame(deferred, this.channel.readOutbound());
+        assertSame(start, this.channel.readOutbound());
+    }
+
+    @Test
+    public void testProtocolChange() throws InterruptedException {
+        this.setPolicy(0.001);
+        long dropped = TrafficShaping.getDroppedCount();
+
+        this.channel.writeAndFlush(createPacket(TYPE));
+        this.channel.readOutbound();
+        ChannelFuture first = this.channel.writeAndFlush(createPacket(TYPE));
+
+        // packets deferred in the play protocol cannot be encoded in another one
+        when(this.injector.getCurrentProtocol(PacketType.Sender.SERVER)).thenReturn(Protocol.CONFIGURATION);
+        Object configuration = createPacket(PacketType.Play.Server.KEEP_ALIVE);
+        this.channel.writeAndFlush(configuration);
+        assertSame(configuration, this.channel.readOutbound());
+        assertNull(this.channel.readOutbound());
+        assertTrue(first.isSuccess());
+
+        // which the flush window checks as well
+        when(this.injector.getCurrentProtocol(PacketType.Sender.SERVER)).thenReturn(Protocol.PLAY);
+        ChannelFuture second = this.channel.writeAndFlush(createPacket(TYPE));
+        assertFalse(second.isDone());
+
+        when(this.injector.getCurrentProtocol(PacketType.Sender.SERVER)).thenReturn(Protocol.CONFIGURATION);
+        TrafficShaping.clearPolicies();
+        this.runFlushWindow();
+        assertNull(this.channel.readOutbound());
+        assertTrue(second.isSuccess());
+        assertEquals(dropped + 2, TrafficShaping.getDroppedCount());
+    }
+
+    @Test
+    public void testRespawn() {
+        this.setPolicy(0.001);
+
+        this.channel.writeAndFlush(createPacket(TYPE));
+        assertNotNull(this.channel.readOutbound());
+
+        Object deferred = createPacket(TYPE);
+        this.channel.writeAndFlush(deferred);
+        assertNull(this.channel.readOutbound());
+
+        // deferred packets are sent before the world they were sent in is left
+        Object respawn = createPacket(PacketType.Play.Server.RESPAWN);
+        this.channel.writeAndFlush(respawn);
+        assertSame(deferred, this.channel.readOutbound());
+        assertSame(respawn, this.channel.readOutbound());
+    }
+
+    @Test
+    public void testChunkResent() {
+        this.setPolicy(0.001);
+        long dropped = TrafficShaping.getDroppedCount();
+
+        this.channel.writeAndFlush(createBlockChange(0, 0));
+        assertNotNull(this.channel.readOutbound());
+
+        // block changes in chunk (1, 2) and (3, 2)
+        ChannelFuture first = this.channel.writeAndFlush(createBlockChange(16, 32));
+        ChannelFuture second = this.channel.writeAndFlush(createBlockChange(48, 32));
+        assertNull(this.channel.readOutbound());
+
+        // the chunk that is sent again already contains the deferred change
+        PacketContainer chunk = new PacketContainer(PacketType.Play.Server.MAP_CHUNK);
+        chunk.getIntegers().write(0, 1).write(1, 2);
+        this.channel.writeAndFlush(chunk.getHandle());
+        assertSame(chunk.getHandle(), this.channel.readOutbound());
+        assertTrue(first.isSuccess());
+        assertFalse(second.isDone());
+        assertEquals(dropped + 1, TrafficShaping.getDroppedCount());
+
+        // and changes in a chunk that is unloaded are not sent either
+        PacketContainer unload = new PacketContainer(PacketType.Play.Server.UNLOAD_CHUNK);
+        if (unload.getChunkCoordIntPairs().size() > 0) {
+            unload.getChunkCoordIntPairs().write(0, new ChunkCoordIntPair(3, 2));
+        } else {
+            unload.getIntegers().write(0, 3).write(1, 2);
+        }
+        this.channel.writeAndFlush(unload.getHandle());
+        assertSame(unload.getHandle(), this.channel.readOutbound());
+        assertTrue(second.isSuccess());
+        assertEquals(dropped + 2, TrafficShaping.getDroppedCount());
+
+        // nothing is left to send
+        TrafficShaping.clearPolicies();
+        this.channel.runPendingTasks();
+        assertNull(this.channel.readOutbound());
+    }
+}
@@ -0,0 +1,127 @@
+package com.comphenix.protocol.injector.netty.channel;
+
+import java.util.UUID;
+
+import com.comphenix.protocol.BukkitInitialization;
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.PacketType.Protocol;
+import com.comphenix.protocol.bandwidth.BandwidthAccounting;
+import com.comphenix.protocol.bandwidth.BandwidthUsage;
+import com.comphenix.protocol.bandwidth.ConnectionBandwidth;
+import com.comphenix.protocol.injector.netty.BufferedWirePacket;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import net.minecraft.network.CompressionEncoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class WirePacketEncoderTest {
+
+    @BeforeAll
+    public static void beforeClass() {
+        BukkitInitialization.initializeAll();
+    }
+
+    @AfterEach
+    public void resetCounters() {
+        BandwidthAccounting.setEnabled(false);
+        BandwidthAccounting.reset();
+    }
+
+    private static BufferedWirePacket createPacket(PacketType type, int length) {
+        ByteBuf content = Unpooled.buffer(length);
+        for (int i = 0; i < length; i++) {
+            content.writeByte(i % 16);
+        }
+        return new BufferedWirePacket(type, content);
+    }
+
+    @Test
+    public void testPrecompressedBandwidth() {
+        UUID player = UUID.randomUUID();
+        ConnectionBandwidth bandwidth = BandwidthAccounting.register(() -> player);
+        BandwidthAccounting.setEnabled(true);
+
+        NettyChannelInjector injector = mock(NettyChannelInjector.class);
+        when(injector.getCurrentProtocol(PacketType.Sender.SERVER)).thenReturn(Protocol.PLAY);
+
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channel.pipeline()
+                .addLast("protocol_lib_wire_bandwidth", new WireBandwidthCounter(bandwidth))
+                .addLast("compress", new CompressionEncoder(256))
+                .addLast("protocol_lib_outbound_bandwidth", new OutboundBandwidthCounter(injector, bandwidth))
+                .addLast("protocol_lib_wire_packet_encoder", new WirePacketEncoder());
+
+        BufferedWirePacket small = createPacket(PacketType.Play.Server.KEEP_ALIVE, 8);
+        BufferedWirePacket large = createPacket(PacketType.Play.Server.MAP_CHUNK, 4096).precompress();
+        try {
+            // writing a packet consumes a reference, like sending it does
+            assertTrue(channel.writeOutbound(small.retain(), large.retain()));
+
+            // the small packet is below the threshold, and is passed through the compressor
+            ByteBuf written = channel.readOutbound();
+            int smallWire = written.readableBytes();
+            written.release();
+
+            // the large packet is written past the compressor as it was compressed ahead of time
+            written = channel.readOutbound();
+            ByteBuf expected = large.retainedCompressedFrame();
+            assertEquals(expected, written);
+            int largeWire = written.readableBytes();
+            expected.release();
+            written.release();
+            assertFalse(channel.finish());
+
+            BandwidthUsage smallUsage = BandwidthAccounting.getUsage(player).get(PacketType.Play.Server.KEEP_ALIVE);
+            assertEquals(1, smallUsage.getPackets());
+            assertEquals(small.getLength(), smallUsage.getEncodedBytes());
+            assertEquals(smallWire, smallUsage.getWireBytes());
+
+            BandwidthUsage largeUsage = BandwidthAccounting.getUsage(player).get(PacketType.Play.Server.MAP_CHUNK);
+            assertEquals(1, largeUsage.getPackets());
+            assertEquals(large.getLength(), largeUsage.getEncodedBytes());
+            assertEquals(largeWire, largeUsage.getWireBytes());
+        } finally {
+            small.release();
+            large.release();
+            BandwidthAccounting.unregister(bandwidth);
+        }
+    }
+
+    @Test
+    public void testUnknownCompressor() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channel.pipeline()
+                .addLast("compress", new UnknownCompressor())
+                .addLast("protocol_lib_wire_packet_encoder", new WirePacketEncoder());
+
+        BufferedWirePacket packet = createPacket(PacketType.Play.Server.MAP_CHUNK, 4096).precompress();
+        try {
+            // the frame is passed to compressors that might use another format
+            assertTrue(channel.writeOutbound(packet.retain()));
+            ByteBuf written = channel.readOutbound();
+            ByteBuf expected = packet.retainedFrame();
+            assertEquals(expected, written);
+            expected.release();
+            written.release();
+            assertFalse(channel.finish());
+        } finally {
+            packet.release();
+        }
+    }
+
+    private static final class UnknownCompressor extends ChannelOutboundHandlerAdapter {
+
+        @SuppressWarnings("unused")
+        private final int threshold = 256;
+    }
+}
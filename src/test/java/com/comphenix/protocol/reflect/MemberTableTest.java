@@ -0,0 +1,78 @@
+package com.comphenix.protocol.reflect;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.comphenix.protocol.reflect.fuzzy.FuzzyFieldContract;
+import com.comphenix.protocol.reflect.fuzzy.FuzzyMethodContract;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MemberTableTest {
+
+    @Test
+    void testTableIsCached() {
+        assertSame(MemberTable.of(Sample.class), MemberTable.of(Sample.class));
+        assertSame(MemberTable.of(Sample.class).fields(true), MemberTable.of(Sample.class).fields(true));
+    }
+
+    @Test
+    void testFieldCandidatesMatchFullScan() {
+        FuzzyFieldContract contract = FuzzyFieldContract.newBuilder()
+                .typeExact(String.class)
+                .banModifier(Modifier.STATIC)
+                .build();
+
+        List<Field> expected = new ArrayList<>();
+        for (Field field : Sample.class.getDeclaredFields()) {
+            if (contract.isMatch(field, Sample.class)) {
+                expected.add(field);
+            }
+        }
+
+        assertEquals(2, expected.size());
+        assertEquals(expected, FuzzyReflection.fromClass(Sample.class, true).getFieldList(contract));
+        assertEquals(2, MemberTable.of(Sample.class).fields(true).candidates(contract).length);
+    }
+
+    @Test
+    void testMethodCandidates() throws NoSuchMethodException {
+        FuzzyMethodContract contract = FuzzyMethodContract.newBuilder()
+                .returnTypeExact(int.class)
+                .parameterCount(1)
+                .build();
+
+        Method[] candidates = MemberTable.of(Sample.class).methods(true).candidates(contract);
+        assertArrayEquals(new Method[]{Sample.class.getDeclaredMethod("first", int.class)}, candidates);
+
+        Method method = FuzzyReflection.fromClass(Sample.class, true).getMethod(contract);
+        assertEquals("first", method.getName());
+    }
+
+    @SuppressWarnings("unused")
+    private static class Sample {
+
+        private static String constant;
+        private String name;
+        private int count;
+        private String description;
+
+        private int first(int value) {
+            return value;
+        }
+
+        private int second(int value, int other) {
+            return value + other;
+        }
+
+        private String third(int value) {
+            return null;
+        }
+    }
+}
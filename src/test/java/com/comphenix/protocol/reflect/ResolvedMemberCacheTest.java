@@ -0,0 +1,83 @@
+package com.comphenix.protocol.reflect;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ResolvedMemberCacheTest {
+
+    @Test
+    void testFieldRoundTrip() throws ReflectiveOperationException {
+        Field field = Sample.class.getDeclaredField("values");
+        String descriptor = ResolvedMemberCache.describe(field);
+
+        assertEquals(Sample.class.getName() + "#values:[[J", descriptor);
+        assertEquals(field, ResolvedMemberCache.resolve(descriptor, Sample.class.getClassLoader()));
+    }
+
+    @Test
+    void testMethodRoundTrip() throws ReflectiveOperationException {
+        Method method = Sample.class.getDeclaredMethod("lookup", Map.class, int.class, String[].class);
+        String descriptor = ResolvedMemberCache.describe(method);
+
+        assertEquals(Sample.class.getName() + "#lookup(Ljava.util.Map;I[Ljava.lang.String;)Ljava.lang.Object;", descriptor);
+        assertEquals(method, ResolvedMemberCache.resolve(descriptor, Sample.class.getClassLoader()));
+    }
+
+    @Test
+    void testConstructorRoundTrip() throws ReflectiveOperationException {
+        Constructor<?> constructor = Sample.class.getDeclaredConstructor(boolean.class);
+        String descriptor = ResolvedMemberCache.describe(constructor);
+
+        assertEquals(constructor, ResolvedMemberCache.resolve(descriptor, Sample.class.getClassLoader()));
+    }
+
+    @Test
+    void testChangedSignatureIsRejected() {
+        String descriptor = Sample.class.getName() + "#values:[I";
+        assertThrows(NoSuchFieldException.class,
+                () -> ResolvedMemberCache.resolve(descriptor, Sample.class.getClassLoader()));
+
+        String missing = Sample.class.getName() + "#lookup()V";
+        assertThrows(NoSuchMethodException.class,
+                () -> ResolvedMemberCache.resolve(missing, Sample.class.getClassLoader()));
+    }
+
+    @Test
+    void testBuildKey(@TempDir Path directory) throws IOException {
+        File jar = directory.resolve("server.jar").toFile();
+        Files.write(jar.toPath(), new byte[]{1, 2, 3, 4});
+
+        String key = ResolvedMemberCache.computeBuildKey(jar, "1.0");
+        assertEquals(key, ResolvedMemberCache.computeBuildKey(jar, "1.0"));
+        assertNotEquals(key, ResolvedMemberCache.computeBuildKey(jar, "1.1"));
+
+        Files.write(jar.toPath(), new byte[]{1, 2, 3, 5});
+        assertNotEquals(key, ResolvedMemberCache.computeBuildKey(jar, "1.0"));
+    }
+
+    @SuppressWarnings("unused")
+    private static class Sample {
+
+        private long[][] values;
+
+        private Sample(boolean flag) {
+        }
+
+        private Object lookup(Map<String, Object> map, int index, String[] keys) {
+            return null;
+        }
+    }
+}
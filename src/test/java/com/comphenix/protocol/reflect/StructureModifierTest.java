@@ -0,0 +1,45 @@
+package com.comphenix.protocol.reflect;
+
+import com.comphenix.protocol.BukkitInitialization;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.dimension.DimensionType;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StructureModifierTest {
+
+    @BeforeAll
+    public static void initializeBukkit() {
+        BukkitInitialization.initializeAll();
+    }
+
+    @Test
+    public void testParamTypesAreCachedSeparately() {
+        StructureModifier<Object> structure = new StructureModifier<>(ResourceKeyPacket.class, Object.class, false);
+
+        // the raw type is looked up first, as the structure warm-up does
+        assertEquals(2, structure.withType(ResourceKey.class).size());
+
+        StructureModifier<Object> worlds = structure.withParamType(ResourceKey.class, null, Level.class);
+        assertEquals(1, worlds.size());
+        assertEquals("world", worlds.getField(0).getName());
+
+        StructureModifier<Object> dimensions = structure.withParamType(ResourceKey.class, null, DimensionType.class);
+        assertEquals(1, dimensions.size());
+        assertEquals("dimensionType", dimensions.getField(0).getName());
+
+        // and the parameterized lookups do not replace the raw one either
+        assertEquals(2, structure.withType(ResourceKey.class).size());
+        assertEquals(2, structure.withTarget(new ResourceKeyPacket()).withType(ResourceKey.class).size());
+        assertEquals(1, structure.withTarget(new ResourceKeyPacket()).withParamType(ResourceKey.class, null, Level.class).size());
+    }
+
+    @SuppressWarnings("unused")
+    private static final class ResourceKeyPacket {
+        private ResourceKey<DimensionType> dimensionType;
+        private ResourceKey<Level> world;
+    }
+}
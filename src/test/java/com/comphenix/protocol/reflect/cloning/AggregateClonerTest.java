@@ -1,5 +1,6 @@
 package com.comphenix.protocol.reflect.cloning;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -9,6 +10,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 
 public class AggregateClonerTest {
 
@@ -23,6 +25,29 @@ public class AggregateClonerTest {
         assertEquals(input, AggregateCloner.DEFAULT.clone(input));
     }
 
+    @Test
+    public void testFieldPlan() {
+        Sample input = new Sample();
+        input.id = 42;
+        input.name = "sample";
+        input.values = new ArrayList<>(Arrays.asList(1, 2, 3));
+
+        for (int i = 0; i < 2; i++) {
+            Sample copy = (Sample) AggregateCloner.DEFAULT.clone(input);
+
+            assertEquals(42, copy.id);
+            assertEquals("sample", copy.name);
+            assertEquals(input.values, copy.values);
+            assertNotSame(input.values, copy.values);
+        }
+    }
+
+    public static class Sample {
+        private int id;
+        private String name;
+        private List<Integer> values;
+    }
+
     // @Test
     // Usages of NonNullList were removed in 1.17.1
     /* public void testNonNullList() {
@@ -0,0 +1,57 @@
+package com.comphenix.protocol.shaping;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.comphenix.protocol.BukkitInitialization;
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.wrappers.BlockPosition;
+import com.comphenix.protocol.wrappers.WrappedBlockData;
+import org.bukkit.Material;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class BlockChangeMergerTest {
+
+    @BeforeAll
+    static void beforeClass() {
+        BukkitInitialization.initializeAll();
+    }
+
+    private static PacketContainer blockChange(int x, int y, int z, Material material) {
+        PacketContainer packet = new PacketContainer(PacketType.Play.Server.BLOCK_CHANGE);
+        packet.getBlockPositionModifier().write(0, new BlockPosition(x, y, z));
+        packet.getBlockData().write(0, WrappedBlockData.createData(material));
+        return packet;
+    }
+
+    @Test
+    void testMerge() {
+        PacketContainer single = blockChange(100, 64, 100, Material.STONE);
+        List<PacketContainer> merged = new BlockChangeMerger().merge(Arrays.asList(
+                blockChange(1, 2, 3, Material.STONE),
+                single,
+                blockChange(4, 5, 6, Material.IRON_BLOCK),
+                blockChange(1, 2, 3, Material.IRON_BARS)));
+
+        assertEquals(2, merged.size());
+
+        PacketContainer section = merged.get(0);
+        assertEquals(PacketType.Play.Server.MULTI_BLOCK_CHANGE, section.getType());
+        assertEquals(new BlockPosition(0, 0, 0), section.getSectionPositions().read(0));
+        // the later change of a block replaces the earlier one
+        assertArrayEquals(new short[]{4 << 8 | 6 << 4 | 5, 1 << 8 | 3 << 4 | 2}, section.getShortArrays().read(0));
+
+        WrappedBlockData[] blocks = section.getBlockDataArrays().read(0);
+        assertEquals(Material.IRON_BLOCK, blocks[0].getType());
+        assertEquals(Material.IRON_BARS, blocks[1].getType());
+
+        // sections with a single change keep their packet
+        assertSame(single, merged.get(1));
+    }
+}
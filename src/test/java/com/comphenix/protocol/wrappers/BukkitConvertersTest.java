@@ -1,6 +1,10 @@
 package com.comphenix.protocol.wrappers;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.comphenix.protocol.BukkitInitialization;
 import com.comphenix.protocol.PacketType;
@@ -104,4 +108,69 @@ public class BukkitConvertersTest {
         assertEquals(wrappedRemoteChatSessionData, specific);
 
     }
+
+    @Test
+    public void testLazyListConverter() {
+        AtomicInteger conversions = new AtomicInteger();
+        EquivalentConverter<String> itemConverter = new EquivalentConverter<String>() {
+            @Override
+            public Object getGeneric(String specific) {
+                return Integer.parseInt(specific);
+            }
+
+            @Override
+            public String getSpecific(Object generic) {
+                conversions.incrementAndGet();
+                return generic.toString();
+            }
+
+            @Override
+            public Class<String> getSpecificType() {
+                return String.class;
+            }
+        };
+        EquivalentConverter<List<String>> converter = BukkitConverters.getListConverter(itemConverter);
+
+        List<Integer> generic = Collections.unmodifiableList(Arrays.asList(1, 2, 3, 4));
+        List<String> specific = converter.getSpecific(generic);
+
+        // only accessed items are converted, and unmodified lists are written back as they are
+        assertEquals("3", specific.get(2));
+        assertEquals(1, conversions.get());
+        assertSame(generic, converter.getGeneric(specific));
+
+        // modifications are copied and never reach the read list
+        specific.set(0, "5");
+        specific.remove(3);
+        assertEquals(Arrays.asList("5", "2", "3"), specific);
+        assertEquals(Arrays.asList(1, 2, 3, 4), generic);
+        assertEquals(Arrays.asList(5, 2, 3), converter.getGeneric(specific));
+    }
+
+    @Test
+    public void testLazyListWrapperChanges() {
+        EquivalentConverter<List<WrappedChatComponent>> converter =
+                BukkitConverters.getListConverter(BukkitConverters.getWrappedChatComponentConverter());
+        WrappedChatComponent first = WrappedChatComponent.fromText("first");
+        WrappedChatComponent second = WrappedChatComponent.fromText("second");
+        List<Object> generic = Arrays.asList(first.getHandle(), second.getHandle());
+
+        // wrappers that were read but not changed write back the original list
+        List<WrappedChatComponent> specific = converter.getSpecific(generic);
+        assertSame(specific.get(0), specific.get(0));
+        assertSame(generic, converter.getGeneric(specific));
+
+        // changes made through a wrapper are written back, without touching the read list
+        specific.get(0).setJson(WrappedChatComponent.fromText("changed").getJson());
+        Object written = converter.getGeneric(specific);
+        assertNotSame(generic, written);
+        assertEquals(WrappedChatComponent.fromText("changed").getJson(), converter.getSpecific(written).get(0).getJson());
+        assertSame(second.getHandle(), ((List<?>) written).get(1));
+        assertSame(first.getHandle(), generic.get(0));
+
+        // null items are skipped, as they were before
+        List<WrappedChatComponent> withNull = converter.getSpecific(Arrays.asList(first.getHandle(), null));
+        assertEquals(1, withNull.size());
+        assertEquals(first.getJson(), withNull.get(0).getJson());
+    }
 }
@@ -0,0 +1,109 @@
+package com.comphenix.protocol.wrappers;
+
+import com.comphenix.protocol.BukkitInitialization;
+import com.comphenix.protocol.injector.netty.WirePacket;
+import com.comphenix.protocol.utility.MinecraftVersion;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChunkSectionCodecTest {
+
+    @BeforeAll
+    public static void initializeBukkit() {
+        BukkitInitialization.initializeAll();
+    }
+
+    private static void writeSingleValued(ByteBuf buffer, int value) {
+        buffer.writeByte(0);
+        WirePacket.writeVarInt(buffer, value);
+        if (!MinecraftVersion.v1_21_5.atOrAbove()) {
+            WirePacket.writeVarInt(buffer, 0);
+        }
+    }
+
+    private static byte[] createSections() {
+        ByteBuf buffer = Unpooled.buffer();
+
+        // a section of stone (1) with a single granite (2) block, packed with 4 bits per block
+        buffer.writeShort(4096);
+        buffer.writeByte(4);
+        WirePacket.writeVarInt(buffer, 2);
+        WirePacket.writeVarInt(buffer, 1);
+        WirePacket.writeVarInt(buffer, 2);
+        if (!MinecraftVersion.v1_21_5.atOrAbove()) {
+            WirePacket.writeVarInt(buffer, 256);
+        }
+        for (int i = 0; i < 256; i++) {
+            buffer.writeLong(i == 0 ? 1L << 5 * 4 : 0);
+        }
+        writeSingleValued(buffer, 0);
+
+        // a section of air
+        buffer.writeShort(0);
+        writeSingleValued(buffer, 0);
+        writeSingleValued(buffer, 0);
+
+        return ByteBufUtil.getBytes(buffer);
+    }
+
+    @Test
+    public void testReadAndModifyInPlace() {
+        byte[] buffer = createSections();
+        ChunkSectionCodec codec = ChunkSectionCodec.read(buffer);
+
+        assertEquals(2, codec.getSectionCount());
+        ChunkSectionCodec.PalettedContainer blocks = codec.getSection(0).getBlockStates();
+        assertEquals(4096, codec.getSection(0).getNonEmptyBlockCount());
+        assertEquals(4, blocks.getBitsPerEntry());
+        assertEquals(1, blocks.get(0));
+        assertEquals(2, blocks.get(5, 0, 0));
+        assertEquals(0, codec.getSection(1).getBlockStates().get(15, 15, 15));
+
+        // ids in the palette and palette entries of the same size are written into the buffer
+        blocks.set(6, 2);
+        blocks.replaceAll(id -> id == 1 ? 3 : id);
+        assertEquals(2, blocks.get(6));
+        assertEquals(3, blocks.get(0));
+        assertFalse(codec.isRepackRequired());
+        assertSame(buffer, codec.encode());
+
+        ChunkSectionCodec read = ChunkSectionCodec.read(buffer);
+        assertEquals(3, read.getSection(0).getBlockStates().get(0));
+        assertEquals(2, read.getSection(0).getBlockStates().get(6));
+
+        assertThrows(UnsupportedOperationException.class, () -> codec.getSection(0).getBiomes().set(0, 1));
+    }
+
+    @Test
+    public void testRepack() {
+        ChunkSectionCodec codec = ChunkSectionCodec.read(createSections());
+        codec.getSection(0).getBlockStates().set(7, 300);
+        codec.getSection(1).getBlockStates().set(0, 1);
+        codec.getSection(1).setNonEmptyBlockCount(1);
+        assertTrue(codec.isRepackRequired());
+
+        ChunkSectionCodec read = ChunkSectionCodec.read(codec.encode());
+        assertEquals(2, read.getSectionCount());
+
+        ChunkSectionCodec.PalettedContainer blocks = read.getSection(0).getBlockStates();
+        assertEquals(3, blocks.getPaletteSize());
+        assertEquals(1, blocks.get(0));
+        assertEquals(2, blocks.get(5));
+        assertEquals(300, blocks.get(7));
+
+        ChunkSectionCodec.PalettedContainer air = read.getSection(1).getBlockStates();
+        assertEquals(1, read.getSection(1).getNonEmptyBlockCount());
+        assertEquals(1, air.get(0));
+        assertEquals(0, air.get(1));
+        assertEquals(0, read.getSection(1).getBiomes().get(0));
+    }
+}
@@ -0,0 +1,95 @@
+package com.comphenix.protocol.wrappers;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.comphenix.protocol.BukkitInitialization;
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.wrappers.WrappedDataWatcher.Registry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetadataPatchTest {
+
+    @BeforeAll
+    public static void initializeBukkit() {
+        BukkitInitialization.initializeAll();
+    }
+
+    @Test
+    public void testApply() {
+        PacketContainer packet = new PacketContainer(PacketType.Play.Server.ENTITY_METADATA);
+        packet.getIntegers().write(0, 1);
+        List<WrappedDataValue> original = Arrays.asList(
+                new WrappedDataValue(0, Registry.get(Byte.class), (byte) 0),
+                new WrappedDataValue(2, Registry.get(Integer.class), 20),
+                new WrappedDataValue(3, Registry.get(Boolean.class), false));
+        packet.getDataValueCollectionModifier().write(0, original);
+
+        MetadataPatch patch = MetadataPatch.newBuilder()
+                .set(0, Registry.get(Byte.class), (byte) 0x40)
+                .remove(2)
+                .set(5, Registry.get(Boolean.class), true)
+                .build();
+        assertTrue(patch.isPatched(2));
+        assertFalse(patch.isPatched(3));
+        patch.apply(packet);
+
+        List<WrappedDataValue> values = packet.getDataValueCollectionModifier().read(0);
+        assertEquals(3, values.size());
+        assertEquals(0, values.get(0).getIndex());
+        assertEquals((byte) 0x40, values.get(0).getValue());
+        assertEquals(3, values.get(1).getIndex());
+        assertEquals(5, values.get(2).getIndex());
+        assertEquals(true, values.get(2).getValue());
+    }
+
+    @Test
+    public void testDiffAndMerge() {
+        List<WrappedDataValue> source = Arrays.asList(
+                new WrappedDataValue(0, Registry.get(Byte.class), (byte) 0),
+                new WrappedDataValue(1, Registry.get(Integer.class), 300));
+        List<WrappedDataValue> target = Arrays.asList(
+                new WrappedDataValue(0, Registry.get(Byte.class), (byte) 0),
+                new WrappedDataValue(2, Registry.get(Boolean.class), true));
+
+        MetadataPatch diff = MetadataPatch.diff(source, target);
+        assertEquals(2, diff.size());
+        assertFalse(diff.isPatched(0));
+        assertTrue(diff.isPatched(1));
+        assertEquals(true, diff.getValue(2).getValue());
+
+        MetadataPatch merged = diff.merge(MetadataPatch.newBuilder().set(1, Registry.get(Integer.class), 10).build());
+        assertEquals(10, merged.getValue(1).getValue());
+        assertSame(diff, diff.merge(MetadataPatch.empty()));
+    }
+
+    @Test
+    public void testValuesAreNotShared() {
+        WrappedDataValue value = new WrappedDataValue(1, Registry.get(Integer.class), 5);
+        MetadataPatch patch = MetadataPatch.newBuilder().set(value).build();
+
+        // neither the value the patch was built from nor the returned value change the patch
+        value.setValue(6);
+        patch.getValue(1).setValue(7);
+        assertEquals(5, patch.getValue(1).getValue());
+
+        // and every packet receives its own copy
+        PacketContainer first = new PacketContainer(PacketType.Play.Server.ENTITY_METADATA);
+        PacketContainer second = new PacketContainer(PacketType.Play.Server.ENTITY_METADATA);
+        first.getDataValueCollectionModifier().write(0, List.of());
+        second.getDataValueCollectionModifier().write(0, List.of());
+        patch.apply(first);
+        patch.apply(second);
+
+        first.getDataValueCollectionModifier().read(0).get(0).setValue(8);
+        assertEquals(5, second.getDataValueCollectionModifier().read(0).get(0).getValue());
+        assertEquals(5, patch.getValue(1).getValue());
+    }
+}
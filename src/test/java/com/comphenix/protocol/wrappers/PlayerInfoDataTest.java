@@ -14,9 +14,12 @@
  */
 package com.comphenix.protocol.wrappers;
 
+import java.util.List;
 import java.util.UUID;
 
 import com.comphenix.protocol.BukkitInitialization;
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.utility.TestUtils;
 import com.comphenix.protocol.wrappers.EnumWrappers.NativeGameMode;
 
@@ -24,6 +27,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 /**
  * @author dmulloy2
@@ -47,6 +51,29 @@ public class PlayerInfoDataTest {
         testWriteBack(new PlayerInfoData(profile.getUUID(), 42, true, NativeGameMode.CREATIVE, profile, displayName, true, 5, TestUtils.creteDummyRemoteChatSessionData()));
     }
 
+    @Test
+    public void testBatch() {
+        WrappedGameProfile profile = new WrappedGameProfile(UUID.randomUUID(), "Name");
+        WrappedChatComponent displayName = WrappedChatComponent.fromText("Name's Name");
+        WrappedRemoteChatSessionData session = TestUtils.creteDummyRemoteChatSessionData();
+
+        PlayerInfoData first = new PlayerInfoData(profile.getUUID(), 42, true, NativeGameMode.CREATIVE, profile, displayName, true, 5, session);
+        PlayerInfoData second = new PlayerInfoData(UUID.randomUUID(), 7, false, NativeGameMode.SURVIVAL, null, null, session);
+
+        PlayerInfoDataBatch batch = new PlayerInfoDataBatch(2)
+                .add(first)
+                .add(second.getProfileId(), null, false, 7, NativeGameMode.SURVIVAL, null, false, 0, session);
+        assertEquals(2, batch.size());
+
+        PacketContainer packet = new PacketContainer(PacketType.Play.Server.PLAYER_INFO);
+        batch.write(packet);
+
+        List<PlayerInfoData> entries = packet.getPlayerInfoDataLists().read(0);
+        assertEquals(first, entries.get(0));
+        assertEquals(second, entries.get(1));
+        assertSame(batch.getHandles(), packet.getModifier().withType(List.class).read(0));
+    }
+
     private static void testWriteBack(PlayerInfoData data) {
         Object generic = PlayerInfoData.getConverter().getGeneric(data);
         PlayerInfoData back = PlayerInfoData.getConverter().getSpecific(generic);
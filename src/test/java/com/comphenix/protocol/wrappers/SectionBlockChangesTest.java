@@ -0,0 +1,56 @@
+package com.comphenix.protocol.wrappers;
+
+import com.comphenix.protocol.BukkitInitialization;
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.PacketContainer;
+import org.bukkit.Material;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class SectionBlockChangesTest {
+
+    @BeforeAll
+    public static void initializeBukkit() {
+        BukkitInitialization.initializeAll();
+    }
+
+    @Test
+    public void testReadAndWrite() {
+        PacketContainer packet = new PacketContainer(PacketType.Play.Server.MULTI_BLOCK_CHANGE);
+        packet.getSectionPositions().write(0, new BlockPosition(2, -1, 3));
+        packet.getShortArrays().write(0, new short[]{SectionBlockChanges.pack(1, 2, 3), SectionBlockChanges.pack(15, 15, 15)});
+        packet.getBlockDataArrays().write(0, new WrappedBlockData[]{
+                WrappedBlockData.createData(Material.STONE),
+                WrappedBlockData.createData(Material.DIRT)
+        });
+
+        SectionBlockChanges changes = SectionBlockChanges.fromPacket(packet);
+        assertEquals(2, changes.size());
+        assertEquals(33, changes.getBlockX(0));
+        assertEquals(-14, changes.getBlockY(0));
+        assertEquals(51, changes.getBlockZ(0));
+        assertEquals(47, changes.getBlockX(1));
+        assertEquals(-1, changes.getBlockY(1));
+        assertEquals(WrappedBlockData.createData(Material.STONE).getStateId(), changes.getStateId(0));
+        assertSame(Material.DIRT, changes.getBlockData(1).getType());
+
+        // changes are written back in bulk
+        changes.setBlockData(0, WrappedBlockData.createData(Material.GLASS));
+        changes.getPositions()[1] = SectionBlockChanges.pack(0, 0, 0);
+        changes.write(packet);
+
+        WrappedBlockData[] blocks = packet.getBlockDataArrays().read(0);
+        assertEquals(Material.GLASS, blocks[0].getType());
+        assertEquals(Material.DIRT, blocks[1].getType());
+        assertArrayEquals(new short[]{SectionBlockChanges.pack(1, 2, 3), 0}, packet.getShortArrays().read(0));
+
+        PacketContainer created = SectionBlockChanges.create(new BlockPosition(0, 0, 0),
+                new short[]{SectionBlockChanges.pack(4, 5, 6)}, new int[]{changes.getStateId(1)}).toPacket();
+        assertEquals(new BlockPosition(0, 0, 0), created.getSectionPositions().read(0));
+        assertEquals(Material.DIRT, created.getBlockDataArrays().read(0)[0].getType());
+    }
+}
@@ -14,6 +14,13 @@
  */
 package com.comphenix.protocol.wrappers;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import com.comphenix.protocol.BukkitInitialization;
 
 import net.minecraft.world.level.block.state.BlockState;
@@ -27,6 +34,8 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * @author dmulloy2
@@ -68,4 +77,64 @@ public class WrappedBlockDataTest {
         assertEquals(back.hasFace(BlockFace.EAST), data.hasFace(BlockFace.EAST));
         assertEquals(back.hasFace(BlockFace.SOUTH), data.hasFace(BlockFace.SOUTH));
     }
+
+    @Test
+    public void testInterning() {
+        BlockState nmsData = CraftMagicNumbers.getBlock(Material.OAK_STAIRS).defaultBlockState();
+        int stateId = net.minecraft.world.level.block.Block.getId(nmsData);
+
+        WrappedBlockData interned = WrappedBlockData.fromStateId(stateId);
+        assertSame(nmsData, interned.getHandle());
+        assertSame(interned, WrappedBlockData.intern(nmsData));
+        assertEquals(stateId, interned.getStateId());
+        assertEquals(stateId, WrappedBlockData.createData(Material.OAK_STAIRS).getStateId());
+        assertEquals(Material.OAK_STAIRS, interned.getType());
+
+        // interned block data is shared, so it cannot be modified
+        assertThrows(UnsupportedOperationException.class, () -> interned.setType(Material.STONE));
+        WrappedBlockData copy = interned.deepClone();
+        copy.setType(Material.STONE);
+        assertEquals(Material.STONE, copy.getType());
+        assertEquals(Material.OAK_STAIRS, interned.getType());
+
+        assertThrows(IllegalArgumentException.class, () -> WrappedBlockData.fromStateId(-1));
+        assertThrows(IllegalArgumentException.class, () -> WrappedBlockData.fromStateId(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testConcurrentInterning() throws Exception {
+        int stateCount = WrappedBlockData.getStateCount();
+        int threads = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // every thread interns every state, starting at another id, so the table is grown while others publish
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<WrappedBlockData[]>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int offset = i * stateCount / threads;
+                results.add(executor.submit(() -> {
+                    WrappedBlockData[] interned = new WrappedBlockData[stateCount];
+                    start.await();
+                    for (int j = 0; j < stateCount; j++) {
+                        int stateId = stateCount - 1 - (j + offset) % stateCount;
+                        interned[stateId] = WrappedBlockData.fromStateId(stateId);
+                    }
+                    return interned;
+                }));
+            }
+            start.countDown();
+
+            WrappedBlockData[] expected = results.get(0).get();
+            for (Future<WrappedBlockData[]> result : results) {
+                WrappedBlockData[] interned = result.get();
+                for (int stateId = 0; stateId < stateCount; stateId++) {
+                    assertSame(expected[stateId], interned[stateId]);
+                    assertSame(expected[stateId], WrappedBlockData.fromStateId(stateId));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -7,6 +7,8 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 public class WrappedChatComponentTest {
 
@@ -24,4 +26,22 @@ public class WrappedChatComponentTest {
         WrappedChatComponent clone = WrappedChatComponent.fromJson(json);
         assertEquals(json, clone.getJson());
     }
+
+    @Test
+    public void testParsedComponentsAreShared() {
+        String json = "{\"text\":\"Cached\"}";
+        WrappedChatComponent first = WrappedChatComponent.fromJsonShared(json);
+        WrappedChatComponent second = WrappedChatComponent.fromJsonShared(json);
+        assertSame(first.getHandle(), second.getHandle());
+
+        // only components that were asked to be shared are
+        WrappedChatComponent parsed = WrappedChatComponent.fromJson(json);
+        assertNotSame(first.getHandle(), parsed.getHandle());
+        parsed.setJson(json);
+        assertNotSame(first.getHandle(), parsed.getHandle());
+
+        WrappedChatComponent clone = first.deepClone();
+        assertNotSame(first.getHandle(), clone.getHandle());
+        assertEquals(first.getJson(), clone.getJson());
+    }
 }
@@ -20,6 +20,7 @@ import java.util.Optional;
 import com.comphenix.protocol.BukkitInitialization;
 import com.comphenix.protocol.utility.MinecraftReflection;
 import com.comphenix.protocol.wrappers.WrappedDataWatcher.Registry;
+import com.comphenix.protocol.wrappers.WrappedDataWatcher.Serializer;
 import com.comphenix.protocol.wrappers.WrappedDataWatcher.WrappedDataWatcherObject;
 import com.comphenix.protocol.wrappers.nbt.NbtBase;
 import com.comphenix.protocol.wrappers.nbt.NbtCompound;
@@ -230,4 +231,63 @@ public class WrappedDataWatcherTest {
             assertEquals(watcher.getObject(i), cloned.getObject(i));
         }
     }
+
+    @Test
+    public void testInMemoryClone() {
+        InMemoryDataWatcher watcher = new InMemoryDataWatcher();
+        watcher.setObject(new WrappedDataWatcherObject(0, Registry.get(Byte.class)), (byte) 3, false);
+        watcher.setObject(new WrappedDataWatcherObject(40, Registry.get(Float.class)), 1.5F, false);
+
+        InMemoryDataWatcher cloned = (InMemoryDataWatcher) watcher.deepClone();
+        assertEquals(2, cloned.size());
+        assertEquals((byte) 3, cloned.getByte(0));
+        assertEquals(1.5F, cloned.getFloat(40));
+        assertThrows(IllegalArgumentException.class, () -> cloned.getInt(1));
+
+        // the copy keeps the values at the time of the copy
+        watcher.getWatchableObject(0).setValue((byte) 7);
+        assertEquals((byte) 3, cloned.getByte(0));
+        assertEquals((byte) 3, cloned.getWatchableObject(0).getValue());
+        assertNotSame(watcher.getWatchableObject(0), cloned.getWatchableObject(0));
+
+        cloned.remove(40);
+        assertEquals(List.of(0), List.copyOf(cloned.getIndexes()));
+        assertTrue(watcher.hasIndex(40));
+    }
+
+    @Test
+    public void testInMemoryMissingValues() {
+        WrappedDataWatcherObject first = new WrappedDataWatcherObject(0, Registry.get(Byte.class));
+        InMemoryDataWatcher watcher = new InMemoryDataWatcher();
+        watcher.setObject(first, (WrappedWatchableObject) null, false);
+        assertTrue(watcher.hasIndex(0));
+        assertNull(watcher.getObject(0));
+
+        // values of another type are rejected like missing values
+        watcher.setObject(first, (byte) 3, false);
+        assertThrows(IllegalArgumentException.class, () -> watcher.getFloat(0));
+        assertThrows(IllegalArgumentException.class, () -> watcher.getInt(0));
+
+        // indexes without an item are not passed to the watcher
+        watcher.setObject(new WrappedDataWatcherObject(40, Registry.get(Float.class)), 1.5F, false);
+        watcher.setObject(new WrappedDataWatcherObject(41, Registry.get(Float.class)), (WrappedWatchableObject) null, false);
+        InMemoryDataWatcher copy = new InMemoryDataWatcher(watcher.getHandle());
+        assertEquals(2, copy.size());
+        assertEquals((byte) 3, copy.getByte(0));
+        assertEquals(1.5F, copy.getFloat(40));
+    }
+
+    @Test
+    public void testSerializerLookup() {
+        Registry.warmup();
+
+        Serializer serializer = Registry.get(Byte.class);
+        assertSame(serializer, Registry.get(Byte.class, false));
+        assertSame(serializer, Registry.fromHandle(serializer.getHandle()));
+
+        Serializer optional = Registry.getBlockPositionSerializer(true);
+        assertTrue(optional.isOptional());
+        assertSame(optional, Registry.fromHandle(optional.getHandle()));
+        assertThrows(IllegalArgumentException.class, () -> Registry.get(Thread.class));
+    }
 }